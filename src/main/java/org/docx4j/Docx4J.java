@@ -443,7 +443,9 @@ public class Docx4J {
 //	}
 	
 	/**
-	 *  Duplicate the document
+	 *  Duplicate the document.  Parts which haven't been loaded yet are
+	 *  shared with the original (via its part store) until they are accessed, 
+	 *  and binary parts share their bytes (read-only).
 	 */	
 	public static WordprocessingMLPackage clone(WordprocessingMLPackage wmlPackage) throws Docx4JException {
 		//Using the PartialDeepCopy is probably faster than serializing and deserializing the complete document.
@@ -19,7 +19,6 @@
  */
 package org.docx4j.convert.out.common.preprocess;
 
-import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Set;
 
@@ -236,10 +235,16 @@ public class PartialDeepCopy {
 
 
 	protected static void deepCopyContent(Part source, Part destination) throws Docx4JException {
-		if (source instanceof BinaryPart) {
-			byte[] byteData = new byte[((BinaryPart)source).getBuffer().limit()]; // = remaining() when current pos = 0
-			((BinaryPart)source).getBuffer().get(byteData);
-			((BinaryPart)destination).setBinaryData(ByteBuffer.wrap(byteData));
+		if (isUnloaded(source)) {
+			// Nothing to copy: the copy will load its own content from 
+			// the source part store (which it shares) when it is first accessed, 
+			// and if it isn't accessed, will be saved straight from there. 
+			log.debug("Sharing unloaded " + source.getPartName());
+		}
+		else if (source instanceof BinaryPart) {
+			// Share the bytes; a read-only view, so the copy can't change 
+			// the source (the copy's getBuffer() copies them, if invoked)
+			((BinaryPart)destination).setBinaryData(((BinaryPart)source).getReadOnlyBuffer());
 		}
 		else if (source instanceof JaxbXmlPart) {
 			((JaxbXmlPart)destination).setJaxbElement(XmlUtils.deepCopy(((JaxbXmlPart)source).getJaxbElement(), 
@@ -268,6 +273,27 @@ public class PartialDeepCopy {
 		}
 	}
 
+	/**
+	 * Is the content of this part still in the package's source part store? 
+	 * 
+	 * @since 3.2.2
+	 */
+	protected static boolean isUnloaded(Part part) {
+		
+		if (part.getPackage()==null
+				|| part.getPackage().getSourcePartStore()==null) {
+			return false;
+		}
+		if (part instanceof BinaryPart) {
+			return !((BinaryPart)part).isLoaded()
+					&& ((BinaryPart)part).getExternalTarget()==null;
+		}
+		if (part instanceof JaxbXmlPart) {
+			return !((JaxbXmlPart)part).isUnmarshalled();
+		}
+		return false;
+	}
+
 	protected static void shallowCopyContent(Part source, Part destination) throws Docx4JException {
 		if (source instanceof BinaryPart) {
 			((BinaryPart)destination).setBinaryData(((BinaryPart)source).getBuffer());
@@ -33,7 +33,7 @@ import org.docx4j.convert.out.fo.renderers.FORendererApacheFOP;
 import org.docx4j.convert.out.fo.renderers.FORendererDummy;
 import org.docx4j.fonts.RunFontSelector;
 import org.docx4j.fonts.RunFontSelector.RunFontActionType;
-import org.docx4j.fonts.RunFontSelector.RunFontCharacterVisitor;
+import org.docx4j.fonts.RunFontSelector.RunFontSpanVisitor;
 import org.docx4j.model.images.ConversionImageHandler;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.slf4j.Logger;
@@ -99,7 +99,7 @@ public class FOConversionContext extends AbstractWmlConversionContext {
 		
 		return new RunFontSelector(wmlPackage, 
 				
-			new RunFontCharacterVisitor() {
+			new RunFontSpanVisitor() {
 			
 	    		DocumentFragment df;			
 				StringBuilder sb = new StringBuilder(1024); 
@@ -123,6 +123,10 @@ public class FOConversionContext extends AbstractWmlConversionContext {
 				public void addCharacterToCurrent(char c) {
 			    	sb.append(c);		
 				}
+
+				public void addCharactersToCurrent(String text, int start, int end) {
+			    	sb.append(text, start, end);		
+				}
 	
 				public void finishPrevious() {
 					
@@ -30,7 +30,7 @@ import org.docx4j.convert.out.common.writer.AbstractMessageWriter;
 import org.docx4j.fonts.Mapper;
 import org.docx4j.fonts.RunFontSelector;
 import org.docx4j.fonts.RunFontSelector.RunFontActionType;
-import org.docx4j.fonts.RunFontSelector.RunFontCharacterVisitor;
+import org.docx4j.fonts.RunFontSelector.RunFontSpanVisitor;
 import org.docx4j.model.images.ConversionImageHandler;
 import org.docx4j.openpackaging.packages.OpcPackage;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
@@ -129,7 +129,7 @@ public class HTMLConversionContext extends AbstractWmlConversionContext {
 		
 		return new RunFontSelector(wmlPackage, 
 				
-			new RunFontCharacterVisitor() {
+			new RunFontSpanVisitor() {
 			
 	    		DocumentFragment df;			
 				StringBuilder sb = new StringBuilder(1024); 
@@ -153,6 +153,10 @@ public class HTMLConversionContext extends AbstractWmlConversionContext {
 				public void addCharacterToCurrent(char c) {
 			    	sb.append(c);		
 				}
+
+				public void addCharactersToCurrent(String text, int start, int end) {
+			    	sb.append(text, start, end);		
+				}
 	
 				public void finishPrevious() {
 					
@@ -19,11 +19,13 @@
  */
 package org.docx4j.fonts;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
@@ -83,6 +85,75 @@ public class BestMatchingMapper extends Mapper {
 
 
 	int lastSeenNumberOfPhysicalFonts = 0;
+	
+	/** 
+	 * Mapping decisions, shared by all instances, keyed by document font name 
+	 * and panose (see getMemoKey); a null value means no match was found.  
+	 * Cleared when the physical fonts change.
+	 */
+	private final static Map<String, PhysicalFont> mappingMemo 
+		= Collections.synchronizedMap(new HashMap<String, PhysicalFont>());
+	private static long memoPhysicalFontsModificationCount = -1;
+	private static int memoPhysicalFontsSize = -1;
+	
+	private final static AtomicLong memoHits = new AtomicLong();
+	private final static AtomicLong memoMisses = new AtomicLong();
+	
+	/**
+	 * @return how many document fonts have been mapped using 
+	 * a previous mapping decision
+	 * @since 3.2.2
+	 */
+	public static long getMappingMemoHits() {
+		return memoHits.get();
+	}
+
+	/**
+	 * @return how many document fonts have been mapped by searching
+	 * the physical fonts
+	 * @since 3.2.2
+	 */
+	public static long getMappingMemoMisses() {
+		return memoMisses.get();
+	}
+	
+	/**
+	 * Forget previous mapping decisions.  You don't need to do this
+	 * when physical fonts are added; that is detected.
+	 * @since 3.2.2
+	 */
+	public static void clearMappingMemo() {
+		mappingMemo.clear();
+	}
+	
+	private static void invalidateMappingMemoIfStale() {
+		
+		synchronized (mappingMemo) {
+			long modificationCount = PhysicalFonts.getModificationCount();
+			int size = PhysicalFonts.getPhysicalFonts().size();
+			if (modificationCount != memoPhysicalFontsModificationCount
+					|| size != memoPhysicalFontsSize) {
+				if (!mappingMemo.isEmpty()) {
+					log.debug("Physical fonts have changed; clearing mapping memo");
+				}
+				mappingMemo.clear();
+				memoPhysicalFontsModificationCount = modificationCount;
+				memoPhysicalFontsSize = size;
+			}
+		}
+	}
+	
+	private static String getMemoKey(String documentFontName, org.docx4j.wml.FontPanose wmlFontPanose) {
+		
+		StringBuilder sb = new StringBuilder(documentFontName.toLowerCase());
+		if (wmlFontPanose!=null && wmlFontPanose.getVal()!=null) {
+			sb.append('|');
+			for (byte b : wmlFontPanose.getVal()) {
+				sb.append(' ').append(b);
+			}
+		}
+		return sb.toString();
+	}
 
     
     /** Max difference for it to be considered an acceptable match.
@@ -236,6 +307,8 @@ public class BestMatchingMapper extends Mapper {
 			
 		log.info("\n\n Populating font mappings.");
 		
+		invalidateMappingMemoIfStale();
+		
 		// Go through the font names, and determine which ones we can render!		
 		for (String documentFontName : documentFontNames) {
 			
@@ -273,6 +346,24 @@ public class BestMatchingMapper extends Mapper {
 			} else {
 				wmlFontPanoseForDocumentFont = font.getPanose1();
 			}
+			
+			// Have we mapped this font (with this panose) before?
+			String memoKey = getMemoKey(documentFontName, wmlFontPanoseForDocumentFont);
+			synchronized (mappingMemo) {
+				if (mappingMemo.containsKey(memoKey)) {
+					memoHits.incrementAndGet();
+					fontMatched = mappingMemo.get(memoKey);
+					if (fontMatched==null) {
+						log.debug("Nothing added for: " + documentFontName + " (as before)");
+					} else {
+						put(documentFontName, fontMatched);
+						log.debug("Mapped " +  documentFontName  + " -->  " + fontMatched.getName() + " (as before)");
+					}
+					continue;
+				}
+			}
+			memoMisses.incrementAndGet();
+			
 			org.docx4j.fonts.foray.font.format.Panose documentFontPanose = null;
 			if (wmlFontPanoseForDocumentFont!=null && wmlFontPanoseForDocumentFont.getVal()!=null ) {
 				try {
@@ -393,6 +484,7 @@ public class BestMatchingMapper extends Mapper {
 //					}						
 //				}
 				
+				mappingMemo.put(memoKey, fontMatched);
 				continue; // we're done with this document font
 				
 			} 
@@ -487,6 +579,7 @@ public class BestMatchingMapper extends Mapper {
 			} else {
 				log.debug("Nothing added for: " + documentFontName);
 			}
+			mappingMemo.put(memoKey, fontMatched);
 		}
 		
 	    lastSeenNumberOfPhysicalFonts = PhysicalFonts.getPhysicalFonts().size();
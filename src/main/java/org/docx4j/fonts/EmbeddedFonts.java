@@ -0,0 +1,393 @@
+package org.docx4j.fonts;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+
+import org.docx4j.Docx4jProperties;
+import org.docx4j.fonts.fop.fonts.EmbedFontInfo;
+import org.docx4j.fonts.fop.fonts.FontResolver;
+import org.docx4j.fonts.fop.fonts.autodetect.FontInfoFinder;
+import org.docx4j.openpackaging.parts.WordprocessingML.ObfuscatedFontPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * De-obfuscated embedded fonts, held in memory rather than
+ * written to the temporary embedded fonts dir.
+ *
+ * Fonts are keyed by a hash of their content, so a font embedded
+ * in many documents is only parsed once, and is known by the same
+ * URL (docx4j-embedded:/[hash].ttf) each time.
+ *
+ * The cache is bounded (docx4j property docx4j.fonts.EmbeddedFonts.maxBytes,
+ * default 64MB); least recently used fonts are evicted.  An evicted font
+ * is written to the temporary embedded fonts dir (if it isn't there 
+ * already), and loaded from there, so its URL (which PhysicalFonts
+ * has) keeps working.  At most docx4j.fonts.EmbeddedFonts.maxSpilledFiles
+ * (default 16) evicted fonts are kept like this; beyond that, the least
+ * recently evicted font's file is deleted, and its URL no longer works.
+ *
+ * FOP can only read fonts from files, so FopConfigUtil uses toFileUrl,
+ * which writes the font (once) to the temporary embedded fonts dir.
+ *
+ * Used by ObfuscatedFontPart.deObfuscate if docx4j property
+ * docx4j.openpackaging.parts.WordprocessingML.ObfuscatedFontPart.inMemory
+ * is true.
+ *
+ * @since 3.2.2
+ */
+public class EmbeddedFonts {
+
+	protected static Logger log = LoggerFactory.getLogger(EmbeddedFonts.class);
+
+	public static final String URL_PROTOCOL = "docx4j-embedded";
+
+	private static final String URL_PREFIX = URL_PROTOCOL + ":/";
+
+	private static long maxBytes = Long.parseLong(
+			Docx4jProperties.getProperty("docx4j.fonts.EmbeddedFonts.maxBytes", "67108864"));
+
+	private static class Entry {
+
+		final byte[] data;
+		EmbedFontInfo[] fontInfos;
+		String fileUrl;
+
+		Entry(byte[] data) {
+			this.data = data;
+		}
+	}
+
+	/** keyed by hash, least recently used first */
+	private static final LinkedHashMap<String, Entry> fonts = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private static long totalBytes = 0;
+
+	private static int maxSpilledFiles = Integer.parseInt(
+			Docx4jProperties.getProperty("docx4j.fonts.EmbeddedFonts.maxSpilledFiles", "16"));
+
+	/** evicted fonts, keyed by hash, least recently evicted first; guarded by fonts */
+	private static final LinkedHashMap<String, File> spilled = new LinkedHashMap<String, File>() {
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, File> eldest) {
+			if (size() > maxSpilledFiles) {
+				log.debug("Deleting evicted embedded font " + eldest.getValue());
+				eldest.getValue().delete();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private static final URLStreamHandler URL_HANDLER = new URLStreamHandler() {
+
+		@Override
+		protected URLConnection openConnection(final URL u) throws IOException {
+
+			return new URLConnection(u) {
+
+				@Override
+				public void connect() throws IOException {
+					connected = true;
+				}
+
+				@Override
+				public InputStream getInputStream() throws IOException {
+					InputStream is = openStream(u.toExternalForm());
+					if (is==null) {
+						throw new IOException(u + " is no longer available");
+					}
+					return is;
+				}
+			};
+		}
+	};
+
+	private static final FontResolver FONT_RESOLVER = new FontResolver() {
+
+		public Source resolve(String href) {
+			if (isEmbeddedFontUrl(href)) {
+				InputStream is = openStream(href);
+				if (is==null) {
+					log.warn(href + " is no longer available");
+					return null;
+				}
+				return new StreamSource(is, href);
+			}
+			return new StreamSource(href);
+		}
+	};
+
+	/**
+	 * Set the maximum total size of the fonts to keep in memory.
+	 */
+	public static void setMaxBytes(long maxBytes) {
+		synchronized (fonts) {
+			EmbeddedFonts.maxBytes = maxBytes;
+			evict();
+		}
+	}
+
+	/**
+	 * Set the maximum number of evicted fonts to keep in the temporary
+	 * embedded fonts dir.
+	 */
+	public static void setMaxSpilledFiles(int maxSpilledFiles) {
+		synchronized (fonts) {
+			EmbeddedFonts.maxSpilledFiles = maxSpilledFiles;
+			Iterator<File> it = spilled.values().iterator();
+			while (spilled.size() > maxSpilledFiles) {
+				File f = it.next();
+				log.debug("Deleting evicted embedded font " + f);
+				f.delete();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * A FontResolver which can resolve our URLs, as well as the usual ones.
+	 */
+	public static FontResolver getFontResolver() {
+		return FONT_RESOLVER;
+	}
+
+	public static boolean isEmbeddedFontUrl(String url) {
+		return url!=null && url.startsWith(URL_PREFIX);
+	}
+
+	/**
+	 * Add a de-obfuscated font to the known physical fonts, under
+	 * fontName (as well as its own names).  If a font with the same
+	 * content has been registered before, it isn't parsed again.
+	 *
+	 * @param fontName the name in the font table part
+	 * @param fontData the de-obfuscated font
+	 */
+	public static void register(String fontName, byte[] fontData) {
+
+		String hash = hash(fontData);
+		String url = URL_PREFIX + hash + ".ttf";
+
+		Entry entry;
+		synchronized (fonts) {
+			entry = fonts.get(hash);
+			if (entry==null) {
+				entry = new Entry(fontData);
+				fonts.put(hash, entry);
+				File f = spilled.remove(hash);
+				if (f!=null) {
+					// back in memory; toFileUrl writes it again if need be
+					f.delete();
+				}
+				totalBytes += fontData.length;
+				evict();
+			} else {
+				log.debug(fontName + " is " + url + ", seen before");
+			}
+		}
+
+		EmbedFontInfo[] fontInfos;
+		synchronized (entry) {
+			if (entry.fontInfos==null) {
+				try {
+					// FontInfoFinder isn't thread safe, so one per font
+					entry.fontInfos = new FontInfoFinder().find(
+							new URL(URL_PROTOCOL, "", -1, "/" + hash + ".ttf", URL_HANDLER),
+							FONT_RESOLVER, null);
+				} catch (IOException e) {
+					log.error(e.getMessage(), e);
+				}
+			}
+			fontInfos = entry.fontInfos;
+		}
+
+		PhysicalFonts.addPhysicalFont(fontName, url, fontInfos);
+	}
+
+	/**
+	 * @param url one of our URLs
+	 * @return the font data (from memory, or if it has been evicted, its file), 
+	 * or null if it isn't available
+	 */
+	public static InputStream openStream(String url) {
+
+		Entry entry = getEntry(url);
+		if (entry==null) {
+			File f = getSpilled(url);
+			if (f==null) {
+				return null;
+			}
+			try {
+				return new FileInputStream(f);
+			} catch (FileNotFoundException e) {
+				log.error(e.getMessage(), e);
+				return null;
+			}
+		}
+		return new ByteArrayInputStream(entry.data);
+	}
+
+	/**
+	 * For things which can only read a font from a file (ie FOP):
+	 * if url is one of ours, write the font to the temporary
+	 * embedded fonts dir (if that hasn't been done already),
+	 * and return the URL of that file.  Otherwise, return url.
+	 */
+	public static String toFileUrl(String url) {
+
+		if (!isEmbeddedFontUrl(url)) {
+			return url;
+		}
+		Entry entry = getEntry(url);
+		if (entry==null) {
+			File f = getSpilled(url);
+			if (f==null) {
+				log.error(url + " is no longer available");
+				return url;
+			}
+			try {
+				return f.toURI().toURL().toExternalForm();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+				return url;
+			}
+		}
+
+		synchronized (entry) {
+			if (entry.fileUrl==null) {
+
+				File f = writeFile(toHash(url), entry.data);
+				if (f==null) {
+					return url;
+				}
+				try {
+					entry.fileUrl = f.toURI().toURL().toExternalForm();
+				} catch (IOException e) {
+					log.error(e.getMessage(), e);
+					return url;
+				}
+			}
+			return entry.fileUrl;
+		}
+	}
+
+	/**
+	 * Write the font to the temporary embedded fonts dir,
+	 * unless it is there already.
+	 * 
+	 * @return the file, or null if it couldn't be written
+	 */
+	private static File writeFile(String hash, byte[] data) {
+
+		File f = new File(ObfuscatedFontPart.getTemporaryEmbeddedFontsDir(),
+				hash + ".ttf");
+		try {
+			if (!f.exists() || f.length()!=data.length) {
+				FileOutputStream fos = new FileOutputStream(f);
+				try {
+					fos.write(data);
+				} finally {
+					fos.close();
+				}
+				log.debug("wrote " + f);
+			}
+			return f;
+		} catch (IOException e) {
+			log.error("Problem with " + f.getPath());
+			log.error(e.getMessage(), e);
+			return null;
+		}
+	}
+
+	private static String toHash(String url) {
+
+		String hash = url.substring(URL_PREFIX.length());
+		if (hash.endsWith(".ttf")) {
+			hash = hash.substring(0, hash.length()-4);
+		}
+		return hash;
+	}
+
+	private static Entry getEntry(String url) {
+
+		if (!isEmbeddedFontUrl(url)) {
+			return null;
+		}
+		synchronized (fonts) {
+			return fonts.get(toHash(url));
+		}
+	}
+
+	private static File getSpilled(String url) {
+
+		if (!isEmbeddedFontUrl(url)) {
+			return null;
+		}
+		File f;
+		synchronized (fonts) {
+			f = spilled.get(toHash(url));
+		}
+		return (f!=null && f.exists()) ? f : null;
+	}
+
+	/**
+	 * Call while synchronized on fonts.
+	 */
+	private static void evict() {
+
+		Iterator<Map.Entry<String, Entry>> it = fonts.entrySet().iterator();
+		while (totalBytes > maxBytes
+				&& fonts.size() > 1
+				&& it.hasNext()) {
+
+			Map.Entry<String, Entry> eldest = it.next();
+			log.debug("Evicting embedded font " + eldest.getKey());
+
+			// PhysicalFonts still has its URL, so keep that working
+			File f = writeFile(eldest.getKey(), eldest.getValue().data);
+			if (f==null) {
+				log.error(URL_PREFIX + eldest.getKey() + ".ttf will no longer be available");
+			} else {
+				spilled.put(eldest.getKey(), f);
+			}
+			totalBytes -= eldest.getValue().data.length;
+			it.remove();
+		}
+	}
+
+	private static String hash(byte[] data) {
+
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			byte[] digest = md.digest(data);
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-1 is always available
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -3,19 +3,25 @@
  */
 package org.docx4j.fonts;
 
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
+import org.docx4j.fonts.fop.fonts.EmbedFontInfo;
 import org.docx4j.fonts.fop.fonts.Typeface;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 
 /**
  * Check whether a PhysicalFont contains glyph sought.
  * 
+ * Each font's GlyphCoverage is worked out the first time it is
+ * needed (or restored from the PhysicalFontCatalog, if fonts were
+ * discovered using one), and cached.
+ *
  * @author jharrop
  *
  */
@@ -23,19 +29,53 @@ public class GlyphCheck {
 	
 	protected static Logger log = LoggerFactory.getLogger(GlyphCheck.class);	
 	
-	private static LoadingCache<PhysicalFont, Typeface> cache = CacheBuilder.newBuilder()
+	// Keyed by EmbedFontInfo (by identity), since the PhysicalFonts
+	// for each of a font's triplets share it
+	private static Cache<EmbedFontInfo, GlyphCoverage> cache = CacheBuilder.newBuilder()
+		       .weakKeys()
 		       .maximumSize(1000)
-		       .build(new CacheLoader<PhysicalFont, Typeface>() {
-		             public Typeface load(PhysicalFont key)  {
-		            	 
-		            	 return key.getTypeface();
-		               }
-		             });
+		       .build();
+
+	/**
+	 * @return the characters the font has glyphs for
+	 * @since 3.2.2
+	 */
+	public static GlyphCoverage getCoverage(final PhysicalFont physicalFont) throws ExecutionException {
+
+		return cache.get(physicalFont.getEmbedFontInfo(), new Callable<GlyphCoverage>() {
+
+			public GlyphCoverage call() {
+
+				EmbedFontInfo fontInfo = physicalFont.getEmbedFontInfo();
+				PhysicalFontCatalog catalog = PhysicalFonts.getCatalog();
+				if (catalog!=null) {
+					GlyphCoverage coverage = catalog.getCoverage(fontInfo);
+					if (coverage!=null) {
+						return coverage;
+					}
+				}
+
+				Typeface typeface = physicalFont.getTypeface();
+				if (typeface==null) {
+					log.warn("Couldn't load font " + physicalFont.name);
+					return GlyphCoverage.NONE;
+				}
+				long startTime = System.currentTimeMillis();
+				GlyphCoverage coverage = GlyphCoverage.of(typeface);
+				log.debug("Coverage of " + physicalFont.name + " (" + coverage.size() + " chars) took "
+						+ (System.currentTimeMillis()-startTime) + "ms");
+
+				if (catalog!=null) {
+					catalog.putCoverage(fontInfo, coverage);
+				}
+				return coverage;
+			}
+		});
+	}
 
-	
 	public static boolean hasChar(PhysicalFont physicalFont, char c) throws ExecutionException {
 		
-		boolean exists = cache.get(physicalFont).hasChar(c);
+		boolean exists = getCoverage(physicalFont).hasChar(c);
 		
 		if (log.isWarnEnabled() 
 				&& !exists) {
@@ -60,5 +100,54 @@ public class GlyphCheck {
 		
 		return hasChar(pf, c);
 	}
-	
+
+	/**
+	 * @return whether the font has glyphs for all the characters in text
+	 * @since 3.2.2
+	 */
+	public static boolean hasChars(PhysicalFont physicalFont, CharSequence text) throws ExecutionException {
+
+		return getCoverage(physicalFont).hasChars(text);
+	}
+
+	/**
+	 * For font fallback: the first of the fonts which has glyphs
+	 * for all the characters in text.
+	 *
+	 * @return the font, or null if none of them do
+	 * @since 3.2.2
+	 */
+	public static PhysicalFont firstCovering(CharSequence text, List<PhysicalFont> physicalFonts) throws ExecutionException {
+
+		for (PhysicalFont pf : physicalFonts) {
+			if (pf!=null
+					&& hasChars(pf, text)) {
+				return pf;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * For font fallback: the first of the named fonts which has glyphs
+	 * for all the characters in text.  Fonts which aren't available
+	 * are skipped.
+	 *
+	 * @return the font name, or null if none of them do
+	 * @since 3.2.2
+	 */
+	public static String firstCovering(CharSequence text, String... fontNames) throws ExecutionException {
+
+		for (String fontName : fontNames) {
+			if (fontName==null) continue;
+			PhysicalFont pf = PhysicalFonts.get(fontName);
+			if (pf==null) {
+				log.debug("Couldn't get font " + fontName);
+			} else if (hasChars(pf, text)) {
+				return fontName;
+			}
+		}
+		return null;
+	}
+
 }
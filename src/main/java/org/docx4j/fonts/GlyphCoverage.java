@@ -0,0 +1,190 @@
+package org.docx4j.fonts;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.docx4j.fonts.fop.fonts.BFEntry;
+import org.docx4j.fonts.fop.fonts.MultiByteFont;
+import org.docx4j.fonts.fop.fonts.Typeface;
+
+/**
+ * The characters (in the Basic Multilingual Plane) a font has glyphs for.
+ *
+ * A bitmap, split into 256 pages of 256 characters; pages which
+ * are entirely empty or entirely full aren't allocated, so a typical
+ * Latin font needs well under 1KB.
+ *
+ * For a TrueType font, this is built in one pass over the cmap ranges.
+ * After that, each lookup is a couple of array accesses (whereas
+ * Typeface.hasChar searches those ranges linearly).
+ *
+ * Immutable.
+ *
+ * @since 3.2.2
+ */
+public class GlyphCoverage {
+
+	private static final int PAGE_COUNT = 256;
+	private static final int LONGS_PER_PAGE = 4;
+
+	private static final long[] FULL = new long[] {-1L, -1L, -1L, -1L};
+
+	/** for a font which couldn't be loaded */
+	static final GlyphCoverage NONE = new GlyphCoverage(new long[PAGE_COUNT][]);
+
+	private final long[][] pages;
+
+	private GlyphCoverage(long[][] pages) {
+		this.pages = pages;
+		for (int i=0; i<PAGE_COUNT; i++) {
+			pages[i] = share(pages[i]);
+		}
+	}
+
+	/**
+	 * The coverage of the specified font.
+	 */
+	public static GlyphCoverage of(Typeface typeface) {
+
+		long[][] pages = new long[PAGE_COUNT][];
+
+		if (typeface instanceof MultiByteFont
+				&& ((MultiByteFont)typeface).getBFEntries()!=null) {
+
+			for (BFEntry entry : ((MultiByteFont)typeface).getBFEntries()) {
+
+				int end = Math.min(entry.getUnicodeEnd(), 0xFFFF);
+				for (int c=Math.max(entry.getUnicodeStart(), 0); c<=end; c++) {
+					// as in MultiByteFont.findGlyphIndex, glyph 0 means not found
+					if (entry.getGlyphStartIndex() + c - entry.getUnicodeStart() != 0) {
+						set(pages, c);
+					}
+				}
+			}
+
+		} else {
+			for (int c=0; c<=0xFFFF; c++) {
+				if (typeface.hasChar((char)c)) {
+					set(pages, c);
+				}
+			}
+		}
+		return new GlyphCoverage(pages);
+	}
+
+	private static void set(long[][] pages, int c) {
+
+		long[] page = pages[c >> 8];
+		if (page==null) {
+			page = new long[LONGS_PER_PAGE];
+			pages[c >> 8] = page;
+		}
+		page[(c >> 6) & 3] |= 1L << (c & 63);
+	}
+
+	private static long[] share(long[] page) {
+
+		if (page==null) {
+			return null;
+		}
+		boolean empty = true;
+		boolean full = true;
+		for (long l : page) {
+			empty &= (l==0);
+			full &= (l==-1L);
+		}
+		if (empty) {
+			return null;
+		}
+		if (full) {
+			return FULL;
+		}
+		return page;
+	}
+
+	/**
+	 * @return whether the font has a glyph for c
+	 */
+	public boolean hasChar(char c) {
+
+		long[] page = pages[c >> 8];
+		return page!=null
+			&& (page[(c >> 6) & 3] & (1L << (c & 63))) != 0;
+	}
+
+	/**
+	 * @return the index of the first character in text[start, end)
+	 * the font has no glyph for, or -1 if it has them all
+	 */
+	public int indexOfMissing(CharSequence text, int start, int end) {
+
+		for (int i=start; i<end; i++) {
+			if (!hasChar(text.charAt(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return whether the font has glyphs for all the characters in text
+	 */
+	public boolean hasChars(CharSequence text) {
+		return indexOfMissing(text, 0, text.length()) < 0;
+	}
+
+	/**
+	 * @return the number of characters the font has glyphs for
+	 */
+	public int size() {
+
+		int size = 0;
+		for (long[] page : pages) {
+			if (page!=null) {
+				for (long l : page) {
+					size += Long.bitCount(l);
+				}
+			}
+		}
+		return size;
+	}
+
+	void write(DataOutputStream out) throws IOException {
+
+		// page flags: 0 empty, 1 full, 2 partial (followed by its longs)
+		for (long[] page : pages) {
+			if (page==null) {
+				out.writeByte(0);
+			} else if (page==FULL) {
+				out.writeByte(1);
+			} else {
+				out.writeByte(2);
+				for (long l : page) {
+					out.writeLong(l);
+				}
+			}
+		}
+	}
+
+	static GlyphCoverage read(DataInputStream in) throws IOException {
+
+		long[][] pages = new long[PAGE_COUNT][];
+		for (int i=0; i<PAGE_COUNT; i++) {
+			int flag = in.readByte();
+			if (flag==1) {
+				pages[i] = FULL;
+			} else if (flag==2) {
+				long[] page = new long[LONGS_PER_PAGE];
+				for (int j=0; j<LONGS_PER_PAGE; j++) {
+					page[j] = in.readLong();
+				}
+				pages[i] = page;
+			} else if (flag!=0) {
+				throw new IOException("Unexpected coverage page flag " + flag);
+			}
+		}
+		return new GlyphCoverage(pages);
+	}
+
+}
@@ -0,0 +1,594 @@
+package org.docx4j.fonts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.docx4j.fonts.foray.font.format.Panose;
+import org.docx4j.fonts.fop.fonts.EmbedFontInfo;
+import org.docx4j.fonts.fop.fonts.FontResolver;
+import org.docx4j.fonts.fop.fonts.FontTriplet;
+import org.docx4j.fonts.fop.fonts.autodetect.FontFileFinder;
+import org.docx4j.fonts.fop.fonts.autodetect.FontInfoFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent record of the fonts found in a set of directories:
+ * for each font file, its last modified time, and the family names,
+ * triplets (name, style, weight), panose and embeddability of
+ * the fonts in it.
+ *
+ * Each directory's last modified time is recorded too, so a scan
+ * only lists directories which have changed since the catalog was
+ * saved, and only parses font files which are new or have changed.
+ * Fonts in unchanged directories are restored from the catalog
+ * without touching the font files at all.  (So if a font file is
+ * overwritten in place, without the directory changing, that won't
+ * be noticed.  Delete the catalog file if you do that.)
+ *
+ * Fonts which do need to be parsed are parsed in parallel.
+ *
+ * The catalog also records each font's GlyphCoverage, once it has
+ * been worked out (see GlyphCheck.getCoverage), so that later runs
+ * don't need to load the font to find out which characters it has.
+ * Coverage is worked out lazily, so if you want it to persist, save
+ * the catalog again (PhysicalFonts.getCatalog().save()) once you're done.
+ *
+ * Used by PhysicalFonts.discoverPhysicalFonts if docx4j property
+ * docx4j.fonts.PhysicalFonts.catalog is true.
+ *
+ * Not thread safe, apart from getCoverage and putCoverage.
+ *
+ * @since 3.2.2
+ */
+public class PhysicalFontCatalog {
+
+	protected static Logger log = LoggerFactory.getLogger(PhysicalFontCatalog.class);
+
+	private static final int FORMAT_VERSION = 2;
+
+	private static final String DEFAULT_CATALOG_FILENAME = "physical-fonts.catalog";
+
+	/**
+	 * A font file, and the fonts in it (null if it couldn't be parsed).
+	 */
+	public static class FontFile {
+
+		private final String url;
+		private final long lastModified;
+		private EmbedFontInfo[] fontInfos;
+
+		/** aligned with fontInfos; null until some coverage is known */
+		private GlyphCoverage[] coverages;
+
+		FontFile(String url, long lastModified, EmbedFontInfo[] fontInfos) {
+			this.url = url;
+			this.lastModified = lastModified;
+			this.fontInfos = fontInfos;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		public EmbedFontInfo[] getFontInfos() {
+			return fontInfos;
+		}
+	}
+
+	private static class Dir {
+
+		final long lastModified;
+		final List<String> subdirs = new ArrayList<String>();
+
+		/** keyed by file name */
+		final Map<String, FontFile> files = new LinkedHashMap<String, FontFile>();
+
+		Dir(long lastModified) {
+			this.lastModified = lastModified;
+		}
+	}
+
+	private File file;
+
+	/** keyed by path */
+	private Map<String, Dir> dirs = new LinkedHashMap<String, Dir>();
+
+	private volatile boolean changed = false;
+
+	/** keyed by url; built when first needed */
+	private Map<String, FontFile> filesByUrl = null;
+
+	/**
+	 * An empty catalog, which will be saved to the specified file
+	 * (or not saved, if file is null).
+	 */
+	public PhysicalFontCatalog(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @return ~/.docx4j/physical-fonts.catalog, or null if there is no user.home
+	 */
+	public static File getDefaultCatalogFile() {
+
+		String s = System.getProperty("user.home");
+		if (s == null) {
+			return null;
+		}
+		return new File(new File(s, ".docx4j"), DEFAULT_CATALOG_FILENAME);
+	}
+
+	/**
+	 * Load the catalog from the specified file.  If the file doesn't
+	 * exist or can't be read, the catalog will be empty (so the first
+	 * scan will parse everything).
+	 */
+	public static PhysicalFontCatalog load(File file) {
+
+		PhysicalFontCatalog catalog = new PhysicalFontCatalog(file);
+		if (file==null || !file.exists()) {
+			return catalog;
+		}
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			catalog.read(in);
+			log.debug("Loaded font catalog " + file + " (" + catalog.dirs.size() + " dirs)");
+		} catch (Exception e) {
+			log.warn("Couldn't read font catalog " + file + "; will rescan: " + e.getMessage());
+			catalog.dirs.clear();
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		return catalog;
+	}
+
+	/**
+	 * Save the catalog, if it has changed since it was loaded.
+	 */
+	public void save() throws IOException {
+
+		if (file==null || !changed) {
+			return;
+		}
+
+		File parent = file.getParentFile();
+		if (parent!=null && !parent.exists()) {
+			parent.mkdirs();
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			synchronized (this) {
+				write(out);
+			}
+		} finally {
+			out.close();
+		}
+		changed = false;
+		log.debug("Saved font catalog " + file);
+	}
+
+	/**
+	 * Find the font files in the specified directories (and their
+	 * subdirectories), parsing any which aren't already in the catalog,
+	 * and update the catalog accordingly.  Directories which weren't
+	 * reached by this scan are dropped from the catalog.
+	 *
+	 * @param rootDirs
+	 * @param fontInfoFinder used to parse the font files on this thread; when 
+	 * there are several threads, each file is parsed with its own FontInfoFinder 
+	 * (with the same event listener), since it isn't thread safe
+	 * @param fontResolver shared by the threads, so must be thread safe 
+	 * (as EmbeddedFonts.getFontResolver() is)
+	 * @param threads the number of threads to parse font files on
+	 * @return the font files, in directory order
+	 */
+	public List<FontFile> scan(List<File> rootDirs, final FontInfoFinder fontInfoFinder,
+			final FontResolver fontResolver, int threads)
+			throws InterruptedException {
+
+		long startTime = System.currentTimeMillis();
+
+		Map<String, Dir> visited = new LinkedHashMap<String, Dir>();
+		List<FontFile> results = new ArrayList<FontFile>();
+		List<FontFile> toParse = new ArrayList<FontFile>();
+
+		LinkedList<File> pending = new LinkedList<File>(rootDirs);
+		while (!pending.isEmpty()) {
+
+			File dir = pending.removeFirst();
+			String path = dir.getPath();
+			if (visited.containsKey(path)) {
+				continue;
+			}
+
+			long lastModified = dir.lastModified();
+			if (lastModified==0) {
+				// doesn't exist (any more)
+				continue;
+			}
+
+			Dir cached = dirs.get(path);
+			Dir current;
+			if (cached!=null && cached.lastModified==lastModified) {
+				current = cached;
+			} else {
+				current = listDir(dir, lastModified, cached, toParse);
+				changed = true;
+			}
+			visited.put(path, current);
+			results.addAll(current.files.values());
+
+			// depth first
+			for (int i=current.subdirs.size()-1; i>=0; i--) {
+				pending.addFirst(new File(dir, current.subdirs.get(i)));
+			}
+		}
+
+		if (visited.size()!=dirs.size()) {
+			changed = true;
+		}
+		synchronized (this) {
+			dirs = visited;
+			filesByUrl = null;
+		}
+
+		parse(toParse, fontInfoFinder, fontResolver, threads);
+
+		log.info("Found " + results.size() + " font files in " + visited.size() + " dirs, parsed "
+				+ toParse.size() + ", in " + (System.currentTimeMillis()-startTime) + "ms");
+		return results;
+	}
+
+	/**
+	 * @return the recorded coverage of the font, or null if it isn't known
+	 */
+	public synchronized GlyphCoverage getCoverage(EmbedFontInfo fontInfo) {
+
+		FontFile fontFile = getFontFile(fontInfo);
+		if (fontFile==null || fontFile.coverages==null) {
+			return null;
+		}
+		return fontFile.coverages[indexOf(fontFile, fontInfo)];
+	}
+
+	/**
+	 * Record the coverage of the font (if it is one of ours).
+	 */
+	public synchronized void putCoverage(EmbedFontInfo fontInfo, GlyphCoverage coverage) {
+
+		FontFile fontFile = getFontFile(fontInfo);
+		if (fontFile==null) {
+			return;
+		}
+		if (fontFile.coverages==null) {
+			fontFile.coverages = new GlyphCoverage[fontFile.fontInfos.length];
+		}
+		fontFile.coverages[indexOf(fontFile, fontInfo)] = coverage;
+		changed = true;
+	}
+
+	/**
+	 * Call while synchronized.
+	 *
+	 * @return the file containing the font, or null if it isn't one of ours
+	 */
+	private FontFile getFontFile(EmbedFontInfo fontInfo) {
+
+		if (filesByUrl==null) {
+			filesByUrl = new HashMap<String, FontFile>();
+			for (Dir dir : dirs.values()) {
+				for (FontFile fontFile : dir.files.values()) {
+					filesByUrl.put(fontFile.url, fontFile);
+				}
+			}
+		}
+		FontFile fontFile = filesByUrl.get(fontInfo.getEmbedFile());
+		if (fontFile==null
+				|| fontFile.fontInfos==null
+				|| indexOf(fontFile, fontInfo)<0) {
+			return null;
+		}
+		return fontFile;
+	}
+
+	private static int indexOf(FontFile fontFile, EmbedFontInfo fontInfo) {
+
+		for (int i=0; i<fontFile.fontInfos.length; i++) {
+			EmbedFontInfo candidate = fontFile.fontInfos[i];
+			if (candidate==fontInfo
+					|| (candidate.getSubFontName()==null ? fontInfo.getSubFontName()==null
+							: candidate.getSubFontName().equals(fontInfo.getSubFontName()))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private Dir listDir(File dir, long lastModified, Dir cached, List<FontFile> toParse) {
+
+		log.debug("Listing " + dir);
+		Dir current = new Dir(lastModified);
+
+		File[] children = dir.listFiles();
+		if (children==null) {
+			return current;
+		}
+		for (File child : children) {
+
+			if (FontFileFinder.isFontDirectory(child)) {
+				current.subdirs.add(child.getName());
+
+			} else if (FontFileFinder.isFontFile(child)) {
+
+				long fileLastModified = child.lastModified();
+				FontFile existing = (cached==null ? null : cached.files.get(child.getName()));
+				if (existing!=null && existing.lastModified==fileLastModified) {
+					current.files.put(child.getName(), existing);
+				} else {
+					try {
+						// As in FontFileFinder
+						FontFile fontFile = new FontFile(child.toURI().toURL().toExternalForm(),
+								fileLastModified, null);
+						current.files.put(child.getName(), fontFile);
+						toParse.add(fontFile);
+					} catch (IOException e) {
+						log.debug("MalformedURLException" + e.getMessage());
+					}
+				}
+			}
+		}
+		return current;
+	}
+
+	private void parse(List<FontFile> toParse, final FontInfoFinder fontInfoFinder,
+			final FontResolver fontResolver, int threads) throws InterruptedException {
+
+		if (toParse.isEmpty()) {
+			return;
+		}
+		if (threads<=1 || toParse.size()==1) {
+			for (FontFile fontFile : toParse) {
+				fontFile.fontInfos = parse(fontFile, fontInfoFinder, fontResolver);
+			}
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, toParse.size()));
+		try {
+			List<Future<EmbedFontInfo[]>> futures = new ArrayList<Future<EmbedFontInfo[]>>(toParse.size());
+			for (final FontFile fontFile : toParse) {
+				futures.add(executor.submit(new Callable<EmbedFontInfo[]>() {
+					public EmbedFontInfo[] call() {
+						FontInfoFinder finder = new FontInfoFinder();
+						finder.setEventListener(fontInfoFinder.getEventListener());
+						return parse(fontFile, finder, fontResolver);
+					}
+				}));
+			}
+			for (int i=0; i<toParse.size(); i++) {
+				try {
+					toParse.get(i).fontInfos = futures.get(i).get();
+				} catch (ExecutionException e) {
+					log.error(toParse.get(i).url + ": " + e.getMessage(), e);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static EmbedFontInfo[] parse(FontFile fontFile, FontInfoFinder fontInfoFinder,
+			FontResolver fontResolver) {
+
+		try {
+			// No FontCache; this catalog replaces it
+			return fontInfoFinder.find(new URL(fontFile.url), fontResolver, null);
+		} catch (Exception e) {
+			log.warn("Couldn't parse " + fontFile.url + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private void write(DataOutputStream out) throws IOException {
+
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(dirs.size());
+		for (Map.Entry<String, Dir> entry : dirs.entrySet()) {
+
+			Dir dir = entry.getValue();
+			out.writeUTF(entry.getKey());
+			out.writeLong(dir.lastModified);
+
+			out.writeInt(dir.subdirs.size());
+			for (String subdir : dir.subdirs) {
+				out.writeUTF(subdir);
+			}
+
+			out.writeInt(dir.files.size());
+			for (Map.Entry<String, FontFile> fileEntry : dir.files.entrySet()) {
+
+				FontFile fontFile = fileEntry.getValue();
+				out.writeUTF(fileEntry.getKey());
+				out.writeUTF(fontFile.url);
+				out.writeLong(fontFile.lastModified);
+
+				if (fontFile.fontInfos==null) {
+					out.writeInt(-1);
+					continue;
+				}
+				out.writeInt(fontFile.fontInfos.length);
+				for (int i=0; i<fontFile.fontInfos.length; i++) {
+					writeFontInfo(out, fontFile.fontInfos[i]);
+
+					GlyphCoverage coverage = (fontFile.coverages==null ? null : fontFile.coverages[i]);
+					out.writeBoolean(coverage!=null);
+					if (coverage!=null) {
+						coverage.write(out);
+					}
+				}
+			}
+		}
+	}
+
+	private static void writeFontInfo(DataOutputStream out, EmbedFontInfo fontInfo) throws IOException {
+
+		writeNullable(out, fontInfo.getSubFontName());
+		writeNullable(out, fontInfo.getPostScriptName());
+		out.writeBoolean(fontInfo.getKerning());
+		out.writeBoolean(fontInfo.isEmbeddable());
+
+		if (fontInfo.getPanose()==null) {
+			out.writeByte(0);
+		} else {
+			byte[] panose = fontInfo.getPanose().getPanoseArray();
+			out.writeByte(panose.length);
+			out.write(panose);
+		}
+
+		Set familyNames = fontInfo.getFamilyNames();
+		if (familyNames==null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(familyNames.size());
+			for (Object familyName : familyNames) {
+				out.writeUTF((String)familyName);
+			}
+		}
+
+		List triplets = fontInfo.getFontTriplets();
+		out.writeInt(triplets.size());
+		for (Object o : triplets) {
+			FontTriplet triplet = (FontTriplet)o;
+			out.writeUTF(triplet.getName());
+			out.writeUTF(triplet.getStyle());
+			out.writeInt(triplet.getWeight());
+			out.writeInt(triplet.getPriority());
+		}
+	}
+
+	private void read(DataInputStream in) throws IOException {
+
+		int version = in.readInt();
+		if (version!=FORMAT_VERSION) {
+			throw new IOException("Unsupported catalog version " + version);
+		}
+		int dirCount = in.readInt();
+		for (int d=0; d<dirCount; d++) {
+
+			String path = in.readUTF();
+			Dir dir = new Dir(in.readLong());
+
+			int subdirCount = in.readInt();
+			for (int i=0; i<subdirCount; i++) {
+				dir.subdirs.add(in.readUTF());
+			}
+
+			int fileCount = in.readInt();
+			for (int f=0; f<fileCount; f++) {
+
+				String name = in.readUTF();
+				String url = in.readUTF();
+				long lastModified = in.readLong();
+
+				EmbedFontInfo[] fontInfos = null;
+				GlyphCoverage[] coverages = null;
+				int fontCount = in.readInt();
+				if (fontCount>=0) {
+					fontInfos = new EmbedFontInfo[fontCount];
+					for (int i=0; i<fontCount; i++) {
+						fontInfos[i] = readFontInfo(in, url);
+						if (in.readBoolean()) {
+							if (coverages==null) {
+								coverages = new GlyphCoverage[fontCount];
+							}
+							coverages[i] = GlyphCoverage.read(in);
+						}
+					}
+				}
+				FontFile fontFile = new FontFile(url, lastModified, fontInfos);
+				fontFile.coverages = coverages;
+				dir.files.put(name, fontFile);
+			}
+			dirs.put(path, dir);
+		}
+	}
+
+	private static EmbedFontInfo readFontInfo(DataInputStream in, String url) throws IOException {
+
+		String subFontName = readNullable(in);
+		String postScriptName = readNullable(in);
+		boolean kerning = in.readBoolean();
+		boolean embeddable = in.readBoolean();
+
+		Panose panose = null;
+		int panoseLength = in.readByte();
+		if (panoseLength>0) {
+			byte[] panoseArray = new byte[panoseLength];
+			in.readFully(panoseArray);
+			panose = Panose.forceInstance(panoseArray);
+		}
+
+		Set<String> familyNames = null;
+		int familyCount = in.readInt();
+		if (familyCount>=0) {
+			familyNames = new LinkedHashSet<String>();
+			for (int i=0; i<familyCount; i++) {
+				familyNames.add(in.readUTF());
+			}
+		}
+
+		int tripletCount = in.readInt();
+		List<FontTriplet> triplets = new ArrayList<FontTriplet>(tripletCount);
+		for (int i=0; i<tripletCount; i++) {
+			triplets.add(new FontTriplet(in.readUTF(), in.readUTF(), in.readInt(), in.readInt()));
+		}
+
+		EmbedFontInfo fontInfo = new EmbedFontInfo(null, kerning, triplets, url, subFontName);
+		fontInfo.setFamilyNames(familyNames);
+		fontInfo.setPanose(panose);
+		fontInfo.setPostScriptName(postScriptName);
+		fontInfo.setEmbeddable(embeddable);
+		return fontInfo;
+	}
+
+	private static void writeNullable(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s!=null);
+		if (s!=null) {
+			out.writeUTF(s);
+		}
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+}
@@ -2,6 +2,7 @@ package org.docx4j.fonts;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -10,10 +11,10 @@ import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.docx4j.Docx4jProperties;
 import org.docx4j.fonts.fop.fonts.EmbedFontInfo;
 import org.docx4j.fonts.fop.fonts.FontCache;
 import org.docx4j.fonts.fop.fonts.FontResolver;
-import org.docx4j.fonts.fop.fonts.FontSetup;
 import org.docx4j.fonts.fop.fonts.FontTriplet;
 import org.docx4j.fonts.fop.fonts.autodetect.FontFileFinder;
 import org.docx4j.fonts.fop.fonts.autodetect.FontInfoFinder;
@@ -72,10 +73,39 @@ public class PhysicalFonts {
 	 */
 	public static void put(String key, PhysicalFont pf) {
 		physicalFontMap.put(key.toLowerCase(), pf);
+		modificationCount++;
+	}
+	
+	private static volatile long modificationCount = 0;
+	
+	/**
+	 * Incremented each time a font is put; 
+	 * so anything derived from the physical fonts
+	 * can tell whether it is stale.
+	 * 
+	 * @since 3.2.2
+	 */
+	public static long getModificationCount() {
+		return modificationCount;
 	}
 
 	private final static Map<String, PhysicalFont> physicalFontMapByFilenameLowercase;
 	
+	private static volatile PhysicalFontCatalog catalog;
+	
+	/**
+	 * The catalog fonts were last discovered with, or null if 
+	 * the catalog wasn't used.  
+	 * 
+	 * GlyphCheck records the coverage it works out in it; save it
+	 * again when you're done, to keep that for next time.
+	 * 
+	 * @since 3.2.2
+	 */
+	public static PhysicalFontCatalog getCatalog() {
+		return catalog;
+	}
+	
 	
 	//	private final static Map<String, PhysicalFontFamily> physicalFontFamiliesMap;
 //	int lastSeenNumberOfPhysicalFonts = 0;
@@ -111,7 +141,7 @@ public class PhysicalFonts {
 			
 //			physicalFontFamiliesMap = new HashMap<String, PhysicalFontFamily>();
 			
-			fontResolver = FontSetup.createMinimalFontResolver();
+			fontResolver = EmbeddedFonts.getFontResolver(); // minimal, plus in-memory embedded fonts
 			
             // parse font to ascertain font info
 			fontInfoFinder = new FontInfoFinder();			
@@ -146,9 +176,18 @@ public class PhysicalFonts {
 	/**
 	 * Autodetect fonts available on the system.
 	 * 
+	 * If docx4j property docx4j.fonts.PhysicalFonts.catalog is true,
+	 * this uses a PhysicalFontCatalog saved in ~/.docx4j (instead of FOP's 
+	 * FontCache), so that only new or changed font files are parsed. 
 	 */ 
 	public final static void discoverPhysicalFonts() throws Exception {
 		
+		if (Docx4jProperties.getProperty("docx4j.fonts.PhysicalFonts.catalog", false)) {
+			discoverPhysicalFonts(PhysicalFontCatalog.load(PhysicalFontCatalog.getDefaultCatalogFile()), 
+					Runtime.getRuntime().availableProcessors());
+			return;
+		}
+		
 		// Currently we use FOP - inspired by org.apache.fop.render.PrintRendererConfigurator
 		// iText also has a font discoverer (which we could use
 		// instead, but don't, since in docx4j we're settled on
@@ -198,6 +237,47 @@ public class PhysicalFonts {
         
 	}
 	
+	/**
+	 * Autodetect fonts available on the system, using the catalog to 
+	 * avoid parsing font files which haven't changed since it was saved.
+	 * Font files which do need to be parsed are parsed in parallel.
+	 * The catalog is saved afterwards, if it changed.
+	 * 
+	 * @param catalog eg PhysicalFontCatalog.load(PhysicalFontCatalog.getDefaultCatalogFile()),
+	 * or new PhysicalFontCatalog(null) for parallel discovery without persistence
+	 * @param threads
+	 * @since 3.2.2
+	 */
+	public static void discoverPhysicalFonts(PhysicalFontCatalog catalog, int threads) throws Exception {
+
+        FontFileFinder fontFileFinder = new FontFileFinder();
+        
+        List<File> dirs = new ArrayList<File>(); 
+        for (Object dir : fontFileFinder.findFontDirs()) {
+        	dirs.add((File)dir);
+        }
+        
+        // Our Temporary Embedded Fonts dir; the regex doesn't apply to these
+        File tmpFontDir = new File(ObfuscatedFontPart.getTemporaryEmbeddedFontsDir());
+        dirs.add(tmpFontDir);
+        String tmpFontDirUrl = tmpFontDir.toURI().toURL().toExternalForm();
+        
+        Pattern pattern = (regex==null ? null : Pattern.compile(regex));
+        
+        List<PhysicalFontCatalog.FontFile> fontFiles = catalog.scan(dirs, fontInfoFinder, fontResolver, threads); 
+        for (PhysicalFontCatalog.FontFile fontFile : fontFiles) {
+        	
+        	if (pattern==null 
+        			|| fontFile.getUrl().startsWith(tmpFontDirUrl)
+        			|| pattern.matcher(fontFile.getUrl()).matches()) {
+        		addPhysicalFont(null, fontFile.getUrl(), fontFile.getFontInfos());
+        	}
+        }
+        
+        catalog.save();
+        PhysicalFonts.catalog = catalog;
+	}
+	
 	private static URL getURL(Object o) throws Exception {
 		
     	if (o instanceof java.io.File) {
@@ -236,10 +316,15 @@ public class PhysicalFonts {
 		// so if you are using non-patched FOP, it needs to be at least this revision
 		// (but doesn't seem to be in FOP 0.95 binary?!) */ 
 		
+		addPhysicalFont(nameAsInFontTablePart, fontUrl.toString(), embedFontInfoList);
+	}
+	
+	static void addPhysicalFont(String nameAsInFontTablePart, String fontUrl, EmbedFontInfo[] embedFontInfoList) {
+		
 		if (embedFontInfoList==null) {
 			// Quite a few fonts exist that we can't seem to get
 			// EmbedFontInfo for. To be investigated.
-			log.warn("Aborting: " + fontUrl.toString() +  " (can't get EmbedFontInfo[] .. try deleting fop-fonts.cache?)");
+			log.warn("Aborting: " + fontUrl +  " (can't get EmbedFontInfo[] .. try deleting fop-fonts.cache?)");
 			return;
 		}
 		
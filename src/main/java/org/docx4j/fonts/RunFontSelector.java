@@ -1,6 +1,9 @@
 package org.docx4j.fonts;
 
 import java.awt.font.NumericShaper;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import org.docx4j.Docx4jProperties;
@@ -366,7 +369,9 @@ public class RunFontSelector {
     	// TODO use effective rPr, but don't inherit theme val,
     	// TODO, add cache?
     	
-    	log.debug("effective\n" + XmlUtils.marshaltoString(rPr));
+    	if (log.isDebugEnabled()) {
+    		log.debug("effective\n" + XmlUtils.marshaltoString(rPr));
+    	}
     	
     	/* eg
     	 * 
@@ -588,399 +593,427 @@ public class RunFontSelector {
     	return langEastAsia.contains(lang);
     }
         	
-    private Object unicodeRangeToFont(String text, STHint hint, String langEastAsia,
+    /* The classes of character distinguished by the table at
+     * http://msdn.microsoft.com/en-us/library/ff533743.aspx
+     * 
+     * For a given hint, lang and set of fonts, every character in a class 
+     * gets the same font, except for SCRIPT_COMPLEX and (absent an eastAsia 
+     * hint) SCRIPT_SYMBOLS, which depend on glyph availability.
+     */
+    private static final int SCRIPT_ASCII = 0;        // 0000-007F, FE70-FEFE
+    private static final int SCRIPT_OTHER = 1;        // ranges not listed: hAnsi
+    private static final int SCRIPT_LATIN1 = 2;       // 00A0-00FF
+    private static final int SCRIPT_LATIN1_EA = 3;    // A1, A4, A7-A8, AA, AD, AF, B0-B4, B6-BA, BC-BF, D7, F7
+    private static final int SCRIPT_LATIN1_ZH = 4;    // E0-E1, E8-EA, EC-ED, F2-F3, F9-FA, FC
+    private static final int SCRIPT_LATIN_EXT = 5;    // 0100-02AF, 1E00-1EFF
+    private static final int SCRIPT_SPACING_TO_CYRILLIC = 6; // 02B0-04FF
+    private static final int SCRIPT_COMPLEX = 7;      // 0590-07BF
+    private static final int SCRIPT_HANGUL_JAMO = 8;  // 1100-11FF
+    private static final int SCRIPT_SYMBOLS = 9;      // 2000-2EFF
+    private static final int SCRIPT_CJK = 10;         // 2F00-DFFF, FF00-FFEF
+    private static final int SCRIPT_PRIVATE_USE = 11; // E000-F8FF
+    private static final int SCRIPT_EAST_ASIA = 12;   // F900-FAFF, FB50-FDFF, FE30-FE6F
+    private static final int SCRIPT_ALPHA_PRES = 13;  // FB00-FB1C
+    private static final int SCRIPT_HEBREW_PRES = 14; // FB1D-FB4F
+    private static final int SCRIPT_COUNT = 15;
+    
+    /**
+     * Start of each range; the range extends to the start of the next one.
+     */
+    private static final char[] RANGE_START = {
+    	'\u0000', '\u0080', '\u00A0', '\u0100', '\u02B0', '\u0500', '\u0590', '\u07C0', 
+    	'\u1100', '\u1200', '\u1E00', '\u1F00', '\u2000', '\u2F00', '\uE000', '\uF900', 
+    	'\uFB00', '\uFB1D', '\uFB50', '\uFE00', '\uFE30', '\uFE70', '\uFEFF', '\uFF00', 
+    	'\uFFF0' };
+    
+    private static final int[] RANGE_SCRIPT = {
+    	SCRIPT_ASCII, SCRIPT_OTHER, SCRIPT_LATIN1, SCRIPT_LATIN_EXT, SCRIPT_SPACING_TO_CYRILLIC, SCRIPT_OTHER, SCRIPT_COMPLEX, SCRIPT_OTHER,
+    	SCRIPT_HANGUL_JAMO, SCRIPT_OTHER, SCRIPT_LATIN_EXT, SCRIPT_OTHER, SCRIPT_SYMBOLS, SCRIPT_CJK, SCRIPT_PRIVATE_USE, SCRIPT_EAST_ASIA,
+    	SCRIPT_ALPHA_PRES, SCRIPT_HEBREW_PRES, SCRIPT_EAST_ASIA, SCRIPT_OTHER, SCRIPT_EAST_ASIA, SCRIPT_ASCII, SCRIPT_OTHER, SCRIPT_CJK,
+    	SCRIPT_OTHER };
+    
+    private static final int[] LATIN1_SCRIPT = new int[0x60];
+    static {
+    	for (char c='\u00A0'; c<='\u00FF'; c++) {
+    		int script = SCRIPT_LATIN1;
+			if ( c=='\u00A1' || c=='\u00A4' 
+					|| (c>='\u00A7' && c<='\u00A8')
+					|| c=='\u00AA' 
+	    			|| c=='\u00AD' // Known issues with soft hyphen
+					|| c=='\u00AF'
+					|| (c>='\u00B0' && c<='\u00B4')
+					|| (c>='\u00B6' && c<='\u00BA') 
+					|| (c>='\u00BC' && c<='\u00BF') 
+					|| c=='\u00D7' || c=='\u00F7' ) {
+				script = SCRIPT_LATIN1_EA;
+			} else if ( (c>='\u00E0' && c<='\u00E1')
+					|| (c>='\u00E8' && c<='\u00EA')
+					|| (c>='\u00EC' && c<='\u00ED')
+					|| (c>='\u00F2' && c<='\u00F3')
+					|| (c>='\u00F9' && c<='\u00FA') 
+					|| c=='\u00FC') {
+				script = SCRIPT_LATIN1_ZH;
+			}
+			LATIN1_SCRIPT[c-'\u00A0'] = script;
+    	}
+    }
+    
+    static int scriptOf(char c) {
+    	
+    	if (c<'\u0080') {
+    		return SCRIPT_ASCII;
+    	}
+    	if (c>='\u00A0' && c<='\u00FF') {
+    		return LATIN1_SCRIPT[c-'\u00A0'];
+    	}
+    	
+    	// binary search for the last range starting at or before c
+    	int lo = 0;
+    	int hi = RANGE_START.length-1;
+    	while (lo<hi) {
+    		int mid = (lo+hi+1)>>>1;
+    		if (RANGE_START[mid]<=c) {
+    			lo = mid;
+    		} else {
+    			hi = mid-1;
+    		}
+    	}
+    	return RANGE_SCRIPT[lo];
+    }
+    
+    /**
+     * Means the span gets no font of its own (as opposed to null, which
+     * is passed to fontAction, and means the fallback font).
+     * Compared by identity.
+     */
+    private static final String NO_FONT = new String("[no font]");
+    
+    private static final String UNDECIDED = new String("[undecided]");
+    
+    /**
+     * The inputs to font selection for a run, and the font decided 
+     * for each script class, filled in as they are encountered.
+     */
+    private static final class FontContext {
+    	
+    	final STHint hint; 
+    	final boolean zh; 
+    	final String eastAsia; 
+    	final String ascii; 
+    	final String hAnsi;
+    	
+    	final String[] fonts = new String[SCRIPT_COUNT];
+    	
+    	FontContext(STHint hint, boolean zh, String eastAsia, String ascii, String hAnsi) {
+    		this.hint = hint;
+    		this.zh = zh;
+    		this.eastAsia = eastAsia;
+    		this.ascii = ascii;
+    		this.hAnsi = hAnsi;
+    		Arrays.fill(fonts, UNDECIDED);
+    	}
+    	
+    	@Override
+    	public boolean equals(Object o) {
+    		if (!(o instanceof FontContext)) return false;
+    		FontContext other = (FontContext)o;
+    		return hint==other.hint
+    				&& zh==other.zh
+    				&& equal(eastAsia, other.eastAsia)
+    				&& equal(ascii, other.ascii)
+    				&& equal(hAnsi, other.hAnsi);
+    	}
+    	
+    	@Override
+    	public int hashCode() {
+    		int h = (hint==null ? 0 : hint.hashCode());
+    		h = 31*h + (zh ? 1 : 0);
+    		h = 31*h + (eastAsia==null ? 0 : eastAsia.hashCode());
+    		h = 31*h + (ascii==null ? 0 : ascii.hashCode());
+    		h = 31*h + (hAnsi==null ? 0 : hAnsi.hashCode());
+    		return h;
+    	}
+    	
+    	private static boolean equal(String a, String b) {
+    		return a==null ? b==null : a.equals(b);
+    	}
+    }
+    
+    private static final int MAX_FONT_CONTEXTS = 256;
+    
+    /**
+     * Documents only use a handful of font combinations,
+     * so we remember the decisions for each.
+     */
+    private Map<FontContext, FontContext> fontContexts = new HashMap<FontContext, FontContext>(); 
+    
+    private FontContext getFontContext(STHint hint, String langEastAsia,
     		String eastAsia, String ascii, String hAnsi) {
     	
-//    	String hAnsi = hAnsiActual;
-//		if (hAnsi==null) {
-//			log.debug("No value for hAnsi, using default font");
-//			hAnsi = this.getDefaultFont();				
-//		}
+    	FontContext key = new FontContext(hint, contains(langEastAsia, "zh"), eastAsia, ascii, hAnsi);
+    	FontContext ctx = fontContexts.get(key);
+    	if (ctx==null) {
+    		if (fontContexts.size()>=MAX_FONT_CONTEXTS) {
+    			fontContexts.clear();
+    		}
+    		fontContexts.put(key, key);
+    		ctx = key;
+    	}
+    	return ctx;
+    }
+    
+    private String fontFor(FontContext ctx, char c) {
     	
-    	// See http://stackoverflow.com/questions/196830/what-is-the-easiest-best-most-correct-way-to-iterate-through-the-characters-of-a
-    	// and http://stackoverflow.com/questions/8894258/fastest-way-to-iterate-over-all-the-chars-in-a-string
+    	int script = scriptOf(c);
+    	String font;
+    	if (script==SCRIPT_COMPLEX
+    			|| (script==SCRIPT_SYMBOLS && ctx.hint != STHint.EAST_ASIA)) {
+    		font = glyphDependentFont(ctx, script, c);
+    	} else {
+    		font = ctx.fonts[script];
+    		if (font==UNDECIDED) {
+    			font = decideFont(ctx, script);
+    			ctx.fonts[script] = font;
+    		}
+    	}
+    	
+    	if (log.isDebugEnabled()
+    			&& (script==SCRIPT_OTHER || script==SCRIPT_CJK || script==SCRIPT_PRIVATE_USE)
+    			&& font!=null && font!=NO_FONT) {
+    		debugCheckGlyph(font, c);
+    	}
+    	return font;
+    }
+    
+    /**
+     * The font for the characters in script class, where this doesn't
+     * depend on the character itself.
+     */
+    private String decideFont(FontContext ctx, int script) {
+    	
+    	boolean hintEastAsia = (ctx.hint == STHint.EAST_ASIA);
+    	
+    	switch (script) {
+    	
+	    	case SCRIPT_ASCII:
+	    		/* http://webapp.docx4java.org/OnlineDemo/ecma376/WordML/rFonts.html says 
+			     * @ascii (or @asciiTheme) is used to format all characters in the ASCII range 
+			     * (0 - 127)
+			     */
+	    		return ctx.ascii;
+	    		
+	    	case SCRIPT_LATIN1_EA:
+	    		/* hAnsi (or hAnsiTheme if defined), with the following exceptions:
+					If hint is eastAsia, the following characters use eastAsia (or eastAsiaTheme if defined): A1, A4, A7 – A8, AA, AD, AF, B0 – B4, B6 – BA, BC – BF, D7, F7
+					If hint is eastAsia and the language of the run is either Chinese Traditional or Chinese Simplified, the following characters use eastAsia (or eastAsiaTheme if defined): E0 – E1, E8 – EA, EC – ED, F2 – F3, F9 – FA, FC
+				 */
+	    		if (hintEastAsia && ctx.eastAsia!=null) {
+            		// Don't use east asia unless hint tells us to!
+	    			return ctx.eastAsia;
+	    		}
+	    		return (ctx.hAnsi==null ? getDefaultFont() : ctx.hAnsi);
+	    		
+	    	case SCRIPT_LATIN1_ZH:
+	    		if (hintEastAsia && ctx.eastAsia!=null && ctx.zh) {
+	    			return ctx.eastAsia;
+	    		}
+	    		return (ctx.hAnsi==null ? getDefaultFont() : ctx.hAnsi);
+	    		
+	    	case SCRIPT_LATIN1:
+	    		return (ctx.hAnsi==null ? getDefaultFont() : ctx.hAnsi);
+	    		
+	    	case SCRIPT_LATIN_EXT:
+    	    	/* hAnsi (or hAnsiTheme if defined), with the following exception:
+					If hint is eastAsia, and the language of the run is either Chinese Traditional or Chinese Simplified, 
+					or the character set of the eastAsia (or eastAsiaTheme if defined) font is Chinese5 or GB2312 
+					then eastAsia (or eastAsiaTheme if defined) font is used.
+					
+					TODO: "or the character set of the eastAsia (or eastAsiaTheme if defined) font is Chinese5 or GB2312" 
+				 */
+	    		return (hintEastAsia && ctx.zh) ? ctx.eastAsia : ctx.hAnsi;
+	    		
+	    	case SCRIPT_SPACING_TO_CYRILLIC:
+	    		return hintEastAsia ? ctx.eastAsia : ctx.hAnsi; // checked with russian/cyrillic
+	    		
+	    	case SCRIPT_HANGUL_JAMO:
+	    		if (ctx.eastAsia==null) {
+	    			return "Gungsuh"; // TODO what if not present?
+	    				// Why is it not found?  Its in batang.ttc
+	    		}
+	    		return ctx.eastAsia;
+	    		
+	    	case SCRIPT_SYMBOLS:
+	    		// only reached with an eastAsia hint; see glyphDependentFont
+	    		return ctx.eastAsia;
+	    		
+	    	case SCRIPT_CJK:
+    	    	/*
+    	    	 * NB, with contrived cases using
+    	    	 * Arial Unicode MS, Word substitutes
+    	    	 * fonts, including:
+    	    	 * - Meiryo
+    	    	 * - PMingLiU
+    	    	 * - Batang
+    	    	 * - MS Mincho
+    	    	 * depending on the char
+    	    	 */
+	    		if (ctx.eastAsia==null) {
+    	    		// eg <w:rFonts w:ascii="SimSun" w:hAnsi="SimSun" w:cs="SimSun"/>
+    	    		// for "；" (0xff1b, semicolonmonospace)  and "，" (0xff0c, commamonospace) 
+	    			return ctx.hAnsi;
+	    		}
+	    		// 2014 02 18 - not necessarily Japanese!
+	    		// eg 五、劳动报酬 is Chinese
+	    		return ctx.eastAsia;
+	    		
+	    	case SCRIPT_PRIVATE_USE:
+    	    	/* NB, in contrived cases using
+    	    	 * Arial Unicode MS, 
+    	    	 * Word is generally unable to substitute 
+    	    	 * a suitable font!
+    	    	 */ 
+	    		if (hintEastAsia) {
+	    			return ctx.eastAsia;
+	    		}
+	    		// F000 to F0FF expect to use symbol fonts
+	    		if (ctx.hAnsi==null) {
+	    			log.warn("TODO: how to handle private use chars lacking hAnsi?");
+	    			return NO_FONT;
+	    		}
+	    		return ctx.hAnsi;
+	    		
+	    	case SCRIPT_EAST_ASIA:
+	    		return ctx.eastAsia;
+	    		
+	    	case SCRIPT_ALPHA_PRES:
+    	    	/* hAnsi (or hAnsiTheme if defined), with the following exceptions:
+				   If the hint is eastAsia then eastAsia (or eastAsiaTheme if defined) is used for characters in the range FB00 – FB1C.
+				   For the range FB1D – FB4F, ascii (or asciiTheme if defined) is used.
+				 */
+	    		return hintEastAsia ? ctx.eastAsia : ctx.hAnsi;
+	    		
+	    	case SCRIPT_HEBREW_PRES:
+	    		return hintEastAsia ? ctx.hAnsi : ctx.ascii;
+	    		
+	    	default:
+    	    	// Per http://msdn.microsoft.com/en-us/library/ff533743.aspx
+    	    	// for all ranges not listed in the above, the hAnsi (or hAnsiTheme if defined) font shall be used.
+	    		log.debug("Defaulting to hAnsi");
+	    		return ctx.hAnsi;
+    	}
+    }
+    
+    private String glyphDependentFont(FontContext ctx, int script, char c) {
+    	
+    	try {
+	    	if (script==SCRIPT_COMPLEX) {
+	    		
+	    		// This is complex script range,
+	    		// so should we be using it??  
+	    		// Word doesn't seem to be in these edge cases
+	    		// (note that most of the real cs cases should
+	    		//  be handled without this method being invoked)
+	    		
+	    		// Word doesn't use Arial Unicode MS (where specified),
+	    		// so I assume it wouldn't use most other fonts either
+	    		
+	    		// It often uses TNR, so the following is good enough...
+	    		if (GlyphCheck.hasChar("Times New Roman", c)) {
+	    			return "Times New Roman";
+	    		}
+	    		return NO_FONT;
+	    	}
+	    	
+	    	// SCRIPT_SYMBOLS, without an eastAsia hint
+	    	// eg <w:rFonts w:ascii="Arial Unicode MS" w:hAnsi="Arial Unicode MS" 
+	    	//              w:eastAsia="Arial Unicode MS" w:cs="Arial Unicode MS"/>
+	    	if (ctx.hAnsi==null) {
+	    		log.warn("TODO: how to handle char '" + c + "' lacking hAnsi?");
+	    		return NO_FONT;
+	    	}
+	    	// Word falls back to MS Gothic for Calibri 0x2751 (checkbox) 
+	    	String font = GlyphCheck.firstCovering(String.valueOf(c), ctx.hAnsi, "MS Gothic");
+	    	if (font!=null) {
+	    		return font;
+	    	}
+	    	log.warn("TODO: how to handle char '" + c + "' in range c>='\u2000' && c<='\u2EFF'?");
+	    	
+		} catch (ExecutionException e) {
+			log.error(e.getMessage(), e);
+		}
+    	return NO_FONT;
+    }
+    
+    private static boolean sameFont(String a, String b) {
+    	if (a==NO_FONT || b==NO_FONT) {
+    		return a==b;
+    	}
+    	return a==null ? b==null : a.equals(b);
+    }
+    
+    private Object unicodeRangeToFont(String text, STHint hint, String langEastAsia,
+    		String eastAsia, String ascii, String hAnsi) {
     	
     	// The ranges specified at http://msdn.microsoft.com/en-us/library/ff533743.aspx
     	// are from 0000-FFFF, so here we'll assume there are no characters outside 
     	// Unicode Basic Multilingual Plane...
     	
-    	char currentRangeLower='\u0000';
-    	char currentRangeUpper='\u0000';
-    	    	
     	if (text==null) {
     		return null; 
     	}
+    	
+    	FontContext ctx = getFontContext(hint, langEastAsia, eastAsia, ascii, hAnsi);
+    	
+    	// Segment the text into maximal runs of characters using the same font 
+    	// (a space joins whatever run it is in), and emit a span for each.
+    	int start = 0;
+    	String currentFont = null;
     	for (int i = 0; i < text.length(); i++){
     		
-    	    char c = text.charAt(i);        
-    	    if (vis.isReusable() && 
-    	    		(c==' ' ||
-    	    		(c>=currentRangeLower && c<=currentRangeUpper))) {
-    	    	// Add it to existing
-    	    	vis.addCharacterToCurrent(c);
-    	    } else {
-    	    	
-    	    	// Populate previous span
-    	    	vis.finishPrevious();
-    	    	
-    	    	// Create new span
-    		    vis.createNew();
-    		    vis.setMustCreateNewFlag(false);
-    		    
-//    		    System.out.println(c);    		    
-    		    
-    		    /* .. Basic Latin
-    		     * 
-    		     * http://webapp.docx4java.org/OnlineDemo/ecma376/WordML/rFonts.html says 
-    		     * @ascii (or @asciiTheme) is used to format all characters in the ASCII range 
-    		     * (0 - 127)
-    		     */
-        	    if (c>='\u0000' && c<='\u007F') 
-        	    {
-        	    	vis.fontAction(ascii); 
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\u0000';
-        	    	currentRangeUpper = '\u007F';
-        	    } else 
-    		    // ..  Latin-1 Supplement
-        	    if (c>='\u00A0' && c<='\u00FF') 
-        	    {
-        	    	/* hAnsi (or hAnsiTheme if defined), with the following exceptions:
-    					If hint is eastAsia, the following characters use eastAsia (or eastAsiaTheme if defined): A1, A4, A7 – A8, AA, AD, AF, B0 – B4, B6 – BA, BC – BF, D7, F7
-    					If hint is eastAsia and the language of the run is either Chinese Traditional or Chinese Simplified, the following characters use eastAsia (or eastAsiaTheme if defined): E0 – E1, E8 – EA, EC – ED, F2 – F3, F9 – FA, FC
-    					*/
-
-	    			if (hint == STHint.EAST_ASIA
-	    					&& eastAsia !=null) {
-        	    	
-    	    			if ( c=='\u00A1' || c=='\u00A4' 
-	    					|| (c>='\u00A7' && c<='\u00A8')         	    					
-	    					|| c=='\u00AA' 
-	    	    			|| c=='\u00AD' // Known issues with soft hyphen
-	    					|| c=='\u00AF'          	    					
-	    					|| (c>='\u00B0' && c<='\u00B4')         	    					
-	    					|| (c>='\u00B6' && c<='\u00BA') 
-	    					|| (c>='\u00BC' && c<='\u00BF') 
-	    					|| c=='\u00D7' || c=='\u00F7' ) {
-
-                	    		// Don't use east asia unless hint tells us to!
-        	    				vis.fontAction(eastAsia);
-        	    				
-    	    			} else if (contains(langEastAsia, "zh") &&
-
-        	    			// the following characters use eastAsia (or eastAsiaTheme if defined): E0 – E1, E8 – EA, EC – ED, F2 – F3, F9 – FA, FC
-        	    			 ( (c>='\u00E0' && c<='\u00E1')         	    					
-        	    					|| (c>='\u00E8' && c<='\u00EA')         	    					
-        	    					|| (c>='\u00EC' && c<='\u00ED')         	    					
-        	    					|| (c>='\u00F2' && c<='\u00F3')         	    					
-        	    					|| (c>='\u00F9' && c<='\u00FA') 
-        	    					|| c=='\u00FC'))  {
-        	    				vis.fontAction(eastAsia);
-     	    				
-    	    			}  else if (hAnsi!=null) {
-        	    			vis.fontAction(hAnsi);
-        	    				
-        	    		} else {
-                			vis.fontAction(getDefaultFont());
-    	    			}  
-        	    		
-        	    	} else if (hAnsi!=null) {        	    		
-	    				vis.fontAction(hAnsi);
-
-        	    	} else {
-
-        	    		// .. Ignore ascii and east Asia 
-        				vis.fontAction(getDefaultFont());
-        	    		
-        	    	}
-        	    	
-        	    	vis.addCharacterToCurrent(c);
-        		    vis.setMustCreateNewFlag(false);
-        	    	
-        	    	currentRangeLower = '\u0000';
-        	    	currentRangeUpper = '\u007F';
-        	    } else 
-    		    // ..  Latin Extended-A, Latin Extended-B, IPA Extensions
-        	    if (c>='\u0100' && c<='\u02AF') 
-        	    {
-        	    	/* hAnsi (or hAnsiTheme if defined), with the following exception:
-    					If hint is eastAsia, and the language of the run is either Chinese Traditional or Chinese Simplified, 
-    					or the character set of the eastAsia (or eastAsiaTheme if defined) font is Chinese5 or GB2312 
-    					then eastAsia (or eastAsiaTheme if defined) font is used.
-    					*/
-        	    	if (hint == STHint.EAST_ASIA) {
-        	    		if (contains(langEastAsia, "zh") ) {
-    	    				vis.fontAction(eastAsia);
-    	    			    vis.setMustCreateNewFlag(true);
-        	    			
-        	    		// else TODO: "or the character set of the eastAsia (or eastAsiaTheme if defined) font is Chinese5 or GB2312" 
-        	    		// fetch the character set!?
-        	    			
-        	    		} else {
-    	    				vis.fontAction(hAnsi);
-    	    			    vis.setMustCreateNewFlag(true);
-    	    			} 
-        	    	} else {
-        	    		// Usual case
-        				vis.fontAction(hAnsi);
-        	    	}
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\u0100';
-        	    	currentRangeUpper = '\u02AF';
-        	    } else 
-        	    if (c>='\u02B0' && c<='\u04FF') 
-        	    {
-        	    	if (hint == STHint.EAST_ASIA) {
-        				vis.fontAction(eastAsia);
-        	    	} else {
-        	    		// Usual case
-        	    		vis.fontAction(hAnsi); // checked with russian/cyrillic
-        	    	}
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\u02B0';
-        	    	currentRangeUpper = '\u04FF';
-        	    }
-        	    else if (c>='\u0590' && c<='\u07BF') 
-        	    {
-        	    	try {
-        	    		
-        	    		// This is complex script range,
-        	    		// so should we be using it??  
-        	    		// Word doesn't seem to be in these edge cases
-        	    		// (note that most of the real cs cases should
-        	    		//  be handled without this method being invoked)
-        	    		
-        	    		// Word doesn't use Arial Unicode MS (where specified),
-        	    		// so I assume it wouldn't use most other fonts either
-        	    		
-        	    		// It often uses TNR, so the following is good enough...
-						if (GlyphCheck.hasChar("Times New Roman", c)) {
-							vis.fontAction("Times New Roman");        	    		
-						}
-						
-					} catch (ExecutionException e) {
-						log.error(e.getMessage(), e);
-					}
-        	    	
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\u0590';
-        	    	currentRangeUpper = '\u07BF';
-        	    }
-        	    else if (c>='\u1100' && c<='\u11FF') 
-        	    {
-        	    	if (eastAsia==null) {
-        	    		vis.fontAction("Gungsuh"); // TODO what if not present?
-        	    			// Why is it not found?  Its in batang.ttc
-        	    	} else {        	    	
-        	    		vis.fontAction(eastAsia);
-        	    	}
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\u1100';
-        	    	currentRangeUpper = '\u11FF';
-        	    } else if (c>='\u1E00' && c<='\u1EFF') 
-        	    {
-        	    	if (hint == STHint.EAST_ASIA) {
-        	    		if (contains(langEastAsia, "zh") ) {
-    	    				vis.fontAction(eastAsia);	
-        	    		} else {
-    	    				vis.fontAction(hAnsi);
-    	    			} 
-        	    	} else {
-        	    		// Usual case
-        				vis.fontAction(hAnsi);
-        	    	}
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\u1E00';
-        	    	currentRangeUpper = '\u1EFF';
-        	    }
-        	    else if (c>='\u2000' && c<='\u2EFF') 
-        	    {
-        	    	if (hint == STHint.EAST_ASIA) {
-        				vis.fontAction(eastAsia); 
-        	    	} else {
-        	    		// eg <w:rFonts w:ascii="Arial Unicode MS" w:hAnsi="Arial Unicode MS" 
-        	    		//              w:eastAsia="Arial Unicode MS" w:cs="Arial Unicode MS"/>
-        	    		if (hAnsi==null) {
-        	    			log.warn("TODO: how to handle char '" + c + "' lacking hAnsi?");
-        	    		} else {
-        	    			
-        	    			try {
-        						if (GlyphCheck.hasChar(hAnsi, c)) {
-        							vis.fontAction(hAnsi);        	    		
-        						} else if (GlyphCheck.hasChar("MS Gothic", c)) {
-        							// Word does this for Calibri 0x2751 (checkbox) 
-        							vis.fontAction("MS Gothic");        	    		
-        						} else {
-                	    			log.warn("TODO: how to handle char '" + c + "' in range c>='\u2000' && c<='\u2EFF'?");        							
-        						}
-        						
-        					} catch (ExecutionException e) {
-        						log.error(e.getMessage(), e);
-        					}        	    			
-        	    		}         	    	}
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\u2000';
-        	    	currentRangeUpper = '\u2EFF';
-        	    }
-        	    else if (c>='\u2F00' && c<='\uDFFF') 
-        	    {
-        	    	/*
-        	    	 * NB, with contrived cases using
-        	    	 * Arial Unicode MS, Word substitutes
-        	    	 * fonts, including:
-        	    	 * - Meiryo
-        	    	 * - PMingLiU
-        	    	 * - Batang
-        	    	 * - MS Mincho
-        	    	 * depending on the char
-        	    	 */
-        	    	
-        	    	if (eastAsia==null) {
-        	    		
-	    				vis.fontAction(hAnsi); 
-	    				debugCheckGlyph(hAnsi, c);
-
-        	    	} else {
-        	    		// Japanese
-            	    	// 2014 02 18 - not necessarily!
-            	    	// eg 五、劳动报酬 is Chinese
-	    				vis.fontAction(eastAsia); 
-	    				debugCheckGlyph(eastAsia, c);
-        	    	}
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\u2F00';
-        	    	currentRangeUpper = '\uDFFF';
-        	    }
-        	    else if (c>='\uE000' && c<='\uF8FF') 
-        	    {
-        	    	
-        	    	/* NB, in contrived cases using
-        	    	 * Arial Unicode MS, 
-        	    	 * Word is generally unable to substitute 
-        	    	 * a suitable font!
-        	    	 */ 
-        	    	
-        	    	if (hint == STHint.EAST_ASIA) {
-        				vis.fontAction(eastAsia); 
-        	    	} else {
-        	    		// Usual case
-        	    		
-        	    		// F000 to F0FF expect to use symbol fonts
-        	    		if (hAnsi==null) {
-							log.warn("TODO: how to handle char '" + c + "' (0x"
-			                    + Integer.toHexString(c) 
-			                    + ") lacking hAnsi?");	        	    			
-        	    		} else {
-    	    				vis.fontAction(hAnsi); 										
-    	    				debugCheckGlyph(hAnsi, c);
-						}
-        	    	}
-        	    		
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\uE000';
-        	    	currentRangeUpper = '\uF8FF';
-        	    }
-        	    else if (c>='\uF900' && c<='\uFAFF') 
-        	    {
-    				vis.fontAction(eastAsia); 
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\uF900';
-        	    	currentRangeUpper = '\uFAFF';
-        	    } else 
-    		    // ..  Alphabetic Presentation Forms
-        	    if (c>='\uFB00' && c<='\uFB4F') 
-        	    {
-        	    	/* hAnsi (or hAnsiTheme if defined), with the following exceptions:
-        	    	 * 
-    							If the hint is eastAsia then eastAsia (or eastAsiaTheme if defined) is used for characters in the range FB00 – FB1C.
-    							For the range FB1D – FB4F, ascii (or asciiTheme if defined) is used.
-    					*/
-        	    	if (hint == STHint.EAST_ASIA) {
-    	    			if ( c>='\uFB00' && c<='\uFB1C') {
-    	    				vis.fontAction(eastAsia);
-    	    			    vis.setMustCreateNewFlag(true);
-    	    			} else {
-    	    				vis.fontAction(hAnsi);
-    	    			}
-        	    			
-        	    	} else if ( c>='\uFB1D' && c<='\uFB4F') {
-        	    				
-        				vis.fontAction(ascii);
-        			    vis.setMustCreateNewFlag(true);
-        				
-        	    	} else {
-        				vis.fontAction(hAnsi);
-        	    	}
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\uFB00';
-        	    	currentRangeUpper = '\uFB4F';
-        	    } else if (c>='\uFB50' && c<='\uFDFF') {
-    				vis.fontAction(eastAsia); 
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\uFB50';
-        	    	currentRangeUpper = '\uFDFF';	
-        	    } else if (c>='\uFE30' && c<='\uFE6F') {
-    				vis.fontAction(eastAsia); 
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\uFE30';
-        	    	currentRangeUpper = '\uFE6F';	
-        	    } else if (c>='\uFE70' && c<='\uFEFE') {
-    				vis.fontAction(ascii); 
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\uFE70';
-        	    	currentRangeUpper = '\uFEFE';	
-        	    } else if (c>='\uFF00' && c<='\uFFEF') {
-        	    	
-        	    	if (eastAsia==null) {
-        	    		// eg <w:rFonts w:ascii="SimSun" w:hAnsi="SimSun" w:cs="SimSun"/>
-        	    		// for "；" (0xff1b, semicolonmonospace)  and "，" (0xff0c, commamonospace) 
-	    				vis.fontAction(hAnsi); 
-        	    	} else {
-        	    		vis.fontAction(eastAsia);
-        	    	}
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower = '\uFF00';
-        	    	currentRangeUpper = '\uFFEF';	
-        	    } else {
-        	    	// Per http://msdn.microsoft.com/en-us/library/ff533743.aspx
-        	    	// for all ranges not listed in the above, the hAnsi (or hAnsiTheme if defined) font shall be used.
-        	    	String hex = String.format("%04x", (int) c);
-        	    	log.debug("Defaulting to hAnsi for char " + hex);
-    				vis.fontAction(hAnsi); 
-    				debugCheckGlyph(hAnsi, c);
-    				
-        	    	vis.addCharacterToCurrent(c);
-        	    	
-        	    	currentRangeLower='\u0000';
-        	    	currentRangeUpper='\u0000';
-        	    	
-        	    	// TODO: enhance to allow current to be reused, if font is same
-        	    	
-        	    	
-        	    }
+    	    char c = text.charAt(i);
+    	    if (i>start && c==' ') {
+    	    	continue;
     	    }
-    	} 
+    	    String font = fontFor(ctx, c);
+    	    if (i>start) {
+    	    	if (sameFont(font, currentFont)) {
+    	    		continue;
+    	    	}
+    	    	emitSpan(text, start, i, currentFont);
+    	    }
+    	    start = i;
+    	    currentFont = font;
+    	}
+    	if (start<text.length()) {
+    		emitSpan(text, start, text.length(), currentFont);
+    	}
     	
     	// Handle final span
     	vis.finishPrevious();
     	return vis.getResult();
     }
     
+    private void emitSpan(String text, int start, int end, String font) {
+    	
+    	// Populate previous span
+    	vis.finishPrevious();
+    	
+    	// Create new span
+	    vis.createNew();
+	    vis.setMustCreateNewFlag(false);
+	    if (font!=NO_FONT) {
+	    	vis.fontAction(font);
+	    }
+	    
+	    if (vis instanceof RunFontSpanVisitor) {
+	    	((RunFontSpanVisitor)vis).addCharactersToCurrent(text, start, end);
+	    } else {
+	    	for (int i = start; i < end; i++) {
+	    		vis.addCharacterToCurrent(text.charAt(i));
+	    	}
+	    }
+    }
+    
     private void debugCheckGlyph(String fontName, char c) {
     	
 		if (log.isDebugEnabled()) {
@@ -1085,6 +1118,21 @@ public class RunFontSelector {
 		Object getResult();  // when used in output a DocumentFragment; when used to find fonts, a Set.
 
 	}
+	
+	/**
+	 * A visitor which can accept a whole span of characters at once;
+	 * the text is then passed to it in one call per span, rather 
+	 * than one call per character.
+	 * 
+	 * @since 3.2.2
+	 */
+	public interface RunFontSpanVisitor extends RunFontCharacterVisitor {
+		
+		/**
+		 * Add text.substring(start, end) to the current span.
+		 */
+		void addCharactersToCurrent(String text, int start, int end);
+	}
 
 	// Arabic numbering stuff
 	
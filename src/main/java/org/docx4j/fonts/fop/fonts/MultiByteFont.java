@@ -215,6 +215,14 @@ public class MultiByteFont extends CIDFont {
         this.bfentries = entries;
     }
 
+    /**
+     * Returns the Unicode to glyph index map for the font.
+     * @return the BFEntry instances (may be null if not set yet)
+     */
+    public BFEntry[] getBFEntries() {
+        return this.bfentries;
+    }
+
     /**
      * Sets the defaultWidth.
      * @param defaultWidth The defaultWidth to set
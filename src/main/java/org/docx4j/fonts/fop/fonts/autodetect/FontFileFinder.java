@@ -51,6 +51,10 @@ public class FontFileFinder extends DirectoryWalker implements FontFinder {
     /** default depth limit of recursion when searching for font files **/
     public static final int DEFAULT_DEPTH_LIMIT = -1;
 
+    private static final IOFileFilter DIRECTORY_FILTER = getDirectoryFilter();
+
+    private static final IOFileFilter FILE_FILTER = getFileFilter();
+
     /**
      * Default constructor
      */
@@ -130,13 +134,13 @@ public class FontFileFinder extends DirectoryWalker implements FontFinder {
     }
 
     /**
-     * Automagically finds a list of font files on local system
+     * Finds the top level font directories on the local system,
+     * based on os.name
      *
-     * @return List&lt;URL&gt; of font files
+     * @return List&lt;File&gt; of font directories
      * @throws IOException io exception
-     * {@inheritDoc}
      */
-    public List find() throws IOException {
+    public List findFontDirs() throws IOException {
         final FontFinder fontDirFinder;
         final String osName = System.getProperty("os.name");
         if (osName.startsWith("Windows")) {
@@ -148,7 +152,34 @@ public class FontFileFinder extends DirectoryWalker implements FontFinder {
                 fontDirFinder = new UnixFontDirFinder();
             }
         }
-        List fontDirs = fontDirFinder.find();
+        return fontDirFinder.find();
+    }
+
+    /**
+     * @param directory a directory found while searching
+     * @return whether find() would search it
+     */
+    public static boolean isFontDirectory(File directory) {
+        return DIRECTORY_FILTER.accept(directory);
+    }
+
+    /**
+     * @param file a file found while searching
+     * @return whether find() would return it
+     */
+    public static boolean isFontFile(File file) {
+        return FILE_FILTER.accept(file);
+    }
+
+    /**
+     * Automagically finds a list of font files on local system
+     *
+     * @return List&lt;URL&gt; of font files
+     * @throws IOException io exception
+     * {@inheritDoc}
+     */
+    public List find() throws IOException {
+        List fontDirs = findFontDirs();
         List results = new java.util.ArrayList();
         for (Iterator iter = fontDirs.iterator(); iter.hasNext();) {
             final File dir = (File)iter.next();
@@ -71,6 +71,13 @@ public class FontInfoFinder {
         this.eventListener = listener;
     }
 
+    /**
+     * @return the font event listener, or null
+     */
+    public FontEventListener getEventListener() {
+        return this.eventListener;
+    }
+
     /**
      * Attempts to determine FontTriplets from a given CustomFont.
      * It seems to be fairly accurate but will probably require some tweaking over time
@@ -29,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.commons.io.IOUtils;
 import org.docx4j.Docx4jProperties;
+import org.docx4j.fonts.EmbeddedFonts;
 import org.docx4j.fonts.Mapper;
 import org.docx4j.fonts.PhysicalFont;
 import org.docx4j.fonts.PhysicalFonts;
@@ -126,7 +127,7 @@ public class FopConfigUtil {
 		    if (pf.getEmbedFontInfo().getSubFontName()!=null)
 		    	subFontAtt= " sub-font=\"" + pf.getEmbedFontInfo().getSubFontName() + "\"";
 		    
-		    result.append("<font embed-url=\"" +pf.getEmbeddedFile() + "\""+ subFontAtt +">" );
+		    result.append("<font embed-url=\"" +getEmbedUrl(pf) + "\""+ subFontAtt +">" );
 		    	// now add the first font triplet
 			    FontTriplet fontTriplet = (FontTriplet)pf.getEmbedFontInfo().getFontTriplets().get(0);
 			    addFontTriplet(result, fontTriplet);
@@ -137,7 +138,7 @@ public class FopConfigUtil {
 		    if (pfVariation==null) {
 		    	log.debug(fontName + " no bold form");
 		    } else {
-			    result.append("<font embed-url=\"" +pfVariation.getEmbeddedFile() + "\""+ subFontAtt +">" );
+			    result.append("<font embed-url=\"" +getEmbedUrl(pfVariation) + "\""+ subFontAtt +">" );
 		    	addFontTriplet(result, pf.getName(), "normal", "bold");
 			    result.append("</font>" );
 		    }
@@ -145,7 +146,7 @@ public class FopConfigUtil {
 		    if (pfVariation==null) {
 		    	log.debug(fontName + " no bold italic form");
 		    } else {
-			    result.append("<font embed-url=\"" +pfVariation.getEmbeddedFile() + "\""+ subFontAtt +">" );
+			    result.append("<font embed-url=\"" +getEmbedUrl(pfVariation) + "\""+ subFontAtt +">" );
 		    	addFontTriplet(result, pf.getName(), "italic", "bold");
 			    result.append("</font>" );
 		    }
@@ -153,7 +154,7 @@ public class FopConfigUtil {
 		    if (pfVariation==null) {
 		    	log.debug(fontName + " no italic form");
 		    } else {
-			    result.append("<font embed-url=\"" +pfVariation.getEmbeddedFile() + "\""+ subFontAtt +">" );
+			    result.append("<font embed-url=\"" +getEmbedUrl(pfVariation) + "\""+ subFontAtt +">" );
 		    	addFontTriplet(result, pf.getName(), "italic", "normal");
 			    result.append("</font>" );
 		    }
@@ -161,6 +162,13 @@ public class FopConfigUtil {
 		}
 	}
 		
+	/**
+	 * FOP needs a file, so an in-memory embedded font is written out.
+	 */
+	private static String getEmbedUrl(PhysicalFont pf) {
+		return EmbeddedFonts.toFileUrl(pf.getEmbeddedFile());
+	}
+	
 	protected static void addFontTriplet(StringBuilder result, FontTriplet fontTriplet) {
 		addFontTriplet(result, fontTriplet.getName(), 
 							   fontTriplet.getStyle(), 
@@ -0,0 +1,307 @@
+package org.docx4j.model;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.docx4j.TraversalUtil;
+import org.docx4j.TraversalUtil.CallbackImpl;
+import org.docx4j.dml.CTNonVisualDrawingProps;
+import org.docx4j.dml.wordprocessingDrawing.Anchor;
+import org.docx4j.dml.wordprocessingDrawing.Inline;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.WordprocessingML.EndnotesPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.FooterPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.HeaderPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.relationships.Relationship;
+import org.docx4j.wml.CTBookmark;
+import org.docx4j.wml.CTFtnEdn;
+import org.docx4j.wml.CommentRangeEnd;
+import org.docx4j.wml.CommentRangeStart;
+import org.docx4j.wml.Comments;
+import org.docx4j.wml.R;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the numeric IDs in use in a package
+ * (bookmarks, comments, footnotes, endnotes, and drawing docPr),
+ * so that fresh ones can be allocated without rescanning
+ * the document each time.
+ *
+ * The document is scanned when the registry is first used.
+ * After that, it is kept up to date incrementally: IDs allocated
+ * via next() or the counters are never handed out again, so
+ * content which docx4j adds using them (eg BookmarkRenumber and
+ * BindingHandler's bookmarks) doesn't need a rescan.
+ *
+ * The registry remembers the content (JAXB element) of each part 
+ * it scanned.  If a part's content has been replaced (eg by 
+ * setJaxbElement, as the XSLT binding step does), or a header, footer, 
+ * notes or comments part has been added or removed, the document is 
+ * scanned again when a counter is next got.  Changes made in place 
+ * (ie to the existing JAXB objects) can't be noticed: if you insert 
+ * content containing existing IDs (eg from another document) without 
+ * renumbering it, tell the registry via register(), or rescan().
+ *
+ * Get the registry for a package via
+ * WordprocessingMLPackage.getIdRegistry().
+ *
+ * Thread safe.
+ *
+ * @since 3.2.2
+ */
+public class IdRegistry {
+
+	protected static Logger log = LoggerFactory.getLogger(IdRegistry.class);
+
+	public enum IdType {
+		BOOKMARK,
+		COMMENT,
+		FOOTNOTE,
+		ENDNOTE,
+		DRAWING
+	}
+
+	private WordprocessingMLPackage wordMLPackage;
+
+	/**
+	 * The next ID to allocate, for each type.  These are the 
+	 * same objects for the life of the registry (a rescan 
+	 * updates them), so callers can hold on to them.
+	 */
+	private final Map<IdType, AtomicInteger> next = new EnumMap<IdType, AtomicInteger>(IdType.class);
+
+	private volatile boolean scanned = false;
+
+	/**
+	 * The content of each part, when it was scanned.
+	 */
+	private volatile Map<Part, Object> scannedContents = Collections.emptyMap();
+
+	public IdRegistry(WordprocessingMLPackage wordMLPackage) {
+		this.wordMLPackage = wordMLPackage;
+		for (IdType type : IdType.values()) {
+			next.put(type, new AtomicInteger(1));
+		}
+	}
+
+	/**
+	 * Allocate a fresh ID of the specified type.
+	 */
+	public int next(IdType type) {
+
+		// Don't look for replaced parts each time
+		if (!scanned) {
+			scan();
+		}
+		return next.get(type).getAndIncrement();
+	}
+
+	/**
+	 * Record that an ID is in use (eg in content you have
+	 * inserted), so that it won't be allocated.
+	 */
+	public void register(IdType type, long id) {
+
+		if (id >= Integer.MAX_VALUE) {
+			log.warn("Ignoring very large " + type + " id " + id);
+			return;
+		}
+
+		raise(getCounter(type), id+1);
+	}
+
+	/**
+	 * Set the counter to at least value; it never goes down,
+	 * since IDs already allocated may be in use.
+	 */
+	private static void raise(AtomicInteger counter, long value) {
+
+		int current;
+		while ((current = counter.get()) < value) {
+			if (counter.compareAndSet(current, (int)value)) break;
+		}
+	}
+
+	/**
+	 * The counter from which IDs of the specified type are allocated.
+	 * Useful for existing code which takes an AtomicInteger,
+	 * for example BindingHandler.setStartingIdForNewBookmarks;
+	 * IDs taken from it are taken from this registry.
+	 *
+	 * If any of the parts has been replaced since the document
+	 * was scanned, it is scanned again first.
+	 */
+	public AtomicInteger getCounter(IdType type) {
+
+		if (!scanned
+				|| !isCurrent()) {
+			scanned = false;
+			scan();
+		}
+		return next.get(type);
+	}
+
+	/**
+	 * Rescan the document.  You only need to do this if you have
+	 * changed its content in place, without using this registry's IDs.
+	 *
+	 * IDs are never reused, so this only ever increases the
+	 * next values.  The counters are updated in place, so ones
+	 * obtained via getCounter stay current.
+	 */
+	public synchronized void rescan() {
+
+		scanned = false;
+		scan();
+	}
+
+	private synchronized void scan() {
+
+		if (scanned) return; // another thread did it
+
+		long startTime = System.currentTimeMillis();
+
+		IdFinder finder = new IdFinder();
+		Map<Part, Object> contents = new IdentityHashMap<Part, Object>();
+
+		MainDocumentPart mdp = wordMLPackage.getMainDocumentPart();
+		for (JaxbXmlPart<?> part : parts()) {
+
+			Object o = part.getJaxbElement();
+			contents.put(part, o);
+			if (part==mdp) {
+				new TraversalUtil(mdp.getContent(), finder);
+			} else {
+				// Whether w:footnote/w:endnote elements are footnotes or endnotes
+				finder.noteType = (part instanceof EndnotesPart) ? IdType.ENDNOTE : IdType.FOOTNOTE;
+				finder.walkJAXBElements(o);
+			}
+		}
+		scannedContents = contents;
+
+		for (IdType type : IdType.values()) {
+			raise(next.get(type), finder.highest[type.ordinal()] + 1);
+		}
+		scanned = true;
+
+		log.debug("Scanned for IDs in " + (System.currentTimeMillis()-startTime) + "ms");
+	}
+
+	/**
+	 * @return the parts which may contain IDs: the main document part,
+	 * headers, footers, footnotes, endnotes and comments
+	 */
+	private List<JaxbXmlPart<?>> parts() {
+
+		List<JaxbXmlPart<?>> parts = new ArrayList<JaxbXmlPart<?>>();
+		MainDocumentPart mdp = wordMLPackage.getMainDocumentPart();
+		if (mdp==null) {
+			return parts;
+		}
+		parts.add(mdp);
+		RelationshipsPart rp = mdp.getRelationshipsPart();
+		if (rp!=null) {
+			for ( Relationship r : rp.getRelationships().getRelationship() ) {
+				Part part = rp.getPart(r);
+				if ( part instanceof FooterPart
+						|| part instanceof HeaderPart) {
+					parts.add((JaxbXmlPart<?>)part);
+				}
+			}
+		}
+		if (mdp.getFootnotesPart()!=null) {
+			parts.add(mdp.getFootnotesPart());
+		}
+		if (mdp.getEndNotesPart()!=null) {
+			parts.add(mdp.getEndNotesPart());
+		}
+		if (mdp.getCommentsPart()!=null) {
+			parts.add(mdp.getCommentsPart());
+		}
+		return parts;
+	}
+
+	/**
+	 * @return whether the parts, and their content, are the ones scanned
+	 */
+	private boolean isCurrent() {
+
+		Map<Part, Object> contents = scannedContents;
+		List<JaxbXmlPart<?>> parts = parts();
+		if (parts.size()!=contents.size()) {
+			return false;
+		}
+		for (JaxbXmlPart<?> part : parts) {
+			if (!contents.containsKey(part)
+					|| contents.get(part)!=part.getJaxbElement()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static class IdFinder extends CallbackImpl {
+
+		long[] highest = new long[IdType.values().length];
+
+		/**
+		 * Whether w:footnote/w:endnote elements we come across
+		 * are footnotes or endnotes.
+		 */
+		IdType noteType = IdType.FOOTNOTE;
+
+		private void seen(IdType type, BigInteger id) {
+			if (id!=null) {
+				seen(type, id.longValue());
+			}
+		}
+
+		private void seen(IdType type, long id) {
+			if (id > highest[type.ordinal()]
+					&& id < Integer.MAX_VALUE) {
+				highest[type.ordinal()] = id;
+			}
+		}
+
+		@Override
+		public List<Object> apply(Object o) {
+
+			if (o instanceof CTBookmark) {
+				seen(IdType.BOOKMARK, ((CTBookmark)o).getId());
+			} else if (o instanceof CommentRangeStart) {
+				seen(IdType.COMMENT, ((CommentRangeStart)o).getId());
+			} else if (o instanceof CommentRangeEnd) {
+				seen(IdType.COMMENT, ((CommentRangeEnd)o).getId());
+			} else if (o instanceof R.CommentReference) {
+				seen(IdType.COMMENT, ((R.CommentReference)o).getId());
+			} else if (o instanceof Comments.Comment) {
+				seen(IdType.COMMENT, ((Comments.Comment)o).getId());
+			} else if (o instanceof CTFtnEdn) {
+				seen(noteType, ((CTFtnEdn)o).getId());
+			} else if (o instanceof Inline) {
+				seenDocPr(((Inline)o).getDocPr());
+			} else if (o instanceof Anchor) {
+				seenDocPr(((Anchor)o).getDocPr());
+			}
+			return null;
+		}
+
+		private void seenDocPr(CTNonVisualDrawingProps docPr) {
+			if (docPr!=null) {
+				seen(IdType.DRAWING, docPr.getId());
+			}
+		}
+	}
+
+}
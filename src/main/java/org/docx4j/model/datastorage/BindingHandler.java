@@ -19,15 +19,14 @@
  **/
 package org.docx4j.model.datastorage;
 
-import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.docx4j.Docx4jProperties;
-import org.docx4j.TraversalUtil;
 import org.docx4j.XmlUtils;
-import org.docx4j.finders.RangeFinder;
+import org.docx4j.model.IdRegistry;
+import org.docx4j.model.IdRegistry.IdType;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.openpackaging.parts.CustomXmlPart;
@@ -38,7 +37,6 @@ import org.docx4j.openpackaging.parts.opendope.XPathsPart;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
 import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
 import org.docx4j.relationships.Relationship;
-import org.docx4j.wml.CTBookmark;
 import org.docx4j.wml.CTDataBinding;
 import org.opendope.xpaths.Xpaths;
 import org.slf4j.Logger;
@@ -109,7 +107,8 @@ public class BindingHandler {
 	 * For efficiency, user code needs to pass this value through
 	 * from the previous stage (repeats/condition handing).
 	 * 
-	 * If it isn't, the value will be calculated (less efficient).
+	 * If it isn't, the package's IdRegistry is used (which only
+	 * rescans the document if a part's content has been replaced).
 	 *  
 	 * New bookmarks could be created from XHTML, or renumbered
 	 * in Flat OPC XML (TODO).
@@ -128,21 +127,9 @@ public class BindingHandler {
 		// from previous step
 		if (bookmarkId!=null) return bookmarkId;
 
-		// The inefficient case, where we calculate again
-		log.warn("Recalculating starting value for new bookmarks.  For efficiency, you should set this in your code.");
-		int highestId = 0;
-		
-		RangeFinder rt = new RangeFinder("CTBookmark", "CTMarkupRange");
-		new TraversalUtil(wordMLPackage.getMainDocumentPart().getContent(), rt);
-		
-		for (CTBookmark bm : rt.getStarts()) {
-			
-			BigInteger id = bm.getId();
-			if (id!=null && id.intValue()>highestId) {
-				highestId = id.intValue();
-			}
-		}
-		return new AtomicInteger(highestId+1);
+		// Otherwise, use the package's registry
+		IdRegistry registry = wordMLPackage.getIdRegistry();
+		return registry.getCounter(IdType.BOOKMARK);
 	}	
 	
 	
@@ -3,7 +3,12 @@ package org.docx4j.model.datastorage;
 import java.lang.reflect.Method;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.JAXBElement;
@@ -11,8 +16,9 @@ import javax.xml.bind.JAXBElement;
 import org.docx4j.TraversalUtil;
 import org.docx4j.TraversalUtil.CallbackImpl;
 import org.docx4j.XmlUtils;
-import org.docx4j.finders.RangeFinder;
 import org.docx4j.jaxb.Context;
+import org.docx4j.model.IdRegistry;
+import org.docx4j.model.IdRegistry.IdType;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.wml.CTBookmark;
@@ -68,28 +74,12 @@ public class BookmarkRenumber {
 	protected AtomicInteger getBookmarkId() {
 		
 		if (bookmarkId==null) {
-			// Work out starting ID
-			bookmarkId = new AtomicInteger(initBookmarkIdStart());
+			// The package's registry works out the starting ID
+			IdRegistry registry = wordMLPackage.getIdRegistry();
+			bookmarkId = registry.getCounter(IdType.BOOKMARK);
 		}
 		return bookmarkId;
 	}
-
-	private int initBookmarkIdStart() {
-
-		int highestId = 0;
-		
-		RangeFinder rt = new RangeFinder("CTBookmark", "CTMarkupRange");
-		new TraversalUtil(wordMLPackage.getMainDocumentPart().getContent(), rt);
-		
-		for (CTBookmark bm : rt.getStarts()) {
-			
-			BigInteger id = bm.getId();
-			if (id!=null && id.intValue()>highestId) {
-				highestId = id.intValue();
-			}
-		}
-		return highestId +1;
-	}	
 	
 	
 	//             fixRange( blockRange, "CTBookmark", "CTMarkupRange", null);
@@ -220,6 +210,22 @@ public class BookmarkRenumber {
 		// across documents so prepend doc#_
 
 
+		// Index the closing point tags by id, so each opening tag
+		// can find its partner without a scan of all of them
+		Map<Object, LinkedList<Object>> endsById = new HashMap<Object, LinkedList<Object>>();
+		for (Object end : rt.ends) {
+			if (endIdMethod == null)
+				endIdMethod = findGetIdMethod(end);
+			Object endId = getIdObject(endIdMethod, end);
+			if (endId==null) continue;
+			LinkedList<Object> sameId = endsById.get(endId);
+			if (sameId==null) {
+				sameId = new LinkedList<Object>();
+				endsById.put(endId, sameId);
+			}
+			sameId.add(end);
+		}
+
 		// for each opening point tag
 		int counter = 0; // for bookmark renumbering
 		for (Object o : rt.starts) {
@@ -259,27 +265,19 @@ public class BookmarkRenumber {
 				}
 
 				// find the closing point tag
-				BigInteger tmpId;
-				for (Object end : rt.ends) {
-					if (endIdMethod == null)
-						endIdMethod = findGetIdMethod(end);
-					tmpId = getId(endIdMethod, end);
-					if (tmpId!=null
-							&& tmpId.equals(id)) {
-						// found it
-						matched = true;
-						
-						if (endElement.equals("CTMarkupRange")) {
-							Method setIdMethod = findSetIdMethod(end);
-							if (id instanceof BigInteger) {
-								setIdMethod.invoke(end, BigInteger.valueOf(newId));
-							} 
-//							else if (id instanceof String) {
-//								setIdMethod.invoke(end, "" + newId);
-//							} 
-						}
-						
-						break;
+				Object end = takeFirst(endsById, id);
+				if (end!=null) {
+					// found it
+					matched = true;
+					
+					if (endElement.equals("CTMarkupRange")) {
+						Method setIdMethod = findSetIdMethod(end);
+						if (id instanceof BigInteger) {
+							setIdMethod.invoke(end, BigInteger.valueOf(newId));
+						} 
+//						else if (id instanceof String) {
+//							setIdMethod.invoke(end, "" + newId);
+//						} 
 					}
 				}
 
@@ -298,16 +296,11 @@ public class BookmarkRenumber {
 //				}
 				
 				// find the closing point tag
-				String tmpId;
-				for (Object end : rt.ends) {
-					if (endIdMethod == null)
-						endIdMethod = findGetIdMethod(end);
-					tmpId = getIdString(endIdMethod, end);
-					if (tmpId!=null
-							&& tmpId.equals(id)) {
-						// found it
-						matched = true;
-						
+				Object end = takeFirst(endsById, id);
+				if (end!=null) {
+					// found it
+					matched = true;
+					
 //						if (endElement.equals("CTMarkupRange")) {
 //							Method setIdMethod = findSetIdMethod(end);
 //							if (id instanceof BigInteger) {
@@ -317,9 +310,6 @@ public class BookmarkRenumber {
 ////								setIdMethod.invoke(end, "" + newId);
 ////							} 
 //						}
-						
-						break;
-					}
 				}
 			}
 
@@ -394,58 +384,32 @@ public class BookmarkRenumber {
 			}
 		}
 
+		// The ids of the opening point tags (now renumbered)
+		Set<Object> startIds = new HashSet<Object>();
+		for (Object start : rt.starts) {
+			if (startIdMethod == null)
+				startIdMethod = findGetIdMethod(start);
+			Object startId = getIdObject(startIdMethod, start);
+			if (startId!=null) {
+				startIds.add(startId);
+			}
+		}
+
 		for (Object o : rt.ends) {
 			counter++;
-			long newId = getBookmarkId().getAndIncrement();
-				// only renumber here for ends without starts
 
 			if (endIdMethod == null)
 				endIdMethod = findGetIdMethod(o);
-			Object id = null;
-			boolean matched = false;
-			try {
-				// BigInteger
-				id = getId(endIdMethod, o);
-
-				// find the opening point tag
-				BigInteger tmpId;
-				for (Object start : rt.starts) {
-
-					if (startIdMethod == null)
-						startIdMethod = findGetIdMethod(start);
-					tmpId = getId(startIdMethod, start);
-
-					if (tmpId!=null
-							&& tmpId.equals(id)) {
-						// found it
-						matched = true;
-						break;
-					} 
-				}
-			} catch (ClassCastException cce) {
-
-				// String
-				id = getIdString(endIdMethod, o);
-
-				// find the opening point tag
-				String tmpId;
-				for (Object start : rt.starts) {
-
-					if (startIdMethod == null)
-						startIdMethod = findGetIdMethod(start);
-					tmpId = getIdString(startIdMethod, start);
-
-					if (tmpId!=null
-							&& tmpId.equals(id)) {
-						// found it
-						matched = true;
-						break;
-					}
-				}
-			}
+			Object id = getIdObject(endIdMethod, o); // BigInteger or String
+			
+			// find the opening point tag
+			boolean matched = (id!=null && startIds.contains(id));
 
 			if (!matched) {
 
+				// only renumber here for ends without starts
+				long newId = getBookmarkId().getAndIncrement();
+
 				if (endElement.equals("CTMarkupRange")) {
 					// missing start, so renumber
 					Method setIdMethod = findSetIdMethod(o);
@@ -520,6 +484,22 @@ public class BookmarkRenumber {
         	return null;
         }
 
+        private static Object getIdObject(Method idMethod, Object o) throws Exception {
+        	
+        	if (idMethod!=null) {
+        		return idMethod.invoke(o);
+        	}
+        	return null;
+        }
+
+        private static Object takeFirst(Map<Object, LinkedList<Object>> index, Object id) {
+        	
+        	if (id==null) return null;
+        	LinkedList<Object> sameId = index.get(id);
+        	if (sameId==null || sameId.isEmpty()) return null;
+        	return sameId.removeFirst();
+        }
+
         private static String getIdString(Method idMethod, Object o) throws Exception {
         	
         	if (idMethod!=null) {
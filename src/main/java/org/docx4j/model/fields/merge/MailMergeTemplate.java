@@ -0,0 +1,367 @@
+package org.docx4j.model.fields.merge;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.lang.StringUtils;
+import org.docx4j.TraversalUtil;
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.model.fields.ComplexFieldLocator;
+import org.docx4j.model.fields.FieldRef;
+import org.docx4j.model.fields.FieldsPreprocessor;
+import org.docx4j.model.fields.FldSimpleModel;
+import org.docx4j.model.fields.merge.MailMerger.FormTextFieldNames;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.wml.Body;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.FldChar;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.docx4j.wml.STFldCharType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A mail merge template, "compiled" from the content of a part.
+ *
+ * MailMerger.performOnInstance clones the content, locates and
+ * canonicalises the fields, and parses each MERGEFIELD instruction,
+ * for every data record.  Here that work is done once: the
+ * canonicalised content is kept in marshalled form, together with
+ * the location of each MERGEFIELD (path to its paragraph, and
+ * the positions of its begin, result and end runs) and its
+ * parsed instruction.
+ *
+ * Producing the output for a record is then just a matter of
+ * unmarshalling a fresh copy, and patching the field result runs.
+ *
+ * The output is the same as MailMerger.performOnInstance would produce.
+ *
+ * Once constructed, an instance can be used concurrently
+ * from several threads (provided setMERGEFIELDInOutput
+ * isn't changed while that is happening).
+ *
+ * @since 3.2.2
+ */
+public class MailMergeTemplate {
+
+	private static Logger log = LoggerFactory.getLogger(MailMergeTemplate.class);
+
+	private static final QName SHELL_QNAME = new QName("temp");
+
+	private WordprocessingMLPackage input;
+
+	/**
+	 * The canonicalised content, wrapped in a body and marshalled.
+	 */
+	private byte[] compiled;
+
+	private List<CompiledField> fields = new ArrayList<CompiledField>();
+
+	/**
+	 * Compile the content of the part (main document part, header or footer).
+	 * Any simple fields in the part are converted to complex fields
+	 * (ie the part is modified); the part's content list is otherwise
+	 * left alone.
+	 *
+	 * @param input the package, used for formatting switches
+	 * @param part
+	 * @throws Docx4JException
+	 */
+	public MailMergeTemplate(WordprocessingMLPackage input, JaxbXmlPart part) throws Docx4JException {
+
+		FieldsPreprocessor.complexifyFields(part);
+		compile(input, ((ContentAccessor)part).getContent());
+	}
+
+	/**
+	 * Compile the content list.  The content should already have had
+	 * FieldsPreprocessor.complexifyFields applied to it.
+	 * The list is not modified.
+	 *
+	 * @param input the package, used for formatting switches
+	 * @param contentList
+	 * @throws Docx4JException
+	 */
+	public MailMergeTemplate(WordprocessingMLPackage input, List<Object> contentList) throws Docx4JException {
+
+		compile(input, contentList);
+	}
+
+	private void compile(WordprocessingMLPackage input, List<Object> contentList) throws Docx4JException {
+
+		this.input = input;
+
+		// to facilitate cloning, wrap the list in a body
+		Body shell = Context.getWmlObjectFactory().createBody();
+		shell.getContent().addAll(contentList);
+		Body shellClone = (Body)XmlUtils.deepCopy(shell);
+
+		// find fields
+		ComplexFieldLocator fl = new ComplexFieldLocator();
+		new TraversalUtil(shellClone, fl);
+		log.info("Found " + fl.getStarts().size() + " fields ");
+
+		// canonicalise and setup fieldRefs
+		List<FieldRef> fieldRefs = new ArrayList<FieldRef>();
+		MailMerger.canonicaliseStarts(fl, fieldRefs);
+
+		// Parse the MERGEFIELD instructions
+		IdentityHashMap<Object, int[]> paths = new IdentityHashMap<Object, int[]>();
+		for (FieldRef fr : fieldRefs) {
+
+			if ( !"MERGEFIELD".equals(fr.getFldName()) ) continue;
+
+			String instr = MailMerger.extractInstr(fr.getInstructions() );
+			if (instr==null) {
+				// already logged
+				continue;
+			}
+
+			CompiledField field = new CompiledField(fr);
+			field.datafieldName = MailMerger.getDatafieldNameFromInstr(instr);
+			field.key = new DataFieldName(field.datafieldName);
+
+			field.fsm = new FldSimpleModel();
+			try {
+				field.fsm.build(instr);
+			} catch (TransformerException e) {
+				log.warn("Can't format the field", e);
+				field.fsm = null;
+			}
+
+			fields.add(field);
+			paths.put(fr.getParent(), null);
+		}
+
+		// Record where the fields are, so we can find them again in a copy
+		if (!paths.isEmpty()) {
+			recordPaths(shellClone, new ArrayList<Integer>(), paths);
+		}
+		for (CompiledField field : fields) {
+			field.pathToParent = paths.get(field.fieldRef.getParent());
+			if (field.pathToParent==null) {
+				throw new Docx4JException("Couldn't locate paragraph containing MERGEFIELD " + field.datafieldName);
+			}
+			field.locateRuns();
+			field.fieldRef = null; // no longer needed
+		}
+
+		compiled = marshal(shellClone);
+	}
+
+	/**
+	 * @return the names of the data fields used in this template, in document order
+	 */
+	public List<String> getDatafieldNames() {
+
+		List<String> names = new ArrayList<String>();
+		for (CompiledField field : fields) {
+			names.add(field.datafieldName);
+		}
+		return names;
+	}
+
+	/**
+	 * Perform the merge for a single data record.
+	 *
+	 * @param datamap
+	 * @return new content, suitable for adding to the part
+	 * @throws Docx4JException
+	 */
+	public List<Object> merge(Map<DataFieldName, String> datamap) throws Docx4JException {
+
+		return merge(datamap, new FormTextFieldNames());
+	}
+
+	/**
+	 * Perform the merge for a single data record, using formTextFieldNames
+	 * to keep FORMTEXT names unique (ie across several records in the same
+	 * output docx).
+	 */
+	List<Object> merge(Map<DataFieldName, String> datamap,
+			FormTextFieldNames formTextFieldNames) throws Docx4JException {
+
+		Body shellClone = unmarshal(compiled);
+
+		// Resolve all the fields before any of them are changed,
+		// since populating a field can remove runs or paragraphs
+		List<FieldRef> fieldRefs = new ArrayList<FieldRef>(fields.size());
+		for (CompiledField field : fields) {
+			fieldRefs.add(field.resolve(shellClone));
+		}
+
+		for (int i=0; i<fields.size(); i++) {
+
+			CompiledField field = fields.get(i);
+			String val = datamap.get(field.key);
+			MailMerger.populateField(input, shellClone, fieldRefs.get(i),
+					field.datafieldName, val,
+					StringUtils.isBlank(val) ? null : field.fsm,
+					formTextFieldNames);
+		}
+
+		return shellClone.getContent();
+	}
+
+	/**
+	 * Walk the tree in the same way ComplexFieldLocator does, recording
+	 * the child indexes leading to each target.
+	 */
+	private static int recordPaths(Object parent, List<Integer> path,
+			IdentityHashMap<Object, int[]> targets) {
+
+		int remaining = 0;
+		for (int[] p : targets.values()) {
+			if (p==null) remaining++;
+		}
+		return recordPaths(parent, path, targets, remaining);
+	}
+
+	private static int recordPaths(Object parent, List<Integer> path,
+			IdentityHashMap<Object, int[]> targets, int remaining) {
+
+		List<Object> children = TraversalUtil.getChildrenImpl(parent);
+		if (children==null) return remaining;
+
+		for (int i=0; i<children.size() && remaining>0; i++) {
+
+			Object o = XmlUtils.unwrap(children.get(i));
+			path.add(i);
+			if (targets.containsKey(o)) {
+				int[] p = new int[path.size()];
+				for (int j=0; j<p.length; j++) {
+					p[j] = path.get(j);
+				}
+				targets.put(o, p);
+				remaining--;
+			}
+			if (remaining>0
+					&& !(o instanceof org.docx4j.wml.Text)) {
+				remaining = recordPaths(o, path, targets, remaining);
+			}
+			path.remove(path.size()-1);
+		}
+		return remaining;
+	}
+
+	private static byte[] marshal(Body body) throws Docx4JException {
+
+		try {
+			Marshaller mar = Context.jc.createMarshaller();
+			ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			mar.marshal(new JAXBElement<Body>(SHELL_QNAME, Body.class, body), bout);
+			return bout.toByteArray();
+		} catch (JAXBException e) {
+			throw new Docx4JException("Couldn't marshal template content", e);
+		}
+	}
+
+	private static Body unmarshal(byte[] bytes) throws Docx4JException {
+
+		try {
+			Unmarshaller unmar = Context.jc.createUnmarshaller();
+			return unmar.unmarshal(new StreamSource(new ByteArrayInputStream(bytes)), Body.class).getValue();
+		} catch (JAXBException e) {
+			throw new Docx4JException("Couldn't unmarshal template content", e);
+		}
+	}
+
+	/**
+	 * Where a MERGEFIELD is, relative to the body, and what it says.
+	 */
+	private static class CompiledField {
+
+		CompiledField(FieldRef fieldRef) {
+			this.fieldRef = fieldRef;
+		}
+
+		private FieldRef fieldRef; // in the compiled copy; only used during compilation
+
+		String datafieldName;
+		DataFieldName key;
+		FldSimpleModel fsm;
+
+		int[] pathToParent;
+		int beginIndex;
+		int instrIndex;
+		int fldCharIndex;
+		int resultsIndex;
+		int endIndex;
+
+		void locateRuns() {
+
+			List<Object> content = fieldRef.getParent().getContent();
+			beginIndex = content.indexOf(fieldRef.getBeginRun());
+			resultsIndex = content.indexOf(fieldRef.getResultsSlot());
+			endIndex = content.indexOf(fieldRef.getEndRun());
+
+			instrIndex = -1;
+			fldCharIndex = -1;
+			if (beginIndex > -1) {
+				List<Object> runContent = fieldRef.getBeginRun().getContent();
+				instrIndex = runContent.indexOf(fieldRef.getInstructions().get(0));
+				for (int i=0; i<runContent.size(); i++) {
+					if (FieldsPreprocessor.isCharType(runContent.get(i), STFldCharType.BEGIN)) {
+						fldCharIndex = i;
+						break;
+					}
+				}
+			}
+			if (beginIndex<0 || instrIndex<0 || fldCharIndex<0) {
+				log.warn("Unexpected structure for MERGEFIELD " + datafieldName);
+			}
+		}
+
+		/**
+		 * Create a FieldRef for this field in a fresh copy of the template.
+		 */
+		FieldRef resolve(Body shellClone) {
+
+			Object o = shellClone;
+			for (int i : pathToParent) {
+				o = XmlUtils.unwrap(TraversalUtil.getChildrenImpl(o).get(i));
+			}
+			P p = (P)o;
+			List<Object> content = p.getContent();
+
+			R beginRun = beginIndex<0 ? null : (R)content.get(beginIndex);
+
+			FldChar fldCharBegin = null;
+			if (beginRun!=null && fldCharIndex>-1) {
+				fldCharBegin = (FldChar)XmlUtils.unwrap(beginRun.getContent().get(fldCharIndex));
+			} else {
+				fldCharBegin = Context.getWmlObjectFactory().createFldChar(); // detached
+			}
+
+			FieldRef fr = new FieldRef(fldCharBegin);
+			fr.setParent(p);
+			fr.setBeginRun(beginRun);
+			if (beginRun!=null && instrIndex>-1) {
+				fr.getInstructions().add(beginRun.getContent().get(instrIndex));
+			}
+			// an unattached results slot has no effect on the output
+			fr.setResultsSlot(resultsIndex<0 ?
+					Context.getWmlObjectFactory().createR() : (R)content.get(resultsIndex));
+			fr.setEndRun(endIndex<0 ? null : (R)content.get(endIndex));
+
+			return fr;
+		}
+	}
+
+}
@@ -2,15 +2,26 @@ package org.docx4j.model.fields.merge;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
 
 import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.TransformerException;
 
 import org.slf4j.Logger;
@@ -20,6 +31,7 @@ import org.docx4j.Docx4jProperties;
 import org.docx4j.TraversalUtil;
 import org.docx4j.XmlUtils;
 import org.docx4j.jaxb.Context;
+import org.docx4j.jaxb.NamespacePrefixMapperUtils;
 import org.docx4j.model.fields.ComplexFieldLocator;
 import org.docx4j.model.fields.FieldRef;
 import org.docx4j.model.fields.FieldsPreprocessor;
@@ -28,7 +40,10 @@ import org.docx4j.model.fields.FormattingSwitchHelper;
 import org.docx4j.model.structure.PageDimensions;
 import org.docx4j.model.structure.PageSizePaper;
 import org.docx4j.model.structure.SectionWrapper;
+import org.docx4j.openpackaging.contenttype.ContentTypeManager;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Save;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
 import org.docx4j.openpackaging.io.SaveToZipFile;
 import org.docx4j.openpackaging.packages.OpcPackage;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
@@ -55,6 +70,9 @@ import org.docx4j.wml.R;
 import org.docx4j.wml.STFFTextType;
 import org.docx4j.wml.SectPr;
 import org.docx4j.wml.Text;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 
 
@@ -139,13 +157,13 @@ public class MailMerger {
 		List<List<Object>> mdpResults = performOverList(input, input.getMainDocumentPart().getContent(), data, formTextFieldNames );
 
 		// headers/footers
-		Map<CTRel, JaxbXmlPart> hfTemplates = null;
+		Map<CTRel, MailMergeTemplate> hfTemplates = null;
 		BooleanDefaultTrue titlePage = null;
 		if (processHeadersAndFooters) {
 			// then we need a clone/template of the headers/footers
 			// in the first section
 			
-			hfTemplates = new HashMap<CTRel, JaxbXmlPart>();
+			hfTemplates = new HashMap<CTRel, MailMergeTemplate>();
 			
 			SectionWrapper sw = input.getDocumentModel().getSections().get(0);
 			SectPr sectPr = sw.getSectPr();
@@ -158,11 +176,12 @@ public class MailMerger {
 				log.debug("for h|f relId: " + relId);
 				
 				JaxbXmlPart part = (JaxbXmlPart)input.getMainDocumentPart().getRelationshipsPart().getPart(relId);
-				FieldsPreprocessor.complexifyFields(part );
+				// compile once, rather than for each instance
+				MailMergeTemplate hfTemplate = new MailMergeTemplate(input, part);
 				
 				log.debug("complexified: " + XmlUtils.marshaltoString(part.getJaxbElement(), true));
 				
-				hfTemplates.put(rel, part);
+				hfTemplates.put(rel, hfTemplate);
 			}
 		}
 		
@@ -231,7 +250,7 @@ public class MailMerger {
 				for( CTRel ctRel : hfTemplates.keySet()) {
 					
 					// Create a suitable part
-					JaxbXmlPart part = hfTemplates.get(ctRel);
+					JaxbXmlPart part = (JaxbXmlPart)input.getMainDocumentPart().getRelationshipsPart().getPart(ctRel.getId());
 					JaxbXmlPart clonedPart = null;
 					if (part instanceof HeaderPart) {
 						clonedPart = new HeaderPart();
@@ -242,8 +261,7 @@ public class MailMerger {
 					}
 					
 					// Populate it
-					List<Object> newContent = performOnInstance(input,
-							((ContentAccessor)part).getContent(), 
+					List<Object> newContent = hfTemplates.get(ctRel).merge(
 							data.get(i), formTextFieldNames );	
 					((ContentAccessor)clonedPart).getContent().addAll(newContent);
 					
@@ -265,6 +283,393 @@ public class MailMerger {
 		return target;
 	}
 
+	/**
+	 * A streaming version of getConsolidatedResultCrude, for very large
+	 * numbers of records.  Each record is merged as it is read from
+	 * the iterator, and its content written straight to the main document
+	 * part's zip entry in os; nothing is retained apart from the header/footer
+	 * parts (if processHeadersAndFooters) and the relationships to them.
+	 * 
+	 * The result is the same as saving the output of getConsolidatedResultCrude.
+	 * 
+	 * @param input
+	 * @param data
+	 * @param processHeadersAndFooters process headers and footers in FIRST section only.
+	 * @param os the docx is written to this stream, which the caller should close
+	 * @throws Docx4JException
+	 * @since 3.2.2
+	 */
+	public static void saveConsolidatedResultCrude(WordprocessingMLPackage input, 
+			Iterator<Map<DataFieldName, String>> data, boolean processHeadersAndFooters, 
+			OutputStream os) throws Docx4JException {
+		
+		// create template for the main document part
+		MailMergeTemplate mdpTemplate = new MailMergeTemplate(input, input.getMainDocumentPart());
+
+		// headers/footers
+		Map<CTRel, MailMergeTemplate> hfTemplates = new HashMap<CTRel, MailMergeTemplate>();
+		BooleanDefaultTrue titlePage = null;
+		if (processHeadersAndFooters) {
+			SectPr sectPr = input.getDocumentModel().getSections().get(0).getSectPr();
+			titlePage = sectPr.getTitlePg();
+			for (CTRel rel : sectPr.getEGHdrFtrReferences()) {
+				JaxbXmlPart part = (JaxbXmlPart)input.getMainDocumentPart().getRelationshipsPart().getPart(rel.getId());
+				hfTemplates.put(rel, new MailMergeTemplate(input, part));
+			}
+		}
+		
+		// Create WordprocessingMLPackage target, by cloning
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SaveToZipFile saver = new SaveToZipFile(input);
+		saver.save(baos);
+		WordprocessingMLPackage target = WordprocessingMLPackage.load(
+				new ByteArrayInputStream(baos.toByteArray()));
+		baos = null;
+		
+		SectPr documentSeparator = getDocumentSeparator(target);
+		if (processHeadersAndFooters) {
+			if (titlePage!=null
+					&& titlePage.isVal()) {
+				documentSeparator.setTitlePg(titlePage);
+			}
+			documentSeparator.getEGHdrFtrReferences().clear();
+		}
+		target.getMainDocumentPart().getContent().clear();
+		
+		StreamingMergePartStore partStore = new StreamingMergePartStore(input, target, 
+				mdpTemplate, hfTemplates, documentSeparator, data);
+		Save save = new Save(target, partStore);
+		save.save(os);
+	}
+	
+	/**
+	 * Writes the main document part by performing the merge, record by record.
+	 * 
+	 * Since the merge adds header/footer parts, [Content_Types].xml
+	 * is written last.
+	 */
+	private static class StreamingMergePartStore extends ZipPartStore {
+		
+		private WordprocessingMLPackage input;
+		private WordprocessingMLPackage target;
+		private MailMergeTemplate mdpTemplate;
+		private Map<CTRel, MailMergeTemplate> hfTemplates;
+		private SectPr documentSeparator;
+		private Iterator<Map<DataFieldName, String>> data;
+		
+		private ContentTypeManager ctm;
+		
+		StreamingMergePartStore(WordprocessingMLPackage input, WordprocessingMLPackage target,
+				MailMergeTemplate mdpTemplate, Map<CTRel, MailMergeTemplate> hfTemplates,
+				SectPr documentSeparator, Iterator<Map<DataFieldName, String>> data) {
+			
+			this.input = input;
+			this.target = target;
+			this.mdpTemplate = mdpTemplate;
+			this.hfTemplates = hfTemplates;
+			this.documentSeparator = documentSeparator;
+			this.data = data;
+		}
+
+		@Override
+		public void saveContentTypes(ContentTypeManager ctm) throws Docx4JException {
+			// defer until the header/footer parts exist
+			this.ctm = ctm;
+		}
+		
+		@Override
+		public void finishSave() throws Docx4JException {
+			super.saveContentTypes(ctm);
+			super.finishSave();
+		}
+		
+		@Override
+		public void saveJaxbXmlPart(JaxbXmlPart part) throws Docx4JException {
+			
+			if (part!=target.getMainDocumentPart()) {
+				super.saveJaxbXmlPart(part);
+				return;
+			}
+			
+			try {
+				// Marshal the document with the template's content, so that
+				// mc:Ignorable covers the namespaces the merged content uses; 
+				// that content is replaced by the merge as it is copied
+				List<Object> content = target.getMainDocumentPart().getContent();
+				content.addAll(input.getMainDocumentPart().getContent());
+				ByteArrayOutputStream shell = new ByteArrayOutputStream();
+				try {
+					part.marshal(shell);
+				} finally {
+					content.clear();
+				}
+				
+				zos.putNextEntry(new ZipEntry(part.getPartName().getName().substring(1)));
+				Writer writer = new OutputStreamWriter(zos, "UTF-8");
+				writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+				XMLStreamWriter xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+				
+				Marshaller marshaller = Context.jc.createMarshaller();
+				NamespacePrefixMapperUtils.setProperty(marshaller, 
+						NamespacePrefixMapperUtils.getPrefixMapper());
+				marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+				
+				SAXParserFactory spf = SAXParserFactory.newInstance();
+				spf.setNamespaceAware(true);
+				MergingHandler handler = new MergingHandler(xmlWriter, marshaller);
+				spf.newSAXParser().parse(new ByteArrayInputStream(shell.toByteArray()), handler);
+				log.info("Merged " + handler.count + " records");
+				
+				xmlWriter.flush();
+				writer.flush();
+				zos.closeEntry();
+				
+			} catch (Exception e) {
+				throw new Docx4JException("Error writing merged " + part.getPartName(), e);
+			}
+		}
+		
+		/**
+		 * Copies the marshalled document to the XMLStreamWriter, replacing 
+		 * the body content (other than its sectPr) with the merged records.
+		 * 
+		 * Each merged object is marshalled to this handler too.  A namespace 
+		 * declaration is only written where the prefix isn't already bound
+		 * to that namespace, so the content doesn't repeat the declarations 
+		 * on w:document, but gets its own wherever a prefix differs.  
+		 */
+		private class MergingHandler extends DefaultHandler {
+			
+			private XMLStreamWriter writer;
+			private Marshaller marshaller;
+			
+			private FormTextFieldNames formTextFieldNames = new FormTextFieldNames(); 
+			int count = 0;
+			
+			/** The namespace bindings declared on each open element */
+			private List<Map<String, String>> scopes = new ArrayList<Map<String, String>>();
+			private Map<String, String> pendingMappings = new LinkedHashMap<String, String>();
+			
+			/** True while merged content is being marshalled */
+			private boolean merging = false;
+			private boolean merged = false;
+			
+			private int depth = 0;
+			private int bodyDepth = -1;
+			private int skipDepth = -1;
+			
+			MergingHandler(XMLStreamWriter writer, Marshaller marshaller) {
+				this.writer = writer;
+				this.marshaller = marshaller;
+			}
+			
+			@Override
+			public void startPrefixMapping(String prefix, String uri) {
+				if (!"xml".equals(prefix)) {
+					pendingMappings.put(prefix, uri);
+				}
+			}
+			
+			@Override
+			public void startElement(String uri, String localName, String qName, 
+					Attributes atts) throws SAXException {
+
+				if (!merging) {
+					depth++;
+					if (skipDepth>0) {
+						pendingMappings.clear();
+						return;
+					}
+					if (bodyDepth>0 
+							&& depth==bodyDepth+1) {
+						if (Namespaces.NS_WORD12.equals(uri) && "sectPr".equals(localName)) {
+							merge();
+						} else {
+							// template content
+							skipDepth = depth;
+							pendingMappings.clear();
+							return;
+						}
+					}
+					if (Namespaces.NS_WORD12.equals(uri) && "body".equals(localName)) {
+						bodyDepth = depth;
+					}
+				}
+				
+				try {
+					if (uri.length()==0) {
+						writer.writeStartElement(localName);
+					} else {
+						writer.writeStartElement(prefix(qName), localName, uri);
+					}
+					
+					Map<String, String> scope = new HashMap<String, String>();
+					for (Map.Entry<String, String> mapping : pendingMappings.entrySet()) {
+						if (!mapping.getValue().equals(lookup(mapping.getKey()))) {
+							if (mapping.getKey().length()==0) {
+								writer.writeDefaultNamespace(mapping.getValue());
+							} else {
+								writer.writeNamespace(mapping.getKey(), mapping.getValue());
+							}
+							scope.put(mapping.getKey(), mapping.getValue());
+						}
+					}
+					pendingMappings.clear();
+					scopes.add(scope);
+					
+					for (int i=0; i<atts.getLength(); i++) {
+						String attQName = atts.getQName(i);
+						if (attQName.equals("xmlns") || attQName.startsWith("xmlns:")) {
+							continue;
+						}
+						if (atts.getURI(i).length()==0) {
+							writer.writeAttribute(attQName, atts.getValue(i));
+						} else {
+							writer.writeAttribute(prefix(attQName), atts.getURI(i), 
+									atts.getLocalName(i), atts.getValue(i));
+						}
+					}
+				} catch (XMLStreamException e) {
+					throw new SAXException(e);
+				}
+			}
+			
+			@Override
+			public void endElement(String uri, String localName, String qName) throws SAXException {
+				
+				if (!merging) {
+					if (skipDepth>0) {
+						if (depth==skipDepth) {
+							skipDepth = -1;
+						}
+						depth--;
+						return;
+					}
+					if (depth==bodyDepth) {
+						merge();
+						bodyDepth = -1;
+					}
+					depth--;
+				}
+				
+				try {
+					writer.writeEndElement();
+				} catch (XMLStreamException e) {
+					throw new SAXException(e);
+				}
+				scopes.remove(scopes.size()-1);
+			}
+			
+			@Override
+			public void characters(char[] ch, int start, int length) throws SAXException {
+				
+				if (!merging && skipDepth>0) {
+					return;
+				}
+				try {
+					writer.writeCharacters(ch, start, length);
+				} catch (XMLStreamException e) {
+					throw new SAXException(e);
+				}
+			}
+			
+			@Override
+			public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+				characters(ch, start, length);
+			}
+			
+			private void merge() throws SAXException {
+				
+				if (merged) {
+					return;
+				}
+				merging = true;
+				try {
+					while (data.hasNext()) {
+						for (Object o : mergeRecord(data.next(), formTextFieldNames)) {
+							marshaller.marshal(o, this);
+						}
+						writer.flush();
+						count++;
+					}
+				} catch (Exception e) {
+					throw new SAXException(e);
+				}
+				merging = false;
+				merged = true;
+			}
+			
+			private String lookup(String prefix) {
+				
+				for (int i=scopes.size()-1; i>=0; i--) {
+					String uri = scopes.get(i).get(prefix);
+					if (uri!=null) {
+						return uri;
+					}
+				}
+				return null;
+			}
+			
+			private String prefix(String qName) {
+				
+				int colon = qName.indexOf(':');
+				return colon<0 ? "" : qName.substring(0, colon);
+			}
+		}
+		
+		/**
+		 * As per a single iteration of getConsolidatedResultCrude
+		 */
+		private List<Object> mergeRecord(Map<DataFieldName, String> datamap, 
+				FormTextFieldNames formTextFieldNames) throws Docx4JException {
+			
+			List<Object> content = mdpTemplate.merge(datamap, formTextFieldNames);
+			
+			// add sectPr to final paragraph
+			P lastP = null;
+			if (content.size()>0 
+					&& content.get( content.size()-1) instanceof P) {
+				lastP = (P)content.get( content.size()-1);
+			} else {
+				lastP = Context.getWmlObjectFactory().createP();
+				content.add(lastP);	
+			}
+			if (lastP.getPPr()==null) {
+				lastP.setPPr(Context.getWmlObjectFactory().createPPr());				
+			}
+			SectPr thisSection = XmlUtils.deepCopy(documentSeparator);
+			lastP.getPPr().setSectPr(thisSection);
+			
+			for( CTRel ctRel : hfTemplates.keySet()) {
+				
+				// Create a suitable part
+				JaxbXmlPart part = (JaxbXmlPart)input.getMainDocumentPart().getRelationshipsPart().getPart(ctRel.getId());
+				JaxbXmlPart clonedPart = null;
+				if (part instanceof HeaderPart) {
+					clonedPart = new HeaderPart();
+					clonedPart.setJaxbElement(Context.getWmlObjectFactory().createHdr());
+				} else if (part instanceof FooterPart) {
+					clonedPart = new FooterPart();
+					clonedPart.setJaxbElement(Context.getWmlObjectFactory().createFtr());
+				}
+				
+				// Populate it
+				((ContentAccessor)clonedPart).getContent().addAll(
+						hfTemplates.get(ctRel).merge(datamap, formTextFieldNames));
+				
+				// Add it
+				Relationship rel = target.getMainDocumentPart().addTargetPart(clonedPart, AddPartBehaviour.RENAME_IF_NAME_EXISTS);
+				
+				// Now add CTRel!
+				CTRel newHfRef = XmlUtils.deepCopy(ctRel);
+				newHfRef.setId(rel.getId());
+				
+				thisSection.getEGHdrFtrReferences().add(newHfRef);
+			}
+			return content;
+		}
+	}
+
 	   /**
 	    * Word uses the existing sectPr element, but adds 
 	    * a page numbering restart to it.  TODO: investigate
@@ -444,11 +849,14 @@ public class MailMerger {
 			List<Map<DataFieldName, String>> data,
 			FormTextFieldNames formTextFieldNames) throws Docx4JException {
 		
+		// Locate and parse the fields once only
+		MailMergeTemplate template = new MailMergeTemplate(input, contentList);
+		
 		List<List<Object>> results = new ArrayList<List<Object>>();
 		for (Map<DataFieldName, String> datamap : data) {
 			
 			results.add(
-					performOnInstance(input, contentList, datamap, formTextFieldNames));
+					template.merge(datamap, formTextFieldNames));
 		}
 		
 		return results;
@@ -487,96 +895,19 @@ public class MailMerger {
 				String instr = extractInstr(fr.getInstructions() );
 				String datafieldName = getDatafieldNameFromInstr(instr);
 				String val = datamap.get( new DataFieldName(datafieldName));
-				String gFormat = null; // required only for FORMTEXT conversion
 				
-				if (StringUtils.isBlank(val)) {
-					log.warn("Couldn't find value for key: '" + datafieldName + "'");
-                    if (fieldFate.equals(OutputField.REMOVED)) {
-                        // Remove the mergefield from the document
-                        removeSimpleField(fr);
-
-                        // Concatenate all content still present in the parent
-                        String text = getTextInsideContent(fr.getParent());
-
-                        // If the parent still contains data, don't delete it
-                        if (StringUtils.isBlank(text)) {
-                            recursiveRemove(shellClone, fr.getParent());
-                        }
-                    }				
-				} else {
-					
-					// Now format the result
-					FldSimpleModel fsm = new FldSimpleModel();
+				FldSimpleModel fsm = null;
+				if (!StringUtils.isBlank(val)) {
+					fsm = new FldSimpleModel();
 					try {
 						fsm.build(instr);
-						val = FormattingSwitchHelper.applyFormattingSwitch(input, fsm, val);
-						
-						gFormat = FormattingSwitchHelper.findFirstSwitchValue("\\*", fsm.getFldParameters(), true);
-						// Solely for potential use in OutputField.AS_FORMTEXT_REGULAR
-						// We are in fact applying all formatting switches above.
-						
 					} catch (TransformerException e) {
 						log.warn("Can't format the field", e);
+						fsm = null;
 					}
-					
-					fr.setResult(val);
 				}
 				
-				if (fieldFate.equals(OutputField.AS_FORMTEXT_REGULAR)) {
-					
-					log.debug(gFormat);
-					// TODO if we're going to use gFormat, setup FSM irrespective of whether we can find key 
-					
-					
-					// TODO: other format instructions
-//					if (gFormat!=null) {
-//						if (gFormat.equals("Upper")) {
-//							gFormat = "UPPERCASE";
-//						} else if (gFormat.equals("Lower")) {
-//							gFormat = "LOWERCASE";
-//						} 
-//					}
-					
-					// replace instrText
-					// eg MERGEFIELD  CLIENT.ORGANIZATIONSTATE \* Upper  \* MERGEFORMAT
-					// to FORMTEXT
-					// Do this first, so we can abort without affecting output
-					List<Object> instructions = fr.getInstructions();
-					if (instructions.size()!=1) {
-						log.error("TODO MERGEFIELD field contained complex instruction");
-						continue;
-					}
-					Object o = XmlUtils.unwrap(instructions.get(0));
-					if (o instanceof Text) {
-						((Text)o).setValue("FORMTEXT");
-					} else {
-						log.error("TODO: set FORMTEXT in" + o.getClass().getName() );
-						log.error(XmlUtils.marshaltoString(instructions.get(0), true, true) );
-						continue;
-					}
-					
-					String fieldName = formTextFieldNames.generateName(datafieldName);
-					log.debug("Field name normalisation: " + datafieldName + " -> " + fieldName);
-					setFormFieldProperties(fr, fieldName, null);
-					
-					// remove <w:highlight w:val="lightGray"/>, if present
-					// (corresponds in Word to clicking Legacy Forms > Form Field Shading)
-					// so that the result is not printed in grey
-					R resultR = fr.getResultsSlot();
-					if (resultR.getRPr()!=null
-							&& resultR.getRPr().getHighlight()!=null) {
-						resultR.getRPr().setHighlight(null);
-					}
-					
-				} else if (!fieldFate.equals(OutputField.KEEP_MERGEFIELD)) {
-					// If doing an actual mail merge, the begin-separate run is removed, as is the end run				
-					fr.getParent().getContent().remove(fr.getBeginRun());
-					fr.getParent().getContent().remove(fr.getEndRun());
-				}
-				
-//				System.out.println("AFTER " +XmlUtils.marshaltoString(
-//						fr.getParent(), true, true));
-				
+				populateField(input, shellClone, fr, datafieldName, val, fsm, formTextFieldNames);
 			}
 		}
 		
@@ -584,6 +915,111 @@ public class MailMerger {
 
 	}
 
+	/**
+	 * Populate a canonicalised MERGEFIELD with its value, then
+	 * dispose of the field as specified by setMERGEFIELDInOutput.
+	 * 
+	 * @param input
+	 * @param shellClone the content containing the field (used if its paragraph is to be removed)
+	 * @param fr
+	 * @param datafieldName
+	 * @param val the unformatted value, or null if there isn't one
+	 * @param fsm the field's parsed instruction, used to apply formatting switches; null to leave val as is
+	 * @param formTextFieldNames
+	 * @throws Docx4JException
+	 * @since 3.2.2
+	 */
+	protected static void populateField(WordprocessingMLPackage input, 
+			ContentAccessor shellClone, FieldRef fr, 
+			String datafieldName, String val, FldSimpleModel fsm,
+			FormTextFieldNames formTextFieldNames) throws Docx4JException {
+		
+		String gFormat = null; // required only for FORMTEXT conversion
+		
+		if (StringUtils.isBlank(val)) {
+			log.warn("Couldn't find value for key: '" + datafieldName + "'");
+            if (fieldFate.equals(OutputField.REMOVED)) {
+                // Remove the mergefield from the document
+                removeSimpleField(fr);
+
+                // Concatenate all content still present in the parent
+                String text = getTextInsideContent(fr.getParent());
+
+                // If the parent still contains data, don't delete it
+                if (StringUtils.isBlank(text)) {
+                    recursiveRemove(shellClone, fr.getParent());
+                }
+            }				
+		} else {
+			
+			// Now format the result
+			if (fsm!=null) {
+				val = FormattingSwitchHelper.applyFormattingSwitch(input, fsm, val);
+				
+				gFormat = FormattingSwitchHelper.findFirstSwitchValue("\\*", fsm.getFldParameters(), true);
+				// Solely for potential use in OutputField.AS_FORMTEXT_REGULAR
+				// We are in fact applying all formatting switches above.
+			}
+			
+			fr.setResult(val);
+		}
+		
+		if (fieldFate.equals(OutputField.AS_FORMTEXT_REGULAR)) {
+			
+			log.debug(gFormat);
+			// TODO if we're going to use gFormat, setup FSM irrespective of whether we can find key 
+			
+			
+			// TODO: other format instructions
+//			if (gFormat!=null) {
+//				if (gFormat.equals("Upper")) {
+//					gFormat = "UPPERCASE";
+//				} else if (gFormat.equals("Lower")) {
+//					gFormat = "LOWERCASE";
+//				} 
+//			}
+			
+			// replace instrText
+			// eg MERGEFIELD  CLIENT.ORGANIZATIONSTATE \* Upper  \* MERGEFORMAT
+			// to FORMTEXT
+			// Do this first, so we can abort without affecting output
+			List<Object> instructions = fr.getInstructions();
+			if (instructions.size()!=1) {
+				log.error("TODO MERGEFIELD field contained complex instruction");
+				return;
+			}
+			Object o = XmlUtils.unwrap(instructions.get(0));
+			if (o instanceof Text) {
+				((Text)o).setValue("FORMTEXT");
+			} else {
+				log.error("TODO: set FORMTEXT in" + o.getClass().getName() );
+				log.error(XmlUtils.marshaltoString(instructions.get(0), true, true) );
+				return;
+			}
+			
+			String fieldName = formTextFieldNames.generateName(datafieldName);
+			log.debug("Field name normalisation: " + datafieldName + " -> " + fieldName);
+			setFormFieldProperties(fr, fieldName, null);
+			
+			// remove <w:highlight w:val="lightGray"/>, if present
+			// (corresponds in Word to clicking Legacy Forms > Form Field Shading)
+			// so that the result is not printed in grey
+			R resultR = fr.getResultsSlot();
+			if (resultR.getRPr()!=null
+					&& resultR.getRPr().getHighlight()!=null) {
+				resultR.getRPr().setHighlight(null);
+			}
+			
+		} else if (!fieldFate.equals(OutputField.KEEP_MERGEFIELD)) {
+			// If doing an actual mail merge, the begin-separate run is removed, as is the end run				
+			fr.getParent().getContent().remove(fr.getBeginRun());
+			fr.getParent().getContent().remove(fr.getEndRun());
+		}
+		
+//		System.out.println("AFTER " +XmlUtils.marshaltoString(
+//				fr.getParent(), true, true));
+	}
+
 	/**
 	 * @param fl
 	 * @param fieldRefs
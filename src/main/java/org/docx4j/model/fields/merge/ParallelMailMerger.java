@@ -0,0 +1,257 @@
+package org.docx4j.model.fields.merge;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.model.fields.merge.MailMerger.FormTextFieldNames;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.Load3;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.relationships.Relationship;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Perform a mail merge producing a separate docx for each
+ * record, using several threads.
+ *
+ * The input docx is compiled once (see MailMergeTemplate),
+ * and snapshotted.  Each output package is loaded from
+ * that single snapshot, so parts the merge doesn't touch
+ * (styles, numbering, theme, fonts, images etc) aren't
+ * unmarshalled or copied; they are written from the shared
+ * bytes when the output is saved.  (Parts are only unmarshalled
+ * if you access them, and then it is that package's own copy.)
+ *
+ * The result for each record is what MailMerger.performMerge
+ * would produce on a copy of the input.
+ *
+ * Usage:
+ *
+ *    ParallelMailMerger merger = new ParallelMailMerger(template, true);
+ *    merger.merge(data.iterator(), executor, new ParallelMailMerger.ResultHandler() {
+ *        public void handle(int index, Map<DataFieldName, String> record,
+ *        		WordprocessingMLPackage result) throws Docx4JException {
+ *            result.save(new File("out" + index + ".docx"));
+ *        }
+ *    });
+ *
+ * @since 3.2.2
+ */
+public class ParallelMailMerger {
+
+	private static Logger log = LoggerFactory.getLogger(ParallelMailMerger.class);
+
+	/**
+	 * Receives each merged package.  This is invoked on the
+	 * executor's threads, so must be thread safe.
+	 */
+	public interface ResultHandler {
+
+		/**
+		 * @param index the position of the record in the input
+		 * @param record
+		 * @param result
+		 * @throws Docx4JException
+		 */
+		void handle(int index, Map<DataFieldName, String> record,
+				WordprocessingMLPackage result) throws Docx4JException;
+	}
+
+	private ZipPartStore snapshot;
+
+	private MailMergeTemplate mdpTemplate;
+
+	/**
+	 * The main document part, without its content
+	 */
+	private Document documentSkeleton;
+
+	/**
+	 * Keyed by part name
+	 */
+	private Map<String, MailMergeTemplate> hfTemplates = new HashMap<String, MailMergeTemplate>();
+
+	private int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * @param input the docx containing the MERGEFIELDs.  Its fields will be complexified.
+	 * @param processHeadersAndFooters
+	 * @throws Docx4JException
+	 */
+	public ParallelMailMerger(WordprocessingMLPackage input,
+			boolean processHeadersAndFooters) throws Docx4JException {
+
+		mdpTemplate = new MailMergeTemplate(input, input.getMainDocumentPart());
+
+		if (processHeadersAndFooters) {
+
+			RelationshipsPart rp = input.getMainDocumentPart().getRelationshipsPart();
+			for ( Relationship r : rp.getJaxbElement().getRelationship()  ) {
+
+				if (r.getType().equals(Namespaces.HEADER)
+						|| r.getType().equals(Namespaces.FOOTER)) {
+
+					JaxbXmlPart<?> part = (JaxbXmlPart<?>)rp.getPart(r);
+					hfTemplates.put(part.getPartName().getName(),
+							new MailMergeTemplate(input, part));
+				}
+			}
+		}
+
+		// Formatting switches may consult the settings part,
+		// so make sure it is unmarshalled before we go multi-threaded
+		if (input.getMainDocumentPart().getDocumentSettingsPart()!=null) {
+			input.getMainDocumentPart().getDocumentSettingsPart().getJaxbElement();
+		}
+
+		documentSkeleton = XmlUtils.deepCopy(input.getMainDocumentPart().getJaxbElement());
+		documentSkeleton.getContent().clear();
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		input.save(baos);
+		snapshot = new ZipPartStore(new ByteArrayInputStream(baos.toByteArray()));
+	}
+
+	/**
+	 * The maximum number of records which may be merged but not yet handled
+	 * at any one time; the record iterator is not advanced further until one
+	 * completes.  Defaults to twice the number of processors.
+	 *
+	 * @param maxInFlight
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		if (maxInFlight<1) {
+			throw new IllegalArgumentException("maxInFlight must be positive");
+		}
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Merge a single record.  Thread safe.
+	 *
+	 * @param datamap
+	 * @return a new package
+	 * @throws Docx4JException
+	 */
+	public WordprocessingMLPackage merge(Map<DataFieldName, String> datamap) throws Docx4JException {
+
+		Load3 loader = new Load3(new ZipPartStore(snapshot));
+		WordprocessingMLPackage result = (WordprocessingMLPackage)loader.get();
+
+		FormTextFieldNames formTextFieldNames = new FormTextFieldNames();
+
+		// MDP
+		List<Object> content = mdpTemplate.merge(datamap, formTextFieldNames);
+		Document document = XmlUtils.deepCopy(documentSkeleton);
+		document.getContent().addAll(content);
+		result.getMainDocumentPart().setJaxbElement(document);
+
+		// Headers, footers
+		if (!hfTemplates.isEmpty()) {
+			RelationshipsPart rp = result.getMainDocumentPart().getRelationshipsPart();
+			for ( Relationship r : rp.getJaxbElement().getRelationship()  ) {
+
+				if (r.getType().equals(Namespaces.HEADER)
+						|| r.getType().equals(Namespaces.FOOTER)) {
+
+					JaxbXmlPart<?> part = (JaxbXmlPart<?>)rp.getPart(r);
+					MailMergeTemplate hfTemplate = hfTemplates.get(part.getPartName().getName());
+					if (hfTemplate!=null) {
+						List<Object> results = hfTemplate.merge(datamap, formTextFieldNames);
+						((ContentAccessor)part).getContent().clear();
+						((ContentAccessor)part).getContent().addAll(results);
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Merge each record on the executor, passing the resulting
+	 * package to the handler.  Returns once all records have been
+	 * handled.
+	 *
+	 * If a merge or the handler fails, no further records are
+	 * submitted, and the first exception is thrown once the ones
+	 * already submitted are done.
+	 *
+	 * @param data
+	 * @param executor eg Executors.newFixedThreadPool; this method doesn't shut it down
+	 * @param handler
+	 * @return the number of records handled
+	 * @throws Docx4JException
+	 */
+	public int merge(Iterator<Map<DataFieldName, String>> data, Executor executor,
+			final ResultHandler handler) throws Docx4JException {
+
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		int index = 0;
+		try {
+			while (data.hasNext() && failure.get()==null) {
+
+				final Map<DataFieldName, String> datamap = data.next();
+				final int thisIndex = index++;
+
+				inFlight.acquire();
+				try {
+					executor.execute(new Runnable() {
+
+						public void run() {
+							try {
+								if (failure.get()==null) {
+									handler.handle(thisIndex, datamap, merge(datamap));
+								}
+							} catch (Throwable t) {
+								log.error("Merge of record " + thisIndex + " failed", t);
+								failure.compareAndSet(null, t);
+							} finally {
+								inFlight.release();
+							}
+						}
+					});
+				} catch (RuntimeException e) {
+					// eg RejectedExecutionException
+					inFlight.release();
+					throw e;
+				}
+			}
+
+			// Wait for everything to finish
+			inFlight.acquire(maxInFlight);
+			inFlight.release(maxInFlight);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new Docx4JException("Interrupted while merging", e);
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof Docx4JException) {
+			throw (Docx4JException)t;
+		} else if (t!=null) {
+			throw new Docx4JException("Merge failed", t);
+		}
+		log.info("Merged " + index + " records");
+		return index;
+	}
+
+}
@@ -20,13 +20,16 @@
 package org.docx4j.model.images;
 
 import java.io.UnsupportedEncodingException;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
 
 import org.apache.commons.codec.binary.Base64;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
 import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
 import org.docx4j.relationships.Relationship;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +41,8 @@ public abstract class AbstractConversionImageHandler implements ConversionImageH
 	protected Map<String, String> handledImagesMap = new TreeMap<String, String>();
 	protected String imageDirPath = null;  // TODO FIXME should not be here; move to FileConversionImageHandler
 	protected boolean includeUUID = true;
+	protected ImageOptimizer imageOptimizer = null;
+	private Map<BinaryPartAbstractImage, byte[]> optimizedImages = null;
 	
 	/** Creates an AbstractConversionImageHandler
 	 * @param imageDirPath, the path, where the images will be stored
@@ -160,13 +165,47 @@ public abstract class AbstractConversionImageHandler implements ConversionImageH
 	}
     
 	/** Get the image data of the buffer
+	 * (optimized, if an ImageOptimizer has been set)
 	 * 
 	 * @param binaryPart
 	 * @return
 	 */
 	protected byte[] getImageData(BinaryPart binaryPart) {
+		
+		if (imageOptimizer != null
+				&& binaryPart instanceof BinaryPartAbstractImage
+				&& binaryPart.getPackage() instanceof WordprocessingMLPackage) {
+			
+			if (optimizedImages == null) {
+				// Do all the images at once, so they can be done in parallel
+				try {
+					optimizedImages = imageOptimizer.optimizeAll((WordprocessingMLPackage)binaryPart.getPackage());
+				} catch (Docx4JException e) {
+					log.error("Couldn't optimize images; using originals", e);
+					optimizedImages = new IdentityHashMap<BinaryPartAbstractImage, byte[]>();
+				}
+			}
+			byte[] optimized = optimizedImages.get(binaryPart);
+			if (optimized != null) {
+				return optimized;
+			}
+		}
 		return binaryPart.getBytes();
 	}
+	
+	/** Output images downsampled to the size they are displayed at 
+	 * (or the originals, if null)
+	 * 
+	 * @since 3.2.2
+	 */
+	public void setImageOptimizer(ImageOptimizer imageOptimizer) {
+		this.imageOptimizer = imageOptimizer;
+		optimizedImages = null;
+	}
+
+	public ImageOptimizer getImageOptimizer() {
+		return imageOptimizer;
+	}
 
 	/**
 	 * @param picture
@@ -184,5 +223,6 @@ public abstract class AbstractConversionImageHandler implements ConversionImageH
 	public void clear() {
 		uuid = UUID.randomUUID().toString();
 		handledImagesMap.clear();		
+		optimizedImages = null;
 	}
 }
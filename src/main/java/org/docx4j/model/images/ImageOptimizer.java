@@ -0,0 +1,455 @@
+package org.docx4j.model.images;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.docx4j.Docx4jProperties;
+import org.docx4j.TraversalUtil;
+import org.docx4j.TraversalUtil.CallbackImpl;
+import org.docx4j.dml.CTBlipFillProperties;
+import org.docx4j.dml.CTPositiveSize2D;
+import org.docx4j.dml.CTRelativeRect;
+import org.docx4j.dml.Graphic;
+import org.docx4j.dml.picture.Pic;
+import org.docx4j.dml.wordprocessingDrawing.Anchor;
+import org.docx4j.dml.wordprocessingDrawing.Inline;
+import org.docx4j.openpackaging.contenttype.ContentTypes;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.openpackaging.parts.WordprocessingML.ImageHeaderSniffer;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.relationships.Relationship;
+import org.docx4j.wml.ContentAccessor;
+import org.docx4j.wml.Drawing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reduces the size of the JPEG and PNG images in a docx, by
+ * downsampling each one to the resolution it is actually displayed at.
+ *
+ * The size an image is displayed at is taken from the extent of the
+ * wp:inline or wp:anchor drawings which refer to it (the largest,
+ * if there are several, allowing for any cropping).  An image which is
+ * referred to in some other way (eg from VML, or a chart) is left alone.
+ *
+ * An image which is larger than targetDpi (at its displayed size) is
+ * scaled down; a JPEG is then re-encoded at jpegQuality.  If reencodePNG
+ * is set, PNGs which don't need scaling are re-encoded as well (losslessly).
+ * In each case, the result is only used if it is smaller than the original.
+ *
+ * Images are processed in parallel.
+ *
+ * To shrink the package itself (eg before saving it), use apply(pkg).
+ * To leave the package alone, but use smaller images in HTML or PDF output,
+ * set an ImageOptimizer on your AbstractConversionImageHandler.
+ *
+ * Defaults are read from docx4j properties docx4j.model.images.ImageOptimizer.*
+ *
+ * @since 3.2.2
+ */
+public class ImageOptimizer {
+
+	protected static Logger log = LoggerFactory.getLogger(ImageOptimizer.class);
+
+	private static final double EMU_PER_INCH = 914400;
+
+	// don't bother scaling an image down by less than this
+	private static final double MIN_SCALE_SAVING = 0.1;
+
+	private int targetDpi = Integer.parseInt(
+			Docx4jProperties.getProperty("docx4j.model.images.ImageOptimizer.targetDpi", "150"));
+
+	private float jpegQuality = Float.parseFloat(
+			Docx4jProperties.getProperty("docx4j.model.images.ImageOptimizer.jpegQuality", "0.85"));
+
+	private boolean reencodePNG =
+			Docx4jProperties.getProperty("docx4j.model.images.ImageOptimizer.reencodePNG", false);
+
+	private int threads = Integer.parseInt(
+			Docx4jProperties.getProperty("docx4j.model.images.ImageOptimizer.threads",
+					Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+	public int getTargetDpi() {
+		return targetDpi;
+	}
+
+	/**
+	 * @param targetDpi the resolution to scale images down to, at their displayed size
+	 */
+	public void setTargetDpi(int targetDpi) {
+		this.targetDpi = targetDpi;
+	}
+
+	public float getJpegQuality() {
+		return jpegQuality;
+	}
+
+	/**
+	 * @param jpegQuality between 0 and 1, for JPEGs which have been scaled
+	 */
+	public void setJpegQuality(float jpegQuality) {
+		this.jpegQuality = jpegQuality;
+	}
+
+	public boolean isReencodePNG() {
+		return reencodePNG;
+	}
+
+	/**
+	 * @param reencodePNG whether to re-encode PNGs which don't need scaling
+	 */
+	public void setReencodePNG(boolean reencodePNG) {
+		this.reencodePNG = reencodePNG;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads the maximum number of images to process at once
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Replace the images in the package with optimized versions.
+	 *
+	 * @return the number of images replaced
+	 * @throws Docx4JException
+	 */
+	public int apply(WordprocessingMLPackage wmlPackage) throws Docx4JException {
+
+		Map<BinaryPartAbstractImage, byte[]> optimized = optimizeAll(wmlPackage);
+		for (Map.Entry<BinaryPartAbstractImage, byte[]> entry : optimized.entrySet()) {
+
+			BinaryPartAbstractImage part = entry.getKey();
+			part.setBinaryData(entry.getValue());
+			part.setImageInfo(null); // worked out again when needed
+		}
+		if (!optimized.isEmpty()) {
+			wmlPackage.getMediaIndex().rescan();
+		}
+		return optimized.size();
+	}
+
+	/**
+	 * Optimize the images in the package, without changing it.
+	 *
+	 * @return the optimized content, for each image which could be made smaller
+	 * @throws Docx4JException
+	 */
+	public Map<BinaryPartAbstractImage, byte[]> optimizeAll(WordprocessingMLPackage wmlPackage) throws Docx4JException {
+
+		long startTime = System.currentTimeMillis();
+
+		Map<BinaryPartAbstractImage, long[]> extents = getDisplayExtents(wmlPackage);
+		Map<BinaryPartAbstractImage, byte[]> results = new IdentityHashMap<BinaryPartAbstractImage, byte[]>();
+		if (extents.isEmpty()) {
+			return results;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, extents.size())));
+		try {
+			Map<BinaryPartAbstractImage, Future<byte[]>> futures = new IdentityHashMap<BinaryPartAbstractImage, Future<byte[]>>();
+			for (Map.Entry<BinaryPartAbstractImage, long[]> entry : extents.entrySet()) {
+
+				final BinaryPartAbstractImage part = entry.getKey();
+				final long[] extent = entry.getValue();
+				futures.put(part, executor.submit(new Callable<byte[]>() {
+					public byte[] call() throws IOException {
+						return optimize(part.getBytes(), part.getContentType(), extent[0], extent[1]);
+					}
+				}));
+			}
+
+			long before = 0;
+			long after = 0;
+			for (Map.Entry<BinaryPartAbstractImage, Future<byte[]>> entry : futures.entrySet()) {
+
+				BinaryPartAbstractImage part = entry.getKey();
+				try {
+					byte[] optimized = entry.getValue().get();
+					if (optimized!=null) {
+						results.put(part, optimized);
+						before += part.getBytes().length;
+						after += optimized.length;
+					}
+				} catch (ExecutionException e) {
+					// leave this one alone
+					log.warn("Couldn't optimize " + part.getPartName() + ": " + e.getCause().getMessage());
+				}
+			}
+			log.info("Optimized " + results.size() + " of " + extents.size() + " images, "
+					+ before + " to " + after + " bytes, in " + (System.currentTimeMillis()-startTime) + "ms");
+
+		} catch (InterruptedException e) {
+			throw new Docx4JException("Interrupted optimizing images", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	/**
+	 * Optimize an image, for display at the specified size.
+	 *
+	 * @param image
+	 * @param contentType
+	 * @param cx displayed width, in EMU
+	 * @param cy displayed height, in EMU
+	 * @return the optimized image (in the same format), or null if it
+	 * couldn't be made smaller
+	 * @throws IOException
+	 */
+	public byte[] optimize(byte[] image, String contentType, long cx, long cy) throws IOException {
+
+		boolean jpeg = ContentTypes.IMAGE_JPEG.equals(contentType);
+		if (!jpeg
+				&& !ContentTypes.IMAGE_PNG.equals(contentType)) {
+			return null;
+		}
+
+		// Look at the header first, so we don't decode images which are fine
+		ImageInfo info = ImageHeaderSniffer.sniff(image, null, 72);
+		if (info==null) {
+			return null;
+		}
+		int width = info.getSize().getWidthPx();
+		int height = info.getSize().getHeightPx();
+		int targetWidth = (int)Math.ceil(cx * targetDpi / EMU_PER_INCH);
+		int targetHeight = (int)Math.ceil(cy * targetDpi / EMU_PER_INCH);
+
+		double scale = Math.min((double)targetWidth / width, (double)targetHeight / height);
+		boolean downsample = (targetWidth>0 && targetHeight>0 && scale < 1 - MIN_SCALE_SAVING);
+		if (!downsample
+				&& (jpeg || !reencodePNG)) {
+			return null;
+		}
+
+		BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(image));
+		if (bufferedImage==null) {
+			// eg a CMYK JPEG
+			return null;
+		}
+		if (downsample) {
+			bufferedImage = scale(bufferedImage,
+					Math.max(1, (int)Math.round(width * scale)),
+					Math.max(1, (int)Math.round(height * scale)),
+					!jpeg && bufferedImage.getColorModel().hasAlpha());
+		}
+
+		byte[] result = jpeg ? writeJPEG(bufferedImage, jpegQuality) : writePNG(bufferedImage);
+		if (result.length >= image.length) {
+			log.debug("Keeping original (" + image.length + " bytes)");
+			return null;
+		}
+		log.debug(width + "x" + height + " to " + bufferedImage.getWidth() + "x" + bufferedImage.getHeight()
+				+ ", " + image.length + " to " + result.length + " bytes");
+		return result;
+	}
+
+	/**
+	 * Halve the size repeatedly, then scale to the final size;
+	 * that looks better than scaling down a long way in one step.
+	 */
+	private static BufferedImage scale(BufferedImage image, int width, int height, boolean alpha) {
+
+		int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		int w = image.getWidth();
+		int h = image.getHeight();
+		do {
+			w = Math.max(w / 2, width);
+			h = Math.max(h / 2, height);
+
+			BufferedImage scaled = new BufferedImage(w, h, type);
+			Graphics2D g = scaled.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.drawImage(image, 0, 0, w, h, null);
+			g.dispose();
+			image = scaled;
+
+		} while (w!=width || h!=height);
+
+		return image;
+	}
+
+	private static byte[] writeJPEG(BufferedImage image, float quality) throws IOException {
+
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+		if (!writers.hasNext()) {
+			throw new IOException("No ImageIO JPEG writer");
+		}
+		ImageWriter writer = writers.next();
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageOutputStream ios = ImageIO.createImageOutputStream(baos);
+		try {
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(quality);
+
+			writer.setOutput(ios);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+			ios.close();
+		}
+		return baos.toByteArray();
+	}
+
+	private static byte[] writePNG(BufferedImage image) throws IOException {
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", baos);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * The largest size each image part is displayed at in a drawing (wp:inline or
+	 * wp:anchor), as {cx, cy} in EMU.  Images which are referred to
+	 * in any other way are omitted, since we don't know how big they need to be.
+	 */
+	public static Map<BinaryPartAbstractImage, long[]> getDisplayExtents(WordprocessingMLPackage wmlPackage) {
+
+		Map<BinaryPartAbstractImage, long[]> extents = new IdentityHashMap<BinaryPartAbstractImage, long[]>();
+
+		// "relsPartName relId", for each relationship we've found a drawing for
+		Set<String> measured = new HashSet<String>();
+
+		for (Part part : wmlPackage.getParts().getParts().values()) {
+			if (part instanceof JaxbXmlPart
+					&& part.getRelationshipsPart()!=null) {
+
+				DrawingFinder finder = new DrawingFinder(part.getRelationshipsPart(), extents, measured);
+				if (part instanceof ContentAccessor) {
+					new TraversalUtil(((ContentAccessor)part).getContent(), finder);
+				} else if (((JaxbXmlPart)part).getJaxbElement()!=null) {
+					// eg comments, endnotes
+					new TraversalUtil(((JaxbXmlPart)part).getJaxbElement(), finder);
+				}
+			}
+		}
+
+		// Now omit images which are referred to some other way
+		List<RelationshipsPart> rps = new ArrayList<RelationshipsPart>();
+		rps.add(wmlPackage.getRelationshipsPart());
+		for (Part part : wmlPackage.getParts().getParts().values()) {
+			if (part.getRelationshipsPart()!=null) {
+				rps.add(part.getRelationshipsPart());
+			}
+		}
+		for (RelationshipsPart rp : rps) {
+			for (Relationship rel : rp.getRelationships().getRelationship()) {
+
+				if (rel.getTargetMode()!=null
+						&& rel.getTargetMode().equals("External")) continue;
+
+				Part target = rp.getPart(rel);
+				if (extents.containsKey(target)
+						&& !measured.contains(rp.getPartName().getName() + " " + rel.getId())) {
+					log.debug(target.getPartName() + " is also used by " + rp.getPartName() + " " + rel.getId());
+					extents.remove(target);
+				}
+			}
+		}
+		return extents;
+	}
+
+	private static class DrawingFinder extends CallbackImpl {
+
+		private RelationshipsPart rp;
+		private Map<BinaryPartAbstractImage, long[]> extents;
+		private Set<String> measured;
+
+		DrawingFinder(RelationshipsPart rp, Map<BinaryPartAbstractImage, long[]> extents, Set<String> measured) {
+			this.rp = rp;
+			this.extents = extents;
+			this.measured = measured;
+		}
+
+		@Override
+		public List<Object> apply(Object o) {
+
+			if (o instanceof Drawing) {
+				for (Object o2 : ((Drawing)o).getAnchorOrInline()) {
+					if (o2 instanceof Inline) {
+						add(((Inline)o2).getExtent(), ((Inline)o2).getGraphic());
+					} else if (o2 instanceof Anchor) {
+						add(((Anchor)o2).getExtent(), ((Anchor)o2).getGraphic());
+					}
+				}
+			}
+			return null;
+		}
+
+		private void add(CTPositiveSize2D extent, Graphic graphic) {
+
+			if (extent==null
+					|| graphic==null
+					|| graphic.getGraphicData()==null) return;
+			Pic pic = graphic.getGraphicData().getPic();
+			if (pic==null) return;
+			CTBlipFillProperties blipFill = pic.getBlipFill();
+			if (blipFill==null
+					|| blipFill.getBlip()==null
+					|| blipFill.getBlip().getEmbed()==null) return;
+
+			String relId = blipFill.getBlip().getEmbed();
+			Part target = rp.getPart(relId);
+			if (!(target instanceof BinaryPartAbstractImage)) return;
+
+			// If the image is cropped, the whole image is bigger than the extent
+			// (srcRect is in 1000ths of a percent)
+			double cx = extent.getCx();
+			double cy = extent.getCy();
+			CTRelativeRect srcRect = blipFill.getSrcRect();
+			if (srcRect!=null) {
+				int visibleX = 100000 - srcRect.getL() - srcRect.getR();
+				int visibleY = 100000 - srcRect.getT() - srcRect.getB();
+				if (visibleX > 0) cx = cx * 100000 / visibleX;
+				if (visibleY > 0) cy = cy * 100000 / visibleY;
+			}
+
+			measured.add(rp.getPartName().getName() + " " + relId);
+			long[] max = extents.get(target);
+			if (max==null) {
+				extents.put((BinaryPartAbstractImage)target, new long[] {Math.round(cx), Math.round(cy)});
+			} else {
+				max[0] = Math.max(max[0], Math.round(cx));
+				max[1] = Math.max(max[1], Math.round(cy));
+			}
+		}
+
+	}
+
+}
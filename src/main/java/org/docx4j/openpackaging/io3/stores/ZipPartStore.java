@@ -125,6 +125,20 @@ public class ZipPartStore implements PartStore {
 
 	}
 
+	/**
+	 * A part store which shares the part bytes already loaded by
+	 * another.  The bytes are never modified, so this can be used
+	 * to load many packages from a single copy (concurrently, if
+	 * need be); each has its own output state for saving.
+	 *
+	 * @param shared
+	 * @since 3.2.2
+	 */
+	public ZipPartStore(ZipPartStore shared) {
+
+		partByteArrays = shared.partByteArrays;
+	}
+
 	private PartStore sourcePartStore;
 
 	/**
@@ -192,11 +206,29 @@ public class ZipPartStore implements PartStore {
         }
 		return bytes.getLength();
 	}
-	
+
+	/**
+	 * Get a part's bytes as a read-only buffer, without copying them.
+	 * This way, a binary part's bytes are held once, however many
+	 * packages (clones, or see the sharing constructor) refer to them.
+	 *
+	 * @param partName (without leading '/')
+	 * @return null if the part isn't present
+	 * @since 3.2.2
+	 */
+	public ByteBuffer getReadOnlyBuffer(String partName) {
+
+        ByteArray bytes = partByteArrays.get(partName);
+        if (bytes == null) {
+        	return null;
+        }
+		return ByteBuffer.wrap(bytes.getBytes()).asReadOnlyBuffer();
+	}
+
 	
 	///// Save methods
 
-	private ZipOutputStream zos;
+	protected ZipOutputStream zos;
 
 	/**
 	 * @param zipOutputStream the zipOutputStream to set
@@ -69,6 +69,7 @@ import org.docx4j.openpackaging.parts.DocPropsCorePart;
 import org.docx4j.openpackaging.parts.DocPropsCustomPart;
 import org.docx4j.openpackaging.parts.DocPropsExtendedPart;
 import org.docx4j.openpackaging.parts.ExternalTarget;
+import org.docx4j.openpackaging.parts.MediaIndex;
 import org.docx4j.openpackaging.parts.Part;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.Parts;
@@ -122,6 +123,20 @@ public class OpcPackage extends Base implements PackageIdentifier {
 		return externalResources;		
 	}	
 	
+	private MediaIndex mediaIndex;
+	/**
+	 * For finding image parts with the same content
+	 * as an image you are adding, or removing duplicate images.
+	 * 
+	 * @since 3.2.2
+	 */
+	public MediaIndex getMediaIndex() {
+		if (mediaIndex==null) {
+			mediaIndex = new MediaIndex(this);
+		}
+		return mediaIndex;
+	}
+	
 	protected HashMap<String, CustomXmlPart> customXmlDataStorageParts
 		= new HashMap<String, CustomXmlPart>(); // NB key is lowercase
 	/**
@@ -38,6 +38,7 @@ import org.docx4j.convert.out.flatOpcXml.FlatOpcXmlCreator;
 import org.docx4j.fonts.IdentityPlusMapper;
 import org.docx4j.fonts.Mapper;
 import org.docx4j.jaxb.Context;
+import org.docx4j.model.IdRegistry;
 import org.docx4j.model.structure.DocumentModel;
 import org.docx4j.model.structure.HeaderFooterPolicy;
 import org.docx4j.model.structure.PageDimensions;
@@ -113,6 +114,20 @@ public class WordprocessingMLPackage extends OpcPackage {
 		return documentModel;
 	}
 	
+	private IdRegistry idRegistry;
+	/**
+	 * For allocating bookmark, comment, footnote/endnote and drawing IDs
+	 * which aren't already in use in this package.
+	 * 
+	 * @since 3.2.2
+	 */
+	public synchronized IdRegistry getIdRegistry() {
+		if (idRegistry==null) {
+			idRegistry = new IdRegistry(this);
+		}
+		return idRegistry;
+	}
+	
 	private HeaderFooterPolicy headerFooterPolicy;	
 	@Deprecated	
 	public HeaderFooterPolicy getHeaderFooterPolicy() {
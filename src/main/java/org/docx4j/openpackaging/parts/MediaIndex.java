@@ -0,0 +1,246 @@
+package org.docx4j.openpackaging.parts;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.docx4j.openpackaging.URIHelper;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.relationships.Relationship;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the image parts in a package, by a hash of their content,
+ * so that adding an image which is already in the package can reuse
+ * the existing part (with a new relationship to it), rather than
+ * adding another copy.  BinaryPartAbstractImage.createImagePart does this,
+ * if docx4j property 
+ * docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage.ReuseExisting
+ * is true.  It is off by default, since the part is then shared: a caller 
+ * which changes or removes "its" image part affects the others.
+ *
+ * dedupe() does the same thing after the event, for a package which
+ * already contains duplicate images (eg one which was loaded).
+ *
+ * Only images are indexed.  Other binary parts can't necessarily be
+ * shared; for example, an embedded font is obfuscated with a key
+ * specified on its relationship.
+ *
+ * The package's parts are hashed when the index is first used.
+ * After that, parts added via createImagePart are indexed as they
+ * are added; other changes are noticed when a match is checked
+ * (a part which has been removed, or whose content has changed,
+ * isn't reused), but images added some other way won't be found
+ * until you rescan().
+ *
+ * Get the index for a package via OpcPackage.getMediaIndex().
+ *
+ * Not thread safe.
+ *
+ * @since 3.2.2
+ */
+public class MediaIndex {
+
+	protected static Logger log = LoggerFactory.getLogger(MediaIndex.class);
+
+	private OpcPackage opcPackage;
+
+	/**
+	 * Keyed by hash.  Null until scanned.
+	 */
+	private Map<String, List<BinaryPartAbstractImage>> index = null;
+
+	public MediaIndex(OpcPackage opcPackage) {
+		this.opcPackage = opcPackage;
+	}
+
+	/**
+	 * @param bytes
+	 * @return an image part in the package with the same content,
+	 * or null if there isn't one
+	 */
+	public BinaryPartAbstractImage find(byte[] bytes) {
+
+		List<BinaryPartAbstractImage> candidates = getIndex().get(hash(ByteBuffer.wrap(bytes)));
+		if (candidates==null) {
+			return null;
+		}
+		ByteBuffer bb = ByteBuffer.wrap(bytes);
+		for (int i=0; i<candidates.size(); i++) {
+
+			BinaryPartAbstractImage candidate = candidates.get(i);
+			if (opcPackage.getParts().get(candidate.getPartName())==candidate
+					&& bb.equals(candidate.getReadOnlyBuffer())) {
+				return candidate;
+			} else {
+				log.debug(candidate.getPartName() + " has been removed or changed");
+				candidates.remove(i--);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Index an image part you have added to the package.
+	 */
+	public void add(BinaryPartAbstractImage part) {
+
+		if (index==null) {
+			// it'll be found when we scan
+			return;
+		}
+		put(index, part);
+	}
+
+	/**
+	 * Forget what we know, and hash the package's image parts
+	 * again when the index is next used.
+	 */
+	public void rescan() {
+		index = null;
+	}
+
+	/**
+	 * Where the package contains several image parts with the same content,
+	 * point all the relationships at one of them, and remove the others.
+	 *
+	 * @return the number of parts removed
+	 */
+	public int dedupe() {
+
+		index = null;
+
+		// duplicate to the part to keep
+		Map<Part, BinaryPartAbstractImage> replacements = new IdentityHashMap<Part, BinaryPartAbstractImage>();
+		for (List<BinaryPartAbstractImage> sameContent : getIndex().values()) {
+
+			if (sameContent.size()<2) continue;
+
+			// Keep the one with the lowest name, so the result doesn't depend on hash map order
+			BinaryPartAbstractImage keep = sameContent.get(0);
+			for (BinaryPartAbstractImage part : sameContent) {
+				if (part.getPartName().getName().compareTo(keep.getPartName().getName()) < 0) {
+					keep = part;
+				}
+			}
+			for (BinaryPartAbstractImage part : sameContent) {
+				if (part!=keep
+						&& part.getReadOnlyBuffer().equals(keep.getReadOnlyBuffer())) { // not just the same hash
+					replacements.put(part, keep);
+				}
+			}
+		}
+		if (replacements.isEmpty()) {
+			return 0;
+		}
+
+		// Retarget the relationships
+		List<RelationshipsPart> rps = new ArrayList<RelationshipsPart>();
+		rps.add(opcPackage.getRelationshipsPart());
+		for (Part part : opcPackage.getParts().getParts().values()) {
+			if (part.getRelationshipsPart()!=null) {
+				rps.add(part.getRelationshipsPart());
+			}
+		}
+		for (RelationshipsPart rp : rps) {
+			for (Relationship rel : rp.getRelationships().getRelationship()) {
+
+				if (rel.getTargetMode()!=null
+						&& rel.getTargetMode().equals("External")) continue;
+
+				BinaryPartAbstractImage keep = replacements.get(rp.getPart(rel));
+				if (keep!=null) {
+					rel.setTarget(relativeTarget(rp, keep));
+					keep.getSourceRelationships().add(rel);
+					log.debug("Retargeted " + rp.getPartName() + " " + rel.getId() + " to " + rel.getTarget());
+				}
+			}
+		}
+
+		// Remove the duplicates
+		for (Part part : replacements.keySet()) {
+
+			log.info("Removing duplicate image " + part.getPartName());
+			opcPackage.getParts().remove(part.getPartName());
+			opcPackage.getContentTypeManager().getOverrideContentType().remove(part.getPartName().getURI());
+		}
+
+		index = null;
+		return replacements.size();
+	}
+
+	private String relativeTarget(RelationshipsPart rp, Part target) {
+
+		// As in RelationshipsPart.addPart
+		URI relativizeAgainst = rp.getSourceURI();
+		String relative = URIHelper.relativizeURI(relativizeAgainst, target.getPartName().getURI()).toString();
+		if (relativizeAgainst.getPath().equals("/")
+				&& relative.startsWith("/")) {
+			relative = relative.substring(1);
+		}
+		return relative;
+	}
+
+	private Map<String, List<BinaryPartAbstractImage>> getIndex() {
+
+		if (index==null) {
+
+			long startTime = System.currentTimeMillis();
+
+			Map<String, List<BinaryPartAbstractImage>> newIndex = new HashMap<String, List<BinaryPartAbstractImage>>();
+			for (Part part : opcPackage.getParts().getParts().values()) {
+				if (part instanceof BinaryPartAbstractImage) {
+					put(newIndex, (BinaryPartAbstractImage)part);
+				}
+			}
+			index = newIndex;
+
+			log.debug("Indexed images in " + (System.currentTimeMillis()-startTime) + "ms");
+		}
+		return index;
+	}
+
+	private static void put(Map<String, List<BinaryPartAbstractImage>> index, BinaryPartAbstractImage part) {
+
+		ByteBuffer bb = part.getReadOnlyBuffer();
+		if (bb==null) {
+			// eg external
+			return;
+		}
+		String hash = hash(bb);
+		List<BinaryPartAbstractImage> list = index.get(hash);
+		if (list==null) {
+			list = new ArrayList<BinaryPartAbstractImage>(1);
+			index.put(hash, list);
+		}
+		list.add(part);
+	}
+
+	private static String hash(ByteBuffer bb) {
+
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			md.update(bb.duplicate());
+			byte[] digest = md.digest();
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-1 is always available
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -31,6 +31,7 @@ import org.apache.commons.io.IOUtils;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
 import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.io3.stores.ZipPartStore;
 import org.docx4j.openpackaging.parts.ExternalTarget;
 import org.docx4j.openpackaging.parts.Part;
 import org.docx4j.openpackaging.parts.PartName;
@@ -116,6 +117,10 @@ public class BinaryPart extends Part {
 	 * you'll probably want to invoke this first, since otherwise
 	 * the content may not be located (lazy loading).
 	 * 
+	 * If the contents are shared read-only (eg with the part this was 
+	 * cloned from, or with the part store; see getReadOnlyBuffer), 
+	 * they are copied first, so the buffer returned can be written to.
+	 * 
 	 * @return
 	 */
 	public ByteBuffer getBuffer() {
@@ -123,6 +128,9 @@ public class BinaryPart extends Part {
 		if (this.bb != null) {
 			// use buffer loaded during package load
 			// (if not using Load3)
+			if (bb.isReadOnly()) {
+				bb = copy(bb);
+			}
 			bb.rewind(); // Don't forget this!
 			return bb;
 			
@@ -176,6 +184,50 @@ public class BinaryPart extends Part {
 		
 	}
 	
+	/**
+	 * Get the contents of this part, read-only.  Unlike getBuffer(), 
+	 * this doesn't copy contents which are shared: a part lazily loaded 
+	 * from a ZipPartStore shares the store's bytes, and a clone shares 
+	 * the source part's bytes, until getBuffer() is invoked.
+	 * 
+	 * To change the contents, use getBuffer() or setBinaryData.
+	 * 
+	 * @return null if the contents can't be found
+	 * @since 3.2.2
+	 */
+	public ByteBuffer getReadOnlyBuffer() {
+		
+		if (this.bb == null
+				&& this.getPackage()!=null
+				&& this.getPackage().getSourcePartStore() instanceof ZipPartStore) {
+			
+			ByteBuffer shared = ((ZipPartStore)this.getPackage().getSourcePartStore()).getReadOnlyBuffer(
+					this.getPartName().getName().substring(1));
+			if (shared!=null) {
+				this.setContentLengthAsLoaded(shared.capacity());
+				bb = shared;
+			}
+		}
+		
+		ByteBuffer buf = (this.bb==null) ? this.getBuffer() : this.bb;
+		if (buf==null) {
+			return null;
+		}
+		buf = buf.asReadOnlyBuffer();
+		buf.rewind();
+		return buf;
+	}
+	
+	private static ByteBuffer copy(ByteBuffer shared) {
+		
+		ByteBuffer src = shared.duplicate();
+		src.rewind();
+		ByteBuffer copy = ByteBuffer.allocate(src.limit());
+		copy.put(src);
+		copy.rewind();
+		return copy;
+	}
+	
 	/**
 	 * Copy the ByteBuffer containing this part's binary data
 	 * to an output stream.
@@ -185,8 +237,7 @@ public class BinaryPart extends Part {
 	 */
 	public void writeDataToOutputStream(OutputStream out) throws IOException {
 		
-		ByteBuffer buf = this.getBuffer();
-		buf.rewind();
+		ByteBuffer buf = this.getReadOnlyBuffer();
 
 		// Fix for https://github.com/plutext/docx4j/issues/80
 		// from http://stackoverflow.com/questions/579600/how-to-put-the-content-of-a-bytebuffer-into-an-outputstream
@@ -198,12 +249,10 @@ public class BinaryPart extends Part {
 	
 	public byte[] getBytes() {
 		
-		ByteBuffer bb = this.getBuffer();
-		bb.rewind();
+		ByteBuffer bb = this.getReadOnlyBuffer();
 
 		byte[] bytes = new byte[bb.limit()];
 		bb.get(bytes, 0, bytes.length);
-		bb.rewind();
 		
 		return bytes;
 	}
@@ -213,8 +262,8 @@ public class BinaryPart extends Part {
     	if (!(other instanceof BinaryPart))
     		return false;
     	
-    	ByteBuffer thisBB = getBuffer();
-    	ByteBuffer thatBB = ((BinaryPart)other).getBuffer();
+    	ByteBuffer thisBB = getReadOnlyBuffer();
+    	ByteBuffer thatBB = ((BinaryPart)other).getReadOnlyBuffer();
     	
     	return thisBB.equals(thatBB);
     	
@@ -21,9 +21,8 @@ package org.docx4j.openpackaging.parts.WordprocessingML;
 
 import java.awt.Dimension;
 import java.awt.geom.Dimension2D;
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -63,6 +62,7 @@ import org.docx4j.openpackaging.parts.ExternalTarget;
 import org.docx4j.openpackaging.parts.Part;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart.AddPartBehaviour;
 import org.docx4j.relationships.Relationship;
 import org.pptx4j.pml.Presentation.SldSz;
 import org.slf4j.Logger;
@@ -235,7 +235,18 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
 	 * 
 	 * Works for both docx and pptx.
 	 * 
-	 * Note: this method creates a temp file (and attempts to delete it).
+	 * If docx4j property 
+	 * docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage.ReuseExisting
+	 * is true (it defaults to false), and the package already contains an image 
+	 * part with the same content, that part is returned (with a new relationship 
+	 * from the source part) instead of a new one.  NB the part is then shared:
+	 * if you change or remove "your" part, you change or remove the image 
+	 * everywhere else it is used.  So only turn this on if you don't do that. 
+	 * 
+	 * For the formats Word supports natively (PNG, JPEG, GIF, BMP, TIFF, EMF, WMF),
+	 * the image's MIME type and dimensions are read from its header in memory
+	 * (see ImageHeaderSniffer).  Otherwise, this method creates a temp file 
+	 * (and attempts to delete it).
 	 * That's because it uses org.apache.xmlgraphics 
 	 * 
 	 * @param opcPackage
@@ -247,24 +258,40 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
 	public static BinaryPartAbstractImage createImagePart(
 			OpcPackage opcPackage,
 			Part sourcePart, byte[] bytes) throws Exception {
+		
+		BinaryPartAbstractImage existing = reuseExisting(opcPackage, sourcePart, bytes);
+		if (existing!=null) {
+			return existing;
+		}
 				
 		// Whatever image type this is, we're going to need 
 		// to know its dimensions.
-		// For that we use ImageInfo, which can only
-		// load an image from a URI.
+		// For common formats, we can get these from the header.
+		ImageInfo info = ImageHeaderSniffer.sniff(bytes, null, 
+				getImageManager().getImageContext().getSourceResolution());
 		
-		// So first, write the bytes to a temp file		
-		File tmpImageFile = File.createTempFile("img", ".img");
-		
-		FileOutputStream fos = new FileOutputStream(tmpImageFile);
-		fos.write(bytes);
-		fos.close();
-        log.debug("created tmp file: " + tmpImageFile.getAbsolutePath());
-				
-		ImageInfo info = ensureFormatIsSupported(tmpImageFile, bytes, true);
-		
-		// In the absence of an exception, tmpImageFile now contains an image 
-		// Word will accept
+		File tmpImageFile = null;
+		FileOutputStream fos = null;
+		if (info==null) {
+			
+			// Otherwise, we use ImageInfo, which can only
+			// load an image from a URI.
+			
+			// So first, write the bytes to a temp file		
+			tmpImageFile = File.createTempFile("img", ".img");
+			
+			fos = new FileOutputStream(tmpImageFile);
+			fos.write(bytes);
+			fos.close();
+	        log.debug("created tmp file: " + tmpImageFile.getAbsolutePath());
+					
+			info = ensureFormatIsSupported(tmpImageFile, bytes, true);
+			
+			// In the absence of an exception, tmpImageFile now contains an image 
+			// Word will accept
+		} else {
+			displayImageInfo(info);
+		}
 		
 		ContentTypeManager ctm = opcPackage.getContentTypeManager();
 		
@@ -275,7 +302,10 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
 
 		String proposedRelId = sourcePart.getRelationshipsPart().getNextId();
 				
-        String ext = info.getMimeType().substring(info.getMimeType().indexOf("/") + 1);
+        String ext = mimeToExt(info.getMimeType());
+        if (ext==null) {
+        	ext = info.getMimeType().substring(info.getMimeType().indexOf("/") + 1);
+        }
 		
 //		System.out.println(ext);
 		
@@ -287,12 +317,22 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
         log.debug("created part " + imagePart.getClass().getName()
                 + " with name " + imagePart.getPartName().toString());
 		
+		if (tmpImageFile==null) {
+			imagePart.setBinaryData(bytes);
+			
+	        imagePart.rels.add(sourcePart.addTargetPart(imagePart, proposedRelId));
+			imagePart.setImageInfo(info);
+			opcPackage.getMediaIndex().add(imagePart);
+			return imagePart;
+		}
+		
 		FileInputStream fis = new FileInputStream(tmpImageFile); 		
         imagePart.setBinaryData(fis);
 				
         imagePart.rels.add(sourcePart.addTargetPart(imagePart, proposedRelId));
 		
 		imagePart.setImageInfo(info);
+		opcPackage.getMediaIndex().add(imagePart);
 
 		// Delete the tmp file
 		// As per http://stackoverflow.com/questions/991489/i-cant-delete-a-file-in-java
@@ -373,6 +413,11 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
 	 * Knowing the MIME type allows you to avoid ImageInfo, but you'll probably also need to
 	 * know the image dimensions
 	 * 
+	 * As with createImagePart(opcPackage, sourcePart, bytes), an existing part 
+	 * with the same content is returned (and so shared) if docx4j property 
+	 * docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage.ReuseExisting
+	 * is true.
+	 * 
 	 * @param opcPackage
 	 * @param sourcePart
 	 * @param bytes
@@ -386,6 +431,11 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
 			OpcPackage opcPackage,
 			Part sourcePart, byte[] bytes, String mime) throws Exception {
 		
+		BinaryPartAbstractImage existing = reuseExisting(opcPackage, sourcePart, bytes);
+		if (existing!=null) {
+			return existing;
+		}
+		
 		String ext = mimeToExt(mime);
 		if (mime==null || ext==null) {
 			log.warn("Null or unknown mime type; image introspection required!");
@@ -413,11 +463,52 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
 
         imagePart.setBinaryData(bytes);
         imagePart.rels.add(sourcePart.addTargetPart(imagePart, proposedRelId));
+		opcPackage.getMediaIndex().add(imagePart);
 		
 		return imagePart;
         
 	}
 	
+	/**
+	 * If the package already contains an image part with this content,
+	 * add a relationship to it from sourcePart, and return it.
+	 * 
+	 * @return the existing part, or null
+	 */
+	private static BinaryPartAbstractImage reuseExisting(OpcPackage opcPackage,
+			Part sourcePart, byte[] bytes) throws Exception {
+		
+		if (!Docx4jProperties.getProperty("docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage.ReuseExisting", false)) {
+			return null;
+		}
+		
+		BinaryPartAbstractImage existing = opcPackage.getMediaIndex().find(bytes);
+		if (existing==null) {
+			return null;
+		}
+		
+		if (existing.imageInfo==null) {
+			// eg a part in a loaded docx; createImageInline etc need this
+			existing.imageInfo = ImageHeaderSniffer.sniff(bytes, null, 
+					getImageManager().getImageContext().getSourceResolution());
+			if (existing.imageInfo==null) {
+				// Not worth the temp file; just add another copy
+				return null;
+			}
+		}
+		
+		// Ensure the relationships part exists
+        if (sourcePart.getRelationshipsPart() == null) {
+			RelationshipsPart.createRelationshipsPartForPart(sourcePart);
+        }
+        
+        // This returns the existing rel, if sourcePart already has one
+        existing.rels.add(sourcePart.addTargetPart(existing, AddPartBehaviour.REUSE_EXISTING));
+        
+        log.debug("reusing " + existing.getPartName());
+		return existing;
+	}
+	
 	private static String mimeToExt(String mime) {
 		
 		if (mime==null) return null;
@@ -1255,70 +1346,63 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
 		}
 	}
 
+	private static List<ImageConverter> imageConverters = defaultImageConverters();
+	
+	private static List<ImageConverter> defaultImageConverters() {
+		
+		List<ImageConverter> converters = new ArrayList<ImageConverter>();
+		converters.add(new ImageIOConverter());
+		if (Docx4jProperties.getProperty("docx4j.openpackaging.parts.WordprocessingML.ImageMagickConverter.enabled", true)) {
+			converters.add(new ImageMagickConverter());
+		}
+		return converters;
+	}
+	
+	/**
+	 * The converters convertToPNG tries, in order.  By default,
+	 * an ImageIOConverter, then (unless disabled) an ImageMagickConverter.
+	 * 
+	 * @since 3.2.2
+	 */
+	public static List<ImageConverter> getImageConverters() {
+		return imageConverters;
+	}
+
+	/**
+	 * Set the converters convertToPNG tries, in order.
+	 * 
+	 * @since 3.2.2
+	 */
+	public static void setImageConverters(List<ImageConverter> imageConverters) {
+		BinaryPartAbstractImage.imageConverters = imageConverters;
+	}
+
 	/**
 	 * Convert image formats which are not supported by Word (eg EPS, PDF),
-	 * into ones which are.  This requires ImageMagick to be on your
+	 * into ones which are.  Each of the image converters is tried in turn; 
+	 * by default, raster formats ImageIO can read are converted in-process, 
+	 * and anything else by ImageMagick.  That requires ImageMagick to be on your
 	 * system's path (renamed to imconvert); for EPS and PDF images, Ghostscript is also required.
 	 * 
 	 * @param is
 	 * @param os
 	 * @param density  PixelsPerInch 
-	 * @throws IOException
+	 * @throws IOException if none of the converters could convert the image
 	 * @throws InterruptedException
 	 */
-    public static void convertToPNG(InputStream is, OutputStream os, int density) throws IOException, InterruptedException {
+	public static void convertToPNG(InputStream is, OutputStream os, int density) throws IOException, InterruptedException {
 		
-	/*
-	 * See http://www.eichberger.de/2006/05/imagemagick-in-servlets.html
-	 * 
-	 * "Calling 'convert - png:-' as an external command and feeding it the 
-	 * source image as standard input and reading the converted image 
-	 * (in this case png) as standard output"
-	 * 
-	 */
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		copy2(is, baos);
+		byte[] image = baos.toByteArray();
 		
-	 log.info("Start ImageMagick...");
-	 Process p = Runtime.getRuntime().exec("imconvert -density " + density + " -units PixelsPerInch - png:-");  
-	 
-	 // GraphicsMagick is a little quicker than ImageMagick,
-	 // but v1.3.3 (of Dec 2008) still has the now fixed in GM bug
-	 // whereby the right most ~10% of the resulting image is chopped off
-	 //Process p = Runtime.getRuntime().exec("gm convert -density " + density + " -units PixelsPerInch - png:-");  
-	 
-	 /* On Windows, if this results in "Invalid Parameter",
-	  * then either ImageMagick is not installed,
-	  * or exec is finding the wrong convert
-	  * program.  See http://studio.imagemagick.org/pipermail/magick-users/2005-October/016464.html
-	  * and http://www.imagemagick.org/discourse-server/viewtopic.php?f=1&t=8324&start=0
-	  * 
-	  * Rather than use full path, rename convert to imconvert (which Alfresco and others do)
-	  * 
-	  */
-	 
-	 //initialize Gobblers
-	 StreamGobbler inGobbler = new StreamGobbler(p.getInputStream(), os);
-	 StreamGobbler errGobbler = new StreamGobbler(p.getErrorStream(), System.err);
-	 //start them
-	 inGobbler.start();
-	 errGobbler.start();
-	 
-	 // p.getOutputStream() is the _output stream_ of the subprocess, so
-	 // this copies is into the standard input stream of the process 
-	 try {
-		 copy2(is, new BufferedOutputStream(p.getOutputStream()));
-		 p.getOutputStream().close();
-		 log.debug("Image copied...");
-	 } catch (IOException ioe) {
-		 
-		 ioe.printStackTrace();
-		 // debug
-		 copy2(p.getErrorStream(), System.err);
-	 }
-	 
-        if (p.waitFor() != 0) {
-	  log.error("Error");
-	 }
-	 log.debug("End Process...");
+		for (ImageConverter converter : imageConverters) {
+			if (converter.convertToPNG(image, os, density)) {
+				log.debug("Converted using " + converter.getClass().getName());
+				return;
+			}
+		}
+		throw new IOException("Couldn't convert image to PNG; tried " + imageConverters.size() + " converter(s)");
 	}
 
 	public static void copy2(InputStream is, OutputStream os) throws IOException {
@@ -1333,24 +1417,3 @@ public abstract class BinaryPartAbstractImage extends BinaryPart {
 	    os.flush();
 	   }//method
 	}//class
-
-class StreamGobbler extends Thread {
-		// The term "StreamGobbler" was taken from an article called "When Runtime.exec() won't", 
-		// see http://www.javaworld.com/javaworld/jw-12-2000/jw-1229-traps.html.
-		
-	  InputStream is;
-	  OutputStream os;
-
-    StreamGobbler(InputStream is, OutputStream redirect) {
-        this.is = new BufferedInputStream(is);
-	      this.os = redirect;
-	  }
-
-    public void run() {
-        try {
-	    	  BinaryPartAbstractImage.copy2(is, os);
-        } catch (IOException ioe) {
-	          ioe.printStackTrace();
-	          }
-	  }
-	}
@@ -0,0 +1,31 @@
+package org.docx4j.openpackaging.parts.WordprocessingML;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Converts an image in a format Word doesn't support (eg EPS, PDF)
+ * into a PNG.
+ * 
+ * BinaryPartAbstractImage.convertToPNG tries each of its converters 
+ * in turn, until one of them can handle the image.  By default, these are an 
+ * ImageIOConverter (in-process) and an ImageMagickConverter.
+ * 
+ * Implementations must be thread safe.
+ * 
+ * @since 3.2.2
+ */
+public interface ImageConverter {
+
+	/**
+	 * @param image the image to convert
+	 * @param os where to write the PNG
+	 * @param density pixels per inch, for rendering vector formats 
+	 * (and recorded in the PNG)
+	 * @return true if the image was converted, or false (having written
+	 * nothing to os) if this converter can't handle it
+	 * @throws IOException
+	 */
+	boolean convertToPNG(byte[] image, OutputStream os, int density) throws IOException;
+	
+}
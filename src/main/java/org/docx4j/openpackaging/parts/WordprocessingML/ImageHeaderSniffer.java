@@ -0,0 +1,322 @@
+/*
+ *  Copyright 2014, Plutext Pty Ltd.
+ *
+ *  This file is part of docx4j.
+
+    docx4j is licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+ */
+package org.docx4j.openpackaging.parts.WordprocessingML;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.xmlgraphics.image.codec.tiff.TIFFDirectory;
+import org.apache.xmlgraphics.image.codec.tiff.TIFFField;
+import org.apache.xmlgraphics.image.codec.util.MemoryCacheSeekableStream;
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.ImageSize;
+import org.apache.xmlgraphics.util.UnitConv;
+import org.docx4j.openpackaging.contenttype.ContentTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Works out the MIME type, size and resolution of an image from
+ * its header, in memory.
+ *
+ * Handles PNG, JPEG, GIF, BMP, TIFF, EMF and (placeable) WMF,
+ * which is what Word supports natively.  The results are the same as
+ * xmlgraphics' preloaders give (they follow the same rules, including
+ * falling back to the source resolution where the image doesn't
+ * specify one), but without a temp file, a URL, or the image cache.
+ *
+ * @since 3.2.2
+ */
+public class ImageHeaderSniffer {
+
+	protected static Logger log = LoggerFactory.getLogger(ImageHeaderSniffer.class);
+
+	/**
+	 * @param bytes the image
+	 * @param uri for ImageInfo's original URI (may be null)
+	 * @param sourceResolution the resolution (dpi) to assume if the image doesn't specify one
+	 * @return the image info, or null if this isn't a format we recognise
+	 * (or the header is truncated or otherwise odd), in which case
+	 * you'll need to ask xmlgraphics
+	 */
+	public static ImageInfo sniff(byte[] bytes, String uri, double sourceResolution) {
+
+		if (bytes==null || bytes.length<16) {
+			return null;
+		}
+
+		try {
+			ImageInfo info;
+			if (isPNG(bytes)) {
+				info = sniffPNG(bytes, uri, sourceResolution);
+			} else if (u8(bytes, 0)==0xFF && u8(bytes, 1)==0xD8) {
+				info = sniffJPEG(bytes, uri, sourceResolution);
+			} else if (bytes[0]=='G' && bytes[1]=='I' && bytes[2]=='F' && bytes[3]=='8') {
+				info = sniffGIF(bytes, uri, sourceResolution);
+			} else if (bytes[0]=='B' && bytes[1]=='M') {
+				info = sniffBMP(bytes, uri, sourceResolution);
+			} else if ((bytes[0]=='I' && bytes[1]=='I' && bytes[2]==42 && bytes[3]==0)
+					|| (bytes[0]=='M' && bytes[1]=='M' && bytes[2]==0 && bytes[3]==42)) {
+				info = sniffTIFF(bytes, uri, sourceResolution);
+			} else if (le32(bytes, 0)==1 && bytes.length>=88 && le32(bytes, 40)==0x464D4520) { // " EMF"
+				info = sniffEMF(bytes, uri);
+			} else if (le32(bytes, 0)==0x9AC6CDD7) {
+				info = sniffWMF(bytes, uri);
+			} else {
+				return null;
+			}
+			if (info!=null
+					&& (info.getSize().getWidthPx()<=0 || info.getSize().getHeightPx()<=0)) {
+				log.debug("Ignoring implausible size " + info.getSize());
+				return null;
+			}
+			return info;
+
+		} catch (Exception e) {
+			// eg ArrayIndexOutOfBoundsException, on a truncated header
+			log.debug("Couldn't sniff image: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static boolean isPNG(byte[] b) {
+		return u8(b, 0)==0x89 && b[1]=='P' && b[2]=='N' && b[3]=='G'
+				&& b[4]==0x0D && b[5]==0x0A && b[6]==0x1A && b[7]==0x0A;
+	}
+
+	private static ImageInfo sniffPNG(byte[] b, String uri, double sourceResolution) {
+
+		// IHDR is always first
+		if (be32(b, 12)!=0x49484452) {
+			return null;
+		}
+		ImageSize size = new ImageSize();
+		size.setSizeInPixels(be32(b, 16), be32(b, 20));
+		size.setResolution(sourceResolution);
+
+		// Look for pHYs, which comes before the image data
+		int pos = 8;
+		while (pos + 8 <= b.length) {
+			int length = be32(b, pos);
+			int type = be32(b, pos+4);
+			if (type==0x49444154 /* IDAT */ || length<0) {
+				break;
+			}
+			if (type==0x70485973 /* pHYs */ && length>=9
+					&& b[pos+16]==1 /* per metre */) {
+				// as ImageIO reports it, in mm per pixel
+				double hSize = 1000d / be32(b, pos+8);
+				double vSize = 1000d / be32(b, pos+12);
+				size.setResolution(UnitConv.IN2MM / hSize, UnitConv.IN2MM / vSize);
+				break;
+			}
+			pos += 12 + length; // length, type, data, crc
+		}
+
+		size.calcSizeFromPixels();
+		return newImageInfo(uri, ContentTypes.IMAGE_PNG, size);
+	}
+
+	private static ImageInfo sniffJPEG(byte[] b, String uri, double sourceResolution) {
+
+		ImageSize size = new ImageSize();
+		int pos = 2;
+		while (pos + 4 <= b.length) {
+
+			if (u8(b, pos)!=0xFF) {
+				return null;
+			}
+			int marker = u8(b, pos+1);
+			if (marker==0xFF) {
+				// fill byte
+				pos++;
+				continue;
+			}
+			if (marker==0x01 || (marker>=0xD0 && marker<=0xD7)) {
+				// standalone
+				pos += 2;
+				continue;
+			}
+			if (marker==0xD9 || marker==0xDA) {
+				// end of image, or start of scan, before we found a frame header
+				return null;
+			}
+			int length = be16(b, pos+2);
+
+			if (marker==0xE0 && length>=14
+					&& b[pos+4]=='J' && b[pos+5]=='F' && b[pos+6]=='I' && b[pos+7]=='F' && b[pos+8]==0) {
+
+				int units = u8(b, pos+11);
+				int xDensity = be16(b, pos+12);
+				int yDensity = be16(b, pos+14);
+				if (units==2) {
+					// dots per cm
+					size.setResolution(xDensity * 2.54f, yDensity * 2.54f);
+				} else if (units==1) {
+					size.setResolution(xDensity, yDensity);
+				}
+
+			} else if (isSOF(marker)) {
+
+				size.setSizeInPixels(be16(b, pos+7), be16(b, pos+5));
+				if (size.getDpiHorizontal()==0) {
+					size.setResolution(sourceResolution);
+				}
+				size.calcSizeFromPixels();
+				return newImageInfo(uri, ContentTypes.IMAGE_JPEG, size);
+			}
+			pos += 2 + length;
+		}
+		return null;
+	}
+
+	private static boolean isSOF(int marker) {
+		// SOF0-SOF15, except DHT (C4), JPG (C8) and DAC (CC)
+		return marker>=0xC0 && marker<=0xCF
+				&& marker!=0xC4 && marker!=0xC8 && marker!=0xCC;
+	}
+
+	private static ImageInfo sniffGIF(byte[] b, String uri, double sourceResolution) {
+
+		ImageSize size = new ImageSize(le16(b, 6), le16(b, 8), sourceResolution);
+		size.calcSizeFromPixels();
+		return newImageInfo(uri, ContentTypes.IMAGE_GIF, size);
+	}
+
+	private static ImageInfo sniffBMP(byte[] b, String uri, double sourceResolution) {
+
+		if (b.length<46
+				|| le32(b, 14)<40) {
+			// OS/2 style BITMAPCOREHEADER
+			return null;
+		}
+		ImageSize size = new ImageSize();
+		// height is negative for a top-down bitmap
+		size.setSizeInPixels(le32(b, 18), Math.abs(le32(b, 22)));
+
+		// pixels per metre
+		double xRes = UnitConv.in2mm(le32(b, 38) / 1000d);
+		double yRes = UnitConv.in2mm(le32(b, 42) / 1000d);
+		size.setResolution(xRes==0 ? sourceResolution : xRes,
+				yRes==0 ? sourceResolution : yRes);
+		size.calcSizeFromPixels();
+		return newImageInfo(uri, ContentTypes.IMAGE_BMP, size);
+	}
+
+	private static ImageInfo sniffTIFF(byte[] b, String uri, double sourceResolution) throws Exception {
+
+		TIFFDirectory dir = new TIFFDirectory(
+				new MemoryCacheSeekableStream(new ByteArrayInputStream(b)), 0);
+
+		ImageSize size = new ImageSize();
+		size.setSizeInPixels((int)dir.getFieldAsLong(256), (int)dir.getFieldAsLong(257));
+
+		int unit = 2; // inch, by default
+		if (dir.isTagPresent(296)) {
+			unit = (int)dir.getFieldAsLong(296);
+		}
+		TIFFField xRes = dir.getField(282);
+		TIFFField yRes = dir.getField(283);
+		if ((unit==2 || unit==3)
+				&& xRes!=null && yRes!=null
+				&& xRes.getAsFloat(0)!=0 && yRes.getAsFloat(0)!=0) {
+
+			if (unit==2) {
+				size.setResolution(xRes.getAsFloat(0), yRes.getAsFloat(0));
+			} else {
+				// per cm
+				size.setResolution(UnitConv.in2mm(xRes.getAsFloat(0)) / 10,
+						UnitConv.in2mm(yRes.getAsFloat(0)) / 10);
+			}
+		} else {
+			size.setResolution(sourceResolution);
+		}
+		size.calcSizeFromPixels();
+		return newImageInfo(uri, ContentTypes.IMAGE_TIFF, size);
+	}
+
+	private static ImageInfo sniffEMF(byte[] b, String uri) {
+
+		// As xmlgraphics' PreloaderEMF: the frame (in .01mm), and the
+		// reference device's size in pixels and mm
+		int width = le32(b, 32);
+		int height = le32(b, 36);
+		long hresPixel = le32(b, 72) & 0xFFFFFFFFL;
+		long vresPixel = le32(b, 76) & 0xFFFFFFFFL;
+		long hresMM = le32(b, 80) & 0xFFFFFFFFL;
+		long vresMM = le32(b, 84) & 0xFFFFFFFFL;
+
+		ImageSize size = new ImageSize();
+		size.setResolution(hresPixel / UnitConv.mm2in(hresMM),
+				vresPixel / UnitConv.mm2in(vresMM));
+		size.setSizeInMillipoints(
+				(int)Math.round(UnitConv.mm2mpt(width / 100f)),
+				(int)Math.round(UnitConv.mm2mpt(height / 100f)));
+		size.calcPixelsFromSize();
+		return newImageInfo(uri, ContentTypes.IMAGE_EMF2, size);
+	}
+
+	private static ImageInfo sniffWMF(byte[] b, String uri) {
+
+		// Placeable metafile header: bounding box in metafile units,
+		// and the number of those units per inch
+		int left = (short)le16(b, 6);
+		int top = (short)le16(b, 8);
+		int right = (short)le16(b, 10);
+		int bottom = (short)le16(b, 12);
+		int unitsPerInch = le16(b, 14);
+		if (unitsPerInch==0) {
+			return null;
+		}
+
+		ImageSize size = new ImageSize();
+		size.setSizeInPixels(Math.abs(right-left), Math.abs(bottom-top));
+		size.setResolution(unitsPerInch);
+		size.calcSizeFromPixels();
+		return newImageInfo(uri, ContentTypes.IMAGE_WMF, size);
+	}
+
+	private static ImageInfo newImageInfo(String uri, String mimeType, ImageSize size) {
+
+		ImageInfo info = new ImageInfo(uri, mimeType);
+		info.setSize(size);
+		return info;
+	}
+
+	private static int u8(byte[] b, int pos) {
+		return b[pos] & 0xFF;
+	}
+
+	private static int be16(byte[] b, int pos) {
+		return (u8(b, pos) << 8) | u8(b, pos+1);
+	}
+
+	private static int be32(byte[] b, int pos) {
+		return (be16(b, pos) << 16) | be16(b, pos+2);
+	}
+
+	private static int le16(byte[] b, int pos) {
+		return u8(b, pos) | (u8(b, pos+1) << 8);
+	}
+
+	private static int le32(byte[] b, int pos) {
+		return le16(b, pos) | (le16(b, pos+2) << 16);
+	}
+
+}
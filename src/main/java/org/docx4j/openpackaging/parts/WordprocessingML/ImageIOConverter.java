@@ -0,0 +1,160 @@
+package org.docx4j.openpackaging.parts.WordprocessingML;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.docx4j.Docx4jProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts any raster image ImageIO can read (including formats 
+ * added by ImageIO plugins on the classpath) to PNG, in-process.
+ * 
+ * It can't render vector formats such as EPS or PDF; 
+ * those are left for the next converter.
+ * 
+ * Decoding a large image takes a lot of memory, so conversions 
+ * are done on a bounded pool of worker threads (docx4j property
+ * docx4j.openpackaging.parts.WordprocessingML.ImageIOConverter.threads,
+ * default the number of processors); callers wait their turn.
+ * 
+ * @since 3.2.2
+ */
+public class ImageIOConverter implements ImageConverter {
+	
+	protected static Logger log = LoggerFactory.getLogger(ImageIOConverter.class);
+	
+	private static final double METRES_PER_INCH = 0.0254;
+	
+	private final ExecutorService executor;
+	
+	public ImageIOConverter() {
+		this(Integer.parseInt(Docx4jProperties.getProperty("docx4j.openpackaging.parts.WordprocessingML.ImageIOConverter.threads", 
+				Integer.toString(Runtime.getRuntime().availableProcessors()))));
+	}
+	
+	/**
+	 * @param threads the maximum number of images to convert at once
+	 */
+	public ImageIOConverter(int threads) {
+		
+		final AtomicInteger count = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "docx4j-ImageIOConverter-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	public boolean convertToPNG(final byte[] image, OutputStream os, final int density) throws IOException {
+
+		byte[] png;
+		try {
+			png = executor.submit(new Callable<byte[]>() {
+				public byte[] call() throws IOException {
+					return convert(image, density);
+				}
+			}).get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("Interrupted waiting for image conversion");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException)e.getCause();
+			}
+			throw new IOException("Image conversion failed: " + e.getCause());
+		}
+		
+		if (png==null) {
+			return false;
+		}
+		os.write(png);
+		os.flush();
+		return true;
+	}
+	
+	/**
+	 * @return the PNG, or null if ImageIO can't read the image
+	 */
+	private static byte[] convert(byte[] image, int density) throws IOException {
+		
+		long startTime = System.currentTimeMillis();
+		
+		BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(image));
+		if (bufferedImage==null) {
+			log.debug("No ImageIO reader for this image");
+			return null;
+		}
+		
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+		if (!writers.hasNext()) {
+			// Shouldn't happen; the JRE includes one
+			log.error("No ImageIO PNG writer");
+			return null;
+		}
+		ImageWriter writer = writers.next();
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageOutputStream ios = ImageIO.createImageOutputStream(baos);
+		try {
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			IIOMetadata metadata = writer.getDefaultImageMetadata(
+					ImageTypeSpecifier.createFromRenderedImage(bufferedImage), param);
+			setDensity(metadata, density);
+			
+			writer.setOutput(ios);
+			writer.write(null, new IIOImage(bufferedImage, null, metadata), param);
+		} finally {
+			writer.dispose();
+			ios.close();
+		}
+		
+		log.debug("Converted " + bufferedImage.getWidth() + "x" + bufferedImage.getHeight() 
+				+ " image to PNG in " + (System.currentTimeMillis()-startTime) + "ms");
+		return baos.toByteArray();
+	}
+	
+	/**
+	 * Record the density in the PNG's pHYs chunk, as imconvert -density does.
+	 */
+	private static void setDensity(IIOMetadata metadata, int density) {
+		
+		String pixelsPerMetre = Long.toString(Math.round(density / METRES_PER_INCH));
+		
+		IIOMetadataNode pHYs = new IIOMetadataNode("pHYs");
+		pHYs.setAttribute("pixelsPerUnitXAxis", pixelsPerMetre);
+		pHYs.setAttribute("pixelsPerUnitYAxis", pixelsPerMetre);
+		pHYs.setAttribute("unitSpecifier", "meter");
+		
+		IIOMetadataNode root = new IIOMetadataNode("javax_imageio_png_1.0");
+		root.appendChild(pHYs);
+		try {
+			metadata.mergeTree("javax_imageio_png_1.0", root);
+		} catch (Exception e) {
+			log.warn("Couldn't set PNG density: " + e.getMessage());
+		}
+	}
+
+}
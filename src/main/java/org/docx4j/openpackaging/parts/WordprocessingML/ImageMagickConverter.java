@@ -0,0 +1,130 @@
+package org.docx4j.openpackaging.parts.WordprocessingML;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts an image to PNG using ImageMagick, in a subprocess.  
+ * This requires ImageMagick to be on your system's path (renamed to 
+ * imconvert); for EPS and PDF images, Ghostscript is also required.
+ * 
+ * This can handle vector formats which ImageIOConverter can't,
+ * but starting a process per image is expensive, so it is
+ * only used as a fallback.  To disable it, set docx4j property
+ * docx4j.openpackaging.parts.WordprocessingML.ImageMagickConverter.enabled
+ * to false.
+ * 
+ * @since 3.2.2
+ */
+public class ImageMagickConverter implements ImageConverter {
+	
+	protected static Logger log = LoggerFactory.getLogger(ImageMagickConverter.class);
+
+	public boolean convertToPNG(byte[] image, OutputStream os, int density) throws IOException {
+		
+		/*
+		 * See http://www.eichberger.de/2006/05/imagemagick-in-servlets.html
+		 * 
+		 * "Calling 'convert - png:-' as an external command and feeding it the 
+		 * source image as standard input and reading the converted image 
+		 * (in this case png) as standard output"
+		 * 
+		 */
+		
+		log.info("Start ImageMagick...");
+		Process p;
+		try {
+			p = Runtime.getRuntime().exec("imconvert -density " + density + " -units PixelsPerInch - png:-");
+		} catch (IOException e) {
+			log.warn("Couldn't run imconvert; is ImageMagick installed? " + e.getMessage());
+			return false;
+		}
+		
+		// GraphicsMagick is a little quicker than ImageMagick,
+		// but v1.3.3 (of Dec 2008) still has the now fixed in GM bug
+		// whereby the right most ~10% of the resulting image is chopped off
+		//Process p = Runtime.getRuntime().exec("gm convert -density " + density + " -units PixelsPerInch - png:-");  
+		
+		/* On Windows, if this results in "Invalid Parameter",
+		 * then either ImageMagick is not installed,
+		 * or exec is finding the wrong convert
+		 * program.  See http://studio.imagemagick.org/pipermail/magick-users/2005-October/016464.html
+		 * and http://www.imagemagick.org/discourse-server/viewtopic.php?f=1&t=8324&start=0
+		 * 
+		 * Rather than use full path, rename convert to imconvert (which Alfresco and others do)
+		 * 
+		 */
+		
+		// Buffer the output, so nothing is written to os if conversion fails
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		
+		//initialize Gobblers
+		StreamGobbler inGobbler = new StreamGobbler(p.getInputStream(), png);
+		StreamGobbler errGobbler = new StreamGobbler(p.getErrorStream(), System.err);
+		//start them
+		inGobbler.start();
+		errGobbler.start();
+		
+		// p.getOutputStream() is the _output stream_ of the subprocess, so
+		// this copies the image into the standard input stream of the process 
+		try {
+			BinaryPartAbstractImage.copy2(new ByteArrayInputStream(image), 
+					new BufferedOutputStream(p.getOutputStream()));
+			p.getOutputStream().close();
+			log.debug("Image copied...");
+		} catch (IOException ioe) {
+			// eg imconvert exited early; its exit value will tell us
+			log.error(ioe.getMessage(), ioe);
+		}
+		
+		int exitValue;
+		try {
+			exitValue = p.waitFor();
+			inGobbler.join();
+		} catch (InterruptedException e) {
+			p.destroy();
+			throw new InterruptedIOException("Interrupted waiting for ImageMagick");
+		}
+		log.debug("End Process...");
+		
+		if (exitValue != 0 
+				|| png.size()==0) {
+			log.error("ImageMagick failed, exit value " + exitValue);
+			return false;
+		}
+		png.writeTo(os);
+		os.flush();
+		return true;
+	}
+
+	private static class StreamGobbler extends Thread {
+		// The term "StreamGobbler" was taken from an article called "When Runtime.exec() won't", 
+		// see http://www.javaworld.com/javaworld/jw-12-2000/jw-1229-traps.html.
+		
+		private InputStream is;
+		private OutputStream os;
+		
+		StreamGobbler(InputStream is, OutputStream redirect) {
+			this.is = new BufferedInputStream(is);
+			this.os = redirect;
+		}
+		
+		public void run() {
+			try {
+				BinaryPartAbstractImage.copy2(is, os);
+			} catch (IOException ioe) {
+				log.error(ioe.getMessage(), ioe);
+			}
+		}
+	}
+
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 
 import org.docx4j.Docx4jProperties;
+import org.docx4j.fonts.EmbeddedFonts;
 import org.docx4j.fonts.fop.fonts.CustomFont;
 import org.docx4j.fonts.fop.fonts.EncodingMode;
 import org.docx4j.fonts.fop.fonts.FontLoader;
@@ -120,6 +121,11 @@ public class ObfuscatedFontPart extends BinaryPart {
 	/**
 	 * deObfuscate this font, and save it using fontName
 	 * 
+	 * If docx4j property docx4j.openpackaging.parts.WordprocessingML.ObfuscatedFontPart.inMemory
+	 * is true, the font isn't saved to the temporary embedded fonts dir;
+	 * instead it is kept in memory (see EmbeddedFonts), and fonts with
+	 * the same content are only parsed once.
+	 * 
 	 * @param fontName - the name to save the font as. We
 	 * could read the font name from the deObfuscated data,
 	 * but FontLoader can't readily load from a byte array. 
@@ -162,6 +168,13 @@ public class ObfuscatedFontPart extends BinaryPart {
 			}
 		}
 		
+		if (Docx4jProperties.getProperty("docx4j.openpackaging.parts.WordprocessingML.ObfuscatedFontPart.inMemory", false)) {
+			// Add this font to our known physical fonts, 
+			// without writing it to disk
+			EmbeddedFonts.register(fontName, fontData);
+			return;
+		}
+		
 		// Save the result
 		java.io.File f = new File(tmpFontDir, fontName +".ttf"); 
 		String path = null; 
@@ -54,7 +54,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
@@ -509,30 +511,7 @@ public final class RelationshipsPart extends JaxbXmlPart<Relationships> {
 		}
 				
 		// First work out what the target would be
-
-		URI tobeRelativized = part.getPartName().getURI();
-		URI relativizeAgainst = sourceP.getPartName().getURI();
-		
-		log.debug("Relativising target " + tobeRelativized 
-				+ " against source " + relativizeAgainst);
-		
-		String target = URIHelper.relativizeURI(relativizeAgainst, 
-				tobeRelativized).toString(); 
-		
-		if (relativizeAgainst.getPath().equals("/")
-				&& target.startsWith("/")) {
-			
-			/*
-			 * Relativising target /word/document.xml against source / 
-			 * Result /word/document.xml
-			 * 
-			 * but we want word/document.xml
-			 */		
-			
-			target = target.substring(1);
-		}
-				
-		log.debug("Result " + target); 
+		String target = getRelativeTarget(part);
 		
 		// Check whether we already have a rel with this target
 		// This code is a bit more efficient than getRel, since it
@@ -599,19 +578,7 @@ public final class RelationshipsPart extends JaxbXmlPart<Relationships> {
 		
 		addRelationship(rel );
 		
-    	String ext = part.getPartName().getExtension();
-		
-		// Add an override to ContentTypeManager
-		if ( part.getContentType().equals( ContentTypes.IMAGE_JPEG) ) {
-			ctm.addDefaultContentType(ext,ContentTypes.IMAGE_JPEG );
-		} else if ( part.getContentType().equals( ContentTypes.EXTENSION_GIF ) ) {
-			ctm.addDefaultContentType(ext, ContentTypes.EXTENSION_GIF);
-		} else if ( part.getContentType().equals( ContentTypes.EXTENSION_PNG ) ) {
-			ctm.addDefaultContentType(ext, ContentTypes.IMAGE_PNG);			
-			// TODO - other content types!
-		} else {
-			ctm.addOverrideContentType(part.getPartName().getURI(), part.getContentType());
-		}
+		addContentType(part, ctm);
 		
 		if (this.getPackage().getParts().get( newPartName )!=null) {
 
@@ -645,6 +612,118 @@ public final class RelationshipsPart extends JaxbXmlPart<Relationships> {
 	}
 	
 
+	/**
+	 * Add newly created parts, relationships to them, and their 
+	 * content types, in one go.  
+	 * 
+	 * This is cheaper than calling addPart for each of them, 
+	 * since the existing relationship ids and targets are only 
+	 * looked at once, rather than for each part.  So it is the
+	 * way to add thousands of parts (eg slides).
+	 * 
+	 * The parts' names must not already be in use in the package.
+	 * 
+	 * @param parts
+	 *            The parts to add.
+	 * @param ctm
+	 *            Content type manager
+	 * @return The relationships, in the same order as the parts
+	 * @since 3.2.2
+	 */
+	public List<Relationship> addParts(List<? extends Part> parts, 
+			ContentTypeManager ctm) throws InvalidFormatException {
+		
+		Set<String> ids = new HashSet<String>();
+		for (Relationship existing : jaxbElement.getRelationship() ) {
+			ids.add(existing.getId());
+		}
+		Set<PartName> names = new HashSet<PartName>();
+		for (Part part : parts) {
+			if (this.getPackage().getParts().get(part.getPartName())!=null
+					|| !names.add(part.getPartName())) {
+				throw new InvalidFormatException("Part name " + part.getPartName().getName() + " is already in use");
+			}
+		}
+		
+		org.docx4j.relationships.ObjectFactory factory =
+			new org.docx4j.relationships.ObjectFactory();
+		
+		List<Relationship> rels = new ArrayList<Relationship>(parts.size());
+		for (Part part : parts) {
+			
+			Relationship rel = factory.createRelationship();
+			rel.setTarget(getRelativeTarget(part));
+			rel.setType( part.getRelationshipType() );
+			
+			// As getNextId, but without looking through the rels each time
+			String id;
+	    	do {
+	    		id = "rId" + nextId;
+	    		nextId++;
+	    	} while (ids.contains(id));
+	    	ids.add(id);
+			rel.setId(id);
+			
+			jaxbElement.getRelationship().add(rel);
+			rel.setParent(jaxbElement);
+			
+			addContentType(part, ctm);
+			loadPart(part, rel);
+			rels.add(rel);
+		}
+		log.debug("Added " + parts.size() + " parts");
+		return rels;
+	}
+	
+	/**
+	 * @param part
+	 * @return the target of a relationship from our source to the part
+	 */
+	private String getRelativeTarget(Part part) {
+
+		URI tobeRelativized = part.getPartName().getURI();
+		URI relativizeAgainst = sourceP.getPartName().getURI();
+		
+		log.debug("Relativising target " + tobeRelativized 
+				+ " against source " + relativizeAgainst);
+		
+		String target = URIHelper.relativizeURI(relativizeAgainst, 
+				tobeRelativized).toString(); 
+		
+		if (relativizeAgainst.getPath().equals("/")
+				&& target.startsWith("/")) {
+			
+			/*
+			 * Relativising target /word/document.xml against source / 
+			 * Result /word/document.xml
+			 * 
+			 * but we want word/document.xml
+			 */		
+			
+			target = target.substring(1);
+		}
+				
+		log.debug("Result " + target); 
+		return target;
+	}
+	
+	private static void addContentType(Part part, ContentTypeManager ctm) {
+		
+    	String ext = part.getPartName().getExtension();
+		
+		// Add an override to ContentTypeManager
+		if ( part.getContentType().equals( ContentTypes.IMAGE_JPEG) ) {
+			ctm.addDefaultContentType(ext,ContentTypes.IMAGE_JPEG );
+		} else if ( part.getContentType().equals( ContentTypes.EXTENSION_GIF ) ) {
+			ctm.addDefaultContentType(ext, ContentTypes.EXTENSION_GIF);
+		} else if ( part.getContentType().equals( ContentTypes.EXTENSION_PNG ) ) {
+			ctm.addDefaultContentType(ext, ContentTypes.IMAGE_PNG);			
+			// TODO - other content types!
+		} else {
+			ctm.addOverrideContentType(part.getPartName().getURI(), part.getContentType());
+		}
+	}
+
 	/**
 	 * Add the specified relationship to the collection.
 	 * 
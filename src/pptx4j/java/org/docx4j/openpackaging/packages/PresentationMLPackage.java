@@ -52,6 +52,7 @@ import org.docx4j.openpackaging.parts.relationships.Namespaces;
 import org.docx4j.utils.ResourceUtils;
 import org.docx4j.wml.Style;
 import org.pptx4j.convert.out.svginhtml.SvgExporter;
+import org.pptx4j.model.LayoutCache;
 import org.pptx4j.model.ShapeWrapper;
 import org.pptx4j.model.SlideSizesWellKnown;
 import org.pptx4j.model.TextStyles;
@@ -290,29 +291,28 @@ public class PresentationMLPackage  extends OpcPackage {
 + "</p:sp>";
 
 	
-	Map<String, ShapeWrapper> globalPlaceHolders;
+	/**
+	 * For slides which don't reference a layout.
+	 * 
+	 * @return the placeholders from all the layouts in the package, keyed by type
+	 */
 	public Map<String, ShapeWrapper> getPlaceHoldersFromAcrossLayouts() {
 		
-		if (globalPlaceHolders!=null) {
-			return globalPlaceHolders;
+		return getLayoutCache().getPlaceHoldersFromAcrossLayouts();
+	}
+	
+	private LayoutCache layoutCache;
+	/**
+	 * The resolved masters, layouts and slides in this package, 
+	 * and their placeholders.
+	 * 
+	 * @since 3.2.2
+	 */
+	public synchronized LayoutCache getLayoutCache() {
+		if (layoutCache==null) {
+			layoutCache = new LayoutCache(this);
 		}
-		
-		// All this for the 16 possible things defined in STPlaceholderType!
-		
-		Map<String, ShapeWrapper> globalPlaceHolders = new HashMap<String, ShapeWrapper>();
-		
-		Iterator partIterator = this.getParts().getParts().entrySet().iterator();
-	    while (partIterator.hasNext()) {
-	    	
-	        Map.Entry pairs = (Map.Entry)partIterator.next();
-	        
-	        Part p = (Part)pairs.getValue();
-	        if (p instanceof SlideLayoutPart) {
-	        	SldLayout sldLayout = ((SlideLayoutPart)p).getJaxbElement();	        	
-	        	globalPlaceHolders.putAll( ((SlideLayoutPart)p).getIndexedPlaceHolders()  );
-	        }
-	    }
-	    return globalPlaceHolders;
+		return layoutCache;
 	}
 	
 	private StyleTree styleTree;
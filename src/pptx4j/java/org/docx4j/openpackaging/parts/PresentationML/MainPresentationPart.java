@@ -20,18 +20,30 @@
 
 package org.docx4j.openpackaging.parts.PresentationML;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.docx4j.XmlUtils;
 import org.docx4j.dml.CTPositiveSize2D;
+import org.docx4j.jaxb.JaxbValidationEventHandler;
+import org.docx4j.openpackaging.URIHelper;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
 import org.docx4j.openpackaging.parts.Part;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
 import org.docx4j.openpackaging.parts.relationships.RelationshipsPart.AddPartBehaviour;
 import org.docx4j.relationships.Relationship;
 import org.pptx4j.Pptx4jException;
@@ -40,6 +52,7 @@ import org.pptx4j.model.SlideSizesWellKnown;
 import org.pptx4j.pml.ObjectFactory;
 import org.pptx4j.pml.Presentation;
 import org.pptx4j.pml.Presentation.SldIdLst.SldId;
+import org.pptx4j.pml.Sld;
 
 
 
@@ -410,6 +423,183 @@ public final class MainPresentationPart extends JaxbPmlPart<Presentation> {
 		}
 	}
 	
+	private final static Pattern SLIDE_PART_NAME = Pattern.compile("/ppt/slides/slide(\\d+)\\.xml");
+	
+	// See spec 4.8.17 (ST_SlideId)
+	private final static long MAX_SLIDE_ID = 2147483647L;
+	
+	/**
+	 * Append count copies of the template slide to the presentation,
+	 * in one operation.  Use this rather than addSlide to add 
+	 * many slides (eg thousands of near identical slides for a report):
+	 * 
+	 * - the template is marshalled once, and each copy unmarshalled from that
+	 *   (rather than XmlUtils.deepCopy, which does both for each copy)
+	 * 
+	 * - the new part names, relationship ids and slide ids are worked out 
+	 *   once, rather than by looking through the existing ones for each slide 
+	 *   (the slide ids are consecutive, rather than random)
+	 * 
+	 * The copies have the same relationships (with the same ids) as 
+	 * the template, to the same parts, so they share its slide layout, 
+	 * images, charts and so on.  The exceptions are the template's notes 
+	 * and comments, which aren't copied.
+	 * 
+	 * Note that this includes chart parts and embedded objects (OLE 
+	 * objects and packages, eg a chart's workbook): these aren't copied 
+	 * either, so changing the template's chart changes it on every copy.  
+	 * If each slide needs its own chart data, don't use this for a
+	 * template with charts; or give each copy its own chart part 
+	 * (with its own embedded workbook) afterwards.
+	 * 
+	 * The copies are named /ppt/slides/slideN.xml, numbered on from the
+	 * highest numbered slide in the package.
+	 * 
+	 * @param template a slide in this presentation
+	 * @param count the number of copies (0 or more)
+	 * @return the new slides
+	 * @throws Pptx4jException if count is negative, or there aren't 
+	 * count unused slide ids (in which case, nothing is added)
+	 * @since 3.2.2
+	 */
+	public List<SlidePart> addSlides(SlidePart template, int count) throws Pptx4jException {
+		
+		if (count<0) {
+			throw new Pptx4jException("Can't add " + count + " slides");
+		}
+		ensureContent();
+		ensureSldIdLst();
+		if (template.getPackage()!=this.getPackage()) {
+			throw new Pptx4jException("The template slide must be in this presentation");
+		}
+		long startTime = System.currentTimeMillis();
+		
+		// Slide ids, worked out before anything is added
+		List<SldId> sldIds = this.getJaxbElement().getSldIdLst().getSldId();
+		long[] ids = slideIds(sldIds, count);
+		
+		try {
+			// Marshal the template once
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			template.marshal(baos);
+			byte[] bytes = baos.toByteArray();
+			Unmarshaller u = Context.jcPML.createUnmarshaller();
+			u.setEventHandler(new JaxbValidationEventHandler());
+			
+			int number = 0;
+			for (PartName name : this.getPackage().getParts().getParts().keySet()) {
+				Matcher m = SLIDE_PART_NAME.matcher(name.getName());
+				if (m.matches()) {
+					number = Math.max(number, Integer.parseInt(m.group(1)));
+				}
+			}
+			
+			List<SlidePart> slides = new ArrayList<SlidePart>(count);
+			for (int i=0; i<count; i++) {
+				number++;
+				SlidePart slidePart = new SlidePart(new PartName("/ppt/slides/slide" + number + ".xml"));
+				slidePart.setJaxbElement(
+						(Sld)XmlUtils.unwrap(u.unmarshal(new ByteArrayInputStream(bytes))));
+				slides.add(slidePart);
+			}
+			
+			List<Relationship> rels = this.getRelationshipsPart().addParts(slides, 
+					this.getPackage().getContentTypeManager());
+			
+			for (int i=0; i<rels.size(); i++) {
+				Presentation.SldIdLst.SldId entry = Context.getpmlObjectFactory().createPresentationSldIdLstSldId();
+				entry.setId(ids[i]);
+				entry.setRid(rels.get(i).getId());
+				sldIds.add(entry);
+			}
+			
+			// The copies share the template's targets.  They are in the same 
+			// directory as each other, so the relative targets are the same.
+			RelationshipsPart templateRels = template.getRelationshipsPart(false);
+			if (templateRels!=null && count>0) {
+				
+				org.docx4j.relationships.ObjectFactory factory =
+					new org.docx4j.relationships.ObjectFactory();
+				URI source = slides.get(0).getPartName().getURI();
+				
+				for (Relationship rel : templateRels.getRelationships().getRelationship()) {
+					
+					if (Namespaces.PRESENTATIONML_NOTES_SLIDE.equals(rel.getType())
+							|| Namespaces.PRESENTATIONML_COMMENTS.equals(rel.getType())) {
+						log.debug("Not copying " + rel.getTarget());
+						continue;
+					}
+					Part target = null;
+					String relativeTarget = rel.getTarget();
+					if (rel.getTargetMode()==null 
+							|| !rel.getTargetMode().equals("External")) {
+						target = templateRels.getPart(rel);
+						if (target==null) {
+							log.warn("Not copying " + rel.getId() + ", since its target " + rel.getTarget() + " is missing");
+							continue;
+						}
+						relativeTarget = URIHelper.relativizeURI(source, target.getPartName().getURI()).toString();
+					}
+					
+					for (SlidePart slidePart : slides) {
+						Relationship copy = factory.createRelationship();
+						copy.setId(rel.getId());
+						copy.setType(rel.getType());
+						copy.setTarget(relativeTarget);
+						copy.setTargetMode(rel.getTargetMode());
+						slidePart.getRelationshipsPart().addRelationship(copy);
+						if (target!=null) {
+							target.getSourceRelationships().add(copy);
+							slidePart.setPartShortcut(target, rel.getType());
+						}
+					}
+				}
+			}
+			
+			log.info("Added " + count + " slides in " + (System.currentTimeMillis()-startTime) + "ms");
+			return slides;
+			
+		} catch (JAXBException e) {
+			throw new Pptx4jException(e.getMessage(), e);
+		} catch (InvalidFormatException e) {
+			throw new Pptx4jException(e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * @return count unused slide ids: following the highest existing one 
+	 * if there is room, otherwise the gaps from 256
+	 * @throws Pptx4jException if there aren't that many unused ids
+	 */
+	private static long[] slideIds(List<SldId> sldIds, int count) throws Pptx4jException {
+		
+		Set<Long> usedIds = new HashSet<Long>();
+		long nextId = 255;
+		for (SldId sldId : sldIds) {
+			if (sldId.getId()>=256 && sldId.getId()<=MAX_SLIDE_ID) {
+				usedIds.add(sldId.getId());
+			}
+			nextId = Math.max(nextId, sldId.getId());
+		}
+		nextId++;
+		if (nextId + count - 1 > MAX_SLIDE_ID) {
+			if (usedIds.size() + (long)count > MAX_SLIDE_ID - 255) {
+				throw new Pptx4jException("Can't add " + count + " slides: only " 
+						+ (MAX_SLIDE_ID - 255 - usedIds.size()) + " slide ids are unused");
+			}
+			// Fill in the gaps instead
+			nextId = 256;
+		}
+		long[] ids = new long[count];
+		for (int i=0; i<count; i++) {
+			while (usedIds.contains(nextId)) {
+				nextId++;
+			}
+			ids[i] = nextId++;
+		}
+		return ids;
+	}
+	
 	private Presentation.SldIdLst.SldId createSlideIdListEntry(Relationship rel) throws InvalidFormatException {	
 			
 		Presentation.SldIdLst.SldId entry = Context.getpmlObjectFactory().createPresentationSldIdLstSldId();
@@ -20,25 +20,23 @@
 
 package org.docx4j.openpackaging.parts.PresentationML;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import javax.xml.bind.JAXBException;
 
 import org.docx4j.XmlUtils;
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
+import org.docx4j.openpackaging.packages.PresentationMLPackage;
 import org.docx4j.openpackaging.parts.Part;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
 import org.docx4j.relationships.Relationship;
 import org.pptx4j.jaxb.Context;
+import org.pptx4j.model.LayoutCache;
 import org.pptx4j.model.ResolvedLayout;
 import org.pptx4j.model.ShapeWrapper;
-import org.pptx4j.pml.CTPlaceholder;
 import org.pptx4j.pml.CommonSlideData;
 import org.pptx4j.pml.ObjectFactory;
-import org.pptx4j.pml.Shape;
 import org.pptx4j.pml.SldLayout;
 
 
@@ -109,7 +107,15 @@ public final class SlideLayoutPart extends JaxbPmlPart<SldLayout> {
 	
 	
 	private ResolvedLayout resolvedLayout;
+	/**
+	 * For a layout in a PresentationMLPackage, this comes from the 
+	 * package's LayoutCache, so it is resolved again if this layout 
+	 * or its master changes.
+	 */
 	public ResolvedLayout getResolvedLayout() {
+		if (getPackage() instanceof PresentationMLPackage) {
+			return ((PresentationMLPackage)getPackage()).getLayoutCache().getResolvedLayout(this);
+		}
 		if (resolvedLayout!=null) {
 			return resolvedLayout;		
 		}
@@ -132,49 +138,21 @@ public final class SlideLayoutPart extends JaxbPmlPart<SldLayout> {
 	}
 	
 	Map<String, ShapeWrapper> indexedPlaceHolders;
+	/**
+	 * For a layout in a PresentationMLPackage, this comes from the 
+	 * package's LayoutCache.
+	 */
 	public Map<String, ShapeWrapper> getIndexedPlaceHolders() {
+		if (getPackage() instanceof PresentationMLPackage) {
+			return ((PresentationMLPackage)getPackage()).getLayoutCache().getIndexedPlaceHolders(this);
+		}
 		if (indexedPlaceHolders==null) {
-			indexPlaceHolders();
+			// The placeholders are resolved against the master.
+			indexedPlaceHolders = LayoutCache.indexPlaceHolders(
+					getResolvedLayout().getShapeTree(), this);
 		}
 		return indexedPlaceHolders;
 	}
 	
-	private Map<String, ShapeWrapper> indexPlaceHolders() {
-		
-		// All this for the 16 possible things defined in STPlaceholderType!
-		
-		indexedPlaceHolders = new HashMap<String, ShapeWrapper>();
-		
-//    	List<Object> possiblyShapes = getJaxbElement().getCSld().getSpTree().getSpOrGrpSpOrGraphicFrame();
-		
-		
-		// The placeholders are resolved against the master.
-		List<Object> possiblyShapes = getResolvedLayout().getShapeTree().getSpOrGrpSpOrGraphicFrame();
-		
-    	
-    	for (Object o : possiblyShapes) {
-    		
-    		if (o instanceof Shape) {
-    			Shape sp = (Shape)o;
-    			if (sp.getNvSpPr()!=null
-    					&& sp.getNvSpPr().getNvPr()!=null
-    						&& sp.getNvSpPr().getNvPr().getPh() != null) {
-    				CTPlaceholder placeholder = sp.getNvSpPr().getNvPr().getPh();
-    				ShapeWrapper sw = new ShapeWrapper(sp, placeholder.getType().toString(),
-    						this);
-    				indexedPlaceHolders.put(sw.getPhType(), sw);
-    				
-    				String name = "";
-    				if (sp.getNvSpPr().getCNvPr()!=null) {
-    					name = sp.getNvSpPr().getCNvPr().getName();
-    				}
-    				
-    				log.debug("Indexed: " + sw.getPhType() + "(" + name + ") in " + sw.getOwner().getPartName().toString() );
-    			}
-    		}
-    	}
-	    return indexedPlaceHolders;
-	}
-	
 
 }
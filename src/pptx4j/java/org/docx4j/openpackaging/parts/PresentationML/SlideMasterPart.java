@@ -20,8 +20,6 @@
 
 package org.docx4j.openpackaging.parts.PresentationML;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import javax.xml.bind.JAXBException;
@@ -29,16 +27,16 @@ import javax.xml.bind.JAXBException;
 import org.docx4j.XmlUtils;
 import org.docx4j.dml.CTColorMapping;
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
+import org.docx4j.openpackaging.packages.PresentationMLPackage;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
 import org.docx4j.relationships.Relationship;
 import org.pptx4j.jaxb.Context;
+import org.pptx4j.model.LayoutCache;
 import org.pptx4j.model.ResolvedLayout;
 import org.pptx4j.model.ShapeWrapper;
-import org.pptx4j.pml.CTPlaceholder;
 import org.pptx4j.pml.CommonSlideData;
 import org.pptx4j.pml.ObjectFactory;
-import org.pptx4j.pml.Shape;
 import org.pptx4j.pml.SldMaster;
 import org.pptx4j.pml.SlideLayoutIdList;
 import org.pptx4j.pml.SlideLayoutIdList.SldLayoutId;
@@ -68,7 +66,14 @@ public final class SlideMasterPart extends JaxbPmlPart<SldMaster> {
 	}
 	
 	private ResolvedLayout resolvedLayout;
+	/**
+	 * For a master in a PresentationMLPackage, this comes from the 
+	 * package's LayoutCache.
+	 */
 	public ResolvedLayout getResolvedLayout() {
+		if (getPackage() instanceof PresentationMLPackage) {
+			return ((PresentationMLPackage)getPackage()).getLayoutCache().getResolvedLayout(this);
+		}
 		if (resolvedLayout!=null) {
 			return resolvedLayout;		
 		}
@@ -114,38 +119,20 @@ public final class SlideMasterPart extends JaxbPmlPart<SldMaster> {
 	}
 	
 	Map<String, ShapeWrapper> indexedPlaceHolders;
+	/**
+	 * For a master in a PresentationMLPackage, this comes from the 
+	 * package's LayoutCache.
+	 */
 	public Map<String, ShapeWrapper> getIndexedPlaceHolders() {
+		if (getPackage() instanceof PresentationMLPackage) {
+			return ((PresentationMLPackage)getPackage()).getLayoutCache().getIndexedPlaceHolders(this);
+		}
 		if (indexedPlaceHolders==null) {
-			indexPlaceHolders();
+			indexedPlaceHolders = LayoutCache.indexPlaceHolders(
+					getJaxbElement().getCSld().getSpTree(), this);
 		}
 		return indexedPlaceHolders;
 	}
 	
-	private Map<String, ShapeWrapper> indexPlaceHolders() {
-		
-		// All this for the 16 possible things defined in STPlaceholderType!
-		
-		indexedPlaceHolders = new HashMap<String, ShapeWrapper>();
-		
-    	List<Object> possiblyShapes = getJaxbElement().getCSld().getSpTree().getSpOrGrpSpOrGraphicFrame();
-    	    	
-    	for (Object o : possiblyShapes) {
-    		
-    		if (o instanceof Shape) {
-    			Shape sp = (Shape)o;
-    			if (sp.getNvSpPr()!=null
-    					&& sp.getNvSpPr().getNvPr()!=null
-    						&& sp.getNvSpPr().getNvPr().getPh() != null) {
-    				CTPlaceholder placeholder = sp.getNvSpPr().getNvPr().getPh();
-    				ShapeWrapper sw = new ShapeWrapper(sp, placeholder.getType().toString(),
-    						this);
-    				indexedPlaceHolders.put(sw.getPhType(), sw);
-    				log.debug("Indexed: " + sw.getPhType() + " in " + sw.getOwner().getPartName().toString() );
-    			}
-    		}
-    	}
-	    return indexedPlaceHolders;
-	}
-	
 
 }
@@ -32,6 +32,7 @@ import org.apache.commons.io.IOUtils;
 import org.docx4j.XmlUtils;
 import org.docx4j.jaxb.JaxbValidationEventHandler;
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
+import org.docx4j.openpackaging.packages.PresentationMLPackage;
 import org.docx4j.openpackaging.parts.Part;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
@@ -82,7 +83,15 @@ public final class SlidePart extends JaxbPmlPart<Sld> {
 	}
 	
 	private ResolvedLayout resolvedLayout;
+	/**
+	 * For a slide in a PresentationMLPackage, this comes from the 
+	 * package's LayoutCache, so it is resolved again if this slide 
+	 * or its layout changes.
+	 */
 	public ResolvedLayout getResolvedLayout() {
+		if (getPackage() instanceof PresentationMLPackage) {
+			return ((PresentationMLPackage)getPackage()).getLayoutCache().getResolvedLayout(this);
+		}
 		if (resolvedLayout!=null) {
 			return resolvedLayout;		
 		}
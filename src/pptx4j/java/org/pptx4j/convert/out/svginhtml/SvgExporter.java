@@ -1,6 +1,14 @@
 package org.pptx4j.convert.out.svginhtml;
 
 import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -11,6 +19,7 @@ import javax.xml.transform.Templates;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.docx4j.Docx4jProperties;
 import org.docx4j.XmlUtils;
 import org.docx4j.convert.out.AbstractConversionSettings;
 import org.docx4j.convert.out.html.HtmlCssHelper;
@@ -148,15 +157,149 @@ public class SvgExporter {
 				Context.jcPML,
 				"http://schemas.openxmlformats.org/presentationml/2006/main", "spTree", GroupShape.class); 	
 
+		settings = initializeSettings(settings);
+		
+		context = new SvgConversionContext(settings, presentationMLPackage, layout);
+		org.docx4j.XmlUtils.transform(doc, xslt, context.getXsltParameters(), result);
+	}
+	
+	private static SvgSettings initializeSettings(SvgSettings settings) {
+		
 		if (settings == null) {
 			settings = new SvgSettings();
 		}
 		if ((settings.getImageDirPath() == null) && (imageDirPath != null)) {
 			settings.setImageDirPath(imageDirPath);
 		}
+		return settings;
+	}
+	
+	/**
+	 * Create an HTML (with SVG) page for each of the slides, on a pool 
+	 * of (at most) the number of threads given by property 
+	 * pptx4j.convert.out.svginhtml.SvgExporter.threads (defaults to
+	 * the number of processors).
+	 * 
+	 * @param presentationMLPackage
+	 * @param slides
+	 * @param settings
+	 * @return the pages, in the same order as the slides
+	 * @throws Docx4JException
+	 * @since 3.2.2
+	 */
+	public static List<String> svg(PresentationMLPackage presentationMLPackage,
+			List<SlidePart> slides, SvgSettings settings) throws Docx4JException {
 		
-		context = new SvgConversionContext(settings, presentationMLPackage, layout);
-		org.docx4j.XmlUtils.transform(doc, xslt, context.getXsltParameters(), result);
+		int threads = Integer.parseInt(
+				Docx4jProperties.getProperty("pptx4j.convert.out.svginhtml.SvgExporter.threads",
+						Integer.toString(Runtime.getRuntime().availableProcessors())));
+		return svg(presentationMLPackage, slides, settings, threads);
+	}
+	
+	/**
+	 * Create an HTML (with SVG) page for each of the slides, on a pool 
+	 * of (at most) the specified number of threads.
+	 * 
+	 * @param presentationMLPackage
+	 * @param slides
+	 * @param settings
+	 * @param threads
+	 * @return the pages, in the same order as the slides
+	 * @throws Docx4JException
+	 * @since 3.2.2
+	 */
+	public static List<String> svg(PresentationMLPackage presentationMLPackage,
+			List<SlidePart> slides, SvgSettings settings, int threads) throws Docx4JException {
+		
+		List<ByteArrayOutputStream> intermediates = new ArrayList<ByteArrayOutputStream>(slides.size());
+		List<Result> results = new ArrayList<Result>(slides.size());
+		for (int i=0; i<slides.size(); i++) {
+			ByteArrayOutputStream intermediate = new ByteArrayOutputStream();
+			intermediates.add(intermediate);
+			results.add(new StreamResult(intermediate));
+		}
+		
+		svg(presentationMLPackage, slides, results, settings, threads);
+		
+		List<String> pages = new ArrayList<String>(slides.size());
+		try {
+			for (ByteArrayOutputStream intermediate : intermediates) {
+				pages.add(intermediate.toString("UTF-8"));
+			}
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			throw new RuntimeException(e);
+		}
+		return pages;
+	}
+	
+	/**
+	 * Write an HTML (with SVG) page for each of the slides to the 
+	 * corresponding result, on a pool of (at most) the specified 
+	 * number of threads.
+	 * 
+	 * What the slides share (the resolved slide layouts and masters,
+	 * their placeholders, and the package's style tree) is worked out 
+	 * once, up front, on this thread.  Each slide's own effective 
+	 * shape tree is then resolved (and kept in the package's 
+	 * LayoutCache) on the pool, as it is converted.
+	 * 
+	 * If settings contains an image handler, it will be used by several 
+	 * threads at once.  A slide shouldn't appear in the list more than once.
+	 * 
+	 * @param presentationMLPackage
+	 * @param slides
+	 * @param results one for each slide
+	 * @param settings
+	 * @param threads
+	 * @throws Docx4JException
+	 * @since 3.2.2
+	 */
+	public static void svg(final PresentationMLPackage presentationMLPackage,
+			final List<SlidePart> slides, final List<? extends Result> results, 
+			SvgSettings settings, int threads) throws Docx4JException {
+		
+		if (results.size()!=slides.size()) {
+			throw new IllegalArgumentException("Got " + results.size() + " results for " + slides.size() + " slides");
+		}
+		if (slides.isEmpty()) {
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		
+		// These are initialised lazily, which isn't safe to do from several threads
+		final SvgSettings sharedSettings = initializeSettings(settings);
+		presentationMLPackage.getStyleTree();
+		// Resolve the layouts now, rather than while the first slides hold up the others 
+		presentationMLPackage.getLayoutCache().getPlaceHoldersFromAcrossLayouts();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, slides.size())));
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>(slides.size());
+			for (int i=0; i<slides.size(); i++) {
+				final SlidePart slide = slides.get(i);
+				final Result result = results.get(i);
+				futures.add(executor.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						svg(presentationMLPackage, slide.getResolvedLayout(), result, sharedSettings);
+						return null;
+					}
+				}));
+			}
+			for (int i=0; i<futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (ExecutionException e) {
+					throw new Docx4JException("Couldn't convert " + slides.get(i).getPartName() 
+							+ ": " + e.getCause().getMessage(), e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new Docx4JException("Interrupted converting slides", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		log.info("Converted " + slides.size() + " slides in " + (System.currentTimeMillis()-startTime) + "ms");
 	}
 
 	public static boolean isDebugEnabled() {
@@ -0,0 +1,315 @@
+/*
+ *  Copyright 2014, Plutext Pty Ltd.
+ *
+ *  This file is part of docx4j.
+
+    docx4j is licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+
+    You may obtain a copy of the License at
+
+        http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+ */
+
+package org.pptx4j.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.docx4j.openpackaging.packages.PresentationMLPackage;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.PresentationML.JaxbPmlPart;
+import org.docx4j.openpackaging.parts.PresentationML.SlideLayoutPart;
+import org.docx4j.openpackaging.parts.PresentationML.SlideMasterPart;
+import org.docx4j.openpackaging.parts.PresentationML.SlidePart;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.openpackaging.parts.relationships.RelationshipsPart;
+import org.docx4j.relationships.Relationship;
+import org.pptx4j.pml.CTPlaceholder;
+import org.pptx4j.pml.GroupShape;
+import org.pptx4j.pml.Shape;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The resolved layouts and placeholder indexes of the slide masters,
+ * slide layouts and slides in a package, so that a deck with hundreds
+ * of slides on a handful of layouts resolves each layout once.
+ *
+ * Each entry remembers the content (JAXB element) of its part, and
+ * the entries it was resolved against (a layout's master, a slide's
+ * layout).  An entry is worked out again when it is next asked for,
+ * if its part's content has been replaced (eg setJaxbElement), or
+ * any of those has been.  So changing a master means its layouts,
+ * and their slides, are resolved again.
+ *
+ * Changes made in place (ie to the existing JAXB objects) can't
+ * be noticed; after making those, invalidate(part) or rescan().
+ *
+ * SlideMasterPart, SlideLayoutPart and SlidePart getResolvedLayout()
+ * and getIndexedPlaceHolders() use this, for parts in a package.
+ * Get the cache for a package via PresentationMLPackage.getLayoutCache().
+ *
+ * Thread safe.  A slide is resolved outside the lock, so several
+ * slides can be resolved at once (see SvgExporter).
+ *
+ * @since 3.2.2
+ */
+public class LayoutCache {
+
+	protected static Logger log = LoggerFactory.getLogger(LayoutCache.class);
+
+	private static class Entry {
+
+		/**
+		 * The part's JAXB element, when this was resolved.
+		 * Null for the placeholders from across layouts.
+		 */
+		Object contents;
+
+		/**
+		 * The entries this was resolved against.
+		 */
+		List<Entry> bases;
+
+		ResolvedLayout resolvedLayout;
+		Map<String, ShapeWrapper> placeHolders;
+
+		Entry(Object contents, List<Entry> bases) {
+			this.contents = contents;
+			this.bases = bases;
+		}
+
+		boolean isCurrent(Object contents, List<Entry> bases) {
+			// Entry doesn't override equals, so this compares the bases by identity
+			return this.contents==contents
+					&& this.bases.equals(bases);
+		}
+	}
+
+	private PresentationMLPackage pmlPackage;
+
+	private Map<Part, Entry> entries = new IdentityHashMap<Part, Entry>();
+
+	private Entry acrossLayouts = null;
+
+	public LayoutCache(PresentationMLPackage pmlPackage) {
+		this.pmlPackage = pmlPackage;
+	}
+
+	/**
+	 * @param master
+	 * @return the master's background and shape tree
+	 */
+	public synchronized ResolvedLayout getResolvedLayout(SlideMasterPart master) {
+		return entry(master).resolvedLayout;
+	}
+
+	/**
+	 * @param master
+	 * @return the master's placeholders, keyed by type
+	 */
+	public synchronized Map<String, ShapeWrapper> getIndexedPlaceHolders(SlideMasterPart master) {
+		return entry(master).placeHolders;
+	}
+
+	/**
+	 * @param layout
+	 * @return the layout, resolved against its master
+	 */
+	public synchronized ResolvedLayout getResolvedLayout(SlideLayoutPart layout) {
+		return entry(layout).resolvedLayout;
+	}
+
+	/**
+	 * @param layout
+	 * @return the placeholders in the layout (resolved against its master), keyed by type
+	 */
+	public synchronized Map<String, ShapeWrapper> getIndexedPlaceHolders(SlideLayoutPart layout) {
+		return entry(layout).placeHolders;
+	}
+
+	/**
+	 * For slides which don't reference a layout.
+	 *
+	 * @return the placeholders from all the layouts in the package, keyed by type
+	 */
+	public synchronized Map<String, ShapeWrapper> getPlaceHoldersFromAcrossLayouts() {
+		return acrossLayouts().placeHolders;
+	}
+
+	/**
+	 * @param slide
+	 * @return the slide, resolved against its layout
+	 */
+	public ResolvedLayout getResolvedLayout(SlidePart slide) {
+
+		Object contents = slide.getJaxbElement();
+		List<Entry> bases;
+		synchronized (this) {
+			bases = bases(slide);
+			Entry entry = entries.get(slide);
+			if (entry!=null
+					&& entry.isCurrent(contents, bases)) {
+				return entry.resolvedLayout;
+			}
+		}
+
+		// The layouts are resolved by now; a slide is only
+		// resolved against them, so that needn't hold the lock
+		Entry entry = new Entry(contents, bases);
+		entry.resolvedLayout = ResolvedLayout.resolveSlideLayout(slide);
+		synchronized (this) {
+			entries.put(slide, entry);
+		}
+		return entry.resolvedLayout;
+	}
+
+	/**
+	 * Forget what we know about the part, after changing
+	 * its content in place.  Anything resolved against
+	 * it will be resolved again when it is next used.
+	 */
+	public synchronized void invalidate(Part part) {
+		entries.remove(part);
+		acrossLayouts = null;
+	}
+
+	/**
+	 * Forget everything; resolve it all again as it is used.
+	 */
+	public synchronized void rescan() {
+		entries.clear();
+		acrossLayouts = null;
+	}
+
+	private Entry entry(JaxbPmlPart<?> part) {
+
+		Object contents = part.getJaxbElement();
+		List<Entry> bases = bases(part);
+		Entry entry = entries.get(part);
+		if (entry!=null
+				&& entry.isCurrent(contents, bases)) {
+			return entry;
+		}
+
+		long startTime = System.currentTimeMillis();
+		entry = new Entry(contents, bases);
+		if (part instanceof SlideMasterPart) {
+
+			SlideMasterPart master = (SlideMasterPart)part;
+			entry.resolvedLayout = new ResolvedLayout();
+			entry.resolvedLayout.setBg( master.getJaxbElement().getCSld().getBg() );
+			entry.resolvedLayout.setShapeTree( master.getJaxbElement().getCSld().getSpTree() );
+
+		} else {
+			entry.resolvedLayout = ResolvedLayout.resolveSlideLayout((SlideLayoutPart)part);
+		}
+		entry.placeHolders = indexPlaceHolders(entry.resolvedLayout.getShapeTree(), part);
+		entries.put(part, entry);
+
+		log.debug("Resolved " + part.getPartName() + " in " + (System.currentTimeMillis()-startTime) + "ms");
+		return entry;
+	}
+
+	private List<Entry> bases(Part part) {
+
+		if (part instanceof SlideLayoutPart) {
+			SlideMasterPart master = ((SlideLayoutPart)part).getSlideMasterPart();
+			if (master!=null) {
+				return Collections.singletonList(entry(master));
+			}
+		} else if (part instanceof SlidePart) {
+			SlideLayoutPart layout = getSlideLayoutPart((SlidePart)part);
+			if (layout==null) {
+				return Collections.singletonList(acrossLayouts());
+			} else {
+				return Collections.singletonList(entry(layout));
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	private Entry acrossLayouts() {
+
+		List<Entry> bases = new ArrayList<Entry>();
+		for (Part part : pmlPackage.getParts().getParts().values()) {
+			if (part instanceof SlideLayoutPart) {
+				bases.add(entry((SlideLayoutPart)part));
+			}
+		}
+		if (acrossLayouts!=null
+				&& acrossLayouts.isCurrent(null, bases)) {
+			return acrossLayouts;
+		}
+
+		acrossLayouts = new Entry(null, bases);
+		acrossLayouts.placeHolders = new HashMap<String, ShapeWrapper>();
+		for (Entry layout : bases) {
+			acrossLayouts.placeHolders.putAll(layout.placeHolders);
+		}
+		return acrossLayouts;
+	}
+
+	private static SlideLayoutPart getSlideLayoutPart(SlidePart slide) {
+
+		RelationshipsPart rp = slide.getRelationshipsPart();
+		if (rp==null) {
+			return null;
+		}
+		Relationship rel = rp.getRelationshipByType(Namespaces.PRESENTATIONML_SLIDE_LAYOUT);
+		if (rel==null) {
+			return null;
+		}
+		return (SlideLayoutPart)rp.getPart(rel);
+	}
+
+	/**
+	 * Index the placeholders in a shape tree by type.
+	 *
+	 * @param shapeTree
+	 * @param owner the part in which they are defined
+	 * @return the placeholders
+	 */
+	public static Map<String, ShapeWrapper> indexPlaceHolders(GroupShape shapeTree, JaxbPmlPart<?> owner) {
+
+		// All this for the 16 possible things defined in STPlaceholderType!
+
+		Map<String, ShapeWrapper> indexedPlaceHolders = new HashMap<String, ShapeWrapper>();
+
+    	for (Object o : shapeTree.getSpOrGrpSpOrGraphicFrame()) {
+
+    		if (o instanceof Shape) {
+    			Shape sp = (Shape)o;
+    			if (sp.getNvSpPr()!=null
+    					&& sp.getNvSpPr().getNvPr()!=null
+    						&& sp.getNvSpPr().getNvPr().getPh() != null) {
+    				CTPlaceholder placeholder = sp.getNvSpPr().getNvPr().getPh();
+    				ShapeWrapper sw = new ShapeWrapper(sp, placeholder.getType().toString(),
+    						owner);
+    				indexedPlaceHolders.put(sw.getPhType(), sw);
+
+    				String name = "";
+    				if (sp.getNvSpPr().getCNvPr()!=null) {
+    					name = sp.getNvSpPr().getCNvPr().getName();
+    				}
+
+    				log.debug("Indexed: " + sw.getPhType() + "(" + name + ") in " + owner.getPartName().toString() );
+    			}
+    		}
+    	}
+	    return indexedPlaceHolders;
+	}
+
+}
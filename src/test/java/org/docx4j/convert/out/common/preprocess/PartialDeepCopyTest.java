@@ -0,0 +1,99 @@
+package org.docx4j.convert.out.common.preprocess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.docx4j.Docx4J;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.junit.Test;
+
+public class PartialDeepCopyTest {
+
+	private PartName imageName;
+
+	private WordprocessingMLPackage loadWithImage() throws Exception {
+
+		WordprocessingMLPackage pkg = WordprocessingMLPackage.load(
+				new File(System.getProperty("user.dir") + "/src/test/resources/MERGEFIELD.docx"));
+		imageName = BinaryPartAbstractImage.createImagePart(pkg,
+				new File(System.getProperty("user.dir") + "/src/test/resources/images/greentick.png")).getPartName();
+
+		// reload, so the parts are lazily loaded
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		pkg.save(baos);
+		return WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+	}
+
+	@Test
+	public void testUnloadedPartsShared() throws Exception {
+
+		WordprocessingMLPackage source = loadWithImage();
+		PartName webSettings = new PartName("/word/webSettings.xml");
+		assertFalse(((JaxbXmlPart)source.getParts().get(webSettings)).isUnmarshalled());
+
+		WordprocessingMLPackage clone = Docx4J.clone(source);
+
+		JaxbXmlPart copy = (JaxbXmlPart)clone.getParts().get(webSettings);
+		assertFalse(copy.isUnmarshalled());
+		assertEquals(((JaxbXmlPart)source.getParts().get(webSettings)).getXML(), copy.getXML());
+	}
+
+	@Test
+	public void testBinaryBufferShared() throws Exception {
+
+		WordprocessingMLPackage source = loadWithImage();
+		BinaryPart image = (BinaryPart)source.getParts().get(imageName);
+		image.getBuffer(); // load it
+
+		WordprocessingMLPackage clone = Docx4J.clone(source);
+
+		BinaryPart copy = (BinaryPart)clone.getParts().get(imageName);
+		assertTrue(copy.getReadOnlyBuffer().isReadOnly());
+		assertEquals(1965, copy.getReadOnlyBuffer().limit());
+		assertTrue(copy.isContentEqual(image));
+
+		// writing to the copy's buffer copies it first
+		ByteBuffer bb = copy.getBuffer();
+		assertFalse(bb.isReadOnly());
+		bb.array()[0] = 0;
+		assertFalse(copy.isContentEqual(image));
+		assertEquals(1965, image.getBuffer().limit());
+	}
+
+	@Test
+	public void testLazyLoadedBufferWritable() throws Exception {
+
+		WordprocessingMLPackage source = loadWithImage();
+		BinaryPart image = (BinaryPart)source.getParts().get(imageName);
+		assertTrue(image.getReadOnlyBuffer().isReadOnly());
+		assertEquals(1965, image.getBuffer().array().length);
+	}
+
+	@Test
+	public void testCopyIndependent() throws Exception {
+
+		WordprocessingMLPackage source = loadWithImage();
+		WordprocessingMLPackage clone = Docx4J.clone(source);
+
+		clone.getMainDocumentPart().addParagraphOfText("only in the clone");
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		clone.save(baos);
+		WordprocessingMLPackage reloaded = WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+
+		assertTrue(reloaded.getMainDocumentPart().getXML().contains("only in the clone"));
+		assertFalse(source.getMainDocumentPart().getXML().contains("only in the clone"));
+		assertEquals(source.getParts().getParts().size(), reloaded.getParts().getParts().size());
+	}
+
+}
@@ -0,0 +1,50 @@
+package org.docx4j.fonts;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.docx4j.openpackaging.parts.WordprocessingML.FontTablePart;
+import org.docx4j.wml.Fonts;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class BestMatchingMapperMemoTest {
+
+	@Test
+	public void testMemo() throws Exception {
+		
+		FontTablePart fontTablePart = new FontTablePart();
+		Fonts fonts = (Fonts)fontTablePart.unmarshalDefaultFonts();
+		Set<String> documentFontNames = Collections.singleton("Times New Roman");
+		
+		BestMatchingMapper.clearMappingMemo();
+		
+		new BestMatchingMapper().populateFontMappings(documentFontNames, fonts);
+		long hits = BestMatchingMapper.getMappingMemoHits();
+		long misses = BestMatchingMapper.getMappingMemoMisses();
+		PhysicalFont first = new BestMatchingMapper().get("Times New Roman");
+		
+		// A fresh mapper re-uses the decision
+		BestMatchingMapper mapper = new BestMatchingMapper();
+		mapper.populateFontMappings(documentFontNames, fonts);
+		assertEquals(hits+1, BestMatchingMapper.getMappingMemoHits());
+		assertEquals(misses, BestMatchingMapper.getMappingMemoMisses());
+		assertEquals(first, mapper.get("Times New Roman"));
+		
+		// until the physical fonts change (which needs a font to put)
+		Assume.assumeNotNull(first);
+		try {
+			PhysicalFonts.put("BestMatchingMapperMemoTest", first);
+			new BestMatchingMapper().populateFontMappings(documentFontNames, fonts);
+			assertEquals(hits+1, BestMatchingMapper.getMappingMemoHits());
+			assertEquals(misses+1, BestMatchingMapper.getMappingMemoMisses());
+		} finally {
+			// don't leave it for other tests
+			PhysicalFonts.getPhysicalFonts().remove("bestmatchingmappermemotest");
+			BestMatchingMapper.clearMappingMemo();
+		}
+	}
+
+}
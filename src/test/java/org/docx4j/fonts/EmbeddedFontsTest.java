@@ -0,0 +1,125 @@
+package org.docx4j.fonts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.docx4j.fonts.fop.fonts.autodetect.FontFileFinder;
+import org.docx4j.fonts.fop.util.FopConfigUtil;
+import org.docx4j.wml.Fonts;
+import org.junit.Test;
+
+public class EmbeddedFontsTest {
+	
+	@Test
+	public void testRegisterSameFontTwice() throws Exception {
+		
+		// Use a real font if there is one
+		File font = null;
+		List fontFiles = new FontFileFinder().find();
+		for (Object o : fontFiles) {
+			File f = new File(((URL)o).toURI());
+			if (f.getName().toLowerCase().endsWith(".ttf")) {
+				font = f;
+				break;
+			}
+		}
+		if (font==null) return;
+		
+		byte[] data = FileUtils.readFileToByteArray(font);
+		
+		EmbeddedFonts.register("EmbeddedFontsTest One", data);
+		EmbeddedFonts.register("EmbeddedFontsTest Two", data.clone());
+		
+		PhysicalFont one = PhysicalFonts.get("EmbeddedFontsTest One");
+		PhysicalFont two = PhysicalFonts.get("EmbeddedFontsTest Two");
+		assertNotNull(one);
+		assertNotNull(two);
+		
+		// same content, same URL, parsed once
+		assertTrue(EmbeddedFonts.isEmbeddedFontUrl(one.getEmbeddedFile()));
+		assertEquals(one.getEmbeddedFile(), two.getEmbeddedFile());
+		assertTrue(one.getEmbedFontInfo()==two.getEmbedFontInfo());
+		
+		// loadable from memory
+		assertNotNull(one.getTypeface());
+		
+		// and for FOP, from a file
+		String fileUrl = EmbeddedFonts.toFileUrl(one.getEmbeddedFile());
+		File written = new File(new URL(fileUrl).toURI());
+		assertEquals(data.length, written.length());
+		written.delete();
+	}
+
+	@Test
+	public void testEvicted() throws Exception {
+		
+		File font = null;
+		List fontFiles = new FontFileFinder().find();
+		for (Object o : fontFiles) {
+			File f = new File(((URL)o).toURI());
+			if (f.getName().toLowerCase().endsWith(".ttf")) {
+				font = f;
+				break;
+			}
+		}
+		if (font==null) return;
+		
+		byte[] data = FileUtils.readFileToByteArray(font);
+		byte[] other = new byte[data.length+1]; // different content, so a different entry 
+		System.arraycopy(data, 0, other, 0, data.length);
+
+		try {
+			EmbeddedFonts.register("EmbeddedFontsTest Evicted", data);
+			EmbeddedFonts.register("EmbeddedFontsTest Kept", other);
+			EmbeddedFonts.setMaxBytes(1); // evicts the first; the most recent stays
+			
+			PhysicalFont evicted = PhysicalFonts.get("EmbeddedFontsTest Evicted");
+			assertNotNull(evicted);
+			
+			// still loadable, eg for glyph checks
+			assertNotNull(EmbeddedFonts.openStream(evicted.getEmbeddedFile()));
+			PhysicalFont reloaded = new PhysicalFont(evicted.getName(), evicted.getEmbedFontInfo(), 
+					EmbeddedFonts.getFontResolver());
+			assertNotNull(reloaded.getTypeface());
+			
+			// and FOP's config points at the file
+			Mapper mapper = new Mapper() {
+				public void populateFontMappings(Set<String> documentFontNames, Fonts wmlFonts) {}
+			};
+			mapper.put("EmbeddedFontsTest Evicted", evicted);
+			String config = FopConfigUtil.createDefaultConfiguration(mapper, 
+					Collections.singleton("EmbeddedFontsTest Evicted"));
+			String fileUrl = EmbeddedFonts.toFileUrl(evicted.getEmbeddedFile());
+			assertTrue(config.contains("embed-url=\"" + fileUrl + "\""));
+			File written = new File(new URL(fileUrl).toURI());
+			assertEquals(data.length, written.length());
+			
+			// only so many evicted fonts are kept
+			EmbeddedFonts.setMaxSpilledFiles(0);
+			assertFalse(written.exists());
+			assertNull(EmbeddedFonts.openStream(evicted.getEmbeddedFile()));
+			
+		} finally {
+			EmbeddedFonts.setMaxBytes(67108864);
+			EmbeddedFonts.setMaxSpilledFiles(16);
+		}
+	}
+
+	@Test
+	public void testNotOurs() throws Exception {
+		
+		assertEquals("file:/tmp/x.ttf", EmbeddedFonts.toFileUrl("file:/tmp/x.ttf"));
+		assertNull(EmbeddedFonts.openStream("file:/tmp/x.ttf"));
+	}
+	
+}
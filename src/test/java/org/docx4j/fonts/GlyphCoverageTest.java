@@ -0,0 +1,77 @@
+package org.docx4j.fonts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+
+import org.docx4j.fonts.fop.fonts.Typeface;
+import org.docx4j.fonts.fop.fonts.autodetect.FontFileFinder;
+import org.junit.Test;
+
+public class GlyphCoverageTest {
+	
+	@Test
+	public void testMatchesTypeface() throws Exception {
+		
+		// Use a real font if there is one
+		URL fontUrl = null;
+		List fontFiles = new FontFileFinder().find();
+		for (Object o : fontFiles) {
+			File f = new File(((URL)o).toURI());
+			if (f.getName().toLowerCase().endsWith(".ttf")) {
+				fontUrl = (URL)o;
+				break;
+			}
+		}
+		if (fontUrl==null) return;
+		
+		PhysicalFonts.addPhysicalFont(fontUrl);
+		PhysicalFont pf = null;
+		for (PhysicalFont candidate : PhysicalFonts.getPhysicalFonts().values()) {
+			if (fontUrl.toExternalForm().equals(candidate.getEmbeddedFile())) {
+				pf = candidate;
+				break;
+			}
+		}
+		assertNotNull(pf);
+		Typeface typeface = pf.getTypeface();
+		assertNotNull(typeface);
+		
+		GlyphCoverage coverage = GlyphCoverage.of(typeface);
+		int count = 0;
+		for (int c=0; c<=0xFFFF; c++) {
+			assertEquals("char " + c, typeface.hasChar((char)c), coverage.hasChar((char)c));
+			if (coverage.hasChar((char)c)) count++;
+		}
+		assertEquals(count, coverage.size());
+		
+		// round trip, as in the catalog
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		coverage.write(new DataOutputStream(baos));
+		GlyphCoverage read = GlyphCoverage.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+		assertEquals(coverage.size(), read.size());
+		for (int c=0; c<=0xFFFF; c++) {
+			assertEquals(coverage.hasChar((char)c), read.hasChar((char)c));
+		}
+		
+		assertTrue(GlyphCheck.getCoverage(pf)==GlyphCheck.getCoverage(pf));
+	}
+
+	@Test
+	public void testNone() throws Exception {
+		
+		assertEquals(0, GlyphCoverage.NONE.size());
+		assertFalse(GlyphCoverage.NONE.hasChars("a"));
+		assertTrue(GlyphCoverage.NONE.hasChars(""));
+		assertEquals(1, GlyphCoverage.NONE.indexOfMissing("ab", 1, 2));
+	}
+}
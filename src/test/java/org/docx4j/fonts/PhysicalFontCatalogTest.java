@@ -0,0 +1,106 @@
+package org.docx4j.fonts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.docx4j.fonts.fop.fonts.EmbedFontInfo;
+import org.docx4j.fonts.fop.fonts.FontSetup;
+import org.docx4j.fonts.fop.fonts.autodetect.FontFileFinder;
+import org.docx4j.fonts.fop.fonts.autodetect.FontInfoFinder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhysicalFontCatalogTest {
+	
+	private File dir;
+	private File catalogFile;
+	
+	@Before
+	public void setUp() throws Exception {
+		dir = File.createTempFile("fonts", "");
+		dir.delete();
+		new File(dir, "sub").mkdirs();
+		catalogFile = new File(dir.getPath() + ".catalog");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(dir);
+		catalogFile.delete();
+	}
+	
+	private List<PhysicalFontCatalog.FontFile> scan(PhysicalFontCatalog catalog) throws Exception {
+		return catalog.scan(Collections.singletonList(dir), new FontInfoFinder(), 
+				FontSetup.createMinimalFontResolver(), 2);
+	}
+	
+	@Test
+	public void testCatalogRoundTrip() throws Exception {
+		
+		// Use a real font if there is one
+		File font = null;
+		List fontFiles = new FontFileFinder().find();
+		for (Object o : fontFiles) {
+			File f = new File(((java.net.URL)o).toURI());
+			if (f.getName().toLowerCase().endsWith(".ttf")) {
+				font = f;
+				break;
+			}
+		}
+		if (font!=null) {
+			FileUtils.copyFile(font, new File(dir, "sub/real.ttf"));
+		}
+		FileUtils.writeStringToFile(new File(dir, "broken.ttf"), "not a font");
+		FileUtils.writeStringToFile(new File(dir, "readme.txt"), "ignored");
+		
+		PhysicalFontCatalog catalog = PhysicalFontCatalog.load(catalogFile);
+		List<PhysicalFontCatalog.FontFile> first = scan(catalog);
+		catalog.save();
+		assertTrue(catalogFile.exists());
+		
+		assertEquals(font==null ? 1 : 2, first.size());
+		assertNull(first.get(0).getFontInfos()); // broken.ttf
+		
+		// Reloaded catalog gives the same fonts, without parsing
+		PhysicalFontCatalog reloaded = PhysicalFontCatalog.load(catalogFile);
+		List<PhysicalFontCatalog.FontFile> second = scan(reloaded);
+		assertEquals(first.size(), second.size());
+		assertNull(second.get(0).getFontInfos());
+		
+		if (font!=null) {
+			EmbedFontInfo expected = first.get(1).getFontInfos()[0];
+			EmbedFontInfo actual = second.get(1).getFontInfos()[0];
+			assertEquals(expected.getEmbedFile(), actual.getEmbedFile());
+			assertEquals(expected.getPostScriptName(), actual.getPostScriptName());
+			assertEquals(expected.getFontTriplets(), actual.getFontTriplets());
+			assertEquals(expected.isEmbeddable(), actual.isEmbeddable());
+			assertEquals(String.valueOf(expected.getPanose()), String.valueOf(actual.getPanose()));
+		}
+	}
+	
+	@Test
+	public void testRemovedDirDropped() throws Exception {
+		
+		FileUtils.writeStringToFile(new File(dir, "sub/broken.ttf"), "not a font");
+		
+		PhysicalFontCatalog catalog = new PhysicalFontCatalog(null);
+		assertEquals(1, scan(catalog).size());
+		
+		FileUtils.deleteDirectory(new File(dir, "sub"));
+		// make sure the parent's timestamp moves on
+		dir.setLastModified(dir.lastModified() + 2000);
+		
+		List<PhysicalFontCatalog.FontFile> rescanned = scan(catalog);
+		assertEquals(0, rescanned.size());
+		assertNotNull(rescanned);
+	}
+
+}
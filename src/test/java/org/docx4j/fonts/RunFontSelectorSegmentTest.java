@@ -0,0 +1,130 @@
+package org.docx4j.fonts;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.docx4j.fonts.RunFontSelector.RunFontActionType;
+import org.docx4j.fonts.RunFontSelector.RunFontCharacterVisitor;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.RFonts;
+import org.docx4j.wml.RPr;
+import org.docx4j.wml.STHint;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+public class RunFontSelectorSegmentTest {
+	
+	private static WordprocessingMLPackage wordMLPackage;
+	
+	@BeforeClass
+	public static void setUp() throws Exception {
+		wordMLPackage = WordprocessingMLPackage.createPackage();
+	}
+	
+	@Test
+	public void testScriptRunsShareSpans() {
+		
+		List<String> spans = select(rPr(null), "Hello 世界 again");
+		
+		assertEquals(3, spans.size());
+		assertEquals("Arial:Hello ", spans.get(0));
+		assertEquals("SimSun:世界 ", spans.get(1));
+		assertEquals("Arial:again", spans.get(2));
+	}
+
+	@Test
+	public void testAdjacentRangesWithSameFontMerged() {
+		
+		// ASCII, Latin-1 and Latin Extended all use Arial here
+		List<String> spans = select(rPr(null), "Café Łódź");
+		
+		assertEquals(1, spans.size());
+		assertEquals("Arial:Café Łódź", spans.get(0));
+	}
+
+	@Test
+	public void testHintEastAsia() {
+		
+		// with the hint, degree sign uses eastAsia, but e acute doesn't (lang isn't Chinese) 
+		List<String> spans = select(rPr(STHint.EAST_ASIA), "é°");
+		
+		assertEquals(2, spans.size());
+		assertEquals("Arial:é", spans.get(0));
+		assertEquals("SimSun:°", spans.get(1));
+	}
+	
+	@Test
+	public void testScriptOf() {
+		
+		assertEquals(RunFontSelector.scriptOf('a'), RunFontSelector.scriptOf('ﹰ'));
+		assertEquals(RunFontSelector.scriptOf('世'), RunFontSelector.scriptOf('，'));
+		assertEquals(RunFontSelector.scriptOf('ā'), RunFontSelector.scriptOf('Ḁ'));
+		assertEquals(RunFontSelector.scriptOf('\u0080'), RunFontSelector.scriptOf('￿'));
+	}
+	
+	private static RPr rPr(STHint hint) {
+		
+		RPr rPr = new RPr();
+		RFonts rFonts = new RFonts();
+		rFonts.setAscii("Arial");
+		rFonts.setHAnsi("Arial");
+		rFonts.setEastAsia("SimSun");
+		rFonts.setHint(hint);
+		rPr.setRFonts(rFonts);
+		return rPr;
+	}
+	
+	private static List<String> select(RPr rPr, String text) {
+		
+		final List<String> spans = new ArrayList<String>();
+		
+		RunFontSelector rfs = new RunFontSelector(wordMLPackage, new RunFontCharacterVisitor() {
+			
+			StringBuilder sb = new StringBuilder();
+			String font;
+			
+			public void setRunFontSelector(RunFontSelector runFontSelector) {}
+			
+			public void setDocument(Document document) {}
+
+			public void addCharacterToCurrent(char c) {
+				sb.append(c);
+			}
+
+			public void finishPrevious() {
+				if (sb.length()>0) {
+					spans.add(font + ":" + sb);
+					sb.setLength(0);
+				}
+			}
+
+			public void createNew() {
+				font = null;
+			}
+
+			public void setMustCreateNewFlag(boolean val) {}
+
+			public boolean isReusable() {
+				return true;
+			}
+
+			public void fontAction(String fontname) {
+				font = fontname;
+			}
+
+			public void setFallbackFont(String fontname) {}
+
+			public Object getResult() {
+				return spans;
+			}
+			
+		}, RunFontActionType.DISCOVERY);
+		
+		rfs.fontSelector(null, rPr, text);
+		return spans;
+	}
+
+}
@@ -0,0 +1,103 @@
+package org.docx4j.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.model.IdRegistry.IdType;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Document;
+import org.docx4j.wml.P;
+import org.junit.Test;
+
+public class IdRegistryTest {
+
+	private static final String NS = "xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"";
+
+	private WordprocessingMLPackage create() throws Exception {
+
+		WordprocessingMLPackage pkg = WordprocessingMLPackage.createPackage();
+		pkg.getMainDocumentPart().getContent().add(
+				XmlUtils.unmarshalString(
+						"<w:p " + NS + "><w:bookmarkStart w:id=\"7\" w:name=\"a\"/>"
+						+ "<w:commentRangeStart w:id=\"3\"/>"
+						+ "<w:r><w:t>x</w:t></w:r>"
+						+ "<w:commentRangeEnd w:id=\"3\"/><w:bookmarkEnd w:id=\"7\"/></w:p>"));
+		return pkg;
+	}
+
+	@Test
+	public void testScan() throws Exception {
+
+		IdRegistry registry = create().getIdRegistry();
+
+		assertEquals(8, registry.next(IdType.BOOKMARK));
+		assertEquals(9, registry.next(IdType.BOOKMARK));
+		assertEquals(4, registry.next(IdType.COMMENT));
+		assertEquals(1, registry.next(IdType.FOOTNOTE));
+		assertEquals(1, registry.next(IdType.DRAWING));
+	}
+
+	@Test
+	public void testRegister() throws Exception {
+
+		IdRegistry registry = create().getIdRegistry();
+
+		registry.register(IdType.BOOKMARK, 20);
+		registry.register(IdType.BOOKMARK, 5); // lower; no effect
+		assertEquals(21, registry.next(IdType.BOOKMARK));
+	}
+
+	@Test
+	public void testRescanDoesntReuse() throws Exception {
+
+		WordprocessingMLPackage pkg = create();
+		IdRegistry registry = pkg.getIdRegistry();
+		AtomicInteger counter = registry.getCounter(IdType.BOOKMARK);
+
+		registry.next(IdType.BOOKMARK); // 8
+		registry.next(IdType.BOOKMARK); // 9
+
+		// add a bookmark, then rescan
+		P p = (P)XmlUtils.unmarshalString(
+				"<w:p " + NS + "><w:bookmarkStart w:id=\"50\" w:name=\"b\"/><w:bookmarkEnd w:id=\"50\"/></w:p>");
+		pkg.getMainDocumentPart().getContent().add(p);
+		registry.rescan();
+		assertEquals(51, counter.get()); // updated in place
+		assertEquals(51, registry.next(IdType.BOOKMARK));
+
+		pkg.getMainDocumentPart().getContent().remove(p);
+		registry.rescan();
+		assertEquals(52, registry.next(IdType.BOOKMARK));
+	}
+
+	@Test
+	public void testCounterShared() throws Exception {
+
+		IdRegistry registry = create().getIdRegistry();
+
+		assertEquals(8, registry.getCounter(IdType.BOOKMARK).getAndIncrement());
+		assertEquals(BigInteger.valueOf(9), BigInteger.valueOf(registry.next(IdType.BOOKMARK)));
+	}
+
+	@Test
+	public void testReplacedPart() throws Exception {
+
+		WordprocessingMLPackage pkg = create();
+		IdRegistry registry = pkg.getIdRegistry();
+		AtomicInteger counter = registry.getCounter(IdType.BOOKMARK);
+		assertEquals(8, registry.next(IdType.BOOKMARK));
+
+		// replace the document's content, as the XSLT binding step does
+		Document document = XmlUtils.deepCopy(pkg.getMainDocumentPart().getJaxbElement());
+		document.getBody().getContent().add(XmlUtils.unmarshalString(
+				"<w:p " + NS + "><w:bookmarkStart w:id=\"70\" w:name=\"c\"/><w:bookmarkEnd w:id=\"70\"/></w:p>"));
+		pkg.getMainDocumentPart().setJaxbElement(document);
+		assertSame(counter, registry.getCounter(IdType.BOOKMARK));
+		assertEquals(71, counter.get());
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.docx4j.model.fields.merge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.wml.Body;
+import org.junit.After;
+import org.junit.Test;
+
+public class MailMergeTemplateTest {
+
+	private static final String TEMPLATE = System.getProperty("user.dir") + "/src/test/resources/MERGEFIELD.docx";
+
+	@After
+	public void resetFieldFate() {
+		MailMerger.setMERGEFIELDInOutput(MailMerger.OutputField.REMOVED);
+	}
+
+	private static Map<DataFieldName, String> record(String name, String street) {
+
+		Map<DataFieldName, String> map = new HashMap<DataFieldName, String>();
+		map.put( new DataFieldName("KundenName"), name);
+		map.put( new DataFieldName("Kundenstrasse"), street);
+		map.put(new DataFieldName("yourdate"), "15/4/2013");
+		map.put(new DataFieldName("yournumber"), "2456800");
+		return map;
+	}
+
+	private static String asXml(List<Object> content) {
+
+		Body body = Context.getWmlObjectFactory().createBody();
+		body.getContent().addAll(content);
+		return XmlUtils.marshaltoString(body, true, false);
+	}
+
+	private void assertSameAsPerformMerge(MailMerger.OutputField fate) throws Exception {
+
+		MailMerger.setMERGEFIELDInOutput(fate);
+
+		WordprocessingMLPackage templatePkg = WordprocessingMLPackage.load(new File(TEMPLATE));
+		MailMergeTemplate template = new MailMergeTemplate(templatePkg, templatePkg.getMainDocumentPart());
+
+		Map<DataFieldName, String>[] records = new Map[] {
+				record("Daffy duck", "Plutext"), record("Jason", null) };
+
+		for (Map<DataFieldName, String> data : records) {
+
+			WordprocessingMLPackage expected = WordprocessingMLPackage.load(new File(TEMPLATE));
+			MailMerger.performMerge(expected, data, false);
+
+			String result = asXml(template.merge(data));
+			assertEquals(asXml(expected.getMainDocumentPart().getContent()), result);
+			assertTrue(result.contains("Jason") || result.contains("Plutext"));
+		}
+	}
+
+	@Test
+	public void testRemoved() throws Exception {
+		assertSameAsPerformMerge(MailMerger.OutputField.REMOVED);
+	}
+
+	@Test
+	public void testKeepMergefield() throws Exception {
+		assertSameAsPerformMerge(MailMerger.OutputField.KEEP_MERGEFIELD);
+	}
+
+	@Test
+	public void testFormText() throws Exception {
+		assertSameAsPerformMerge(MailMerger.OutputField.AS_FORMTEXT_REGULAR);
+	}
+
+	@Test
+	public void testDatafieldNames() throws Exception {
+
+		WordprocessingMLPackage templatePkg = WordprocessingMLPackage.load(new File(TEMPLATE));
+		MailMergeTemplate template = new MailMergeTemplate(templatePkg, templatePkg.getMainDocumentPart());
+
+		assertTrue(template.getDatafieldNames().contains("Kundenstrasse"));
+		assertTrue(template.getDatafieldNames().contains("yournumber"));
+	}
+
+}
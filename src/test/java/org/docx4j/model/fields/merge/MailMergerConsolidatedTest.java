@@ -0,0 +1,95 @@
+package org.docx4j.model.fields.merge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.jaxb.Context;
+import org.docx4j.model.structure.SectionWrapper;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.HeaderPart;
+import org.docx4j.relationships.Relationship;
+import org.docx4j.wml.CTRel;
+import org.docx4j.wml.Hdr;
+import org.docx4j.wml.HdrFtrRef;
+import org.docx4j.wml.HeaderReference;
+import org.docx4j.wml.SectPr;
+import org.junit.Test;
+
+public class MailMergerConsolidatedTest {
+
+	private static final String TEMPLATE = System.getProperty("user.dir") + "/src/test/resources/MERGEFIELD.docx";
+
+	private static List<Map<DataFieldName, String>> getData(int n) {
+
+		List<Map<DataFieldName, String>> data = new ArrayList<Map<DataFieldName, String>>();
+		for (int i=0; i<n; i++) {
+			Map<DataFieldName, String> map = new HashMap<DataFieldName, String>();
+			map.put( new DataFieldName("KundenName"), "Customer " + i);
+			map.put( new DataFieldName("Kundenstrasse"), i + " Main St");
+			map.put(new DataFieldName("yournumber"), "" + (1000*i));
+			data.add(map);
+		}
+		return data;
+	}
+
+	@Test
+	public void testStreamedSameAsCrude() throws Exception {
+
+		List<Map<DataFieldName, String>> data = getData(3);
+
+		WordprocessingMLPackage crude = MailMerger.getConsolidatedResultCrude(
+				WordprocessingMLPackage.load(new File(TEMPLATE)), data);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		MailMerger.saveConsolidatedResultCrude(
+				WordprocessingMLPackage.load(new File(TEMPLATE)), data.iterator(), false, baos);
+		WordprocessingMLPackage streamed = WordprocessingMLPackage.load(
+				new ByteArrayInputStream(baos.toByteArray()));
+
+		assertEquals(
+				XmlUtils.marshaltoString(crude.getMainDocumentPart().getJaxbElement().getBody(), true, false),
+				XmlUtils.marshaltoString(streamed.getMainDocumentPart().getJaxbElement().getBody(), true, false));
+	}
+
+	@Test
+	public void testStreamedHeaders() throws Exception {
+
+		WordprocessingMLPackage input = WordprocessingMLPackage.load(new File(TEMPLATE));
+		HeaderPart headerPart = new HeaderPart();
+		headerPart.setJaxbElement((Hdr)XmlUtils.unmarshalString(
+				"<w:hdr xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\">"
+				+ "<w:p><w:fldSimple w:instr=\" MERGEFIELD KundenName \\* MERGEFORMAT \">"
+				+ "<w:r><w:t>\u00ABKundenName\u00BB</w:t></w:r></w:fldSimple></w:p></w:hdr>"));
+		Relationship rel = input.getMainDocumentPart().addTargetPart(headerPart);
+		HeaderReference headerReference = Context.getWmlObjectFactory().createHeaderReference();
+		headerReference.setId(rel.getId());
+		headerReference.setType(HdrFtrRef.DEFAULT);
+		input.getDocumentModel().getSections().get(0).getSectPr().getEGHdrFtrReferences().add(headerReference);
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		MailMerger.saveConsolidatedResultCrude(input, getData(3).iterator(), true, baos);
+		WordprocessingMLPackage streamed = WordprocessingMLPackage.load(
+				new ByteArrayInputStream(baos.toByteArray()));
+
+		// a section per record, each with its own merged header
+		List<SectionWrapper> sections = streamed.getDocumentModel().getSections();
+		for (int i=0; i<3; i++) {
+			SectPr sectPr = sections.get(i).getSectPr();
+			assertEquals(1, sectPr.getEGHdrFtrReferences().size());
+			CTRel ref = sectPr.getEGHdrFtrReferences().get(0);
+			HeaderPart merged = (HeaderPart)streamed.getMainDocumentPart().getRelationshipsPart().getPart(ref.getId());
+			String xml = XmlUtils.marshaltoString(merged.getJaxbElement(), true, false);
+			assertTrue(xml, xml.contains("Customer " + i));
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package org.docx4j.model.fields.merge;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.junit.Test;
+
+public class ParallelMailMergerTest {
+
+	private static final String TEMPLATE = System.getProperty("user.dir") + "/src/test/resources/MERGEFIELD.docx";
+
+	@Test
+	public void testSameAsPerformMerge() throws Exception {
+
+		List<Map<DataFieldName, String>> data = new ArrayList<Map<DataFieldName, String>>();
+		for (int i=0; i<6; i++) {
+			Map<DataFieldName, String> map = new HashMap<DataFieldName, String>();
+			map.put( new DataFieldName("KundenName"), "Customer " + i);
+			map.put( new DataFieldName("Kundenstrasse"), i + " Main St");
+			map.put(new DataFieldName("yournumber"), "" + (1000*i));
+			data.add(map);
+		}
+
+		final Map<Integer, byte[]> results = new ConcurrentHashMap<Integer, byte[]>();
+
+		ParallelMailMerger merger = new ParallelMailMerger(
+				WordprocessingMLPackage.load(new File(TEMPLATE)), true);
+		merger.setMaxInFlight(3);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			int count = merger.merge(data.iterator(), executor, new ParallelMailMerger.ResultHandler() {
+
+				public void handle(int index, Map<DataFieldName, String> record,
+						WordprocessingMLPackage result) throws Docx4JException {
+
+					ByteArrayOutputStream baos = new ByteArrayOutputStream();
+					result.save(baos);
+					results.put(index, baos.toByteArray());
+				}
+			});
+			assertEquals(data.size(), count);
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int i=0; i<data.size(); i++) {
+
+			WordprocessingMLPackage expected = WordprocessingMLPackage.load(new File(TEMPLATE));
+			MailMerger.performMerge(expected, data.get(i), true);
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			expected.save(baos); // so both have been through the same save processing
+			expected = WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+
+			WordprocessingMLPackage actual = WordprocessingMLPackage.load(
+					new ByteArrayInputStream(results.get(i)));
+
+			assertEquals(bodyXml(expected), bodyXml(actual));
+		}
+	}
+
+	private static String bodyXml(WordprocessingMLPackage pkg) {
+
+		// paraId is random
+		return XmlUtils.marshaltoString(pkg.getMainDocumentPart().getJaxbElement().getBody(), true, false)
+				.replaceAll(" w14:(paraId|textId)=\"[0-9a-f]*\"", "");
+	}
+
+}
@@ -0,0 +1,89 @@
+package org.docx4j.model.images;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.docx4j.dml.wordprocessingDrawing.Inline;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.wml.Drawing;
+import org.docx4j.wml.ObjectFactory;
+import org.docx4j.wml.P;
+import org.docx4j.wml.R;
+import org.junit.Test;
+
+public class ImageOptimizerTest {
+	
+	private static byte[] createPhoto(int width, int height) throws Exception {
+		
+		// noisy, so it doesn't compress to nothing
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(42);
+		for (int y=0; y<height; y++) {
+			for (int x=0; x<width; x++) {
+				image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | random.nextInt(64));
+			}
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpeg", baos);
+		return baos.toByteArray();
+	}
+	
+	private static void addInline(WordprocessingMLPackage wordMLPackage, BinaryPartAbstractImage imagePart, long cxTwip) throws Exception {
+		
+		Inline inline = imagePart.createImageInline("photo", "photo", 1, 2, cxTwip, false);
+		ObjectFactory factory = new ObjectFactory();
+		P p = factory.createP();
+		R r = factory.createR();
+		Drawing drawing = factory.createDrawing();
+		drawing.getAnchorOrInline().add(inline);
+		r.getContent().add(drawing);
+		p.getContent().add(r);
+		wordMLPackage.getMainDocumentPart().getContent().add(p);
+	}
+
+	@Test
+	public void testDownsampleToExtent() throws Exception {
+		
+		WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.createPackage();
+		byte[] original = createPhoto(1200, 900);
+		BinaryPartAbstractImage imagePart = BinaryPartAbstractImage.createImagePart(wordMLPackage, original);
+		
+		// 3cm wide, so 177 pixels at 150 dpi
+		addInline(wordMLPackage, imagePart, 1701);
+		
+		ImageOptimizer optimizer = new ImageOptimizer();
+		optimizer.setTargetDpi(150);
+		assertEquals(1, optimizer.apply(wordMLPackage));
+		
+		assertTrue(imagePart.getBytes().length < original.length);
+		BufferedImage result = ImageIO.read(new java.io.ByteArrayInputStream(imagePart.getBytes()));
+		assertEquals(178, result.getWidth(), 1);
+		assertEquals(result.getWidth() * 3 / 4, result.getHeight(), 1);
+	}
+
+	@Test
+	public void testLargestExtentWins() throws Exception {
+		
+		WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.createPackage();
+		byte[] original = createPhoto(400, 300);
+		BinaryPartAbstractImage imagePart = BinaryPartAbstractImage.createImagePart(wordMLPackage, original);
+		
+		// 3cm, then 8cm (472 pixels at 150 dpi, so no need to downsample)
+		addInline(wordMLPackage, imagePart, 1701);
+		addInline(wordMLPackage, imagePart, 4536);
+		
+		long[] extent = ImageOptimizer.getDisplayExtents(wordMLPackage).get(imagePart);
+		assertEquals(4536 * 635, extent[0], 635);
+		
+		assertNull(new ImageOptimizer().optimize(original, imagePart.getContentType(), extent[0], extent[1]));
+	}
+
+}
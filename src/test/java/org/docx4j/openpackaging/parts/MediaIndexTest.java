@@ -0,0 +1,101 @@
+package org.docx4j.openpackaging.parts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.docx4j.Docx4jProperties;
+import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage;
+import org.docx4j.openpackaging.parts.WordprocessingML.ImagePngPart;
+import org.docx4j.openpackaging.parts.WordprocessingML.MainDocumentPart;
+import org.docx4j.relationships.Relationship;
+import org.junit.Test;
+
+public class MediaIndexTest {
+	
+	private static final String REUSE_EXISTING = "docx4j.openpackaging.parts.WordprocessingML.BinaryPartAbstractImage.ReuseExisting";
+	
+	private static byte[] getImage() throws Exception {
+		return FileUtils.readFileToByteArray(
+				new File(System.getProperty("user.dir") + "/src/test/resources/images/greentick.png"));
+	}
+	
+	private static int countImages(WordprocessingMLPackage wordMLPackage) {
+		int count = 0;
+		for (Part part : wordMLPackage.getParts().getParts().values()) {
+			if (part instanceof BinaryPartAbstractImage) count++;
+		}
+		return count;
+	}
+
+	@Test
+	public void testCreateImagePartReusesExisting() throws Exception {
+		
+		WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.createPackage();
+		byte[] bytes = getImage();
+		
+		// off by default
+		BinaryPartAbstractImage first = BinaryPartAbstractImage.createImagePart(wordMLPackage, bytes);
+		BinaryPartAbstractImage second = BinaryPartAbstractImage.createImagePart(wordMLPackage, bytes.clone());
+		assertTrue(first!=second);
+		assertEquals(2, countImages(wordMLPackage));
+		
+		Docx4jProperties.setProperty(REUSE_EXISTING, true);
+		try {
+			BinaryPartAbstractImage third = BinaryPartAbstractImage.createImagePart(wordMLPackage, bytes.clone());
+			assertTrue(third==first || third==second);
+			assertEquals(2, countImages(wordMLPackage));
+			assertNotNull(third.getImageInfo());
+		} finally {
+			Docx4jProperties.setProperty(REUSE_EXISTING, false);
+		}
+		
+		// different content
+		byte[] other = bytes.clone();
+		other[other.length-1] ^= 1; 
+		assertNull(wordMLPackage.getMediaIndex().find(other));
+	}
+
+	@Test
+	public void testDedupe() throws Exception {
+		
+		WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.createPackage();
+		MainDocumentPart mdp = wordMLPackage.getMainDocumentPart();
+		byte[] bytes = getImage();
+		
+		// Add the same image twice, the hard way
+		ImagePngPart one = new ImagePngPart(new PartName("/word/media/one.png"));
+		one.setBinaryData(bytes);
+		Relationship relOne = mdp.addTargetPart(one);
+		ImagePngPart two = new ImagePngPart(new PartName("/word/media/two.png"));
+		two.setBinaryData(bytes.clone());
+		Relationship relTwo = mdp.addTargetPart(two);
+		assertEquals(2, countImages(wordMLPackage));
+		
+		assertEquals(1, wordMLPackage.getMediaIndex().dedupe());
+		assertEquals(1, countImages(wordMLPackage));
+		assertNull(wordMLPackage.getParts().get(new PartName("/word/media/two.png")));
+		
+		// both rels now point to the one part
+		assertEquals("media/one.png", relTwo.getTarget());
+		assertTrue(mdp.getRelationshipsPart().getPart(relOne)==one);
+		assertTrue(mdp.getRelationshipsPart().getPart(relTwo)==one);
+		assertTrue(one.getSourceRelationships().contains(relOne));
+		assertTrue(one.getSourceRelationships().contains(relTwo));
+		
+		// and the result can be saved and reopened
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		wordMLPackage.save(baos);
+		WordprocessingMLPackage reloaded = WordprocessingMLPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		assertEquals(1, countImages(reloaded));
+		
+		assertEquals(0, reloaded.getMediaIndex().dedupe());
+	}
+}
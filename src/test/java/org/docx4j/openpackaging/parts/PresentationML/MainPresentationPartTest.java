@@ -0,0 +1,129 @@
+package org.docx4j.openpackaging.parts.PresentationML;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.io.SaveToZipFile;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.PresentationMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.relationships.Relationship;
+import org.junit.Test;
+import org.pptx4j.Pptx4jException;
+import org.pptx4j.jaxb.Context;
+import org.pptx4j.pml.Presentation.SldIdLst.SldId;
+import org.pptx4j.pml.Shape;
+
+public class MainPresentationPartTest {
+
+	private static final String SHAPE =
+		"<p:sp xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\" xmlns:p=\"http://schemas.openxmlformats.org/presentationml/2006/main\">"
+		+ "<p:nvSpPr><p:cNvPr id=\"4\" name=\"Title 3\" /><p:cNvSpPr><a:spLocks noGrp=\"1\" /></p:cNvSpPr>"
+		+ "<p:nvPr><p:ph type=\"title\" /></p:nvPr></p:nvSpPr>"
+		+ "<p:spPr />"
+		+ "<p:txBody><a:bodyPr /><a:lstStyle /><a:p><a:r><a:rPr lang=\"en-US\" /><a:t>Template</a:t></a:r></a:p></p:txBody>"
+		+ "</p:sp>";
+
+	@Test
+	public void testAddSlides() throws Exception {
+
+		PresentationMLPackage pkg = PresentationMLPackage.createPackage();
+		MainPresentationPart pp = pkg.getMainPresentationPart();
+		SlideLayoutPart layoutPart = (SlideLayoutPart)pkg.getParts().getParts().get(
+				new PartName("/ppt/slideLayouts/slideLayout1.xml"));
+
+		SlidePart template = new SlidePart(new PartName("/ppt/slides/slide1.xml"));
+		template.setContents(SlidePart.createSld());
+		pp.addSlide(template);
+		template.addTargetPart(layoutPart);
+		template.getContents().getCSld().getSpTree().getSpOrGrpSpOrGraphicFrame().add(
+				XmlUtils.unmarshalString(SHAPE, Context.jcPML));
+
+		List<SlidePart> slides = pp.addSlides(template, 200);
+		assertEquals(200, slides.size());
+		assertEquals(201, pp.getSlideCount());
+		assertEquals("/ppt/slides/slide2.xml", slides.get(0).getPartName().getName());
+		assertEquals("/ppt/slides/slide201.xml", slides.get(199).getPartName().getName());
+
+		// distinct copies, in order, sharing the layout
+		Set<Long> ids = new HashSet<Long>();
+		Set<String> relIds = new HashSet<String>();
+		for (int i=0; i<slides.size(); i++) {
+			SlidePart slide = slides.get(i);
+			assertSame(slide, pp.getSlide(i+1));
+			assertNotSame(template.getJaxbElement(), slide.getJaxbElement());
+			Shape sp = (Shape)slide.getJaxbElement().getCSld().getSpTree().getSpOrGrpSpOrGraphicFrame().get(0);
+			assertEquals("Title 3", sp.getNvSpPr().getCNvPr().getName());
+
+			Relationship rel = slide.getRelationshipsPart().getRelationshipByType(Namespaces.PRESENTATIONML_SLIDE_LAYOUT);
+			assertSame(layoutPart, slide.getRelationshipsPart().getPart(rel));
+			assertSame(layoutPart, slide.getSlideLayoutPart());
+			assertEquals(template.getRelationshipsPart().getRelationshipByType(Namespaces.PRESENTATIONML_SLIDE_LAYOUT).getId(),
+					rel.getId());
+		}
+		for (SldId sldId : pp.getJaxbElement().getSldIdLst().getSldId()) {
+			assertTrue(sldId.getId()>=256);
+			assertTrue(ids.add(sldId.getId()));
+			assertTrue(relIds.add(sldId.getRid()));
+		}
+
+		// and round trip
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(pkg).save(baos);
+		PresentationMLPackage loaded = (PresentationMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		assertEquals(201, loaded.getMainPresentationPart().getSlideCount());
+		SlidePart last = loaded.getMainPresentationPart().getSlide(200);
+		assertEquals("/ppt/slides/slide201.xml", last.getPartName().getName());
+		assertTrue(last.getSlideLayoutPart()!=null);
+	}
+
+	@Test
+	public void testSlideIds() throws Exception {
+
+		PresentationMLPackage pkg = PresentationMLPackage.createPackage();
+		MainPresentationPart pp = pkg.getMainPresentationPart();
+		SlidePart template = new SlidePart(new PartName("/ppt/slides/slide1.xml"));
+		template.setContents(SlidePart.createSld());
+		pp.addSlide(template);
+		List<SldId> sldIds = pp.getJaxbElement().getSldIdLst().getSldId();
+		sldIds.get(0).setId(2147483647L);
+
+		// no room after the highest id, so the gaps are used
+		pp.addSlides(template, 2);
+		assertEquals(256, sldIds.get(1).getId());
+		assertEquals(257, sldIds.get(2).getId());
+
+		// not enough ids: nothing is added
+		int parts = pkg.getParts().getParts().size();
+		try {
+			pp.addSlides(template, Integer.MAX_VALUE);
+			fail();
+		} catch (Pptx4jException e) {
+			// expected
+		}
+		assertEquals(3, pp.getSlideCount());
+		assertEquals(parts, pkg.getParts().getParts().size());
+
+		// nor for a negative count
+		try {
+			pp.addSlides(template, -1);
+			fail();
+		} catch (Pptx4jException e) {
+			// expected
+		}
+		assertEquals(3, pp.getSlideCount());
+		assertEquals(parts, pkg.getParts().getParts().size());
+	}
+
+}
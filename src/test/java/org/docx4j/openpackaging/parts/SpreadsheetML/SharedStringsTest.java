@@ -0,0 +1,106 @@
+package org.docx4j.openpackaging.parts.SpreadsheetML;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.docx4j.openpackaging.io.SaveToZipFile;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.junit.Test;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTRElt;
+import org.xlsx4j.sml.CTRst;
+import org.xlsx4j.sml.CTSst;
+import org.xlsx4j.sml.CTXstringWhitespace;
+
+public class SharedStringsTest {
+
+	@Test
+	public void testIntern() throws Exception {
+		
+		SharedStrings sharedStrings = new SharedStrings();
+		CTSst sst = Context.getsmlObjectFactory().createCTSst();
+		sst.getSi().add(rich("bold"));
+		sharedStrings.setJaxbElement(sst);
+		
+		// the rich text entry isn't reused for plain text
+		assertEquals(-1, sharedStrings.indexOf("bold"));
+		assertEquals(1, sharedStrings.intern("bold"));
+		assertEquals(2, sharedStrings.intern("b"));
+		assertEquals(1, sharedStrings.intern("bold"));
+		assertEquals(1, sharedStrings.indexOf("bold"));
+		assertEquals("bold", sharedStrings.getString(0));
+		assertEquals(3, sharedStrings.getStringCount());
+		
+		CTSst contents = sharedStrings.getContents();
+		assertEquals(3, contents.getSi().size());
+		assertEquals(3, contents.getUniqueCount().longValue());
+		assertEquals(3, contents.getCount().longValue());
+		assertEquals("b", contents.getSi().get(2).getT().getValue());
+	}
+
+	@Test
+	public void testEncoding() throws Exception {
+		
+		SharedStrings sharedStrings = new SharedStrings();
+		sharedStrings.setJaxbElement(Context.getsmlObjectFactory().createCTSst());
+		
+		assertEquals(0, sharedStrings.intern("a\u0001b"));
+		assertEquals(1, sharedStrings.intern("_x0001_"));
+		assertEquals("a_x0001_b", sharedStrings.getString(0));
+		assertEquals("_x005F_x0001_", sharedStrings.getString(1));
+	}
+	
+	@Test
+	public void testInternWithoutUnmarshalling() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet1.xml"), "Sheet1", 1);
+		SharedStrings sharedStrings = new SharedStrings();
+		sharedStrings.setJaxbElement(Context.getsmlObjectFactory().createCTSst());
+		pkg.getWorkbookPart().addTargetPart(sharedStrings);
+		for (int i=0; i<100000; i++) {
+			sharedStrings.intern("s" + i);
+		}
+		assertEquals(99999, sharedStrings.intern("s99999"));
+		
+		SpreadsheetMLPackage loaded = saveAndLoad(pkg);
+		sharedStrings = loaded.getWorkbookPart().getSharedStrings();
+		assertEquals(100000, sharedStrings.getStringCount());
+		assertEquals(12345, sharedStrings.indexOf("s12345"));
+		assertFalse(sharedStrings.isUnmarshalled());
+		
+		assertEquals(100000, sharedStrings.intern("new"));
+		assertTrue(sharedStrings.isUnmarshalled());
+		
+		loaded = saveAndLoad(loaded);
+		CTSst sst = loaded.getWorkbookPart().getSharedStrings().getContents();
+		assertEquals(100001, sst.getSi().size());
+		assertEquals("new", sst.getSi().get(100000).getT().getValue());
+		assertEquals(100002, sst.getCount().longValue());
+	}
+	
+	private static SpreadsheetMLPackage saveAndLoad(SpreadsheetMLPackage pkg) throws Exception {
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(pkg).save(baos);
+		return (SpreadsheetMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+	}
+	
+	private static CTRst rich(String text) {
+		
+		CTXstringWhitespace t = Context.getsmlObjectFactory().createCTXstringWhitespace();
+		t.setValue(text);
+		CTRElt r = Context.getsmlObjectFactory().createCTRElt();
+		r.setT(t);
+		CTRst si = Context.getsmlObjectFactory().createCTRst();
+		si.getR().add(r);
+		return si;
+	}
+
+}
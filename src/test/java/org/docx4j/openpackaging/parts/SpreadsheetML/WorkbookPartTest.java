@@ -0,0 +1,61 @@
+package org.docx4j.openpackaging.parts.SpreadsheetML;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.docx4j.openpackaging.io.SaveToZipFile;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.junit.Test;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.model.WorksheetWriter;
+import org.xlsx4j.sml.Row;
+
+public class WorkbookPartTest {
+
+	@Test
+	public void testLoadWorksheets() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		Styles styles = new Styles();
+		styles.setJaxbElement(Context.getsmlObjectFactory().createCTStylesheet());
+		pkg.getWorkbookPart().addTargetPart(styles);
+		for (int s=1; s<=6; s++) {
+			WorksheetPart sheet = pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet" + s + ".xml"), "Sheet" + s, s);
+			WorksheetWriter writer = new WorksheetWriter(sheet);
+			for (int r=0; r<s * 100; r++) {
+				Row row = writer.createRow();
+				writer.addString(row, 0, "sheet " + s);
+				writer.addNumber(row, 1, r);
+			}
+			writer.close();
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(pkg).save(baos);
+		
+		SpreadsheetMLPackage loaded = (SpreadsheetMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		WorkbookPart workbook = loaded.getWorkbookPart();
+		assertFalse(workbook.getWorksheet(0).isUnmarshalled());
+		
+		List<WorksheetPart> some = workbook.loadWorksheets(new int[] {4, 1}, 2);
+		assertEquals("/xl/worksheets/sheet5.xml", some.get(0).getPartName().getName());
+		assertTrue(some.get(1).isUnmarshalled());
+		assertFalse(workbook.getWorksheet(0).isUnmarshalled());
+		
+		List<WorksheetPart> all = workbook.loadWorksheets();
+		assertEquals(6, all.size());
+		for (int s=0; s<6; s++) {
+			assertTrue(all.get(s).isUnmarshalled());
+			assertEquals((s+1) * 100, all.get(s).getContents().getSheetData().getRow().size());
+		}
+		assertTrue(workbook.getSharedStrings().isUnmarshalled());
+		assertTrue(workbook.getStylesPart().isUnmarshalled());
+	}
+
+}
@@ -0,0 +1,94 @@
+package org.docx4j.openpackaging.parts.WordprocessingML;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.junit.Test;
+
+/**
+ * Check that sniffing the header gives the same answers
+ * as xmlgraphics does.
+ */
+public class ImageHeaderSnifferTest {
+	
+	private static final String[] FILES = {
+		"/src/test/resources/images/greentick.png",
+		"/src/test/resources/images/VENUS.BMP",
+		"/sample-docs/word/metafile-samples/gradient.emf",
+		"/sample-docs/word/metafile-samples/star_picture_save_as.emf"
+	};
+	
+	@Test
+	public void testFiles() throws Exception {
+		
+		for (String path : FILES) {
+			File f = new File(System.getProperty("user.dir") + path);
+			compare(f.getName(), FileUtils.readFileToByteArray(f));
+		}
+	}
+
+	@Test
+	public void testWMF() throws Exception {
+		
+		// FOP's WMF preloader needs Batik, so check the placeable header directly:
+		// bounding box 0,0 1112,1016 at 576 units per inch
+		File f = new File(System.getProperty("user.dir") + "/sample-docs/word/metafile-samples/star_picture_save_as.wmf");
+		ImageInfo sniffed = ImageHeaderSniffer.sniff(FileUtils.readFileToByteArray(f), null, 72);
+		assertNotNull(sniffed);
+		assertEquals("image/x-wmf", sniffed.getMimeType());
+		assertEquals(1112, sniffed.getSize().getWidthPx());
+		assertEquals(1016, sniffed.getSize().getHeightPx());
+		assertEquals(576, sniffed.getSize().getDpiHorizontal(), 0.01);
+		assertEquals(1112 * 72000 / 576, sniffed.getSize().getWidthMpt());
+	}
+
+	@Test
+	public void testGenerated() throws Exception {
+		
+		BufferedImage image = new BufferedImage(37, 23, BufferedImage.TYPE_INT_RGB);
+		for (String format : new String[] {"jpeg", "gif", "png", "bmp"}) {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ImageIO.write(image, format, baos);
+			compare(format, baos.toByteArray());
+		}
+	}
+
+	@Test
+	public void testNotAnImage() throws Exception {
+		
+		assertNull(ImageHeaderSniffer.sniff("%!PS-Adobe-3.0 EPSF-3.0".getBytes(), null, 72));
+		assertNull(ImageHeaderSniffer.sniff(new byte[] {(byte)0x89, 'P', 'N', 'G'}, null, 72));
+	}
+	
+	private void compare(String name, byte[] bytes) throws Exception {
+		
+		double sourceResolution = BinaryPartAbstractImage.getImageManager().getImageContext().getSourceResolution();
+		ImageInfo sniffed = ImageHeaderSniffer.sniff(bytes, null, sourceResolution);
+		assertNotNull(name, sniffed);
+		
+		File tmp = File.createTempFile("sniff", ".img");
+		try {
+			FileUtils.writeByteArrayToFile(tmp, bytes);
+			ImageInfo expected = BinaryPartAbstractImage.getImageInfo(tmp.toURI().toURL());
+			
+			assertEquals(name, expected.getMimeType(), sniffed.getMimeType());
+			assertEquals(name, expected.getSize().getWidthPx(), sniffed.getSize().getWidthPx());
+			assertEquals(name, expected.getSize().getHeightPx(), sniffed.getSize().getHeightPx());
+			assertEquals(name, expected.getSize().getDpiHorizontal(), sniffed.getSize().getDpiHorizontal(), 0.01);
+			assertEquals(name, expected.getSize().getDpiVertical(), sniffed.getSize().getDpiVertical(), 0.01);
+			assertEquals(name, expected.getSize().getWidthMpt(), sniffed.getSize().getWidthMpt(), 1);
+			assertEquals(name, expected.getSize().getHeightMpt(), sniffed.getSize().getHeightMpt(), 1);
+		} finally {
+			tmp.delete();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package org.docx4j.openpackaging.parts.WordprocessingML;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.junit.Test;
+
+public class ImageIOConverterTest {
+	
+	private ImageIOConverter converter = new ImageIOConverter(2);
+
+	@Test
+	public void testWBMP() throws Exception {
+		
+		// WBMP isn't supported by Word, but ImageIO can read it
+		BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_BYTE_BINARY);
+		ByteArrayOutputStream wbmp = new ByteArrayOutputStream();
+		assertTrue(ImageIO.write(image, "wbmp", wbmp));
+		
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		assertTrue(converter.convertToPNG(wbmp.toByteArray(), png, 150));
+		
+		ImageInfo info = ImageHeaderSniffer.sniff(png.toByteArray(), null, 72);
+		assertEquals("image/png", info.getMimeType());
+		assertEquals(40, info.getSize().getWidthPx());
+		assertEquals(30, info.getSize().getHeightPx());
+		assertEquals(150, info.getSize().getDpiHorizontal(), 0.1);
+	}
+
+	@Test
+	public void testUnreadable() throws Exception {
+		
+		// eg EPS; left for the next converter
+		byte[] eps = "%!PS-Adobe-3.0 EPSF-3.0\n%%BoundingBox: 0 0 10 10\n".getBytes("US-ASCII");
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		assertFalse(converter.convertToPNG(eps, png, 150));
+		assertEquals(0, png.size());
+	}
+
+}
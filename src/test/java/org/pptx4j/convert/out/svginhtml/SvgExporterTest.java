@@ -0,0 +1,57 @@
+package org.pptx4j.convert.out.svginhtml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.PresentationMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.PresentationML.MainPresentationPart;
+import org.docx4j.openpackaging.parts.PresentationML.SlideLayoutPart;
+import org.docx4j.openpackaging.parts.PresentationML.SlidePart;
+import org.junit.Test;
+import org.pptx4j.jaxb.Context;
+
+public class SvgExporterTest {
+
+	private static final String SHAPE =
+		"<p:sp xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\" xmlns:p=\"http://schemas.openxmlformats.org/presentationml/2006/main\">"
+		+ "<p:nvSpPr><p:cNvPr id=\"4\" name=\"Title 3\" /><p:cNvSpPr><a:spLocks noGrp=\"1\" /></p:cNvSpPr>"
+		+ "<p:nvPr><p:ph type=\"title\" /></p:nvPr></p:nvSpPr>"
+		+ "<p:spPr />"
+		+ "<p:txBody><a:bodyPr /><a:lstStyle /><a:p><a:r><a:rPr lang=\"en-US\" /><a:t>TEXT</a:t></a:r></a:p></p:txBody>"
+		+ "</p:sp>";
+
+	@Test
+	public void testDeck() throws Exception {
+
+		PresentationMLPackage pkg = PresentationMLPackage.createPackage();
+		MainPresentationPart pp = (MainPresentationPart)pkg.getParts().getParts().get(
+				new PartName("/ppt/presentation.xml"));
+		SlideLayoutPart layoutPart = (SlideLayoutPart)pkg.getParts().getParts().get(
+				new PartName("/ppt/slideLayouts/slideLayout1.xml"));
+
+		List<SlidePart> slides = new ArrayList<SlidePart>();
+		for (int i=1; i<=5; i++) {
+			SlidePart slidePart = new SlidePart(new PartName("/ppt/slides/slide" + i + ".xml"));
+			slidePart.setContents(SlidePart.createSld());
+			pp.addSlide(i-1, slidePart);
+			slidePart.addTargetPart(layoutPart);
+			slidePart.getContents().getCSld().getSpTree().getSpOrGrpSpOrGraphicFrame().add(
+					XmlUtils.unmarshalString(SHAPE.replace("TEXT", "Slide number " + i), Context.jcPML));
+			slides.add(slidePart);
+		}
+
+		List<String> pages = SvgExporter.svg(pkg, slides, null, 3);
+		assertEquals(slides.size(), pages.size());
+		for (int i=0; i<slides.size(); i++) {
+			assertTrue(pages.get(i).contains("Slide number " + (i+1)));
+			// same as converting the slide on its own
+			assertEquals(SvgExporter.svg(pkg, slides.get(i)), pages.get(i));
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.pptx4j.model;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.packages.PresentationMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.PresentationML.MainPresentationPart;
+import org.docx4j.openpackaging.parts.PresentationML.SlideLayoutPart;
+import org.docx4j.openpackaging.parts.PresentationML.SlideMasterPart;
+import org.docx4j.openpackaging.parts.PresentationML.SlidePart;
+import org.junit.Test;
+import org.pptx4j.jaxb.Context;
+
+public class LayoutCacheTest {
+
+	@Test
+	public void testInvalidation() throws Exception {
+
+		PresentationMLPackage pkg = PresentationMLPackage.createPackage();
+		MainPresentationPart pp = (MainPresentationPart)pkg.getParts().getParts().get(
+				new PartName("/ppt/presentation.xml"));
+		SlideLayoutPart layoutPart = (SlideLayoutPart)pkg.getParts().getParts().get(
+				new PartName("/ppt/slideLayouts/slideLayout1.xml"));
+		SlideMasterPart masterPart = layoutPart.getSlideMasterPart();
+
+		SlidePart slide1 = new SlidePart(new PartName("/ppt/slides/slide1.xml"));
+		slide1.setContents(SlidePart.createSld());
+		pp.addSlide(0, slide1);
+		slide1.addTargetPart(layoutPart);
+
+		LayoutCache cache = pkg.getLayoutCache();
+
+		// cached
+		ResolvedLayout layout = layoutPart.getResolvedLayout();
+		ResolvedLayout slide = slide1.getResolvedLayout();
+		assertSame(layout, layoutPart.getResolvedLayout());
+		assertSame(layout, cache.getResolvedLayout(layoutPart));
+		assertSame(slide, slide1.getResolvedLayout());
+		assertSame(layoutPart.getIndexedPlaceHolders(), layoutPart.getIndexedPlaceHolders());
+		assertSame(pkg.getPlaceHoldersFromAcrossLayouts(), pkg.getPlaceHoldersFromAcrossLayouts());
+		assertTrue(pkg.getPlaceHoldersFromAcrossLayouts().keySet().containsAll(
+				layoutPart.getIndexedPlaceHolders().keySet()));
+
+		// a new slide doesn't affect the layout
+		slide1.setJaxbElement(XmlUtils.deepCopy(slide1.getJaxbElement(), Context.jcPML));
+		assertNotSame(slide, slide1.getResolvedLayout());
+		assertSame(layout, layoutPart.getResolvedLayout());
+		slide = slide1.getResolvedLayout();
+
+		// a new master means the layout, and so the slide, are resolved again
+		Object across = pkg.getPlaceHoldersFromAcrossLayouts();
+		masterPart.setJaxbElement(XmlUtils.deepCopy(masterPart.getJaxbElement(), Context.jcPML));
+		assertNotSame(layout, layoutPart.getResolvedLayout());
+		assertNotSame(slide, slide1.getResolvedLayout());
+		assertNotSame(across, pkg.getPlaceHoldersFromAcrossLayouts());
+		layout = layoutPart.getResolvedLayout();
+		slide = slide1.getResolvedLayout();
+
+		// changes in place need to be notified
+		cache.invalidate(layoutPart);
+		assertNotSame(layout, layoutPart.getResolvedLayout());
+		assertNotSame(slide, slide1.getResolvedLayout());
+		slide = slide1.getResolvedLayout();
+		cache.rescan();
+		assertNotSame(slide, slide1.getResolvedLayout());
+	}
+
+}
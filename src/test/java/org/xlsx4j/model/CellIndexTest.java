@@ -0,0 +1,97 @@
+package org.xlsx4j.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.Cell;
+import org.xlsx4j.sml.Row;
+import org.xlsx4j.sml.Worksheet;
+
+public class CellIndexTest {
+
+	@Test
+	public void testCellRef() {
+		
+		String[] names = {"A", "Z", "AA", "AZ", "BA", "ZZ", "AAA", "XFD"};
+		int[] columns = {0, 25, 26, 51, 52, 701, 702, 16383};
+		for (int i=0; i<names.length; i++) {
+			assertEquals(names[i], CellRef.columnName(columns[i]));
+			assertEquals(columns[i], CellRef.column(names[i] + "7"));
+		}
+		assertEquals("AB12", CellRef.toString(12, 27));
+		assertEquals(27, CellRef.column("$AB$12"));
+		assertEquals(12, CellRef.row("$AB$12"));
+		assertEquals(-1, CellRef.row("AB"));
+		assertEquals(-1, CellRef.column("12"));
+		assertEquals(-1, CellRef.parse("A1B"));
+		assertEquals(-1, CellRef.row("A0"));
+		assertEquals(-1, CellRef.parse("A0"));
+		
+		long packed = CellRef.parse("c3");
+		assertEquals(3, CellRef.getRow(packed));
+		assertEquals(2, CellRef.getColumn(packed));
+		assertEquals(true, CellRef.parse("B2") < CellRef.parse("A3"));
+	}
+	
+	@Test
+	public void testIndex() {
+		
+		Worksheet worksheet = Context.getsmlObjectFactory().createWorksheet();
+		
+		// an unsorted row, whose cells lack r
+		worksheet.setSheetData(Context.getsmlObjectFactory().createSheetData());
+		Row row5 = Context.getsmlObjectFactory().createRow();
+		row5.setR(5L);
+		row5.getC().add(Context.getsmlObjectFactory().createCell());
+		row5.getC().add(Context.getsmlObjectFactory().createCell());
+		Row row2 = Context.getsmlObjectFactory().createRow();
+		row2.setR(2L);
+		worksheet.getSheetData().getRow().add(row5);
+		worksheet.getSheetData().getRow().add(row2);
+		
+		CellIndex index = new CellIndex(worksheet);
+		assertSame(row2, worksheet.getSheetData().getRow().get(0));
+		assertEquals("B5", index.get(5, 1).getR());
+		
+		for (int r=1000; r>0; r-=3) {
+			for (int c=10; c>=0; c-=2) {
+				index.put(r, c).setV(r + "," + c);
+			}
+		}
+		assertEquals("E40", index.get(40, 4).getR());
+		assertEquals("40,4", index.get("E40").getV());
+		assertNull(index.get(41, 4));
+		assertNull(index.get(40, 5));
+		assertSame(index.get(40, 4), index.put(40, 4));
+		
+		List<String> values = new ArrayList<String>();
+		for (Cell cell : index.range("D2:G10")) {
+			values.add(cell.getV());
+		}
+		assertEquals("[4,4, 4,6, 7,4, 7,6, 10,4, 10,6]", values.toString());
+		
+		assertEquals("40,4", index.remove(40, 4).getV());
+		assertNull(index.get(40, 4));
+		
+		int count = 0;
+		for (Cell cell : index.range(1, 0, 1000, 16383)) {
+			count++;
+		}
+		assertEquals(334 * 6 + 2 - 1, count);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testRowZero() {
+		
+		Worksheet worksheet = Context.getsmlObjectFactory().createWorksheet();
+		worksheet.setSheetData(Context.getsmlObjectFactory().createSheetData());
+		new CellIndex(worksheet).put(0, 0);
+	}
+
+}
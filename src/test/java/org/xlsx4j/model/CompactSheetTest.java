@@ -0,0 +1,123 @@
+package org.xlsx4j.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.docx4j.openpackaging.io.SaveToZipFile;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.SpreadsheetML.SharedStrings;
+import org.docx4j.openpackaging.parts.SpreadsheetML.WorksheetPart;
+import org.junit.Test;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTCellFormula;
+import org.xlsx4j.sml.Cell;
+import org.xlsx4j.sml.Row;
+import org.xlsx4j.sml.STCellType;
+import org.xlsx4j.sml.Worksheet;
+
+public class CompactSheetTest {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		WorksheetPart sheetPart = pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet1.xml"), "Sheet1", 1);
+		SharedStrings sharedStrings = new SharedStrings();
+		sharedStrings.setJaxbElement(Context.getsmlObjectFactory().createCTSst());
+		pkg.getWorkbookPart().addTargetPart(sharedStrings);
+		
+		CompactSheet sheet = new CompactSheet();
+		for (int r=1; r<=1000; r++) {
+			sheet.setSharedString(r, 0, sharedStrings.intern("item " + (r % 10)));
+			sheet.setNumber(r, 1, r * 0.25);
+		}
+		// out of order
+		sheet.setInlineString(3, 5, "inline");
+		sheet.setBoolean(2, 4, true);
+		CTCellFormula f = Context.getsmlObjectFactory().createCTCellFormula();
+		f.setValue("SUM(B1:B1000)");
+		sheet.setFormula(1001, 1, f);
+		sheet.setNumber(1001, 1, 125125);
+		sheet.setStyle(1001, 1, 0);
+		Row properties = Context.getsmlObjectFactory().createRow();
+		properties.setHt(30d);
+		properties.setCustomHeight(Boolean.TRUE);
+		sheet.setRowProperties(1002, properties);
+		assertEquals(2003, sheet.size());
+		
+		sheet.toWorksheet(sheetPart.getContents());
+		assertEquals(1002, sheetPart.getContents().getSheetData().getRow().size());
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(pkg).save(baos);
+		SpreadsheetMLPackage loaded = (SpreadsheetMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		WorksheetPart loadedPart = loaded.getWorkbookPart().getWorksheet(0);
+		
+		CompactSheet streamed = CompactSheet.read(loadedPart);
+		assertFalse(loadedPart.isUnmarshalled());
+		CompactSheet converted = CompactSheet.fromWorksheet(loadedPart.getContents());
+		
+		List<String> strings = loaded.getWorkbookPart().getSharedStrings().getStrings();
+		for (CompactSheet s : new CompactSheet[] {streamed, converted}) {
+			
+			assertEquals(2003, s.size());
+			int i = s.indexOf(500, 1);
+			assertEquals(CompactSheet.NUMBER, s.getType(i));
+			assertEquals(125, s.getValue(i), 0);
+			assertEquals("item 0", s.getString(s.indexOf(500, 0), strings));
+			assertEquals("inline", s.getText(s.indexOf(3, 5)));
+			assertEquals(1, s.getValue(s.indexOf(2, 4)), 0);
+			assertEquals("SUM(B1:B1000)", s.getFormula(s.indexOf(1001, 1)).getValue());
+			assertTrue(s.indexOf(1002, 0) < 0);
+			assertEquals(30d, s.getRowProperties(1002).getHt(), 0);
+			assertNull(s.getRowProperties(1000));
+		}
+	}
+
+	@Test
+	public void testOverwrite() throws Exception {
+		
+		CompactSheet sheet = new CompactSheet();
+		sheet.setInlineString(1, 0, "a");
+		sheet.setInlineString(1, 1, "b");
+		sheet.setInlineString(1, 0, "c"); // reuses a's slot
+		sheet.setNumber(1, 1, 2); // frees b's
+		sheet.setInlineString(2, 0, "d"); // takes it
+		assertEquals("c", sheet.getText(sheet.indexOf(1, 0)));
+		assertNull(sheet.getText(sheet.indexOf(1, 1)));
+		assertEquals(2, sheet.getValue(sheet.indexOf(1, 1)), 0);
+		assertEquals("d", sheet.getText(sheet.indexOf(2, 0)));
+		
+		// a later cell with the same reference replaces the formula, too
+		Worksheet worksheet = Context.getsmlObjectFactory().createWorksheet();
+		worksheet.setSheetData(Context.getsmlObjectFactory().createSheetData());
+		Row row = Context.getsmlObjectFactory().createRow();
+		row.setR(1L);
+		Cell c = Context.getsmlObjectFactory().createCell();
+		c.setR("A1");
+		c.setT(STCellType.STR);
+		c.setV("x");
+		c.setF(Context.getsmlObjectFactory().createCTCellFormula());
+		c.getF().setValue("\"x\"");
+		row.getC().add(c);
+		c = Context.getsmlObjectFactory().createCell();
+		c.setR("A1");
+		c.setV("3");
+		row.getC().add(c);
+		worksheet.getSheetData().getRow().add(row);
+		sheet = CompactSheet.fromWorksheet(worksheet);
+		assertEquals(1, sheet.size());
+		assertEquals(CompactSheet.NUMBER, sheet.getType(0));
+		assertNull(sheet.getFormula(0));
+		assertNull(sheet.getText(0));
+	}
+
+}
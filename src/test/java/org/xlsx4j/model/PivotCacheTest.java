@@ -0,0 +1,98 @@
+package org.xlsx4j.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.docx4j.openpackaging.io.SaveToZipFile;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.SpreadsheetML.PivotCacheDefinition;
+import org.docx4j.openpackaging.parts.SpreadsheetML.PivotCacheRecords;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.junit.Test;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTCacheField;
+import org.xlsx4j.sml.CTPivotCacheDefinition;
+
+public class PivotCacheTest {
+	
+	private static final String[] REGIONS = {"North", "South", "East & West"};
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet1.xml"), "Sheet1", 1);
+		PivotCacheDefinition definitionPart = new PivotCacheDefinition();
+		CTPivotCacheDefinition definition = Context.getsmlObjectFactory().createCTPivotCacheDefinition();
+		definition.setCacheFields(Context.getsmlObjectFactory().createCTCacheFields());
+		for (String name : new String[] {"Region", "Amount", "Note"}) {
+			CTCacheField field = Context.getsmlObjectFactory().createCTCacheField();
+			field.setName(name);
+			definition.getCacheFields().getCacheField().add(field);
+		}
+		definitionPart.setJaxbElement(definition);
+		pkg.getWorkbookPart().addTargetPart(definitionPart);
+		
+		PivotCacheWriter writer = new PivotCacheWriter(definitionPart);
+		// the records part was created, and the definition refers to it
+		assertEquals(definitionPart.getRelationshipsPart().getRelationshipByType(
+				Namespaces.SPREADSHEETML_PIVOT_CACHE_RECORDS).getId(), definition.getId());
+		for (int i=0; i<10000; i++) {
+			writer.startRecord();
+			writer.addSharedString(REGIONS[i % 3]);
+			writer.addNumber(i * 0.5);
+			if (i % 2 == 0) {
+				writer.addString("<even>");
+			} else {
+				writer.addMissing();
+			}
+		}
+		writer.close();
+		assertEquals(3, definition.getCacheFields().getCacheField().get(0).getSharedItems().getCount().longValue());
+		assertEquals(10000, definition.getRecordCount().longValue());
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(pkg).save(baos);
+		writer.dispose();
+		
+		SpreadsheetMLPackage loaded = (SpreadsheetMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		PivotCacheDefinition loadedDefinition = (PivotCacheDefinition)loaded.getParts().get(
+				new PartName("/xl/pivotCache/pivotCacheDefinition1.xml"));
+		PivotCacheRecords records = PivotCacheReader.getRecordsPart(loadedDefinition);
+		assertEquals(records.getPartName(), loadedDefinition.getRelationshipsPart().getPart(
+				loadedDefinition.getContents().getId()).getPartName());
+		
+		// streamed, then unmarshalled
+		for (int pass=0; pass<2; pass++) {
+			
+			PivotCacheReader reader = new PivotCacheReader(loadedDefinition);
+			int count = 0;
+			while (reader.hasNext()) {
+				PivotRecordView record = reader.next();
+				assertEquals(3, record.getFieldCount());
+				assertEquals(REGIONS[count % 3], record.getString(0));
+				assertEquals(count % 3, record.getSharedIndex(0));
+				assertEquals(count * 0.5, record.getNumber(1), 0);
+				if (count % 2 == 0) {
+					assertEquals("<even>", record.getString(2));
+				} else {
+					assertEquals(PivotRecordView.MISSING, record.getType(2));
+				}
+				count++;
+			}
+			reader.close();
+			assertEquals(10000, count);
+			
+			if (pass==0) {
+				assertFalse(records.isUnmarshalled());
+				assertEquals(10000, records.getContents().getR().size());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package org.xlsx4j.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.bind.JAXBElement;
+
+import org.docx4j.openpackaging.io.SaveToZipFile;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.SpreadsheetML.Styles;
+import org.junit.Test;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTBooleanProperty;
+import org.xlsx4j.sml.CTFont;
+import org.xlsx4j.sml.CTFontSize;
+import org.xlsx4j.sml.CTStylesheet;
+import org.xlsx4j.sml.CTXf;
+
+public class StyleRegistryTest {
+
+	@Test
+	public void testFindOrAdd() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet1.xml"), "Sheet1", 1);
+		Styles styles = new Styles();
+		styles.setJaxbElement(Context.getsmlObjectFactory().createCTStylesheet());
+		pkg.getWorkbookPart().addTargetPart(styles);
+		
+		StyleRegistry registry = styles.getStyleRegistry();
+		long bold = registry.getCellXfIndex(boldFont(12), null, null, null, null);
+		assertEquals(1, bold); // after the default
+		for (int i=0; i<1000; i++) {
+			assertEquals(bold, registry.getCellXfIndex(boldFont(12), null, null, null, null));
+		}
+		long money = registry.getCellXfIndex(boldFont(12), null, null, "#,##0.000", null);
+		assertEquals(2, money);
+		assertEquals(164, registry.getNumFmtId("#,##0.000"));
+		assertEquals(3, registry.getCellXfIndex(boldFont(14), null, null, null, null));
+		
+		CTStylesheet stylesheet = styles.getContents();
+		assertEquals(3, stylesheet.getFonts().getFont().size()); // default, 12, 14
+		assertEquals(2, stylesheet.getFills().getFill().size());
+		assertEquals(4, stylesheet.getCellXfs().getCount().longValue());
+		
+		// Existing records are found after a round trip
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(pkg).save(baos);
+		SpreadsheetMLPackage loaded = (SpreadsheetMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		registry = loaded.getWorkbookPart().getStylesPart().getStyleRegistry();
+		assertEquals(money, registry.getCellXfIndex(boldFont(12), null, null, "#,##0.000", null));
+		assertEquals(4, loaded.getWorkbookPart().getStylesPart().getContents().getCellXfs().getXf().size());
+		assertTrue(registry.getFontId(boldFont(16)) == 3);
+	}
+	
+	@Test
+	public void testBuiltInAndDefaults() throws Exception {
+		
+		Styles styles = new Styles();
+		styles.setJaxbElement(Context.getsmlObjectFactory().createCTStylesheet());
+		StyleRegistry registry = styles.getStyleRegistry();
+		
+		// built in number formats aren't added
+		assertEquals(0, registry.getNumFmtId("General"));
+		assertEquals(2, registry.getNumFmtId("0.00"));
+		assertEquals(9, registry.getNumFmtId("0%"));
+		assertEquals(14, registry.getNumFmtId("mm-dd-yy"));
+		assertEquals(49, registry.getNumFmtId("@"));
+		assertNull(styles.getContents().getNumFmts());
+		assertEquals(164, registry.getNumFmtId("0.000"));
+		assertEquals(164, registry.getNumFmtId("0.000"));
+		assertEquals(1, styles.getContents().getNumFmts().getNumFmt().size());
+		
+		// an attribute set to its default is the same as one which isn't set
+		CTXf xf = Context.getsmlObjectFactory().createCTXf();
+		xf.setFontId(0L);
+		long i = registry.getCellXfIndex(xf);
+		xf.setQuotePrefix(Boolean.FALSE);
+		xf.setPivotButton(Boolean.FALSE);
+		assertEquals(i, registry.getCellXfIndex(xf));
+		
+		CTFont plain = boldFont(12);
+		CTFont bold = boldFont(12);
+		((CTBooleanProperty)((JAXBElement<?>)bold.getNameOrCharsetOrFamily().get(0)).getValue()).setVal(Boolean.TRUE);
+		assertEquals(registry.getFontId(plain), registry.getFontId(bold));
+	}
+	
+	private static CTFont boldFont(double size) {
+		
+		CTFont font = Context.getsmlObjectFactory().createCTFont();
+		CTBooleanProperty b = Context.getsmlObjectFactory().createCTBooleanProperty();
+		font.getNameOrCharsetOrFamily().add(Context.getsmlObjectFactory().createCTFontB(b));
+		CTFontSize sz = Context.getsmlObjectFactory().createCTFontSize();
+		sz.setVal(size);
+		font.getNameOrCharsetOrFamily().add(Context.getsmlObjectFactory().createCTFontSz(sz));
+		return font;
+	}
+
+}
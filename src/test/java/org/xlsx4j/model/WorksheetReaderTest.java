@@ -0,0 +1,132 @@
+package org.xlsx4j.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.docx4j.openpackaging.io.SaveToZipFile;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.SpreadsheetML.SharedStrings;
+import org.docx4j.openpackaging.parts.SpreadsheetML.WorksheetPart;
+import org.junit.Test;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTCellFormula;
+import org.xlsx4j.sml.CTRst;
+import org.xlsx4j.sml.CTSst;
+import org.xlsx4j.sml.CTXstringWhitespace;
+import org.xlsx4j.sml.Cell;
+import org.xlsx4j.sml.Row;
+import org.xlsx4j.sml.STCellType;
+import org.xlsx4j.sml.SheetData;
+
+public class WorksheetReaderTest {
+	
+	private static CTRst rst(String text) {
+		CTXstringWhitespace t = Context.getsmlObjectFactory().createCTXstringWhitespace();
+		t.setValue(text);
+		CTRst rst = Context.getsmlObjectFactory().createCTRst();
+		rst.setT(t);
+		return rst;
+	}
+	
+	private static Cell cell(String ref, STCellType type, String v) {
+		Cell cell = Context.getsmlObjectFactory().createCell();
+		cell.setR(ref);
+		cell.setT(type);
+		cell.setV(v);
+		return cell;
+	}
+	
+	private static SpreadsheetMLPackage createPackage() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		
+		SharedStrings sharedStrings = new SharedStrings();
+		CTSst sst = Context.getsmlObjectFactory().createCTSst();
+		sst.getSi().add(rst("hello"));
+		sst.getSi().add(rst("world"));
+		sharedStrings.setJaxbElement(sst);
+		pkg.getWorkbookPart().addTargetPart(sharedStrings);
+		
+		WorksheetPart sheet = pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet1.xml"), "Sheet1", 1);
+		SheetData sheetData = sheet.getContents().getSheetData();
+		
+		Row row1 = Context.getsmlObjectFactory().createRow();
+		row1.setR(1L);
+		row1.getC().add(cell("A1", STCellType.S, "1"));
+		row1.getC().add(cell("B1", null, "42.5"));
+		Cell inline = cell("D1", STCellType.INLINE_STR, null);
+		inline.setIs(rst("inline"));
+		row1.getC().add(inline);
+		sheetData.getRow().add(row1);
+		
+		Row row3 = Context.getsmlObjectFactory().createRow();
+		row3.setR(3L);
+		row3.setHidden(true);
+		Cell formula = cell(null, null, "85");
+		CTCellFormula f = Context.getsmlObjectFactory().createCTCellFormula();
+		f.setValue("B1*2");
+		formula.setF(f);
+		formula.setS(2L);
+		row3.getC().add(formula);
+		sheetData.getRow().add(row3);
+		
+		return pkg;
+	}
+	
+	private static void check(WorksheetPart sheet) throws Exception {
+		
+		WorksheetReader reader = new WorksheetReader(sheet);
+		
+		assertTrue(reader.hasNext());
+		RowView row = reader.next();
+		assertEquals(1, row.getRowNumber());
+		assertEquals(3, row.getCellCount());
+		assertEquals("world", row.getCell(0).getString());
+		assertEquals(STCellType.S, row.getCell(0).getType());
+		assertEquals(42.5, row.getCell(1).getNumber(), 0);
+		assertEquals(1, row.getCell(1).getColumn());
+		assertEquals("inline", row.getCellInColumn(3).getString());
+		assertNull(row.getCellInColumn(2));
+		
+		assertTrue(reader.hasNext());
+		row = reader.next();
+		assertEquals(3, row.getRowNumber());
+		assertTrue(row.isHidden());
+		CellView cell = row.getCell(0);
+		assertEquals(0, cell.getColumn());
+		assertEquals("B1*2", cell.getFormula());
+		assertEquals("85", cell.getString());
+		assertEquals(2, cell.getStyleIndex());
+		
+		assertFalse(reader.hasNext());
+		reader.close();
+	}
+
+	@Test
+	public void testUnmarshalled() throws Exception {
+		
+		check(createPackage().getWorkbookPart().getWorksheet(0));
+	}
+	
+	@Test
+	public void testStreamed() throws Exception {
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(createPackage()).save(baos);
+		SpreadsheetMLPackage pkg = (SpreadsheetMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		
+		WorksheetPart sheet = pkg.getWorkbookPart().getWorksheet(0);
+		assertFalse(sheet.isUnmarshalled());
+		check(sheet);
+		assertFalse(sheet.isUnmarshalled());
+		assertFalse(pkg.getWorkbookPart().getSharedStrings().isUnmarshalled());
+	}
+
+}
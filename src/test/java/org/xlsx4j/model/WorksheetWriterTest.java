@@ -0,0 +1,148 @@
+package org.xlsx4j.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io.SaveToZipFile;
+import org.docx4j.openpackaging.packages.OpcPackage;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.SpreadsheetML.WorksheetPart;
+import org.junit.Test;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTCellFormula;
+import org.xlsx4j.sml.CTRst;
+import org.xlsx4j.sml.Cell;
+import org.xlsx4j.sml.Row;
+import org.xlsx4j.sml.STCellType;
+
+public class WorksheetWriterTest {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		WorksheetPart sheet = pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet1.xml"), "Sheet1", 1);
+		
+		WorksheetWriter writer = new WorksheetWriter(sheet, 10);
+		for (int i=1; i<=1000; i++) {
+			Row row = writer.createRow();
+			writer.addString(row, 0, "name " + (i % 7));
+			writer.addNumber(row, 1, i * 1.5);
+		}
+		
+		// Go back and change a row still in the window
+		Row row995 = writer.getRow(995);
+		assertNotNull(row995);
+		Cell formula = writer.addCell(row995, 2);
+		CTCellFormula f = Context.getsmlObjectFactory().createCTCellFormula();
+		f.setValue("B995&\"<x>\"");
+		formula.setF(f);
+		
+		// but not one which has been written
+		assertNull(writer.getRow(5));
+		try {
+			writer.createRow(5);
+			fail();
+		} catch (Docx4JException e) {}
+		
+		writer.addString(writer.createRow(), 3, " <odd> & \u0001 ");
+		writer.close();
+		
+		assertEquals(8, pkg.getWorkbookPart().getSharedStrings().getContents().getSi().size());
+		assertEquals("A1:D1001", sheet.getContents().getDimension().getRef());
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(pkg).save(baos);
+		writer.dispose();
+		
+		SpreadsheetMLPackage loaded = (SpreadsheetMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		WorksheetReader reader = new WorksheetReader(loaded.getWorkbookPart().getWorksheet(0));
+		int count = 0;
+		while (reader.hasNext()) {
+			RowView row = reader.next();
+			count++;
+			assertEquals(count, row.getRowNumber());
+			if (count<=1000) {
+				assertEquals("name " + (count % 7), row.getCell(0).getString());
+				assertEquals(count * 1.5, row.getCell(1).getNumber(), 0);
+			}
+			if (count==995) {
+				assertEquals("B995&\"<x>\"", row.getCell(2).getFormula());
+			}
+			if (count==1001) {
+				assertEquals(" <odd> & _x0001_ ", row.getCellInColumn(3).getString());
+			}
+		}
+		assertEquals(1001, count);
+		
+		// and it unmarshals
+		assertEquals(1001, loaded.getWorkbookPart().getWorksheet(0).getContents().getSheetData().getRow().size());
+		assertFalse(loaded.getWorkbookPart().getWorksheet(0).getContents().getSheetData().getRow().get(0).getC().isEmpty());
+	}
+
+	@Test
+	public void testNotANumber() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		WorksheetPart sheet = pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet1.xml"), "Sheet1", 1);
+		WorksheetWriter writer = new WorksheetWriter(sheet);
+		Row row = writer.createRow();
+		try {
+			writer.addNumber(row, 0, Double.NaN);
+			fail();
+		} catch (IllegalArgumentException e) {}
+		try {
+			writer.addNumber(row, 0, Double.NEGATIVE_INFINITY);
+			fail();
+		} catch (IllegalArgumentException e) {}
+		assertEquals(0, row.getC().size());
+		writer.dispose();
+	}
+
+	@Test
+	public void testEscape() throws Exception {
+		
+		StringWriter sw = new StringWriter();
+		WorksheetWriter.escape(sw, "a_x0041_b\u0001_x00_", false);
+		assertEquals("a_x005F_x0041_b_x0001__x00_", sw.toString());
+	}
+
+	@Test
+	public void testEncodeBothWays() throws Exception {
+		
+		SpreadsheetMLPackage pkg = SpreadsheetMLPackage.createPackage();
+		WorksheetPart sheet = pkg.createWorksheetPart(new PartName("/xl/worksheets/sheet1.xml"), "Sheet1", 1);
+		WorksheetWriter writer = new WorksheetWriter(sheet);
+		for (int i=0; i<2; i++) {
+			Cell cell = writer.addCell(writer.createRow(), 0);
+			cell.setT(STCellType.INLINE_STR);
+			CTRst is = Context.getsmlObjectFactory().createCTRst();
+			is.setT(Context.getsmlObjectFactory().createCTXstringWhitespace());
+			is.getT().setValue("a\u0001_x0041_");
+			cell.setIs(is);
+			if (i==1) {
+				cell.setPh(Boolean.TRUE); // so it is marshalled using JAXB
+			}
+		}
+		writer.close();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new SaveToZipFile(pkg).save(baos);
+		writer.dispose();
+		
+		SpreadsheetMLPackage loaded = (SpreadsheetMLPackage)OpcPackage.load(new ByteArrayInputStream(baos.toByteArray()));
+		WorksheetReader reader = new WorksheetReader(loaded.getWorkbookPart().getWorksheet(0));
+		assertEquals("a_x0001__x005F_x0041_", reader.next().getCell(0).getString());
+		assertEquals("a_x0001__x005F_x0041_", reader.next().getCell(0).getString());
+		reader.close();
+	}
+
+}
@@ -1,8 +1,13 @@
 package org.docx4j.openpackaging.parts.SpreadsheetML;
 
+import java.io.IOException;
+
+import javax.xml.bind.JAXBException;
+
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.xlsx4j.model.PivotCacheWriter;
 import org.xlsx4j.sml.CTPivotCacheRecords;
 
 public class PivotCacheRecords  extends JaxbSmlPart<CTPivotCacheRecords> {
@@ -28,4 +33,37 @@ public class PivotCacheRecords  extends JaxbSmlPart<CTPivotCacheRecords> {
 		
 	}
 
+	private PivotCacheWriter pivotCacheWriter;
+	
+	/**
+	 * @return the PivotCacheWriter holding this part's records, or null
+	 * @since 3.2.2
+	 */
+	public PivotCacheWriter getPivotCacheWriter() {
+		return pivotCacheWriter;
+	}
+
+	/**
+	 * Set by PivotCacheWriter; while set, the records it has written 
+	 * are saved in place of the JAXB content. 
+	 * @since 3.2.2
+	 */
+	public void setPivotCacheWriter(PivotCacheWriter pivotCacheWriter) {
+		this.pivotCacheWriter = pivotCacheWriter;
+	}
+	
+	@Override
+	public void marshal(java.io.OutputStream os, Object namespacePrefixMapper) throws JAXBException {
+		
+		if (pivotCacheWriter==null) {
+			super.marshal(os, namespacePrefixMapper);
+			return;
+		}
+		try {
+			pivotCacheWriter.writeRecords(os);
+		} catch (IOException e) {
+			throw new JAXBException(e);
+		}
+	}
+
 }
\ No newline at end of file
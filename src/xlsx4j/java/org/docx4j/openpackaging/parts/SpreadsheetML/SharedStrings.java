@@ -1,10 +1,38 @@
 package org.docx4j.openpackaging.parts.SpreadsheetML;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.model.SharedStringsReader;
+import org.xlsx4j.model.XstringEncoding;
+import org.xlsx4j.sml.CTRst;
 import org.xlsx4j.sml.CTSst;
+import org.xlsx4j.sml.CTXstringWhitespace;
 
+/**
+ * The shared string table.
+ * 
+ * As well as the JAXB content (CTSst), this part offers an index: 
+ * intern(text) finds or adds a string in constant time, and getString(index)
+ * looks one up.  The index is built (from the JAXB content if it has been 
+ * unmarshalled, otherwise by streaming the part) the first time it is used.
+ * Strings you intern are held compactly, and only added to the CTSst
+ * (with its count and uniqueCount updated) when getContents() is 
+ * next called, eg when the package is saved.
+ * 
+ * If you change the CTSst's list of strings directly, call reindex().
+ * 
+ * Not thread safe.
+ */
 public class SharedStrings  extends JaxbSmlPart<CTSst> {
 	
 	public SharedStrings(PartName partName) throws InvalidFormatException {
@@ -27,5 +55,165 @@ public class SharedStrings  extends JaxbSmlPart<CTSst> {
 		setRelationshipType(Namespaces.SPREADSHEETML_SHARED_STRINGS);
 		
 	}
+	
+	// The index; null until it is needed
+	private List<String> strings;
+	private Map<String, Integer> index;
+	
+	// strings before this are in the CTSst
+	private int flushed;
+	
+	// interned since the counts were last updated
+	private long pendingRefs = 0;
+	
+	/**
+	 * Find the string in the table (ignoring rich text entries), 
+	 * adding it if necessary.  Each call counts as a reference, for 
+	 * the table's count attribute.
+	 * 
+	 * Control characters are stored (and so returned by getString) 
+	 * encoded as _xHHHH_, as Excel does, and a literal _xHHHH_
+	 * as _x005F_xHHHH_. 
+	 * 
+	 * @return the string's index, for a cell's v
+	 * @since 3.2.2
+	 */
+	public int intern(String text) throws Docx4JException {
+		
+		ensureIndex();
+		text = XstringEncoding.encode(text);
+		Integer i = index.get(text);
+		if (i==null) {
+			i = strings.size();
+			strings.add(text);
+			index.put(text, i);
+		}
+		pendingRefs++;
+		return i;
+	}
+	
+	/**
+	 * @return the index of the (plain text) string, or -1 if it isn't in the table
+	 * @since 3.2.2
+	 */
+	public int indexOf(String text) throws Docx4JException {
+		
+		ensureIndex();
+		Integer i = index.get(XstringEncoding.encode(text));
+		return (i==null) ? -1 : i;
+	}
+	
+	/**
+	 * @return the text of the specified string (for a rich text entry, the text of its runs)
+	 * @since 3.2.2
+	 */
+	public String getString(int i) throws Docx4JException {
+		
+		ensureIndex();
+		return strings.get(i);
+	}
+	
+	/**
+	 * @return the number of strings in the table
+	 * @since 3.2.2
+	 */
+	public int getStringCount() throws Docx4JException {
+		
+		ensureIndex();
+		return strings.size();
+	}
+	
+	/**
+	 * @return all the strings, as a read-only list
+	 * @since 3.2.2
+	 */
+	public List<String> getStrings() throws Docx4JException {
+		
+		ensureIndex();
+		return Collections.unmodifiableList(strings);
+	}
+	
+	/**
+	 * Rebuild the index from the JAXB content, after you've changed it directly.
+	 * @since 3.2.2
+	 */
+	public void reindex() throws Docx4JException {
+		
+		flush(super.getContents());
+		strings = null;
+		index = null;
+	}
+	
+	private void ensureIndex() throws Docx4JException {
+		
+		if (strings!=null) return;
+		
+		BitSet rich = new BitSet();
+		if (super.isUnmarshalled()) {
+			strings = new ArrayList<String>(SharedStringsReader.read(this, rich));
+		} else {
+			// stream it, rather than unmarshalling
+			strings = SharedStringsReader.read(this, rich);
+		}
+		index = new HashMap<String, Integer>(strings.size() * 2);
+		for (int i=0; i<strings.size(); i++) {
+			if (!rich.get(i)
+					&& !index.containsKey(strings.get(i))) {
+				index.put(strings.get(i), i);
+			}
+		}
+		flushed = strings.size();
+		pendingRefs = 0;
+	}
 
-}
\ No newline at end of file
+	/**
+	 * Get the contents, including any strings interned since this was last called.
+	 */
+	@Override
+	public CTSst getContents() throws Docx4JException {
+		
+		CTSst sst = super.getContents();
+		flush(sst);
+		return sst;
+	}
+	
+	/**
+	 * True if there are interned strings still to be added to the JAXB content,
+	 * so that the part is marshalled (rather than copied) when it is saved.
+	 */
+	@Override
+	public boolean isUnmarshalled() {
+		return super.isUnmarshalled() 
+				|| (strings!=null && (flushed<strings.size() || pendingRefs>0));
+	}
+	
+	private void flush(CTSst sst) {
+		
+		if (sst==null
+				|| strings==null
+				|| (flushed==strings.size() && pendingRefs==0)) {
+			return;
+		}
+		List<CTRst> sis = sst.getSi();
+		for (int i=flushed; i<strings.size(); i++) {
+			
+			String text = strings.get(i);
+			CTXstringWhitespace t = Context.getsmlObjectFactory().createCTXstringWhitespace();
+			t.setValue(text);
+			if (text.length()>0
+					&& (Character.isWhitespace(text.charAt(0))
+							|| Character.isWhitespace(text.charAt(text.length()-1)))) {
+				t.setSpace("preserve");
+			}
+			CTRst si = Context.getsmlObjectFactory().createCTRst();
+			si.setT(t);
+			sis.add(si);
+		}
+		flushed = strings.size();
+		
+		sst.setUniqueCount((long)sis.size());
+		sst.setCount((sst.getCount()==null ? 0 : sst.getCount()) + pendingRefs);
+		pendingRefs = 0;
+	}
+	
+}
@@ -3,6 +3,7 @@ package org.docx4j.openpackaging.parts.SpreadsheetML;
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.xlsx4j.model.StyleRegistry;
 import org.xlsx4j.sml.CTStylesheet;
 
 public class Styles  extends JaxbSmlPart<CTStylesheet> {
@@ -28,4 +29,18 @@ public class Styles  extends JaxbSmlPart<CTStylesheet> {
 		
 	}
 
+	private StyleRegistry styleRegistry;
+	/**
+	 * For finding or adding a cell format (and its font, fill etc), 
+	 * so that cells styled the same way share it.
+	 * 
+	 * @since 3.2.2
+	 */
+	public StyleRegistry getStyleRegistry() {
+		if (styleRegistry==null) {
+			styleRegistry = new StyleRegistry(this);
+		}
+		return styleRegistry;
+	}
+
 }
\ No newline at end of file
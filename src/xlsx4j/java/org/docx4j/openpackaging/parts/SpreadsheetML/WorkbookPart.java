@@ -1,9 +1,20 @@
 package org.docx4j.openpackaging.parts.SpreadsheetML;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.docx4j.Docx4jProperties;
 import org.docx4j.openpackaging.exceptions.Docx4JException;
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.parts.JaxbXmlPart;
 import org.docx4j.openpackaging.parts.Part;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
@@ -111,4 +122,115 @@ public class WorkbookPart  extends JaxbSmlPart<Workbook> {
 		
 	}
 
+	/**
+	 * Unmarshal all the worksheets, and the shared strings and styles,
+	 * in parallel, rather than one at a time as each is first used. 
+	 * 
+	 * @return the worksheets, in workbook order
+	 * @since 3.2.2
+	 */
+	public List<WorksheetPart> loadWorksheets() throws Xlsx4jException {
+		
+		List<Sheet> sheets;
+		try {
+			sheets = this.getContents().getSheets().getSheet();
+		} catch (Docx4JException e) {
+			throw new Xlsx4jException(e.getMessage(), e);
+		}
+		int[] indexes = new int[sheets.size()];
+		for (int i=0; i<indexes.length; i++) {
+			indexes[i] = i;
+		}
+		return loadWorksheets(indexes, Integer.parseInt(
+				Docx4jProperties.getProperty("docx4j.openpackaging.parts.SpreadsheetML.WorkbookPart.loadThreads", 
+						Integer.toString(Runtime.getRuntime().availableProcessors()))));
+	}
+
+	/**
+	 * Unmarshal the specified worksheets, and the shared strings and styles,
+	 * on a pool of (at most) the specified number of threads.  Parts which 
+	 * have already been unmarshalled are left alone.  
+	 * 
+	 * The parts are unmarshalled biggest first, so that one big sheet 
+	 * doesn't hold things up at the end.
+	 * 
+	 * @param indexes the (zero based) indexes of the sheets to load
+	 * @param threads
+	 * @return the worksheets, in the order requested
+	 * @since 3.2.2
+	 */
+	public List<WorksheetPart> loadWorksheets(int[] indexes, int threads) throws Xlsx4jException {
+		
+		long startTime = System.currentTimeMillis();
+		
+		// Find the parts on this thread
+		List<WorksheetPart> worksheets = new ArrayList<WorksheetPart>(indexes.length);
+		List<JaxbXmlPart<?>> toLoad = new ArrayList<JaxbXmlPart<?>>();
+		for (int index : indexes) {
+			WorksheetPart worksheet = getWorksheet(index);
+			worksheets.add(worksheet);
+			if (!worksheet.isUnmarshalled()
+					&& !toLoad.contains(worksheet)) {
+				toLoad.add(worksheet);
+			}
+		}
+		if (sharedStrings!=null && !sharedStrings.isUnmarshalled()) {
+			toLoad.add(sharedStrings);
+		}
+		if (stylesPart!=null && !stylesPart.isUnmarshalled()) {
+			toLoad.add(stylesPart);
+		}
+		if (toLoad.isEmpty()) {
+			return worksheets;
+		}
+		
+		final PartStore partStore = getPackage().getSourcePartStore();
+		if (partStore!=null) {
+			Collections.sort(toLoad, new Comparator<JaxbXmlPart<?>>() {
+				public int compare(JaxbXmlPart<?> a, JaxbXmlPart<?> b) {
+					long sizeA = partSize(partStore, a);
+					long sizeB = partSize(partStore, b);
+					return (sizeA<sizeB) ? 1 : ((sizeA==sizeB) ? 0 : -1);
+				}
+			});
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, toLoad.size())));
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>(toLoad.size());
+			for (final JaxbXmlPart<?> part : toLoad) {
+				futures.add(executor.submit(new Callable<Object>() {
+					public Object call() throws Docx4JException {
+						return part.getContents();
+					}
+				}));
+			}
+			for (int i=0; i<futures.size(); i++) {
+				try {
+					if (futures.get(i).get()==null) {
+						throw new Xlsx4jException("Couldn't load " + toLoad.get(i).getPartName());
+					}
+				} catch (ExecutionException e) {
+					throw new Xlsx4jException("Couldn't load " + toLoad.get(i).getPartName() 
+							+ ": " + e.getCause().getMessage(), e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new Xlsx4jException("Interrupted loading worksheets", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		log.info("Loaded " + toLoad.size() + " parts in " + (System.currentTimeMillis()-startTime) + "ms");
+		return worksheets;
+	}
+	
+	private static long partSize(PartStore partStore, Part part) {
+		try {
+			return partStore.getPartSize(part.getPartName().getName().substring(1));
+		} catch (Exception e) {
+			// eg UnsupportedOperationException
+			return 0;
+		}
+	}
+
 }
\ No newline at end of file
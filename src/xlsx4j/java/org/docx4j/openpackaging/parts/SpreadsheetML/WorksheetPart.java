@@ -1,8 +1,14 @@
 package org.docx4j.openpackaging.parts.SpreadsheetML;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.bind.JAXBException;
+
 import org.docx4j.openpackaging.exceptions.InvalidFormatException;
 import org.docx4j.openpackaging.parts.PartName;
 import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.xlsx4j.model.WorksheetWriter;
 import org.xlsx4j.sml.Worksheet;
 
 public class WorksheetPart extends JaxbSmlPart<Worksheet> {
@@ -27,5 +33,42 @@ public class WorksheetPart extends JaxbSmlPart<Worksheet> {
 		setRelationshipType(Namespaces.SPREADSHEETML_WORKSHEET);
 		
 	}
+	
+	private WorksheetWriter worksheetWriter;
+	
+	/**
+	 * @return the WorksheetWriter holding this sheet's rows, or null
+	 * @since 3.2.2
+	 */
+	public WorksheetWriter getWorksheetWriter() {
+		return worksheetWriter;
+	}
+
+	/**
+	 * Set by WorksheetWriter; while set, the rows it has written 
+	 * are saved in place of the (empty) SheetData. 
+	 * @since 3.2.2
+	 */
+	public void setWorksheetWriter(WorksheetWriter worksheetWriter) {
+		this.worksheetWriter = worksheetWriter;
+	}
+	
+	@Override
+	public void marshal(java.io.OutputStream os, Object namespacePrefixMapper) throws JAXBException {
+		
+		if (worksheetWriter==null) {
+			super.marshal(os, namespacePrefixMapper);
+			return;
+		}
+		
+		// Marshal the rest of the worksheet, then splice in the rows
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		super.marshal(baos, namespacePrefixMapper);
+		try {
+			worksheetWriter.writeWorksheet(baos.toByteArray(), os);
+		} catch (IOException e) {
+			throw new JAXBException(e);
+		}
+	}
 
 }
\ No newline at end of file
@@ -0,0 +1,359 @@
+package org.xlsx4j.model;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.Cell;
+import org.xlsx4j.sml.Row;
+import org.xlsx4j.sml.SheetData;
+import org.xlsx4j.sml.Worksheet;
+
+/**
+ * Finds, adds and removes cells in a worksheet's (JAXB) sheetData by row and
+ * column, and iterates over ranges of cells.
+ * 
+ * The rows and cells are kept sorted, which is how Excel requires them anyway, 
+ * so the sheetData itself is the index: rows are binary searched by r, 
+ * then the row's cells by the column of their r.  So finding a cell is 
+ * O(log n).  Adding a row or cell after the existing ones (the usual case, 
+ * when filling a sheet in order) is too; adding or removing one elsewhere 
+ * shifts the ones after it in the row (or sheetData) list, so is O(n) 
+ * in the number of those.  When the index is created,
+ * rows and cells are given an r if they lack one, and sorted if they
+ * aren't in order.  If you add rows or cells to the sheetData
+ * some other way, keep them in order. 
+ * 
+ * Rows are numbered from 1, as in the sheet; columns from 0.
+ * Out of range rows or columns are an IllegalArgumentException.
+ * 
+ * Not thread safe.
+ * 
+ * @since 3.2.2
+ */
+public class CellIndex {
+	
+	private List<Row> rows;
+
+	public CellIndex(Worksheet worksheet) {
+		
+		if (worksheet.getSheetData()==null) {
+			worksheet.setSheetData(Context.getsmlObjectFactory().createSheetData());
+		}
+		SheetData sheetData = worksheet.getSheetData();
+		rows = sheetData.getRow();
+		normalise();
+	}
+	
+	private void normalise() {
+		
+		long lastRow = 0;
+		boolean sorted = true;
+		for (Row row : rows) {
+			if (row.getR()==null) {
+				row.setR(lastRow + 1);
+			} else if (row.getR()<=lastRow) {
+				sorted = false;
+			}
+			lastRow = row.getR();
+			
+			int lastColumn = -1;
+			boolean cellsSorted = true;
+			StringBuilder sb = null;
+			for (Cell cell : row.getC()) {
+				int column;
+				if (cell.getR()==null) {
+					column = lastColumn + 1;
+					if (sb==null) {
+						sb = new StringBuilder(10);
+					}
+					sb.setLength(0);
+					cell.setR(CellRef.append(sb, (int)lastRow, column).toString());
+				} else {
+					column = CellRef.column(cell.getR());
+					if (column<=lastColumn) {
+						cellsSorted = false;
+					}
+				}
+				lastColumn = column;
+			}
+			if (!cellsSorted) {
+				Collections.sort(row.getC(), new Comparator<Cell>() {
+					public int compare(Cell a, Cell b) {
+						return CellRef.column(a.getR()) - CellRef.column(b.getR());
+					}
+				});
+			}
+		}
+		if (!sorted) {
+			Collections.sort(rows, new Comparator<Row>() {
+				public int compare(Row a, Row b) {
+					return a.getR().compareTo(b.getR());
+				}
+			});
+		}
+	}
+	
+	/**
+	 * @return the row, or null if there isn't one
+	 */
+	public Row getRow(int row) {
+		checkRow(row);
+		int i = findRow(row);
+		return (i<0) ? null : rows.get(i);
+	}
+	
+	/**
+	 * @return the row, added if necessary
+	 */
+	public Row putRow(int row) {
+		
+		checkRow(row);
+		int i = findRow(row);
+		if (i>=0) {
+			return rows.get(i);
+		}
+		Row newRow = Context.getsmlObjectFactory().createRow();
+		newRow.setR((long)row);
+		rows.add(-(i + 1), newRow);
+		return newRow;
+	}
+	
+	/**
+	 * @return the cell, or null if there isn't one
+	 */
+	public Cell get(int row, int column) {
+		
+		checkColumn(column);
+		Row r = getRow(row);
+		if (r==null) {
+			return null;
+		}
+		int i = findCell(r.getC(), column);
+		return (i<0) ? null : r.getC().get(i);
+	}
+
+	/**
+	 * @param ref eg "B12"
+	 * @return the cell, or null if there isn't one
+	 */
+	public Cell get(String ref) {
+		
+		long packed = CellRef.parse(ref);
+		if (packed<0) {
+			throw new IllegalArgumentException("Not a cell reference: " + ref);
+		}
+		return get(CellRef.getRow(packed), CellRef.getColumn(packed));
+	}
+	
+	/**
+	 * @return the cell, added (empty) if necessary
+	 */
+	public Cell put(int row, int column) {
+		
+		checkColumn(column);
+		Row r = putRow(row);
+		List<Cell> cells = r.getC();
+		int i = findCell(cells, column);
+		if (i>=0) {
+			return cells.get(i);
+		}
+		Cell cell = Context.getsmlObjectFactory().createCell();
+		cell.setR(CellRef.toString(row, column));
+		cells.add(-(i + 1), cell);
+		
+		// spans is an optional hint, which may no longer be right
+		r.getSpans().clear();
+		return cell;
+	}
+	
+	/**
+	 * @return the cell removed, or null if there wasn't one
+	 */
+	public Cell remove(int row, int column) {
+		
+		checkColumn(column);
+		Row r = getRow(row);
+		if (r==null) {
+			return null;
+		}
+		int i = findCell(r.getC(), column);
+		return (i<0) ? null : r.getC().remove(i);
+	}
+	
+	/**
+	 * The cells in the range (inclusive), row by row.
+	 * The range mustn't be changed while you iterate over it.
+	 */
+	public Iterable<Cell> range(final int firstRow, final int firstColumn, 
+			final int lastRow, final int lastColumn) {
+		
+		return new Iterable<Cell>() {
+			public Iterator<Cell> iterator() {
+				return new RangeIterator(firstRow, firstColumn, lastRow, lastColumn);
+			}
+		};
+	}
+	
+	/**
+	 * @param ref eg "B2:D10", or a single cell
+	 * @see #range(int, int, int, int)
+	 */
+	public Iterable<Cell> range(String ref) {
+		
+		int colon = ref.indexOf(':');
+		int end = (colon<0) ? ref.length() : colon;
+		int firstColumn = CellRef.column(ref, 0, end);
+		int firstRow = CellRef.row(ref, 0, end);
+		int lastColumn = firstColumn;
+		int lastRow = firstRow;
+		if (colon>=0) {
+			lastColumn = CellRef.column(ref, colon+1, ref.length());
+			lastRow = CellRef.row(ref, colon+1, ref.length());
+		}
+		if (firstColumn<0 || firstRow<0 || lastColumn<0 || lastRow<0) {
+			throw new IllegalArgumentException("Not a range of cells: " + ref);
+		}
+		return range(Math.min(firstRow, lastRow), Math.min(firstColumn, lastColumn), 
+				Math.max(firstRow, lastRow), Math.max(firstColumn, lastColumn));
+	}
+	
+	private class RangeIterator implements Iterator<Cell> {
+		
+		private int firstColumn;
+		private int lastRow;
+		private int lastColumn;
+		
+		private int rowIndex;
+		private List<Cell> cells;
+		private int cellIndex;
+		private Cell next;
+		
+		RangeIterator(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+			this.firstColumn = firstColumn;
+			this.lastRow = lastRow;
+			this.lastColumn = lastColumn;
+			
+			rowIndex = findRow(firstRow);
+			if (rowIndex<0) {
+				rowIndex = -(rowIndex + 1);
+			}
+			startRow();
+			advance();
+		}
+		
+		private void startRow() {
+			if (rowIndex<rows.size()
+					&& rows.get(rowIndex).getR()<=lastRow) {
+				cells = rows.get(rowIndex).getC();
+				cellIndex = findCell(cells, firstColumn);
+				if (cellIndex<0) {
+					cellIndex = -(cellIndex + 1);
+				}
+			} else {
+				cells = null;
+			}
+		}
+		
+		private void advance() {
+			next = null;
+			while (cells!=null) {
+				if (cellIndex<cells.size()) {
+					Cell cell = cells.get(cellIndex++);
+					if (CellRef.column(cell.getR())<=lastColumn) {
+						next = cell;
+						return;
+					}
+					// else past the range, as is the rest of the row
+				}
+				// so on to the next row (if it is in the range)
+				rowIndex++;
+				startRow();
+			}
+		}
+
+		public boolean hasNext() {
+			return next!=null;
+		}
+
+		public Cell next() {
+			if (next==null) {
+				throw new NoSuchElementException();
+			}
+			Cell cell = next;
+			advance();
+			return cell;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	private static void checkRow(int row) {
+		if (row<1 || row>CellRef.MAX_ROWS) {
+			throw new IllegalArgumentException("Row " + row + " is out of range; rows are numbered from 1");
+		}
+	}
+	
+	private static void checkColumn(int column) {
+		if (column<0 || column>=CellRef.MAX_COLUMNS) {
+			throw new IllegalArgumentException("Column " + column + " is out of range; columns are numbered from 0");
+		}
+	}
+	
+	/**
+	 * @return the position of the row, or (-(insertion point) - 1)
+	 */
+	private int findRow(int row) {
+		
+		// Usually we're adding at the end
+		int size = rows.size();
+		if (size==0 || rows.get(size-1).getR()<row) {
+			return -(size + 1);
+		}
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long r = rows.get(mid).getR();
+			if (r < row) {
+				low = mid + 1;
+			} else if (r > row) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * @return the position of the cell, or (-(insertion point) - 1)
+	 */
+	private static int findCell(List<Cell> cells, int column) {
+		
+		int size = cells.size();
+		if (size==0 || CellRef.column(cells.get(size-1).getR())<column) {
+			return -(size + 1);
+		}
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int c = CellRef.column(cells.get(mid).getR());
+			if (c < column) {
+				low = mid + 1;
+			} else if (c > column) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.xlsx4j.model;
+
+/**
+ * Converts between A1 style cell references (eg "AB12", or "$AB$12")
+ * and row and column numbers, without creating garbage: parsing works 
+ * on any CharSequence (or part of one), and formatting appends to a 
+ * StringBuilder you supply.
+ * 
+ * Rows are numbered from 1, as in the sheet; columns from 0.
+ * A cell's row and column can be packed into a long, which sorts
+ * in row then column order.
+ * 
+ * @since 3.2.2
+ */
+public final class CellRef {
+	
+	public static final int MAX_ROWS = 1048576;
+	public static final int MAX_COLUMNS = 16384;
+	
+	private CellRef() {}
+	
+	/**
+	 * @return the zero based column of a reference such as "AB12", or -1
+	 * if it doesn't start with a column
+	 */
+	public static int column(CharSequence ref) {
+		return column(ref, 0, ref.length());
+	}
+	
+	/**
+	 * @return the zero based column of the reference in ref, from start 
+	 * (inclusive) to end (exclusive), or -1 if it doesn't start with a column
+	 */
+	public static int column(CharSequence ref, int start, int end) {
+		
+		int i = start;
+		if (i<end && ref.charAt(i)=='$') {
+			i++;
+		}
+		int letters = i;
+		int column = 0;
+		for (; i<end; i++) {
+			char c = ref.charAt(i);
+			if (c>='A' && c<='Z') {
+				column = column * 26 + (c - 'A' + 1);
+			} else if (c>='a' && c<='z') {
+				column = column * 26 + (c - 'a' + 1);
+			} else {
+				break;
+			}
+			if (column > MAX_COLUMNS) {
+				return -1;
+			}
+		}
+		return (i==letters) ? -1 : column - 1;
+	}
+	
+	/**
+	 * @return the row number of a reference such as "AB12", or -1
+	 * if it doesn't have one (rows are numbered from 1, so "AB0" doesn't)
+	 */
+	public static int row(CharSequence ref) {
+		return row(ref, 0, ref.length());
+	}
+
+	/**
+	 * @return the row number of the reference in ref, from start 
+	 * (inclusive) to end (exclusive), or -1 if it doesn't have one
+	 */
+	public static int row(CharSequence ref, int start, int end) {
+		
+		int i = start;
+		while (i<end) {
+			char c = ref.charAt(i);
+			if (c=='$' || (c>='A' && c<='Z') || (c>='a' && c<='z')) {
+				i++;
+			} else {
+				break;
+			}
+		}
+		if (i==end) {
+			return -1;
+		}
+		int row = 0;
+		for (; i<end; i++) {
+			char c = ref.charAt(i);
+			if (c<'0' || c>'9') {
+				return -1;
+			}
+			row = row * 10 + (c - '0');
+			if (row > MAX_ROWS) {
+				return -1;
+			}
+		}
+		return (row==0) ? -1 : row;
+	}
+	
+	/**
+	 * @return the reference's row and column, packed (see pack), 
+	 * or -1 if it isn't a cell reference
+	 */
+	public static long parse(CharSequence ref) {
+		
+		int column = column(ref);
+		int row = row(ref);
+		return (column<0 || row<0) ? -1 : pack(row, column);
+	}
+	
+	/**
+	 * @return the row and column in a long, which sorts in row then column order
+	 */
+	public static long pack(int row, int column) {
+		return ((long)row << 32) | column;
+	}
+	
+	/**
+	 * @return the row of a packed reference
+	 */
+	public static int getRow(long packed) {
+		return (int)(packed >>> 32);
+	}
+
+	/**
+	 * @return the column of a packed reference
+	 */
+	public static int getColumn(long packed) {
+		return (int)packed;
+	}
+	
+	/**
+	 * Append the reference (eg "AB12") to sb.
+	 * 
+	 * @return sb
+	 */
+	public static StringBuilder append(StringBuilder sb, int row, int column) {
+		
+		appendColumn(sb, column);
+		return sb.append(row);
+	}
+	
+	/**
+	 * Append the column's letters (eg "AB") to sb.
+	 * 
+	 * @return sb
+	 */
+	public static StringBuilder appendColumn(StringBuilder sb, int column) {
+		
+		// how many letters?
+		int letters = 1;
+		for (int c = column / 26; c>0; c = (c-1) / 26) {
+			letters++;
+		}
+		int start = sb.length();
+		sb.setLength(start + letters);
+		for (int c = column + 1, i = start + letters - 1; c>0; c = (c-1) / 26, i--) {
+			sb.setCharAt(i, (char)('A' + (c-1) % 26));
+		}
+		return sb;
+	}
+	
+	/**
+	 * @return the reference, eg "AB12"
+	 */
+	public static String toString(int row, int column) {
+		return append(new StringBuilder(10), row, column).toString();
+	}
+	
+	/**
+	 * @return the column's letters, eg "AB"
+	 */
+	public static String columnName(int column) {
+		return appendColumn(new StringBuilder(3), column).toString();
+	}
+
+}
@@ -0,0 +1,129 @@
+package org.xlsx4j.model;
+
+import java.util.List;
+
+import org.xlsx4j.sml.STCellType;
+
+/**
+ * A cell, as read by WorksheetReader.  
+ * 
+ * The same object is reused for a cell in the next row, 
+ * so copy anything you want to keep.
+ * 
+ * @since 3.2.2
+ */
+public class CellView {
+
+	private List<String> sharedStrings;
+	
+	String ref;
+	int column;
+	long styleIndex;
+	STCellType type;
+	String value;
+	String inlineString;
+	String formula;
+	
+	CellView(List<String> sharedStrings) {
+		this.sharedStrings = sharedStrings;
+	}
+	
+	void clear() {
+		ref = null;
+		column = -1;
+		styleIndex = 0;
+		type = STCellType.N;
+		value = null;
+		inlineString = null;
+		formula = null;
+	}
+	
+	/**
+	 * @return the cell reference (eg "B3"), or null if the sheet didn't specify one
+	 */
+	public String getRef() {
+		return ref;
+	}
+
+	/**
+	 * @return the column, zero based (so A is 0)
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return the index into the stylesheet's cellXfs
+	 */
+	public long getStyleIndex() {
+		return styleIndex;
+	}
+
+	/**
+	 * @return the cell type; N if the sheet didn't specify one
+	 */
+	public STCellType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the contents of the cell's v element, unresolved
+	 * (so for a shared string, its index)
+	 */
+	public String getRawValue() {
+		return value;
+	}
+
+	/**
+	 * @return the formula, or null
+	 */
+	public String getFormula() {
+		return formula;
+	}
+
+	/**
+	 * @return the cell's value as text, with shared strings
+	 * and inline strings resolved; null if the cell is empty
+	 */
+	public String getString() {
+		
+		switch (type) {
+		case S:
+			if (value==null) return null;
+			int index = Integer.parseInt(value.trim());
+			if (sharedStrings==null
+					|| index<0 || index>=sharedStrings.size()) {
+				throw new IllegalStateException("No shared string " + index);
+			}
+			return sharedStrings.get(index);
+		case INLINE_STR:
+			return inlineString;
+		default:
+			return value;
+		}
+	}
+
+	/**
+	 * @return the cell's numeric value
+	 * @throws NumberFormatException if it doesn't have one
+	 */
+	public double getNumber() {
+		if (value==null) {
+			throw new NumberFormatException("Cell " + ref + " is empty");
+		}
+		return Double.parseDouble(value);
+	}
+
+	/**
+	 * @return whether the cell has no value
+	 */
+	public boolean isEmpty() {
+		return value==null && inlineString==null;
+	}
+	
+	@Override
+	public String toString() {
+		return ref + "=" + getString();
+	}
+
+}
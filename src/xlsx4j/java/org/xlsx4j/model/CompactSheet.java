@@ -0,0 +1,636 @@
+package org.xlsx4j.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.parts.SpreadsheetML.WorksheetPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTCellFormula;
+import org.xlsx4j.sml.CTRst;
+import org.xlsx4j.sml.CTXstringWhitespace;
+import org.xlsx4j.sml.Cell;
+import org.xlsx4j.sml.Row;
+import org.xlsx4j.sml.STCellType;
+import org.xlsx4j.sml.SheetData;
+import org.xlsx4j.sml.Worksheet;
+
+/**
+ * A compact, in-memory alternative to a worksheet's JAXB sheetData, 
+ * for analysing (or generating) sheets with many cells.
+ * 
+ * Cells are held in parallel primitive arrays (row, column, type, value
+ * and style), in row then column order, so a cell costs around 21 bytes, 
+ * rather than a Cell object with its reference and value strings.  
+ * A shared string cell's value is its index in the shared string table;  
+ * the text of inline strings, errors and formula string results is held 
+ * separately.  Formulas, and rows with properties (height, style etc), 
+ * are held in maps. 
+ * 
+ * Convert from the JAXB Worksheet with fromWorksheet (or read, which 
+ * streams the part if it hasn't been unmarshalled), and back with 
+ * toWorksheet.  Inline rich text, and a cell's cm, vm and extLst, 
+ * aren't kept.  When streamed, only a formula's text is kept, so shared 
+ * and array formulas won't survive a round trip that way.
+ * 
+ * Row and column numbers are as in the sheet: rows from 1, 
+ * columns from 0 (as CellView).
+ * 
+ * Not thread safe.
+ * 
+ * @since 3.2.2
+ */
+public class CompactSheet {
+	
+	protected static Logger log = LoggerFactory.getLogger(CompactSheet.class);
+
+	public static final byte BLANK = 0;
+	public static final byte NUMBER = 1;
+	public static final byte SHARED_STRING = 2;
+	public static final byte BOOLEAN = 3;
+	public static final byte ERROR = 4;
+	public static final byte STRING = 5; // a formula's string result
+	public static final byte INLINE_STRING = 6;
+	
+	private int size = 0;
+	private int[] rows;
+	private int[] columns;
+	private byte[] types;
+	private double[] values; // for ERROR, STRING, INLINE_STRING: the index in texts
+	private int[] styles;
+	
+	private List<String> texts = new ArrayList<String>();
+	
+	// Indexes in texts no longer used by any cell, for reuse
+	private List<Integer> freeTexts = new ArrayList<Integer>();
+	
+	// Keyed by key(row, column)
+	private Map<Long, CTCellFormula> formulas = new HashMap<Long, CTCellFormula>();
+	
+	// Rows with properties (their cells aren't used)
+	private Map<Integer, Row> rowProperties = new HashMap<Integer, Row>();
+	
+	public CompactSheet() {
+		this(64);
+	}
+	
+	public CompactSheet(int capacity) {
+		capacity = Math.max(capacity, 1);
+		rows = new int[capacity];
+		columns = new int[capacity];
+		types = new byte[capacity];
+		values = new double[capacity];
+		styles = new int[capacity];
+	}
+	
+	/**
+	 * Read the worksheet part, streaming it if it hasn't been unmarshalled
+	 * (in which case, it still won't be). 
+	 */
+	public static CompactSheet read(WorksheetPart worksheetPart) throws Docx4JException {
+		
+		if (worksheetPart.isUnmarshalled()) {
+			return fromWorksheet(worksheetPart.getContents());
+		}
+		
+		long startTime = System.currentTimeMillis();
+		CompactSheet sheet = new CompactSheet(1024);
+		
+		// We want the shared string indexes, not the strings
+		WorksheetReader reader = new WorksheetReader(worksheetPart, null);
+		try {
+			while (reader.hasNext()) {
+				RowView row = reader.next();
+				int r = (int)row.getRowNumber();
+				if (row.getStyleIndex()!=null
+						|| row.getHeight()!=null
+						|| row.isHidden()) {
+					Row properties = Context.getsmlObjectFactory().createRow();
+					properties.setR((long)r);
+					if (row.getStyleIndex()!=null) {
+						properties.setS(row.getStyleIndex());
+						properties.setCustomFormat(Boolean.TRUE);
+					}
+					if (row.getHeight()!=null) {
+						properties.setHt(row.getHeight());
+						properties.setCustomHeight(Boolean.TRUE);
+					}
+					if (row.isHidden()) {
+						properties.setHidden(Boolean.TRUE);
+					}
+					sheet.rowProperties.put(r, properties);
+				}
+				for (int i=0; i<row.getCellCount(); i++) {
+					CellView cell = row.getCell(i);
+					CTCellFormula f = null;
+					if (cell.getFormula()!=null) {
+						f = Context.getsmlObjectFactory().createCTCellFormula();
+						f.setValue(cell.getFormula());
+					}
+					String text = (cell.getType()==STCellType.INLINE_STR) ? 
+							cell.getString() : cell.getRawValue();
+					sheet.add(r, cell.getColumn(), cell.getType(), text, 
+							(int)cell.getStyleIndex(), f);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		log.debug("Read " + sheet.size + " cells from " + worksheetPart.getPartName() 
+				+ " in " + (System.currentTimeMillis()-startTime) + "ms");
+		return sheet;
+	}
+	
+	/**
+	 * Convert the worksheet's sheetData (which isn't changed).
+	 */
+	public static CompactSheet fromWorksheet(Worksheet worksheet) {
+		
+		SheetData sheetData = worksheet.getSheetData();
+		int count = 0;
+		if (sheetData!=null) {
+			for (Row row : sheetData.getRow()) {
+				count += row.getC().size();
+			}
+		}
+		CompactSheet sheet = new CompactSheet(count);
+		if (sheetData==null) {
+			return sheet;
+		}
+		
+		int lastRow = 0;
+		for (Row row : sheetData.getRow()) {
+			
+			int r = (row.getR()==null) ? lastRow+1 : row.getR().intValue(); 
+			lastRow = r;
+			if (hasProperties(row)) {
+				sheet.rowProperties.put(r, copyProperties(row));
+			}
+			int lastColumn = -1;
+			for (Cell c : row.getC()) {
+				int column = (c.getR()==null) ? lastColumn+1 : CellRef.column(c.getR());
+				lastColumn = column;
+				String text = c.getV();
+				if (c.getT()==STCellType.INLINE_STR) {
+					text = (c.getIs()==null) ? null : SharedStringsReader.toString(c.getIs()); 
+				}
+				sheet.add(r, column, c.getT(), text, (int)c.getS(), c.getF());
+			}
+		}
+		return sheet;
+	}
+	
+	/**
+	 * Replace the worksheet's sheetData with the content of this sheet.
+	 */
+	public void toWorksheet(Worksheet worksheet) {
+		
+		SheetData sheetData = Context.getsmlObjectFactory().createSheetData();
+		List<Row> jaxbRows = sheetData.getRow();
+		
+		// rows with properties but no cells, too
+		int[] propertyRows = new int[rowProperties.size()];
+		int p = 0;
+		for (Integer r : rowProperties.keySet()) {
+			propertyRows[p++] = r;
+		}
+		Arrays.sort(propertyRows);
+		p = 0;
+		
+		Row row = null;
+		for (int i=0; i<size; i++) {
+			
+			if (row==null || row.getR()!=rows[i]) {
+				while (p<propertyRows.length && propertyRows[p]<rows[i]) {
+					jaxbRows.add(newRow(propertyRows[p++]));
+				}
+				if (p<propertyRows.length && propertyRows[p]==rows[i]) {
+					p++;
+				}
+				row = newRow(rows[i]);
+				jaxbRows.add(row);
+			}
+			row.getC().add(toCell(i));
+		}
+		while (p<propertyRows.length) {
+			jaxbRows.add(newRow(propertyRows[p++]));
+		}
+		
+		worksheet.setSheetData(sheetData);
+	}
+	
+	private Row newRow(int r) {
+		
+		Row properties = rowProperties.get(r);
+		Row row = (properties==null) ? 
+				Context.getsmlObjectFactory().createRow() : copyProperties(properties);
+		row.setR((long)r);
+		return row;
+	}
+	
+	private Cell toCell(int i) {
+		
+		Cell cell = Context.getsmlObjectFactory().createCell();
+		cell.setR(CellRef.toString(rows[i], columns[i]));
+		if (styles[i]!=0) {
+			cell.setS((long)styles[i]);
+		}
+		cell.setF(formulas.get(key(rows[i], columns[i])));
+		
+		switch (types[i]) {
+		case NUMBER:
+			cell.setV(formatNumber(values[i]));
+			break;
+		case SHARED_STRING:
+			cell.setT(STCellType.S);
+			cell.setV(Long.toString((long)values[i]));
+			break;
+		case BOOLEAN:
+			cell.setT(STCellType.B);
+			cell.setV(values[i]==0 ? "0" : "1");
+			break;
+		case ERROR:
+			cell.setT(STCellType.E);
+			cell.setV(getText(i));
+			break;
+		case STRING:
+			cell.setT(STCellType.STR);
+			cell.setV(getText(i));
+			break;
+		case INLINE_STRING:
+			cell.setT(STCellType.INLINE_STR);
+			CTXstringWhitespace t = Context.getsmlObjectFactory().createCTXstringWhitespace();
+			t.setValue(getText(i));
+			CTRst is = Context.getsmlObjectFactory().createCTRst();
+			is.setT(t);
+			cell.setIs(is);
+			break;
+		default:
+			// blank
+		}
+		return cell;
+	}
+	
+	static String formatNumber(double value) {
+		if (value==Math.rint(value)
+				&& Math.abs(value) < 1e15) {
+			return Long.toString((long)value);
+		} else {
+			return Double.toString(value);
+		}
+	}
+	
+	private void add(int row, int column, STCellType t, String text, int style, CTCellFormula f) {
+		
+		int i = slot(row, column);
+		styles[i] = style;
+		if (f==null) {
+			formulas.remove(key(row, column));
+		} else {
+			formulas.put(key(row, column), f);
+		}
+		freeText(i);
+		if (t==null) {
+			t = STCellType.N;
+		}
+		if (text==null) {
+			types[i] = BLANK;
+			return;
+		}
+		switch (t) {
+		case S:
+			types[i] = SHARED_STRING;
+			values[i] = Integer.parseInt(text.trim());
+			break;
+		case B:
+			types[i] = BOOLEAN;
+			values[i] = ("1".equals(text.trim()) || "true".equals(text.trim())) ? 1 : 0;
+			break;
+		case E:
+			setText(i, ERROR, text);
+			break;
+		case STR:
+			setText(i, STRING, text);
+			break;
+		case INLINE_STR:
+			setText(i, INLINE_STRING, text);
+			break;
+		default:
+			try {
+				values[i] = Double.parseDouble(text);
+				types[i] = NUMBER;
+			} catch (NumberFormatException e) {
+				log.warn("Keeping non-numeric value of " + CellRef.columnName(column) + row + " as a string");
+				setText(i, STRING, text);
+			}
+		}
+	}
+	
+	private void setText(int i, byte type, String text) {
+		if (hasText(i)) {
+			// reuse the cell's existing slot
+			texts.set((int)values[i], text);
+		} else if (!freeTexts.isEmpty()) {
+			int t = freeTexts.remove(freeTexts.size()-1);
+			texts.set(t, text);
+			values[i] = t;
+		} else {
+			values[i] = texts.size();
+			texts.add(text);
+		}
+		types[i] = type;
+	}
+	
+	/**
+	 * Before the cell at i gets a value which isn't text,
+	 * make its text's slot (if any) available for reuse.
+	 */
+	private void freeText(int i) {
+		if (hasText(i)) {
+			int t = (int)values[i];
+			texts.set(t, null);
+			freeTexts.add(t);
+			types[i] = BLANK;
+			values[i] = 0;
+		}
+	}
+	
+	private boolean hasText(int i) {
+		return types[i]==ERROR || types[i]==STRING || types[i]==INLINE_STRING;
+	}
+	
+	/**
+	 * @return the position of the cell, adding it (blank) if necessary
+	 */
+	private int slot(int row, int column) {
+		
+		int i = indexOf(row, column);
+		if (i>=0) {
+			return i;
+		}
+		i = -(i + 1);
+		if (size==rows.length) {
+			grow(size + (size >> 1) + 1);
+		}
+		if (i<size) {
+			// not in order, so shift the later cells
+			System.arraycopy(rows, i, rows, i+1, size-i);
+			System.arraycopy(columns, i, columns, i+1, size-i);
+			System.arraycopy(types, i, types, i+1, size-i);
+			System.arraycopy(values, i, values, i+1, size-i);
+			System.arraycopy(styles, i, styles, i+1, size-i);
+		}
+		rows[i] = row;
+		columns[i] = column;
+		types[i] = BLANK;
+		values[i] = 0;
+		styles[i] = 0;
+		size++;
+		return i;
+	}
+	
+	private void grow(int capacity) {
+		
+		// Arrays.copyOf is Java 6
+		int[] newRows = new int[capacity];
+		System.arraycopy(rows, 0, newRows, 0, size);
+		rows = newRows;
+		int[] newColumns = new int[capacity];
+		System.arraycopy(columns, 0, newColumns, 0, size);
+		columns = newColumns;
+		byte[] newTypes = new byte[capacity];
+		System.arraycopy(types, 0, newTypes, 0, size);
+		types = newTypes;
+		double[] newValues = new double[capacity];
+		System.arraycopy(values, 0, newValues, 0, size);
+		values = newValues;
+		int[] newStyles = new int[capacity];
+		System.arraycopy(styles, 0, newStyles, 0, size);
+		styles = newStyles;
+	}
+	
+	private static Long key(int row, int column) {
+		return ((long)row << 16) | column;
+	}
+
+	/**
+	 * @return the position of the cell, or (-(insertion point) - 1) if there isn't one 
+	 */
+	public int indexOf(int row, int column) {
+		
+		// Usually cells are added in order
+		if (size==0 
+				|| rows[size-1]<row 
+				|| (rows[size-1]==row && columns[size-1]<column)) {
+			return -(size + 1);
+		}
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = (rows[mid]!=row) ? (rows[mid]<row ? -1 : 1) 
+					: (columns[mid]<column ? -1 : (columns[mid]==column ? 0 : 1));
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+	
+	/**
+	 * @return the number of cells
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the row number of the cell at position i
+	 */
+	public int getRow(int i) {
+		check(i);
+		return rows[i];
+	}
+
+	/**
+	 * @return the (zero based) column of the cell at position i
+	 */
+	public int getColumn(int i) {
+		check(i);
+		return columns[i];
+	}
+	
+	/**
+	 * @return the type of the cell at position i: BLANK, NUMBER etc
+	 */
+	public byte getType(int i) {
+		check(i);
+		return types[i];
+	}
+	
+	/**
+	 * @return the value of a NUMBER cell, the index of a SHARED_STRING cell,
+	 * or 1 or 0 for a BOOLEAN cell 
+	 */
+	public double getValue(int i) {
+		check(i);
+		if (types[i]!=NUMBER && types[i]!=SHARED_STRING && types[i]!=BOOLEAN) {
+			throw new IllegalStateException("Cell " + CellRef.columnName(columns[i]) + rows[i] + " doesn't have a numeric value");
+		}
+		return values[i];
+	}
+	
+	/**
+	 * @return the text of an ERROR, STRING or INLINE_STRING cell;
+	 * for others, null
+	 */
+	public String getText(int i) {
+		check(i);
+		if (hasText(i)) {
+			return texts.get((int)values[i]);
+		}
+		return null;
+	}
+	
+	/**
+	 * @param sharedStrings eg from SharedStrings.getStrings()
+	 * @return the cell's value as text, with shared strings resolved; 
+	 * null if the cell is blank
+	 */
+	public String getString(int i, List<String> sharedStrings) {
+		check(i);
+		switch (types[i]) {
+		case BLANK:
+			return null;
+		case NUMBER:
+			return formatNumber(values[i]);
+		case SHARED_STRING:
+			return sharedStrings.get((int)values[i]);
+		case BOOLEAN:
+			return values[i]==0 ? "0" : "1";
+		default:
+			return getText(i);
+		}
+	}
+	
+	/**
+	 * @return the style (cellXfs) index of the cell at position i
+	 */
+	public int getStyle(int i) {
+		check(i);
+		return styles[i];
+	}
+
+	/**
+	 * @return the formula of the cell at position i, or null
+	 */
+	public CTCellFormula getFormula(int i) {
+		check(i);
+		return formulas.get(key(rows[i], columns[i]));
+	}
+	
+	/**
+	 * @return the properties (height, style etc) of the row, or null if it has none
+	 */
+	public Row getRowProperties(int row) {
+		return rowProperties.get(row);
+	}
+	
+	public void setRowProperties(int row, Row properties) {
+		if (properties==null) {
+			rowProperties.remove(row);
+		} else {
+			rowProperties.put(row, properties);
+		}
+	}
+
+	public void setNumber(int row, int column, double value) {
+		int i = slot(row, column);
+		freeText(i);
+		types[i] = NUMBER;
+		values[i] = value;
+	}
+	
+	/**
+	 * @param index eg from SharedStrings.intern
+	 */
+	public void setSharedString(int row, int column, int index) {
+		int i = slot(row, column);
+		freeText(i);
+		types[i] = SHARED_STRING;
+		values[i] = index;
+	}
+	
+	public void setBoolean(int row, int column, boolean value) {
+		int i = slot(row, column);
+		freeText(i);
+		types[i] = BOOLEAN;
+		values[i] = value ? 1 : 0;
+	}
+	
+	public void setInlineString(int row, int column, String value) {
+		setText(slot(row, column), INLINE_STRING, value);
+	}
+	
+	/**
+	 * @param formula null to remove it
+	 */
+	public void setFormula(int row, int column, CTCellFormula formula) {
+		slot(row, column);
+		if (formula==null) {
+			formulas.remove(key(row, column));
+		} else {
+			formulas.put(key(row, column), formula);
+		}
+	}
+	
+	public void setStyle(int row, int column, int style) {
+		styles[slot(row, column)] = style;
+	}
+	
+	private void check(int i) {
+		if (i<0 || i>=size) {
+			throw new IndexOutOfBoundsException(i + " (size " + size + ")");
+		}
+	}
+	
+	private static boolean hasProperties(Row row) {
+		return row.getS()!=0
+				|| row.isCustomFormat()
+				|| row.getHt()!=null
+				|| row.isHidden()
+				|| row.isCustomHeight()
+				|| row.getOutlineLevel()!=0
+				|| row.isCollapsed()
+				|| row.isThickTop()
+				|| row.isThickBot()
+				|| row.isPh();
+	}
+	
+	private static Row copyProperties(Row row) {
+		
+		Row copy = Context.getsmlObjectFactory().createRow();
+		copy.setR(row.getR());
+		if (row.getS()!=0) copy.setS(row.getS());
+		if (row.isCustomFormat()) copy.setCustomFormat(Boolean.TRUE);
+		copy.setHt(row.getHt());
+		if (row.isHidden()) copy.setHidden(Boolean.TRUE);
+		if (row.isCustomHeight()) copy.setCustomHeight(Boolean.TRUE);
+		if (row.getOutlineLevel()!=0) copy.setOutlineLevel(row.getOutlineLevel());
+		if (row.isCollapsed()) copy.setCollapsed(Boolean.TRUE);
+		if (row.isThickTop()) copy.setThickTop(Boolean.TRUE);
+		if (row.isThickBot()) copy.setThickBot(Boolean.TRUE);
+		if (row.isPh()) copy.setPh(Boolean.TRUE);
+		return copy;
+	}
+
+}
@@ -0,0 +1,288 @@
+package org.xlsx4j.model;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.SpreadsheetML.PivotCacheDefinition;
+import org.docx4j.openpackaging.parts.SpreadsheetML.PivotCacheRecords;
+import org.docx4j.openpackaging.parts.relationships.Namespaces;
+import org.docx4j.relationships.Relationship;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xlsx4j.sml.CTBoolean;
+import org.xlsx4j.sml.CTDateTime;
+import org.xlsx4j.sml.CTError;
+import org.xlsx4j.sml.CTIndex;
+import org.xlsx4j.sml.CTNumber;
+import org.xlsx4j.sml.CTRecord;
+import org.xlsx4j.sml.CTString;
+
+/**
+ * Reads a pivot cache's records one at a time, without unmarshalling
+ * the records part, so a cache with millions of records can be read in
+ * a small, constant amount of memory:
+ * 
+ * <pre>
+ * PivotCacheReader reader = new PivotCacheReader(pivotCacheDefinition);
+ * try {
+ *     while (reader.hasNext()) {
+ *         PivotRecordView record = reader.next();
+ *         ... record.getString(0), record.getNumber(3) ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ * 
+ * Values which refer to the field's shared items are resolved, using 
+ * the definition (see PivotSharedItems).  The same PivotRecordView is 
+ * returned each time (refilled).
+ * 
+ * As WorksheetReader, the part is parsed from the package's part store,
+ * unless it has been unmarshalled, in which case its JAXB content 
+ * is read instead.
+ * 
+ * Not thread safe.
+ * 
+ * @since 3.2.2
+ */
+public class PivotCacheReader implements Iterator<PivotRecordView>, Closeable {
+	
+	protected static Logger log = LoggerFactory.getLogger(PivotCacheReader.class);
+
+	private PivotCacheRecords pivotCacheRecords;
+	private PivotSharedItems sharedItems;
+	private PivotRecordView record = new PivotRecordView();
+	
+	// Streaming
+	private InputStream is;
+	private XMLStreamReader xsr;
+	
+	// Already unmarshalled
+	private Iterator<CTRecord> records;
+	
+	private boolean fetched = false;
+	private boolean more = false;
+	private long recordNumber = 0;
+	
+	/**
+	 * Read the records of the pivot cache.
+	 */
+	public PivotCacheReader(PivotCacheDefinition pivotCacheDefinition) throws Docx4JException {
+		this(getRecordsPart(pivotCacheDefinition), new PivotSharedItems(pivotCacheDefinition));
+	}
+	
+	/**
+	 * @param pivotCacheRecords
+	 * @param sharedItems to resolve values which refer to shared items; if null,
+	 * such values are MISSING, with their shared index set
+	 */
+	public PivotCacheReader(PivotCacheRecords pivotCacheRecords, PivotSharedItems sharedItems) throws Docx4JException {
+		
+		this.pivotCacheRecords = pivotCacheRecords;
+		this.sharedItems = sharedItems;
+		
+		if (pivotCacheRecords.isUnmarshalled()) {
+			records = pivotCacheRecords.getContents().getR().iterator();
+		} else {
+			is = SharedStringsReader.openPart(pivotCacheRecords);
+			try {
+				xsr = SharedStringsReader.createXMLStreamReader(is);
+			} catch (XMLStreamException e) {
+				close();
+				throw new Docx4JException("Problem reading " + pivotCacheRecords.getPartName(), e);
+			}
+		}
+	}
+	
+	/**
+	 * @return the definition's records part
+	 * @throws Docx4JException if it doesn't have one
+	 */
+	public static PivotCacheRecords getRecordsPart(PivotCacheDefinition pivotCacheDefinition) throws Docx4JException {
+		
+		if (pivotCacheDefinition.getRelationshipsPart()!=null) {
+			Relationship rel = pivotCacheDefinition.getRelationshipsPart().getRelationshipByType(
+					Namespaces.SPREADSHEETML_PIVOT_CACHE_RECORDS);
+			if (rel!=null) {
+				Part part = pivotCacheDefinition.getRelationshipsPart().getPart(rel);
+				if (part instanceof PivotCacheRecords) {
+					return (PivotCacheRecords)part;
+				}
+			}
+		}
+		throw new Docx4JException(pivotCacheDefinition.getPartName() + " has no records part");
+	}
+
+	/**
+	 * @throws IllegalStateException (wrapping an XMLStreamException) 
+	 * if the part can't be parsed
+	 */
+	public boolean hasNext() {
+		
+		if (!fetched) {
+			try {
+				more = (records==null) ? readRecord() : readRecord(records);
+			} catch (XMLStreamException e) {
+				close();
+				throw new IllegalStateException("Problem reading " + pivotCacheRecords.getPartName(), e);
+			}
+			if (more) {
+				record.recordNumber = recordNumber++;
+			} else {
+				close();
+			}
+			fetched = true;
+		}
+		return more;
+	}
+
+	/**
+	 * @return the next record; this is the same object each time
+	 */
+	public PivotRecordView next() {
+		
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fetched = false;
+		return record;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+	public void close() {
+		SharedStringsReader.close(xsr);
+		xsr = null;
+		IOUtils.closeQuietly(is);
+		is = null;
+	}
+	
+	private boolean readRecord(Iterator<CTRecord> records) {
+		
+		if (!records.hasNext()) {
+			return false;
+		}
+		record.clear();
+		for (Object o : records.next().getMOrNOrB()) {
+			int i = record.addField();
+			if (o instanceof CTIndex) {
+				setShared(i, (int)((CTIndex)o).getV());
+			} else if (o instanceof CTNumber) {
+				record.types[i] = PivotRecordView.NUMBER;
+				record.numbers[i] = ((CTNumber)o).getV();
+			} else if (o instanceof CTString) {
+				record.types[i] = PivotRecordView.STRING;
+				record.texts[i] = ((CTString)o).getV();
+			} else if (o instanceof CTBoolean) {
+				record.types[i] = PivotRecordView.BOOLEAN;
+				record.numbers[i] = ((CTBoolean)o).isV() ? 1 : 0;
+			} else if (o instanceof CTError) {
+				record.types[i] = PivotRecordView.ERROR;
+				record.texts[i] = ((CTError)o).getV();
+			} else if (o instanceof CTDateTime) {
+				record.types[i] = PivotRecordView.DATE;
+				record.texts[i] = (((CTDateTime)o).getV()==null) ? null : ((CTDateTime)o).getV().toXMLFormat();
+			}
+			// else CTMissing
+		}
+		return true;
+	}
+	
+	private boolean readRecord() throws XMLStreamException {
+		
+		if (xsr==null) {
+			return false;
+		}
+		while (xsr.hasNext()) {
+			int event = xsr.next();
+			if (event==XMLStreamConstants.START_ELEMENT
+					&& "r".equals(xsr.getLocalName())) {
+				parseRecord();
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void parseRecord() throws XMLStreamException {
+		
+		record.clear();
+		while (true) {
+			int event = xsr.next();
+			if (event==XMLStreamConstants.START_ELEMENT) {
+				String name = xsr.getLocalName();
+				int i = record.addField();
+				String v = xsr.getAttributeValue(null, "v");
+				if (name.length()==1) {
+					switch (name.charAt(0)) {
+					case 'x':
+						setShared(i, (v==null) ? 0 : Integer.parseInt(v));
+						break;
+					case 'n':
+						record.types[i] = PivotRecordView.NUMBER;
+						record.numbers[i] = Double.parseDouble(v);
+						break;
+					case 's':
+						record.types[i] = PivotRecordView.STRING;
+						record.texts[i] = v;
+						break;
+					case 'b':
+						record.types[i] = PivotRecordView.BOOLEAN;
+						record.numbers[i] = ("1".equals(v) || "true".equals(v)) ? 1 : 0;
+						break;
+					case 'e':
+						record.types[i] = PivotRecordView.ERROR;
+						record.texts[i] = v;
+						break;
+					case 'd':
+						record.types[i] = PivotRecordView.DATE;
+						record.texts[i] = v;
+						break;
+					default:
+						// m
+					}
+				}
+				skip(); // any children, eg tpls
+			} else if (event==XMLStreamConstants.END_ELEMENT) {
+				return; // end of r
+			}
+		}
+	}
+	
+	private void setShared(int i, int index) {
+		
+		if (sharedItems==null) {
+			record.sharedIndexes[i] = index;
+		} else {
+			sharedItems.resolve(record, i, i, index);
+		}
+	}
+	
+	/**
+	 * Skip the rest of the element we're at the start of.
+	 */
+	private void skip() throws XMLStreamException {
+		int depth = 1;
+		while (depth>0) {
+			int event = xsr.next();
+			if (event==XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event==XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+}
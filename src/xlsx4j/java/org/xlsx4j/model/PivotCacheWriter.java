@@ -0,0 +1,282 @@
+package org.xlsx4j.model;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.commons.io.IOUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.exceptions.InvalidFormatException;
+import org.docx4j.openpackaging.parts.PartName;
+import org.docx4j.openpackaging.parts.SpreadsheetML.PivotCacheDefinition;
+import org.docx4j.openpackaging.parts.SpreadsheetML.PivotCacheRecords;
+import org.docx4j.relationships.Relationship;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xlsx4j.jaxb.Context;
+
+/**
+ * Writes a pivot cache's records a record at a time, to a temporary file, 
+ * rather than building a CTRecord for each, so a cache with millions of 
+ * records can be produced in a small amount of memory:
+ * 
+ * <pre>
+ * PivotCacheWriter writer = new PivotCacheWriter(pivotCacheDefinition);
+ * for (...) {
+ *     writer.startRecord();
+ *     writer.addSharedString(region);  // field 0
+ *     writer.addNumber(amount);        // field 1
+ * }
+ * writer.close();
+ * pkg.save(...);
+ * writer.dispose();
+ * </pre>
+ * 
+ * Add a value for each of the definition's cache fields, in order.  
+ * addSharedString and addSharedNumber refer to the field's shared items, 
+ * adding the value to them if necessary (see PivotSharedItems).
+ * 
+ * The records replace any the records part had.  When the package is 
+ * saved, they are copied from the file straight into the part's zip entry.
+ * close() sets the definition's recordCount.  
+ * 
+ * Not thread safe.
+ * 
+ * @since 3.2.2
+ */
+public class PivotCacheWriter implements Closeable {
+
+	protected static Logger log = LoggerFactory.getLogger(PivotCacheWriter.class);
+
+	private static final String SML_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	private static final String R_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	
+	private PivotCacheDefinition pivotCacheDefinition;
+	private PivotCacheRecords pivotCacheRecords;
+	private PivotSharedItems sharedItems;
+	
+	private File spoolFile;
+	private Writer spool;
+	private boolean closed = false;
+	
+	private long recordCount = 0;
+	private boolean inRecord = false;
+	private int field;
+	
+	/**
+	 * @param pivotCacheDefinition its records part is created if it doesn't have one
+	 */
+	public PivotCacheWriter(PivotCacheDefinition pivotCacheDefinition) throws Docx4JException {
+		
+		this.pivotCacheDefinition = pivotCacheDefinition;
+		if (pivotCacheDefinition.getContents()==null) {
+			throw new Docx4JException(pivotCacheDefinition.getPartName() + " has no content");
+		}
+		sharedItems = new PivotSharedItems(pivotCacheDefinition);
+		
+		try {
+			pivotCacheRecords = PivotCacheReader.getRecordsPart(pivotCacheDefinition);
+		} catch (Docx4JException e) {
+			// so create it
+			String name = pivotCacheDefinition.getPartName().getName().replace("pivotCacheDefinition", "pivotCacheRecords");
+			try {
+				pivotCacheRecords = new PivotCacheRecords(new PartName(name));
+			} catch (InvalidFormatException ife) {
+				throw new Docx4JException(ife.getMessage(), ife);
+			}
+			Relationship rel = pivotCacheDefinition.addTargetPart(pivotCacheRecords);
+			pivotCacheDefinition.getContents().setId(rel.getId());
+		}
+		// the existing records (if any) are replaced
+		pivotCacheRecords.setJaxbElement(Context.getsmlObjectFactory().createCTPivotCacheRecords());
+		
+		try {
+			// deleted by dispose()
+			spoolFile = File.createTempFile("docx4j-pivot", ".xml");
+			spool = new BufferedWriter(new OutputStreamWriter(
+					new BufferedOutputStream(new FileOutputStream(spoolFile)), "UTF-8"));
+		} catch (IOException e) {
+			if (spoolFile!=null) {
+				spoolFile.delete();
+			}
+			throw new Docx4JException("Couldn't create temp file", e);
+		}
+		
+		pivotCacheRecords.setPivotCacheWriter(this);
+	}
+	
+	/**
+	 * @return the shared items, eg to look up an index for addShared
+	 */
+	public PivotSharedItems getSharedItems() {
+		return sharedItems;
+	}
+	
+	public PivotCacheRecords getPivotCacheRecords() {
+		return pivotCacheRecords;
+	}
+	
+	/**
+	 * Start a new record (ending the previous one).
+	 */
+	public void startRecord() throws IOException {
+		
+		if (closed) {
+			throw new IllegalStateException("closed");
+		}
+		if (inRecord) {
+			spool.write("</r>");
+		}
+		spool.write("<r>");
+		inRecord = true;
+		field = 0;
+		recordCount++;
+	}
+	
+	public void addMissing() throws IOException {
+		value("m", null);
+	}
+	
+	public void addNumber(double value) throws IOException {
+		value("n", CompactSheet.formatNumber(value));
+	}
+	
+	public void addString(String value) throws IOException {
+		value("s", value);
+	}
+
+	public void addBoolean(boolean value) throws IOException {
+		value("b", value ? "1" : "0");
+	}
+	
+	/**
+	 * @param value eg "#N/A"
+	 */
+	public void addError(String value) throws IOException {
+		value("e", value);
+	}
+
+	/**
+	 * @param value ISO 8601, eg "2014-10-01T00:00:00"
+	 */
+	public void addDate(String value) throws IOException {
+		value("d", value);
+	}
+	
+	/**
+	 * Add a reference to one of the field's shared items.
+	 */
+	public void addShared(int index) throws IOException {
+		value("x", Integer.toString(index));
+	}
+
+	/**
+	 * Add a reference to the field's shared item with this value, 
+	 * adding the item if necessary.
+	 */
+	public void addSharedString(String value) throws IOException {
+		addShared(sharedItems.addString(field, value));
+	}
+
+	/**
+	 * Add a reference to the field's shared item with this value, 
+	 * adding the item if necessary.
+	 */
+	public void addSharedNumber(double value) throws IOException {
+		addShared(sharedItems.addNumber(field, value));
+	}
+	
+	private void value(String name, String v) throws IOException {
+		
+		if (!inRecord) {
+			throw new IllegalStateException("startRecord first");
+		}
+		spool.write('<');
+		spool.write(name);
+		if (v!=null) {
+			spool.write(" v=\"");
+			WorksheetWriter.escape(spool, v, true);
+			spool.write('"');
+		}
+		spool.write("/>");
+		field++;
+	}
+	
+	/**
+	 * End the last record, and set the definition's recordCount.
+	 * After this, no more records can be added, but the package can be saved.
+	 */
+	public void close() throws IOException {
+		
+		if (closed) return;
+		try {
+			if (inRecord) {
+				spool.write("</r>");
+			}
+		} finally {
+			spool.close();
+			closed = true;
+		}
+		try {
+			pivotCacheDefinition.getContents().setRecordCount(recordCount);
+		} catch (Docx4JException e) {
+			throw new IOException(e.getMessage());
+		}
+		log.info("Wrote " + recordCount + " records to " + spoolFile.getPath() + " (" + spoolFile.length() + " bytes)");
+	}
+	
+	/**
+	 * Delete the temporary file.  Do this once you've saved the package
+	 * (for the last time); the records are lost.
+	 */
+	public void dispose() {
+		
+		if (!closed) {
+			try {
+				close();
+			} catch (IOException e) {
+				log.warn(e.getMessage());
+			}
+		}
+		pivotCacheRecords.setPivotCacheWriter(null);
+		if (!spoolFile.delete()) {
+			log.warn("Couldn't delete " + spoolFile.getPath());
+		}
+	}
+	
+	/**
+	 * Used by PivotCacheRecords when it is saved.
+	 * 
+	 * @param os where to write the records part
+	 */
+	public void writeRecords(OutputStream os) throws IOException {
+		
+		if (!closed) {
+			close();
+		}
+		Writer w = new OutputStreamWriter(os, "UTF-8");
+		w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+		w.write("<pivotCacheRecords xmlns=\"" + SML_NS + "\" xmlns:r=\"" + R_NS 
+				+ "\" count=\"" + recordCount + "\">");
+		w.flush();
+		
+		InputStream is = new FileInputStream(spoolFile);
+		try {
+			IOUtils.copy(is, os);
+		} finally {
+			is.close();
+		}
+		
+		w.write("</pivotCacheRecords>");
+		w.flush(); // but don't close os
+	}
+
+}
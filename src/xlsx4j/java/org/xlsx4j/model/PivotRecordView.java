@@ -0,0 +1,148 @@
+package org.xlsx4j.model;
+
+/**
+ * A read-only view of a pivot cache record, as returned by PivotCacheReader.
+ * 
+ * The same object is reused for each record, so don't hold on to it.
+ * 
+ * Values which refer to a field's shared items (x) are resolved, 
+ * so getType etc give the shared item's type and value; 
+ * getSharedIndex gives the index.
+ * 
+ * @since 3.2.2
+ */
+public class PivotRecordView {
+	
+	public static final byte MISSING = 0;
+	public static final byte NUMBER = 1;
+	public static final byte BOOLEAN = 2;
+	public static final byte ERROR = 3;
+	public static final byte STRING = 4;
+	public static final byte DATE = 5;
+	
+	// per field
+	byte[] types = new byte[16];
+	double[] numbers = new double[16];
+	String[] texts = new String[16];
+	int[] sharedIndexes = new int[16];
+	int fieldCount;
+	
+	long recordNumber;
+	
+	void clear() {
+		fieldCount = 0;
+	}
+	
+	/**
+	 * @return the next field's slot, growing the arrays if necessary
+	 */
+	int addField() {
+		
+		if (fieldCount==types.length) {
+			int capacity = fieldCount * 2;
+			byte[] newTypes = new byte[capacity];
+			System.arraycopy(types, 0, newTypes, 0, fieldCount);
+			types = newTypes;
+			double[] newNumbers = new double[capacity];
+			System.arraycopy(numbers, 0, newNumbers, 0, fieldCount);
+			numbers = newNumbers;
+			String[] newTexts = new String[capacity];
+			System.arraycopy(texts, 0, newTexts, 0, fieldCount);
+			texts = newTexts;
+			int[] newIndexes = new int[capacity];
+			System.arraycopy(sharedIndexes, 0, newIndexes, 0, fieldCount);
+			sharedIndexes = newIndexes;
+		}
+		int i = fieldCount++;
+		types[i] = MISSING;
+		numbers[i] = 0;
+		texts[i] = null;
+		sharedIndexes[i] = -1;
+		return i;
+	}
+	
+	/**
+	 * @return the (zero based) number of this record
+	 */
+	public long getRecordNumber() {
+		return recordNumber;
+	}
+	
+	/**
+	 * @return the number of values in the record (one per cache field)
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+	
+	/**
+	 * @return MISSING, NUMBER, BOOLEAN, ERROR, STRING or DATE
+	 */
+	public byte getType(int field) {
+		check(field);
+		return types[field];
+	}
+
+	/**
+	 * @return the index of the field's shared item this value refers to, 
+	 * or -1 if the value is in the record itself
+	 */
+	public int getSharedIndex(int field) {
+		check(field);
+		return sharedIndexes[field];
+	}
+	
+	/**
+	 * @return the value of a NUMBER (or 1 or 0 for a BOOLEAN)
+	 */
+	public double getNumber(int field) {
+		check(field);
+		if (types[field]!=NUMBER && types[field]!=BOOLEAN) {
+			throw new IllegalStateException("Field " + field + " of record " + recordNumber + " isn't a number");
+		}
+		return numbers[field];
+	}
+	
+	public boolean getBoolean(int field) {
+		check(field);
+		if (types[field]!=BOOLEAN) {
+			throw new IllegalStateException("Field " + field + " of record " + recordNumber + " isn't a boolean");
+		}
+		return numbers[field]!=0;
+	}
+	
+	/**
+	 * @return the value as text: for a DATE, in ISO 8601 format; 
+	 * for MISSING, null
+	 */
+	public String getString(int field) {
+		check(field);
+		switch (types[field]) {
+		case MISSING:
+			return null;
+		case NUMBER:
+			return CompactSheet.formatNumber(numbers[field]);
+		case BOOLEAN:
+			return numbers[field]==0 ? "0" : "1";
+		default:
+			return texts[field];
+		}
+	}
+	
+	private void check(int field) {
+		if (field<0 || field>=fieldCount) {
+			throw new IndexOutOfBoundsException("Field " + field + " (record " + recordNumber + " has " + fieldCount + ")");
+		}
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(recordNumber).append(':');
+		for (int i=0; i<fieldCount; i++) {
+			sb.append(' ').append(getString(i));
+		}
+		return sb.toString();
+	}
+
+}
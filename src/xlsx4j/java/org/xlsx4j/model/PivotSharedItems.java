@@ -0,0 +1,296 @@
+package org.xlsx4j.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.parts.SpreadsheetML.PivotCacheDefinition;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTBoolean;
+import org.xlsx4j.sml.CTCacheField;
+import org.xlsx4j.sml.CTDateTime;
+import org.xlsx4j.sml.CTError;
+import org.xlsx4j.sml.CTNumber;
+import org.xlsx4j.sml.CTPivotCacheDefinition;
+import org.xlsx4j.sml.CTSharedItems;
+import org.xlsx4j.sml.CTString;
+
+/**
+ * The shared items of each of a pivot cache's fields, as records refer
+ * to them (by index), held compactly for lookup while records are read
+ * or written.
+ * 
+ * For writing, indexOf finds an item by value, and addString and
+ * addNumber find or add one (adding it to the PivotCacheDefinition too).
+ * 
+ * If you change the definition's shared items directly, create 
+ * a new one of these.
+ * 
+ * Not thread safe.
+ * 
+ * @since 3.2.2
+ */
+public class PivotSharedItems {
+
+	private List<CTCacheField> cacheFields;
+	private List<FieldItems> fields;
+
+	public PivotSharedItems(PivotCacheDefinition pivotCacheDefinition) throws Docx4JException {
+		this(pivotCacheDefinition.getContents());
+	}
+	
+	public PivotSharedItems(CTPivotCacheDefinition definition) {
+		
+		if (definition.getCacheFields()==null) {
+			definition.setCacheFields(Context.getsmlObjectFactory().createCTCacheFields());
+		}
+		cacheFields = definition.getCacheFields().getCacheField();
+		fields = new ArrayList<FieldItems>(cacheFields.size());
+		for (CTCacheField cacheField : cacheFields) {
+			FieldItems items = new FieldItems();
+			if (cacheField.getSharedItems()!=null) {
+				for (Object o : cacheField.getSharedItems().getMOrNOrB()) {
+					items.add(o);
+				}
+			}
+			fields.add(items);
+		}
+	}
+	
+	public int getFieldCount() {
+		return fields.size();
+	}
+	
+	public String getFieldName(int field) {
+		return cacheFields.get(field).getName();
+	}
+	
+	/**
+	 * @return the index of the named field, or -1
+	 */
+	public int getFieldIndex(String name) {
+		for (int i=0; i<cacheFields.size(); i++) {
+			if (name.equals(cacheFields.get(i).getName())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the number of shared items the field has (0 if 
+	 * its values are all in the records)
+	 */
+	public int getItemCount(int field) {
+		return fields.get(field).count;
+	}
+	
+	/**
+	 * @return the item's type (see PivotRecordView)
+	 */
+	public byte getType(int field, int index) {
+		return fields.get(field).checked(index).types[index];
+	}
+	
+	/**
+	 * @return the item's value, if it is a NUMBER (or 1 or 0 for a BOOLEAN)
+	 */
+	public double getNumber(int field, int index) {
+		return fields.get(field).checked(index).numbers[index];
+	}
+
+	/**
+	 * @return the item's text, for a STRING, ERROR or DATE (ISO 8601)
+	 */
+	public String getText(int field, int index) {
+		return fields.get(field).checked(index).texts[index];
+	}
+	
+	/**
+	 * @return the index of the field's STRING item with this value, or -1
+	 */
+	public int indexOf(int field, String text) {
+		Integer i = fields.get(field).strings().get(text);
+		return (i==null) ? -1 : i;
+	}
+
+	/**
+	 * @return the index of the field's NUMBER item with this value, or -1
+	 */
+	public int indexOf(int field, double number) {
+		Integer i = fields.get(field).numberIndex().get(number);
+		return (i==null) ? -1 : i;
+	}
+	
+	/**
+	 * @return the index of the field's STRING item with this value, 
+	 * which is added if necessary
+	 */
+	public int addString(int field, String text) {
+		
+		int i = indexOf(field, text);
+		if (i>=0) {
+			return i;
+		}
+		CTString s = Context.getsmlObjectFactory().createCTString();
+		s.setV(text);
+		CTSharedItems sharedItems = getSharedItems(field);
+		sharedItems.getMOrNOrB().add(s);
+		sharedItems.setCount((long)sharedItems.getMOrNOrB().size());
+		// back to the defaults (true), if they were turned off for numbers
+		sharedItems.setContainsString(null);
+		sharedItems.setContainsSemiMixedTypes(null);
+		if (sharedItems.isContainsNumber()) {
+			sharedItems.setContainsMixedTypes(Boolean.TRUE);
+		}
+		
+		FieldItems items = fields.get(field);
+		items.add(s);
+		items.strings().put(text, items.count - 1);
+		return items.count - 1;
+	}
+	
+	/**
+	 * @return the index of the field's NUMBER item with this value, 
+	 * which is added if necessary
+	 */
+	public int addNumber(int field, double number) {
+		
+		int i = indexOf(field, number);
+		if (i>=0) {
+			return i;
+		}
+		CTNumber n = Context.getsmlObjectFactory().createCTNumber();
+		n.setV(number);
+		CTSharedItems sharedItems = getSharedItems(field);
+		boolean first = !sharedItems.isContainsNumber();
+		sharedItems.getMOrNOrB().add(n);
+		sharedItems.setCount((long)sharedItems.getMOrNOrB().size());
+		sharedItems.setContainsNumber(Boolean.TRUE);
+		if (first && sharedItems.getMOrNOrB().size()==1) {
+			// only numbers (so far)
+			sharedItems.setContainsString(Boolean.FALSE);
+			sharedItems.setContainsSemiMixedTypes(Boolean.FALSE);
+			sharedItems.setContainsInteger(number==Math.rint(number));
+		} else if (sharedItems.isContainsString()) {
+			sharedItems.setContainsMixedTypes(Boolean.TRUE);
+		}
+		if (number!=Math.rint(number)) {
+			sharedItems.setContainsInteger(null);
+		}
+		if (sharedItems.getMinValue()==null || number<sharedItems.getMinValue()) {
+			sharedItems.setMinValue(number);
+		}
+		if (sharedItems.getMaxValue()==null || number>sharedItems.getMaxValue()) {
+			sharedItems.setMaxValue(number);
+		}
+		
+		FieldItems items = fields.get(field);
+		items.add(n);
+		items.numberIndex().put(number, items.count - 1);
+		return items.count - 1;
+	}
+	
+	private CTSharedItems getSharedItems(int field) {
+		
+		CTCacheField cacheField = cacheFields.get(field);
+		if (cacheField.getSharedItems()==null) {
+			cacheField.setSharedItems(Context.getsmlObjectFactory().createCTSharedItems());
+		}
+		return cacheField.getSharedItems();
+	}
+	
+	/**
+	 * Set the view's value for the field to the shared item.
+	 */
+	void resolve(PivotRecordView view, int slot, int field, int index) {
+		
+		FieldItems items = fields.get(field).checked(index);
+		view.types[slot] = items.types[index];
+		view.numbers[slot] = items.numbers[index];
+		view.texts[slot] = items.texts[index];
+		view.sharedIndexes[slot] = index;
+	}
+	
+	private static class FieldItems {
+		
+		byte[] types = new byte[4];
+		double[] numbers = new double[4];
+		String[] texts = new String[4];
+		int count;
+		
+		// built when first needed
+		private Map<String, Integer> strings;
+		private Map<Double, Integer> numberIndex;
+		
+		FieldItems checked(int index) {
+			if (index<0 || index>=count) {
+				throw new IndexOutOfBoundsException("No shared item " + index + " (there are " + count + ")");
+			}
+			return this;
+		}
+		
+		void add(Object o) {
+			
+			if (count==types.length) {
+				int capacity = count * 2;
+				byte[] newTypes = new byte[capacity];
+				System.arraycopy(types, 0, newTypes, 0, count);
+				types = newTypes;
+				double[] newNumbers = new double[capacity];
+				System.arraycopy(numbers, 0, newNumbers, 0, count);
+				numbers = newNumbers;
+				String[] newTexts = new String[capacity];
+				System.arraycopy(texts, 0, newTexts, 0, count);
+				texts = newTexts;
+			}
+			int i = count++;
+			if (o instanceof CTString) {
+				types[i] = PivotRecordView.STRING;
+				texts[i] = ((CTString)o).getV();
+			} else if (o instanceof CTNumber) {
+				types[i] = PivotRecordView.NUMBER;
+				numbers[i] = ((CTNumber)o).getV();
+			} else if (o instanceof CTBoolean) {
+				types[i] = PivotRecordView.BOOLEAN;
+				numbers[i] = ((CTBoolean)o).isV() ? 1 : 0;
+			} else if (o instanceof CTError) {
+				types[i] = PivotRecordView.ERROR;
+				texts[i] = ((CTError)o).getV();
+			} else if (o instanceof CTDateTime) {
+				types[i] = PivotRecordView.DATE;
+				texts[i] = (((CTDateTime)o).getV()==null) ? null : ((CTDateTime)o).getV().toXMLFormat();
+			} else {
+				// CTMissing
+				types[i] = PivotRecordView.MISSING;
+			}
+		}
+		
+		Map<String, Integer> strings() {
+			if (strings==null) {
+				strings = new HashMap<String, Integer>();
+				for (int i=count-1; i>=0; i--) { // so the first wins
+					if (types[i]==PivotRecordView.STRING) {
+						strings.put(texts[i], i);
+					}
+				}
+			}
+			return strings;
+		}
+		
+		Map<Double, Integer> numberIndex() {
+			if (numberIndex==null) {
+				numberIndex = new HashMap<Double, Integer>();
+				for (int i=count-1; i>=0; i--) {
+					if (types[i]==PivotRecordView.NUMBER) {
+						numberIndex.put(numbers[i], i);
+					}
+				}
+			}
+			return numberIndex;
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.xlsx4j.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A row, as read by WorksheetReader.
+ * 
+ * The same object (and its cells) is reused for the next row, 
+ * so copy anything you want to keep.
+ * 
+ * @since 3.2.2
+ */
+public class RowView {
+
+	private List<String> sharedStrings;
+	
+	long rowNumber;
+	Long styleIndex;
+	Double height;
+	boolean hidden;
+	
+	// Grows to the widest row; only the first cellCount are in use
+	private List<CellView> cells = new ArrayList<CellView>();
+	private int cellCount;
+
+	RowView(List<String> sharedStrings) {
+		this.sharedStrings = sharedStrings;
+	}
+	
+	void clear() {
+		rowNumber = 0;
+		styleIndex = null;
+		height = null;
+		hidden = false;
+		cellCount = 0;
+	}
+	
+	CellView addCell() {
+		
+		CellView cell;
+		if (cellCount < cells.size()) {
+			cell = cells.get(cellCount);
+		} else {
+			cell = new CellView(sharedStrings);
+			cells.add(cell);
+		}
+		cellCount++;
+		cell.clear();
+		return cell;
+	}
+
+	/**
+	 * @return the row number, one based (as in the sheet)
+	 */
+	public long getRowNumber() {
+		return rowNumber;
+	}
+
+	/**
+	 * @return the row's style index, or null if it doesn't have
+	 * a custom format
+	 */
+	public Long getStyleIndex() {
+		return styleIndex;
+	}
+
+	/**
+	 * @return the row height in points, or null if it isn't specified
+	 */
+	public Double getHeight() {
+		return height;
+	}
+
+	public boolean isHidden() {
+		return hidden;
+	}
+
+	/**
+	 * @return the number of cells present in the row (empty cells are typically 
+	 * omitted from the sheet, so this may be less than the number of columns)
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * @param i between 0 and getCellCount()-1
+	 */
+	public CellView getCell(int i) {
+		if (i>=cellCount) {
+			throw new IndexOutOfBoundsException(i + " >= " + cellCount);
+		}
+		return cells.get(i);
+	}
+	
+	/**
+	 * @param column zero based
+	 * @return the cell in that column, or null if it isn't present
+	 */
+	public CellView getCellInColumn(int column) {
+		for (int i=0; i<cellCount; i++) {
+			CellView cell = cells.get(i);
+			if (cell.column==column) {
+				return cell;
+			}
+			if (cell.column>column) {
+				break;
+			}
+		}
+		return null;
+	}
+
+}
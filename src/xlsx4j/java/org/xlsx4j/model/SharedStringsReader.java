@@ -0,0 +1,216 @@
+package org.xlsx4j.model;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.io3.stores.PartStore;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.Part;
+import org.docx4j.openpackaging.parts.SpreadsheetML.SharedStrings;
+import org.docx4j.openpackaging.parts.SpreadsheetML.WorksheetPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xlsx4j.sml.CTRElt;
+import org.xlsx4j.sml.CTRst;
+
+/**
+ * Reads the shared string table as a list of plain strings 
+ * (formatting runs concatenated, phonetic runs ignored).
+ * 
+ * If the part hasn't been unmarshalled, it is streamed from the
+ * package's part store, without building the JAXB tree.
+ * 
+ * @since 3.2.2
+ */
+public class SharedStringsReader {
+	
+	protected static Logger log = LoggerFactory.getLogger(SharedStringsReader.class);
+	
+	/**
+	 * @return the shared strings of the workbook containing the worksheet
+	 * (an empty list, if it doesn't have any), from the SharedStrings part's index
+	 */
+	public static List<String> read(WorksheetPart worksheetPart) throws Docx4JException {
+		
+		if (!(worksheetPart.getPackage() instanceof SpreadsheetMLPackage)
+				|| ((SpreadsheetMLPackage)worksheetPart.getPackage()).getWorkbookPart()==null) {
+			throw new Docx4JException(worksheetPart.getPartName() + " isn't in a SpreadsheetMLPackage");
+		}
+		SharedStrings sharedStrings = ((SpreadsheetMLPackage)worksheetPart.getPackage())
+				.getWorkbookPart().getSharedStrings();
+		if (sharedStrings==null) {
+			return Collections.emptyList();
+		}
+		return sharedStrings.getStrings();
+	}
+
+	/**
+	 * Read the strings afresh (as opposed to using the SharedStrings part's index).
+	 */
+	public static List<String> read(SharedStrings sharedStrings) throws Docx4JException {
+		return read(sharedStrings, null);
+	}
+	
+	/**
+	 * @param rich if not null, the indexes of the strings which have formatting runs
+	 * are set in this
+	 */
+	public static List<String> read(SharedStrings sharedStrings, BitSet rich) throws Docx4JException {
+		
+		long startTime = System.currentTimeMillis();
+		List<String> strings = new ArrayList<String>();
+
+		if (sharedStrings.isUnmarshalled()) {
+			
+			for (CTRst si : sharedStrings.getContents().getSi()) {
+				if (rich!=null && si.getT()==null) {
+					rich.set(strings.size());
+				}
+				strings.add(toString(si));
+			}
+			return strings;
+		}
+		
+		InputStream is = openPart(sharedStrings);
+		XMLStreamReader xsr = null;
+		boolean[] plain = new boolean[1];
+		try {
+			xsr = createXMLStreamReader(is);
+			while (xsr.hasNext()) {
+				if (xsr.next()==XMLStreamConstants.START_ELEMENT
+						&& "si".equals(xsr.getLocalName())) {
+					String text = readRichText(xsr, plain);
+					if (rich!=null && !plain[0]) {
+						rich.set(strings.size());
+					}
+					strings.add(text);
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new Docx4JException("Problem reading " + sharedStrings.getPartName(), e);
+		} finally {
+			close(xsr);
+			IOUtils.closeQuietly(is);
+		}
+		log.debug("Read " + strings.size() + " shared strings in " + (System.currentTimeMillis()-startTime) + "ms");
+		return strings;
+	}
+	
+	/**
+	 * @return the text of a shared or inline string
+	 */
+	public static String toString(CTRst rst) {
+
+		if (rst.getT()!=null) {
+			return rst.getT().getValue();
+		}
+		StringBuilder sb = new StringBuilder();
+		for (CTRElt r : rst.getR()) {
+			if (r.getT()!=null && r.getT().getValue()!=null) {
+				sb.append(r.getT().getValue());
+			}
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Read the text of the rich text element (si or is) the reader is positioned at,
+	 * leaving it positioned at its end.
+	 */
+	static String readRichText(XMLStreamReader xsr) throws XMLStreamException {
+		return readRichText(xsr, new boolean[1]);
+	}
+	
+	/**
+	 * @param plain set to whether the element was a single t (ie no formatting runs)
+	 */
+	private static String readRichText(XMLStreamReader xsr, boolean[] plain) throws XMLStreamException {
+
+		plain[0] = false;
+		String text = null;
+		StringBuilder sb = null;
+		int depth = 1;
+		int phoneticDepth = 0;
+		while (depth>0) {
+			int event = xsr.next();
+			if (event==XMLStreamConstants.START_ELEMENT) {
+				String name = xsr.getLocalName();
+				if ("t".equals(name)) {
+					plain[0] = (depth==1 && text==null);
+					String t = xsr.getElementText(); // now at its end
+					if (phoneticDepth==0) {
+						// usually there's just the one t
+						if (text==null) {
+							text = t;
+						} else {
+							if (sb==null) {
+								sb = new StringBuilder(text);
+							}
+							sb.append(t);
+						}
+					}
+				} else {
+					depth++;
+					if ("rPh".equals(name)) {
+						phoneticDepth = depth;
+					}
+				}
+			} else if (event==XMLStreamConstants.END_ELEMENT) {
+				if (depth==phoneticDepth) {
+					phoneticDepth = 0;
+				}
+				depth--;
+			}
+		}
+		if (sb!=null) {
+			return sb.toString();
+		}
+		return (text==null) ? "" : text;
+	}
+	
+	static InputStream openPart(Part part) throws Docx4JException {
+		
+		PartStore partStore = part.getPackage().getSourcePartStore();
+		if (partStore==null) {
+			throw new Docx4JException(part.getPartName() + " has no content (no PartStore, and not unmarshalled)");
+		}
+		InputStream is = partStore.loadPart(part.getPartName().getName().substring(1));
+		if (is==null) {
+			throw new Docx4JException(part.getPartName() + " missing from part store");
+		}
+		return is;
+	}
+	
+	private static XMLInputFactory inputFactory;
+	
+	static synchronized XMLStreamReader createXMLStreamReader(InputStream is) throws XMLStreamException {
+		
+		if (inputFactory==null) {
+			inputFactory = XMLInputFactory.newInstance();
+			inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		}
+		return inputFactory.createXMLStreamReader(is);
+	}
+	
+	static void close(XMLStreamReader xsr) {
+		if (xsr!=null) {
+			try {
+				xsr.close();
+			} catch (XMLStreamException e) {
+				log.warn(e.getMessage());
+			}
+		}
+	}
+
+}
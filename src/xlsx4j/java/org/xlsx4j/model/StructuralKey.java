@@ -0,0 +1,234 @@
+package org.xlsx4j.model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlTransient;
+
+import org.w3c.dom.Node;
+
+/**
+ * Wraps a JAXB object, so that it can be used as a hash key 
+ * according to its content (its XML properties, compared recursively), 
+ * rather than its identity.  The generated classes don't implement 
+ * equals or hashCode. 
+ * 
+ * An attribute which isn't set is the same as one set to its default
+ * (eg no applyFont is the same as applyFont="0"): attributes are read 
+ * via their getters, which return the default for null.
+ * 
+ * The object mustn't be changed while it is used as a key.
+ * 
+ * @since 3.2.2
+ */
+final class StructuralKey {
+	
+	private final Object o;
+	private final int hash;
+
+	StructuralKey(Object o) {
+		this.o = o;
+		this.hash = hash(o);
+	}
+	
+	Object get() {
+		return o;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		
+		if (this==other) return true;
+		if (!(other instanceof StructuralKey)) return false;
+		StructuralKey key = (StructuralKey)other;
+		return hash==key.hash 
+				&& equal(o, key.o);
+	}
+	
+	static int hash(Object o) {
+		
+		if (o==null) {
+			return 0;
+		}
+		if (isValue(o)) {
+			return o.hashCode();
+		}
+		if (o instanceof byte[]) {
+			return Arrays.hashCode((byte[])o);
+		}
+		if (o instanceof List<?>) {
+			// an empty list is the same as no list
+			if (((List<?>)o).isEmpty()) return 0;
+			int h = 1;
+			for (Object item : (List<?>)o) {
+				h = 31 * h + hash(item);
+			}
+			return h;
+		}
+		if (o instanceof JAXBElement<?>) {
+			JAXBElement<?> el = (JAXBElement<?>)o;
+			return 31 * el.getName().hashCode() + hash(el.getValue());
+		}
+		if (o instanceof Node) {
+			return ((Node)o).getNodeName().hashCode();
+		}
+		int h = o.getClass().hashCode();
+		for (Property p : properties(o.getClass())) {
+			h = 31 * h + hash(p.get(o));
+		}
+		return h;
+	}
+	
+	static boolean equal(Object a, Object b) {
+		
+		if (a==b) return true;
+		
+		// an empty list is the same as no list
+		if (a==null) return (b instanceof List<?>) && ((List<?>)b).isEmpty();
+		if (b==null) return (a instanceof List<?>) && ((List<?>)a).isEmpty();
+		
+		if (isValue(a)) {
+			return a.equals(b);
+		}
+		if (a instanceof byte[]) {
+			return (b instanceof byte[]) && Arrays.equals((byte[])a, (byte[])b);
+		}
+		if (a instanceof List<?>) {
+			if (!(b instanceof List<?>)) return false;
+			List<?> la = (List<?>)a;
+			List<?> lb = (List<?>)b;
+			if (la.size()!=lb.size()) return false;
+			for (int i=0; i<la.size(); i++) {
+				if (!equal(la.get(i), lb.get(i))) return false;
+			}
+			return true;
+		}
+		if (a instanceof JAXBElement<?>) {
+			if (!(b instanceof JAXBElement<?>)) return false;
+			JAXBElement<?> ea = (JAXBElement<?>)a;
+			JAXBElement<?> eb = (JAXBElement<?>)b;
+			return ea.getName().equals(eb.getName())
+					&& ea.isNil()==eb.isNil()
+					&& equal(ea.getValue(), eb.getValue());
+		}
+		if (a instanceof Node) {
+			return (b instanceof Node) && ((Node)a).isEqualNode((Node)b);
+		}
+		if (a.getClass()!=b.getClass()) {
+			return false;
+		}
+		for (Property p : properties(a.getClass())) {
+			if (!equal(p.get(a), p.get(b))) return false;
+		}
+		return true;
+	}
+	
+	private static boolean isValue(Object o) {
+		return o instanceof String
+				|| o instanceof Number
+				|| o instanceof Boolean
+				|| o instanceof Character
+				|| o instanceof Enum<?>
+				|| o instanceof javax.xml.namespace.QName
+				|| o instanceof javax.xml.datatype.XMLGregorianCalendar;
+	}
+	
+	/**
+	 * A field which holds XML content, and for an attribute, 
+	 * its getter (which returns the default if it isn't set).
+	 */
+	private static final class Property {
+		
+		private final Field field;
+		private final Method getter;
+		
+		Property(Field field, Method getter) {
+			this.field = field;
+			this.getter = getter;
+		}
+		
+		Object get(Object o) {
+			try {
+				if (getter==null) {
+					return field.get(o);
+				}
+				return getter.invoke(o);
+			} catch (IllegalAccessException e) {
+				// properties() made them accessible
+				throw new RuntimeException(e);
+			} catch (InvocationTargetException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+	
+	private static ConcurrentHashMap<Class<?>, Property[]> propertiesByClass 
+		= new ConcurrentHashMap<Class<?>, Property[]>();
+
+	/**
+	 * The fields which hold XML content: not static, and not 
+	 * XmlTransient (eg parent).
+	 */
+	private static Property[] properties(Class<?> c) {
+		
+		Property[] result = propertiesByClass.get(c);
+		if (result==null) {
+			List<Property> list = new ArrayList<Property>();
+			for (Class<?> k = c; k!=null && k!=Object.class; k = k.getSuperclass()) {
+				for (Field f : k.getDeclaredFields()) {
+					if (Modifier.isStatic(f.getModifiers())
+							|| f.isAnnotationPresent(XmlTransient.class)) {
+						continue;
+					}
+					f.setAccessible(true);
+					Method getter = null;
+					if (f.isAnnotationPresent(XmlAttribute.class)) {
+						getter = getter(c, f);
+					}
+					list.add(new Property(f, getter));
+				}
+			}
+			result = list.toArray(new Property[list.size()]);
+			propertiesByClass.put(c, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the public getter for the field (getX or isX), or null
+	 */
+	private static Method getter(Class<?> c, Field f) {
+		
+		String name = f.getName();
+		if (name.startsWith("_")) {
+			// eg _int, for a Java keyword
+			name = name.substring(1);
+		}
+		name = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		for (String prefix : new String[] {"get", "is"}) {
+			try {
+				Method m = c.getMethod(prefix + name);
+				if (m.getReturnType()!=void.class) {
+					return m;
+				}
+			} catch (NoSuchMethodException e) {
+				// try the next
+			}
+		}
+		return null;
+	}
+	
+}
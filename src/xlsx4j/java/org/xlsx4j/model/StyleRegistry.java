@@ -0,0 +1,380 @@
+package org.xlsx4j.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.docx4j.XmlUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.parts.SpreadsheetML.Styles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTBorder;
+import org.xlsx4j.sml.CTBorders;
+import org.xlsx4j.sml.CTCellAlignment;
+import org.xlsx4j.sml.CTCellStyleXfs;
+import org.xlsx4j.sml.CTCellXfs;
+import org.xlsx4j.sml.CTFill;
+import org.xlsx4j.sml.CTFills;
+import org.xlsx4j.sml.CTFont;
+import org.xlsx4j.sml.CTFontName;
+import org.xlsx4j.sml.CTFontSize;
+import org.xlsx4j.sml.CTFonts;
+import org.xlsx4j.sml.CTNumFmt;
+import org.xlsx4j.sml.CTNumFmts;
+import org.xlsx4j.sml.CTPatternFill;
+import org.xlsx4j.sml.CTStylesheet;
+import org.xlsx4j.sml.CTXf;
+import org.xlsx4j.sml.ObjectFactory;
+import org.xlsx4j.sml.STPatternType;
+
+/**
+ * Find-or-create for the records in the Styles part, so that styling
+ * many cells the same way adds one cellXfs entry (and one font, fill
+ * and border), rather than one per cell.
+ * 
+ * Records are matched by content (see StructuralKey): two fonts are the
+ * same if they have the same properties, in the same order.  The first
+ * of any existing duplicates is used; existing records are never moved
+ * or removed, so the indexes already used by cells stay valid. 
+ * 
+ * A new record is a copy of the object you pass in, so you can go on
+ * changing that object (eg to make the next style).
+ * 
+ * The stylesheet is indexed when the registry is first used.  If 
+ * you add records some other way, rescan().  If the stylesheet lacks 
+ * the default records Excel expects (font, fills, border and xfs 0), 
+ * these are added first.  
+ * 
+ * Get the registry for a Styles part via Styles.getStyleRegistry().
+ * 
+ * Not thread safe.
+ * 
+ * @since 3.2.2
+ */
+public class StyleRegistry {
+	
+	protected static Logger log = LoggerFactory.getLogger(StyleRegistry.class);
+	
+	/**
+	 * Number formats with an id below this are built in.
+	 */
+	public static final long FIRST_CUSTOM_NUMFMT_ID = 164;
+	
+	/**
+	 * The built in number formats which don't depend on the locale
+	 * (ECMA-376 Part 1, 18.8.30), by format code.
+	 */
+	private static final Map<String, Long> BUILT_IN_NUMFMTS = new HashMap<String, Long>();
+	static {
+		String[] codes = {
+				"General", "0", "0.00", "#,##0", "#,##0.00", 
+				null, null, null, null, 
+				"0%", "0.00%", "0.00E+00", "# ?/?", "# ??/??", 
+				"mm-dd-yy", "d-mmm-yy", "d-mmm", "mmm-yy", 
+				"h:mm AM/PM", "h:mm:ss AM/PM", "h:mm", "h:mm:ss", "m/d/yy h:mm"};
+		for (int i=0; i<codes.length; i++) {
+			if (codes[i]!=null) {
+				BUILT_IN_NUMFMTS.put(codes[i], (long)i);
+			}
+		}
+		BUILT_IN_NUMFMTS.put("#,##0 ;(#,##0)", 37L);
+		BUILT_IN_NUMFMTS.put("#,##0 ;[Red](#,##0)", 38L);
+		BUILT_IN_NUMFMTS.put("#,##0.00;(#,##0.00)", 39L);
+		BUILT_IN_NUMFMTS.put("#,##0.00;[Red](#,##0.00)", 40L);
+		BUILT_IN_NUMFMTS.put("mm:ss", 45L);
+		BUILT_IN_NUMFMTS.put("[h]:mm:ss", 46L);
+		BUILT_IN_NUMFMTS.put("mmss.0", 47L);
+		BUILT_IN_NUMFMTS.put("##0.0E+0", 48L);
+		BUILT_IN_NUMFMTS.put("@", 49L);
+	}
+	
+	private Styles styles;
+	
+	// null until indexed
+	private Map<StructuralKey, Long> fonts;
+	private Map<StructuralKey, Long> fills;
+	private Map<StructuralKey, Long> borders;
+	private Map<StructuralKey, Long> cellXfs;
+	private Map<String, Long> numFmts;
+	private long nextNumFmtId;
+	
+	public StyleRegistry(Styles styles) {
+		this.styles = styles;
+	}
+	
+	/**
+	 * @return the index of the font (for an xf's fontId), adding it if necessary
+	 */
+	public long getFontId(CTFont font) throws Docx4JException {
+		
+		index();
+		return findOrAdd(fonts, font, getStylesheet().getFonts().getFont());
+	}
+	
+	/**
+	 * @return the index of the fill (for an xf's fillId), adding it if necessary
+	 */
+	public long getFillId(CTFill fill) throws Docx4JException {
+		
+		index();
+		return findOrAdd(fills, fill, getStylesheet().getFills().getFill());
+	}
+	
+	/**
+	 * @return the index of the border (for an xf's borderId), adding it if necessary
+	 */
+	public long getBorderId(CTBorder border) throws Docx4JException {
+		
+		index();
+		return findOrAdd(borders, border, getStylesheet().getBorders().getBorder());
+	}
+
+	/**
+	 * @return the id of the number format with this format code 
+	 * (for an xf's numFmtId): the built in one, if there is one,
+	 * otherwise a custom one, adding it if necessary
+	 */
+	public long getNumFmtId(String formatCode) throws Docx4JException {
+		
+		Long id = BUILT_IN_NUMFMTS.get(formatCode);
+		if (id!=null) {
+			return id;
+		}
+		index();
+		id = numFmts.get(formatCode);
+		if (id==null) {
+			CTStylesheet stylesheet = getStylesheet();
+			if (stylesheet.getNumFmts()==null) {
+				stylesheet.setNumFmts(factory().createCTNumFmts());
+			}
+			CTNumFmt numFmt = factory().createCTNumFmt();
+			id = nextNumFmtId++;
+			numFmt.setNumFmtId(id);
+			numFmt.setFormatCode(formatCode);
+			stylesheet.getNumFmts().getNumFmt().add(numFmt);
+			stylesheet.getNumFmts().setCount((long)stylesheet.getNumFmts().getNumFmt().size());
+			numFmts.put(formatCode, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * @return the index of the cell format, for a cell's s, adding it if necessary
+	 */
+	public long getCellXfIndex(CTXf xf) throws Docx4JException {
+		
+		index();
+		return findOrAdd(cellXfs, xf, getStylesheet().getCellXfs().getXf());
+	}
+	
+	/**
+	 * Convenience method: the index of a cell format (for a cell's s) 
+	 * based on the Normal cell style, with the given properties.  
+	 * Null means the default.
+	 */
+	public long getCellXfIndex(CTFont font, CTFill fill, CTBorder border, 
+			String formatCode, CTCellAlignment alignment) throws Docx4JException {
+		
+		CTXf xf = factory().createCTXf();
+		xf.setXfId(0L);
+		xf.setNumFmtId(0L);
+		xf.setFontId(0L);
+		xf.setFillId(0L);
+		xf.setBorderId(0L);
+		if (formatCode!=null) {
+			xf.setNumFmtId(getNumFmtId(formatCode));
+			xf.setApplyNumberFormat(Boolean.TRUE);
+		}
+		if (font!=null) {
+			xf.setFontId(getFontId(font));
+			xf.setApplyFont(Boolean.TRUE);
+		}
+		if (fill!=null) {
+			xf.setFillId(getFillId(fill));
+			xf.setApplyFill(Boolean.TRUE);
+		}
+		if (border!=null) {
+			xf.setBorderId(getBorderId(border));
+			xf.setApplyBorder(Boolean.TRUE);
+		}
+		if (alignment!=null) {
+			xf.setAlignment(alignment);
+			xf.setApplyAlignment(Boolean.TRUE);
+		}
+		return getCellXfIndex(xf);
+	}
+	
+	/**
+	 * Forget what we know, and index the stylesheet again when
+	 * the registry is next used.
+	 */
+	public void rescan() {
+		fonts = null;
+		fills = null;
+		borders = null;
+		cellXfs = null;
+		numFmts = null;
+	}
+	
+	private <T> long findOrAdd(Map<StructuralKey, Long> index, T record, List<T> list) {
+		
+		Long i = index.get(new StructuralKey(record));
+		if (i==null) {
+			T copy = XmlUtils.deepCopy(record, Context.jcSML);
+			i = (long)list.size();
+			list.add(copy);
+			index.put(new StructuralKey(copy), i);
+			updateCounts();
+		}
+		return i;
+	}
+	
+	private void index() throws Docx4JException {
+		
+		if (fonts!=null) return;
+		
+		long startTime = System.currentTimeMillis();
+		
+		CTStylesheet stylesheet = getStylesheet();
+		addDefaults(stylesheet);
+		
+		fonts = index(stylesheet.getFonts().getFont());
+		fills = index(stylesheet.getFills().getFill());
+		borders = index(stylesheet.getBorders().getBorder());
+		cellXfs = index(stylesheet.getCellXfs().getXf());
+		
+		numFmts = new HashMap<String, Long>();
+		nextNumFmtId = FIRST_CUSTOM_NUMFMT_ID;
+		if (stylesheet.getNumFmts()!=null) {
+			for (CTNumFmt numFmt : stylesheet.getNumFmts().getNumFmt()) {
+				if (!numFmts.containsKey(numFmt.getFormatCode())) {
+					numFmts.put(numFmt.getFormatCode(), numFmt.getNumFmtId());
+				}
+				nextNumFmtId = Math.max(nextNumFmtId, numFmt.getNumFmtId() + 1);
+			}
+		}
+		log.debug("Indexed styles in " + (System.currentTimeMillis()-startTime) + "ms");
+	}
+	
+	private static Map<StructuralKey, Long> index(List<?> records) {
+		
+		Map<StructuralKey, Long> index = new HashMap<StructuralKey, Long>(records.size() * 2);
+		for (int i=0; i<records.size(); i++) {
+			StructuralKey key = new StructuralKey(records.get(i));
+			if (!index.containsKey(key)) {
+				index.put(key, (long)i);
+			}
+		}
+		return index;
+	}
+	
+	private CTStylesheet getStylesheet() throws Docx4JException {
+		
+		CTStylesheet stylesheet = styles.getContents();
+		if (stylesheet==null) {
+			stylesheet = factory().createCTStylesheet();
+			styles.setJaxbElement(stylesheet);
+		}
+		return stylesheet;
+	}
+	
+	/**
+	 * Excel expects font, fill, border and xf 0 to be the defaults, 
+	 * and fill 1 to be gray125.
+	 */
+	private void addDefaults(CTStylesheet stylesheet) {
+		
+		if (stylesheet.getFonts()==null) {
+			stylesheet.setFonts(factory().createCTFonts());
+		}
+		if (stylesheet.getFonts().getFont().isEmpty()) {
+			CTFont font = factory().createCTFont();
+			CTFontSize sz = factory().createCTFontSize();
+			sz.setVal(11);
+			font.getNameOrCharsetOrFamily().add(factory().createCTFontSz(sz));
+			CTFontName name = factory().createCTFontName();
+			name.setVal("Calibri");
+			font.getNameOrCharsetOrFamily().add(factory().createCTFontName(name));
+			stylesheet.getFonts().getFont().add(font);
+		}
+		
+		if (stylesheet.getFills()==null) {
+			stylesheet.setFills(factory().createCTFills());
+		}
+		if (stylesheet.getFills().getFill().isEmpty()) {
+			stylesheet.getFills().getFill().add(patternFill(STPatternType.NONE));
+			stylesheet.getFills().getFill().add(patternFill(STPatternType.GRAY_125));
+		}
+		
+		if (stylesheet.getBorders()==null) {
+			stylesheet.setBorders(factory().createCTBorders());
+		}
+		if (stylesheet.getBorders().getBorder().isEmpty()) {
+			CTBorder border = factory().createCTBorder();
+			border.setLeft(factory().createCTBorderPr());
+			border.setRight(factory().createCTBorderPr());
+			border.setTop(factory().createCTBorderPr());
+			border.setBottom(factory().createCTBorderPr());
+			border.setDiagonal(factory().createCTBorderPr());
+			stylesheet.getBorders().getBorder().add(border);
+		}
+		
+		if (stylesheet.getCellStyleXfs()==null) {
+			stylesheet.setCellStyleXfs(factory().createCTCellStyleXfs());
+		}
+		if (stylesheet.getCellStyleXfs().getXf().isEmpty()) {
+			stylesheet.getCellStyleXfs().getXf().add(defaultXf(null));
+		}
+		
+		if (stylesheet.getCellXfs()==null) {
+			stylesheet.setCellXfs(factory().createCTCellXfs());
+		}
+		if (stylesheet.getCellXfs().getXf().isEmpty()) {
+			stylesheet.getCellXfs().getXf().add(defaultXf(0L));
+		}
+		
+		updateCounts();
+	}
+	
+	private void updateCounts() {
+		
+		CTStylesheet stylesheet = styles.getJaxbElement();
+		CTFonts fonts = stylesheet.getFonts();
+		fonts.setCount((long)fonts.getFont().size());
+		CTFills fills = stylesheet.getFills();
+		fills.setCount((long)fills.getFill().size());
+		CTBorders borders = stylesheet.getBorders();
+		borders.setCount((long)borders.getBorder().size());
+		CTCellStyleXfs cellStyleXfs = stylesheet.getCellStyleXfs();
+		cellStyleXfs.setCount((long)cellStyleXfs.getXf().size());
+		CTCellXfs cellXfs = stylesheet.getCellXfs();
+		cellXfs.setCount((long)cellXfs.getXf().size());
+	}
+	
+	private static CTFill patternFill(STPatternType type) {
+		
+		CTPatternFill patternFill = factory().createCTPatternFill();
+		patternFill.setPatternType(type);
+		CTFill fill = factory().createCTFill();
+		fill.setPatternFill(patternFill);
+		return fill;
+	}
+	
+	private static CTXf defaultXf(Long xfId) {
+		
+		CTXf xf = factory().createCTXf();
+		xf.setNumFmtId(0L);
+		xf.setFontId(0L);
+		xf.setFillId(0L);
+		xf.setBorderId(0L);
+		xf.setXfId(xfId);
+		return xf;
+	}
+	
+	private static ObjectFactory factory() {
+		return Context.getsmlObjectFactory();
+	}
+
+}
@@ -0,0 +1,292 @@
+package org.xlsx4j.model;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.parts.SpreadsheetML.WorksheetPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xlsx4j.sml.Cell;
+import org.xlsx4j.sml.Row;
+import org.xlsx4j.sml.STCellType;
+import org.xlsx4j.sml.SheetData;
+
+/**
+ * Reads a worksheet a row at a time, without unmarshalling it, 
+ * so even a very large sheet can be read in a small, constant amount 
+ * of memory:
+ * 
+ * <pre>
+ * WorksheetReader reader = new WorksheetReader(worksheetPart);
+ * try {
+ *     while (reader.hasNext()) {
+ *         RowView row = reader.next();
+ *         for (int i=0; i&lt;row.getCellCount(); i++) {
+ *             CellView cell = row.getCell(i);
+ *             ... cell.getString() ...
+ *         }
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ * 
+ * The same RowView is returned each time (refilled), so copy 
+ * anything you want to keep.  Shared strings are resolved
+ * (the shared string table itself is read up front, as a list of strings).
+ * 
+ * The sheet is parsed from the package's part store, so this works for 
+ * a package which has been loaded, where the worksheet part hasn't
+ * been unmarshalled yet.  If it has been, its JAXB content is 
+ * read instead (so you see any changes you've made).
+ * 
+ * Not thread safe.
+ * 
+ * @since 3.2.2
+ */
+public class WorksheetReader implements Iterator<RowView>, Closeable {
+	
+	protected static Logger log = LoggerFactory.getLogger(WorksheetReader.class);
+
+	private WorksheetPart worksheetPart;
+	private RowView row;
+	
+	// Streaming
+	private InputStream is;
+	private XMLStreamReader xsr;
+	
+	// Already unmarshalled
+	private Iterator<Row> rows;
+	
+	private boolean fetched = false;
+	private boolean more = false;
+	private long lastRowNumber = 0;
+	
+	/**
+	 * Read the worksheet, resolving shared strings from its workbook.
+	 */
+	public WorksheetReader(WorksheetPart worksheetPart) throws Docx4JException {
+		this(worksheetPart, SharedStringsReader.read(worksheetPart));
+	}
+
+	/**
+	 * @param worksheetPart
+	 * @param sharedStrings to resolve shared strings (eg from SharedStringsReader,
+	 * if you are reading several sheets)
+	 */
+	public WorksheetReader(WorksheetPart worksheetPart, List<String> sharedStrings) throws Docx4JException {
+		
+		this.worksheetPart = worksheetPart;
+		row = new RowView(sharedStrings);
+		
+		if (worksheetPart.isUnmarshalled()) {
+			SheetData sheetData = worksheetPart.getContents().getSheetData();
+			rows = (sheetData==null) ? 
+					new java.util.ArrayList<Row>().iterator() : sheetData.getRow().iterator();
+		} else {
+			is = SharedStringsReader.openPart(worksheetPart);
+			try {
+				xsr = SharedStringsReader.createXMLStreamReader(is);
+			} catch (XMLStreamException e) {
+				close();
+				throw new Docx4JException("Problem reading " + worksheetPart.getPartName(), e);
+			}
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException (wrapping an XMLStreamException) 
+	 * if the sheet can't be parsed
+	 */
+	public boolean hasNext() {
+		
+		if (!fetched) {
+			try {
+				more = (rows==null) ? readRow() : readRow(rows);
+			} catch (XMLStreamException e) {
+				close();
+				throw new IllegalStateException("Problem reading " + worksheetPart.getPartName(), e);
+			}
+			if (more) {
+				lastRowNumber = row.rowNumber;
+			} else {
+				close();
+			}
+			fetched = true;
+		}
+		return more;
+	}
+
+	/**
+	 * @return the next row; this is the same object each time
+	 */
+	public RowView next() {
+		
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fetched = false;
+		return row;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+	public void close() {
+		SharedStringsReader.close(xsr);
+		xsr = null;
+		IOUtils.closeQuietly(is);
+		is = null;
+	}
+	
+	private boolean readRow(Iterator<Row> rows) {
+		
+		if (!rows.hasNext()) {
+			return false;
+		}
+		Row jaxbRow = rows.next();
+		row.clear();
+		row.rowNumber = (jaxbRow.getR()==null) ? lastRowNumber + 1 : jaxbRow.getR();
+		if (jaxbRow.isCustomFormat()) {
+			row.styleIndex = jaxbRow.getS();
+		}
+		row.height = jaxbRow.getHt();
+		row.hidden = jaxbRow.isHidden();
+		
+		int nextColumn = 0;
+		for (Cell c : jaxbRow.getC()) {
+			CellView cell = row.addCell();
+			cell.ref = c.getR();
+			cell.column = (cell.ref==null) ? nextColumn : CellRef.column(cell.ref);
+			cell.styleIndex = c.getS();
+			cell.type = c.getT();
+			cell.value = c.getV();
+			if (c.getF()!=null) {
+				cell.formula = (c.getF().getValue()==null) ? "" : c.getF().getValue();
+			}
+			if (c.getIs()!=null) {
+				cell.inlineString = SharedStringsReader.toString(c.getIs());
+			}
+			nextColumn = cell.column + 1;
+		}
+		return true;
+	}
+	
+	private boolean readRow() throws XMLStreamException {
+		
+		if (xsr==null) {
+			return false;
+		}
+		while (xsr.hasNext()) {
+			int event = xsr.next();
+			if (event==XMLStreamConstants.START_ELEMENT
+					&& "row".equals(xsr.getLocalName())) {
+				parseRow();
+				return true;
+			} else if (event==XMLStreamConstants.END_ELEMENT
+					&& "sheetData".equals(xsr.getLocalName())) {
+				// ignore the rest of the sheet
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private void parseRow() throws XMLStreamException {
+
+		row.clear();
+		String r = xsr.getAttributeValue(null, "r");
+		row.rowNumber = (r==null) ? lastRowNumber + 1 : Long.parseLong(r);
+		if (isTrue(xsr.getAttributeValue(null, "customFormat"))) {
+			String s = xsr.getAttributeValue(null, "s");
+			row.styleIndex = (s==null) ? 0L : Long.parseLong(s);
+		}
+		String ht = xsr.getAttributeValue(null, "ht");
+		if (ht!=null) {
+			row.height = Double.valueOf(ht);
+		}
+		row.hidden = isTrue(xsr.getAttributeValue(null, "hidden"));
+		
+		int nextColumn = 0;
+		while (true) {
+			int event = xsr.next();
+			if (event==XMLStreamConstants.START_ELEMENT) {
+				if ("c".equals(xsr.getLocalName())) {
+					CellView cell = row.addCell();
+					parseCell(cell, nextColumn);
+					nextColumn = cell.column + 1;
+				} else {
+					skip(); // eg extLst
+				}
+			} else if (event==XMLStreamConstants.END_ELEMENT) {
+				return; // end of row
+			}
+		}
+	}
+	
+	private void parseCell(CellView cell, int defaultColumn) throws XMLStreamException {
+		
+		cell.ref = xsr.getAttributeValue(null, "r");
+		cell.column = (cell.ref==null) ? defaultColumn : CellRef.column(cell.ref);
+		String s = xsr.getAttributeValue(null, "s");
+		if (s!=null) {
+			cell.styleIndex = Long.parseLong(s);
+		}
+		String t = xsr.getAttributeValue(null, "t");
+		if (t!=null) {
+			try {
+				cell.type = STCellType.fromValue(t);
+			} catch (IllegalArgumentException e) {
+				log.warn("Unexpected cell type " + t + " in " + cell.ref);
+			}
+		}
+		
+		while (true) {
+			int event = xsr.next();
+			if (event==XMLStreamConstants.START_ELEMENT) {
+				String name = xsr.getLocalName();
+				if ("v".equals(name)) {
+					cell.value = xsr.getElementText();
+				} else if ("f".equals(name)) {
+					cell.formula = xsr.getElementText();
+				} else if ("is".equals(name)) {
+					cell.inlineString = SharedStringsReader.readRichText(xsr);
+				} else {
+					skip();
+				}
+			} else if (event==XMLStreamConstants.END_ELEMENT) {
+				return; // end of c
+			}
+		}
+	}
+	
+	/**
+	 * Skip the element we're at the start of.
+	 */
+	private void skip() throws XMLStreamException {
+		int depth = 1;
+		while (depth>0) {
+			int event = xsr.next();
+			if (event==XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event==XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+	
+	private static boolean isTrue(String b) {
+		return "1".equals(b) || "true".equals(b);
+	}
+
+}
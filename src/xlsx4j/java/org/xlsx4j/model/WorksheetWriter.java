@@ -0,0 +1,622 @@
+package org.xlsx4j.model;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+
+import org.apache.commons.io.IOUtils;
+import org.docx4j.openpackaging.exceptions.Docx4JException;
+import org.docx4j.openpackaging.exceptions.InvalidFormatException;
+import org.docx4j.openpackaging.packages.SpreadsheetMLPackage;
+import org.docx4j.openpackaging.parts.SpreadsheetML.SharedStrings;
+import org.docx4j.openpackaging.parts.SpreadsheetML.Styles;
+import org.docx4j.openpackaging.parts.SpreadsheetML.WorkbookPart;
+import org.docx4j.openpackaging.parts.SpreadsheetML.WorksheetPart;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xlsx4j.jaxb.Context;
+import org.xlsx4j.sml.CTCellFormula;
+import org.xlsx4j.sml.CTRElt;
+import org.xlsx4j.sml.CTRst;
+import org.xlsx4j.sml.CTSheetDimension;
+import org.xlsx4j.sml.Cell;
+import org.xlsx4j.sml.Row;
+import org.xlsx4j.sml.STCellFormulaType;
+import org.xlsx4j.sml.STCellType;
+import org.xlsx4j.sml.Worksheet;
+
+/**
+ * Writes a worksheet's rows as they are created, rather than holding
+ * them all in the JAXB SheetData, so a very large sheet can be generated
+ * in a small, constant amount of memory:
+ *
+ * <pre>
+ * WorksheetPart sheet = pkg.createWorksheetPart(partName, "Sheet1", 1);
+ * WorksheetWriter writer = new WorksheetWriter(sheet);
+ * for (...) {
+ *     Row row = writer.createRow();
+ *     writer.addString(row, 0, name);
+ *     writer.addNumber(row, 1, amount);
+ * }
+ * writer.close();
+ * pkg.save(...);
+ * writer.dispose();
+ * </pre>
+ *
+ * The most recently created rows (windowSize of them) are kept, so you can go
+ * back and change them (via getRow); older rows are written out to a temporary
+ * file, and can't be changed.  When the package is saved, the sheet is
+ * written from that file straight into the worksheet part's zip entry
+ * (the rest of the worksheet, eg cols, mergeCells, is marshalled from
+ * the part's JAXB content as usual, and can be set at any time before saving).
+ *
+ * Strings added with addString are interned in the workbook's shared 
+ * string table (see SharedStrings.intern).  close() checks that the 
+ * style indexes used exist in the Styles part.
+ *
+ * Not thread safe.
+ *
+ * @since 3.2.2
+ */
+public class WorksheetWriter implements Closeable {
+
+	protected static Logger log = LoggerFactory.getLogger(WorksheetWriter.class);
+
+	public static final int DEFAULT_WINDOW_SIZE = 100;
+
+	private static final String SML_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+	private static final Pattern EMPTY_SHEET_DATA = Pattern.compile(
+			"<([A-Za-z_][\\w.-]*:)?sheetData\\s*(/>|>\\s*</([A-Za-z_][\\w.-]*:)?sheetData>)");
+
+	private WorksheetPart worksheetPart;
+	private int windowSize;
+
+	private TreeMap<Long, Row> window = new TreeMap<Long, Row>();
+	private long lastRowNumber = 0;
+	private long lastWrittenRowNumber = 0;
+
+	private File spoolFile;
+	private Writer spool;
+	private boolean closed = false;
+
+	private SharedStrings sharedStrings;
+
+	// for the dimension, and checking styles
+	private long rowCount = 0;
+	private long firstRowNumber = 0;
+	private int minColumn = Integer.MAX_VALUE;
+	private int maxColumn = -1;
+	private long maxStyleIndex = 0;
+
+	private Marshaller marshaller;
+
+	public WorksheetWriter(WorksheetPart worksheetPart) throws Docx4JException {
+		this(worksheetPart, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * @param worksheetPart a worksheet with no rows (eg as created by
+	 * SpreadsheetMLPackage.createWorksheetPart)
+	 * @param windowSize the number of rows to keep in memory
+	 * @throws Docx4JException
+	 */
+	public WorksheetWriter(WorksheetPart worksheetPart, int windowSize) throws Docx4JException {
+
+		this.worksheetPart = worksheetPart;
+		this.windowSize = Math.max(windowSize, 1);
+
+		Worksheet worksheet = worksheetPart.getContents();
+		if (worksheet==null) {
+			throw new Docx4JException(worksheetPart.getPartName() + " has no content");
+		}
+		if (worksheet.getSheetData()==null) {
+			worksheet.setSheetData(Context.getsmlObjectFactory().createSheetData());
+		} else if (!worksheet.getSheetData().getRow().isEmpty()) {
+			throw new Docx4JException(worksheetPart.getPartName() + " already has rows");
+		}
+
+		try {
+			// deleted by dispose()
+			spoolFile = File.createTempFile("docx4j-sheet", ".xml");
+			spool = new BufferedWriter(new OutputStreamWriter(
+					new BufferedOutputStream(new FileOutputStream(spoolFile)), "UTF-8"));
+		} catch (IOException e) {
+			if (spoolFile!=null) {
+				spoolFile.delete();
+			}
+			throw new Docx4JException("Couldn't create temp file", e);
+		}
+
+		worksheetPart.setWorksheetWriter(this);
+	}
+
+	/**
+	 * Create the row after the last one created.
+	 */
+	public Row createRow() throws Docx4JException {
+		return createRow(lastRowNumber + 1);
+	}
+
+	/**
+	 * Create the specified row.
+	 *
+	 * @param rowNumber one based; rows can be skipped, and created out of order
+	 * within the window, but not before a row which has already been written
+	 * @throws Docx4JException
+	 */
+	public Row createRow(long rowNumber) throws Docx4JException {
+
+		if (closed) {
+			throw new IllegalStateException("closed");
+		}
+		if (rowNumber <= lastWrittenRowNumber) {
+			throw new Docx4JException("Row " + rowNumber + " has already been written (up to "
+					+ lastWrittenRowNumber + "); increase the window size?");
+		}
+		if (window.containsKey(rowNumber)) {
+			throw new Docx4JException("Row " + rowNumber + " already exists");
+		}
+
+		Row row = Context.getsmlObjectFactory().createRow();
+		row.setR(rowNumber);
+		window.put(rowNumber, row);
+		lastRowNumber = Math.max(lastRowNumber, rowNumber);
+
+		while (window.size() > windowSize) {
+			writeRow(window.remove(window.firstKey()));
+		}
+		return row;
+	}
+
+	/**
+	 * @return the row, if it is still in the window, otherwise null
+	 */
+	public Row getRow(long rowNumber) {
+		return window.get(rowNumber);
+	}
+
+	/**
+	 * Add an empty cell.
+	 *
+	 * @param column zero based
+	 */
+	public Cell addCell(Row row, int column) {
+
+		Cell cell = Context.getsmlObjectFactory().createCell();
+		cell.setR(CellRef.toString(row.getR().intValue(), column));
+		row.getC().add(cell);
+		return cell;
+	}
+
+	/**
+	 * Add a cell containing a (shared) string.
+	 *
+	 * @param column zero based
+	 */
+	public Cell addString(Row row, int column, String value) throws Docx4JException {
+
+		Cell cell = addCell(row, column);
+		cell.setT(STCellType.S);
+		cell.setV(Integer.toString(getSharedStringIndex(value)));
+		return cell;
+	}
+
+	/**
+	 * Add a cell containing a number.
+	 *
+	 * @param column zero based
+	 * @throws IllegalArgumentException if value is NaN or infinite, 
+	 * which a cell can't hold
+	 */
+	public Cell addNumber(Row row, int column, double value) {
+
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("Can't write " + value + " to a cell; use an error or string cell");
+		}
+		Cell cell = addCell(row, column);
+		if (value==Math.rint(value)
+				&& Math.abs(value) < 1e15) {
+			cell.setV(Long.toString((long)value));
+		} else {
+			cell.setV(Double.toString(value));
+		}
+		return cell;
+	}
+
+	/**
+	 * @return the index of the string in the shared string table, adding it if necessary
+	 * @see SharedStrings#intern(String)
+	 */
+	public int getSharedStringIndex(String value) throws Docx4JException {
+
+		if (sharedStrings==null) {
+			initSharedStrings();
+		}
+		return sharedStrings.intern(value);
+	}
+
+	private void initSharedStrings() throws Docx4JException {
+
+		WorkbookPart workbookPart = ((SpreadsheetMLPackage)worksheetPart.getPackage()).getWorkbookPart();
+		sharedStrings = workbookPart.getSharedStrings();
+		if (sharedStrings==null) {
+			try {
+				sharedStrings = new SharedStrings();
+			} catch (InvalidFormatException e) {
+				throw new Docx4JException(e.getMessage(), e);
+			}
+			sharedStrings.setJaxbElement(Context.getsmlObjectFactory().createCTSst());
+			workbookPart.addTargetPart(sharedStrings);
+		}
+	}
+
+	/**
+	 * Write the remaining rows.
+	 * After this, no more rows can be created, but the package can be saved.
+	 */
+	public void close() throws IOException {
+
+		if (closed) return;
+
+		try {
+			while (!window.isEmpty()) {
+				writeRow(window.remove(window.firstKey()));
+			}
+		} catch (Docx4JException e) {
+			throw new IOException(e.getMessage());
+		} finally {
+			spool.close();
+			closed = true;
+		}
+
+		checkStyles();
+
+		if (rowCount>0
+				&& maxColumn>=0) {
+			Worksheet worksheet = worksheetPart.getJaxbElement();
+			if (worksheet.getDimension()==null) {
+				CTSheetDimension dimension = Context.getsmlObjectFactory().createCTSheetDimension();
+				dimension.setRef(CellRef.columnName(minColumn) + firstRowNumber
+						+ ":" + CellRef.columnName(maxColumn) + lastWrittenRowNumber);
+				worksheet.setDimension(dimension);
+			}
+		}
+		log.info("Wrote " + rowCount + " rows to " + spoolFile.getPath() + " (" + spoolFile.length() + " bytes)");
+	}
+
+	private void checkStyles() {
+
+		if (maxStyleIndex==0) return;
+
+		Styles styles = ((SpreadsheetMLPackage)worksheetPart.getPackage()).getWorkbookPart().getStylesPart();
+		long count = 0;
+		if (styles!=null
+				&& styles.getJaxbElement()!=null
+				&& styles.getJaxbElement().getCellXfs()!=null) {
+			count = styles.getJaxbElement().getCellXfs().getXf().size();
+		}
+		if (maxStyleIndex >= count) {
+			log.warn(worksheetPart.getPartName() + " uses style index " + maxStyleIndex
+					+ ", but there are only " + count + " cellXfs");
+		}
+	}
+
+	/**
+	 * Delete the temporary file.  Do this once you've saved the package
+	 * (for the last time); the sheet data is lost.
+	 */
+	public void dispose() {
+
+		if (!closed) {
+			try {
+				close();
+			} catch (IOException e) {
+				log.warn(e.getMessage());
+			}
+		}
+		worksheetPart.setWorksheetWriter(null);
+		if (!spoolFile.delete()) {
+			log.warn("Couldn't delete " + spoolFile.getPath());
+		}
+	}
+
+	/**
+	 * Used by WorksheetPart when it is saved.
+	 *
+	 * @param marshalledWorksheet the worksheet, marshalled with empty sheetData
+	 * @param os where to write the complete worksheet
+	 */
+	public void writeWorksheet(byte[] marshalledWorksheet, OutputStream os) throws IOException {
+
+		if (!closed) {
+			close();
+		}
+
+		String xml = new String(marshalledWorksheet, "UTF-8");
+		Matcher m = EMPTY_SHEET_DATA.matcher(xml);
+		if (!m.find()) {
+			throw new IOException("Couldn't find sheetData in " + worksheetPart.getPartName());
+		}
+		String prefix = (m.group(1)==null) ? "" : m.group(1);
+
+		Writer w = new OutputStreamWriter(os, "UTF-8");
+		w.write(xml, 0, m.start());
+		// the rows are in the default namespace
+		w.write("<" + prefix + "sheetData xmlns=\"" + SML_NS + "\">");
+		w.flush();
+
+		InputStream is = new FileInputStream(spoolFile);
+		try {
+			IOUtils.copy(is, os);
+		} finally {
+			is.close();
+		}
+
+		w.write("</" + prefix + "sheetData>");
+		w.write(xml, m.end(), xml.length() - m.end());
+		w.flush(); // but don't close os
+	}
+
+	private void writeRow(Row row) throws Docx4JException {
+
+		try {
+			if (row.getExtLst()!=null
+					|| !isSimple(row)) {
+				writeRowUsingJAXB(row);
+			} else {
+				writeSimpleRow(row);
+			}
+		} catch (IOException e) {
+			throw new Docx4JException("Couldn't write row " + row.getR(), e);
+		}
+
+		if (rowCount==0) {
+			firstRowNumber = row.getR();
+		}
+		rowCount++;
+		lastWrittenRowNumber = row.getR();
+		for (Cell cell : row.getC()) {
+			maxStyleIndex = Math.max(maxStyleIndex, cell.getS());
+			if (cell.getR()!=null) {
+				int column = CellRef.column(cell.getR());
+				minColumn = Math.min(minColumn, column);
+				maxColumn = Math.max(maxColumn, column);
+			}
+		}
+	}
+
+	private static boolean isSimple(Row row) {
+
+		for (Cell cell : row.getC()) {
+			if (cell.getExtLst()!=null
+					|| cell.getCm()!=0 || cell.getVm()!=0 || cell.isPh()) {
+				return false;
+			}
+			CTCellFormula f = cell.getF();
+			if (f!=null
+					&& (f.isAca() || f.isDt2D() || f.isDtr() || f.isDel1() || f.isDel2()
+							|| f.getR1()!=null || f.getR2()!=null || f.isCa() || f.isBx())) {
+				return false;
+			}
+			CTRst is = cell.getIs();
+			if (is!=null
+					&& (is.getT()==null || !is.getR().isEmpty()
+							|| !is.getRPh().isEmpty() || is.getPhoneticPr()!=null)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void writeSimpleRow(Row row) throws IOException {
+
+		Writer w = spool;
+		w.write("<row r=\"");
+		w.write(Long.toString(row.getR()));
+		w.write('"');
+		if (!row.getSpans().isEmpty()) {
+			StringBuilder spans = new StringBuilder();
+			for (String span : row.getSpans()) {
+				if (spans.length()>0) spans.append(' ');
+				spans.append(span);
+			}
+			attribute("spans", spans.toString());
+		}
+		if (row.getS()!=0) attribute("s", Long.toString(row.getS()));
+		if (row.isCustomFormat()) attribute("customFormat", "1");
+		if (row.getHt()!=null) attribute("ht", row.getHt().toString());
+		if (row.isHidden()) attribute("hidden", "1");
+		if (row.isCustomHeight()) attribute("customHeight", "1");
+		if (row.getOutlineLevel()!=0) attribute("outlineLevel", Short.toString(row.getOutlineLevel()));
+		if (row.isCollapsed()) attribute("collapsed", "1");
+		if (row.isThickTop()) attribute("thickTop", "1");
+		if (row.isThickBot()) attribute("thickBot", "1");
+		if (row.isPh()) attribute("ph", "1");
+
+		if (row.getC().isEmpty()) {
+			w.write("/>");
+			return;
+		}
+		w.write('>');
+
+		for (Cell cell : row.getC()) {
+
+			w.write("<c");
+			if (cell.getR()!=null) attribute("r", cell.getR());
+			if (cell.getS()!=0) attribute("s", Long.toString(cell.getS()));
+			if (cell.getT()!=STCellType.N) attribute("t", cell.getT().value());
+
+			CTCellFormula f = cell.getF();
+			if (f==null
+					&& cell.getV()==null
+					&& cell.getIs()==null) {
+				w.write("/>");
+				continue;
+			}
+			w.write('>');
+
+			if (f!=null) {
+				w.write("<f");
+				if (f.getT()!=STCellFormulaType.NORMAL) attribute("t", f.getT().value());
+				if (f.getRef()!=null) attribute("ref", f.getRef());
+				if (f.getSi()!=null) attribute("si", f.getSi().toString());
+				if (f.getValue()==null || f.getValue().length()==0) {
+					w.write("/>");
+				} else {
+					w.write('>');
+					text(f.getValue());
+					w.write("</f>");
+				}
+			}
+			if (cell.getV()!=null) {
+				w.write("<v>");
+				text(cell.getV());
+				w.write("</v>");
+			}
+			if (cell.getIs()!=null) {
+				String t = cell.getIs().getT().getValue();
+				w.write("<is><t");
+				if (t!=null && t.length()>0
+						&& (Character.isWhitespace(t.charAt(0)) || Character.isWhitespace(t.charAt(t.length()-1)))) {
+					w.write(" xml:space=\"preserve\"");
+				}
+				w.write('>');
+				if (t!=null) text(t);
+				w.write("</t></is>");
+			}
+			w.write("</c>");
+		}
+		w.write("</row>");
+	}
+
+	private void writeRowUsingJAXB(Row row) throws IOException {
+
+		// Encode the strings as writeSimpleRow does (in place, since
+		// the unencoded strings may not be valid XML), then put them back
+		List<String> originals = replaceStrings(row, null);
+		try {
+			if (marshaller==null) {
+				marshaller = Context.jcSML.createMarshaller();
+				marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+			}
+			StringWriter sw = new StringWriter();
+			marshaller.marshal(new JAXBElement<Row>(new QName(SML_NS, "row"), Row.class, row), sw);
+			spool.write(sw.toString());
+		} catch (JAXBException e) {
+			throw new IOException("Couldn't marshal row " + row.getR() + ": " + e.getMessage());
+		} finally {
+			replaceStrings(row, originals);
+		}
+	}
+
+	/**
+	 * Replace the values, formulas and inline strings of the row's cells:
+	 * with replacements (in the order returned), or if that is null, with 
+	 * their encoding (see XstringEncoding).
+	 * 
+	 * @return the strings replaced
+	 */
+	private static List<String> replaceStrings(Row row, List<String> replacements) {
+
+		List<String> replaced = new ArrayList<String>();
+		for (Cell cell : row.getC()) {
+			cell.setV(replace(cell.getV(), replaced, replacements));
+			if (cell.getF()!=null) {
+				cell.getF().setValue(replace(cell.getF().getValue(), replaced, replacements));
+			}
+			CTRst is = cell.getIs();
+			if (is!=null) {
+				if (is.getT()!=null) {
+					is.getT().setValue(replace(is.getT().getValue(), replaced, replacements));
+				}
+				for (CTRElt r : is.getR()) {
+					if (r.getT()!=null) {
+						r.getT().setValue(replace(r.getT().getValue(), replaced, replacements));
+					}
+				}
+			}
+		}
+		return replaced;
+	}
+
+	private static String replace(String s, List<String> replaced, List<String> replacements) {
+
+		String replacement;
+		if (replacements==null) {
+			replacement = (s==null) ? null : XstringEncoding.encode(s);
+		} else {
+			replacement = replacements.get(replaced.size());
+		}
+		replaced.add(s);
+		return replacement;
+	}
+
+	private void attribute(String name, String value) throws IOException {
+		spool.write(' ');
+		spool.write(name);
+		spool.write("=\"");
+		escape(value, true);
+		spool.write('"');
+	}
+
+	private void text(String value) throws IOException {
+		escape(value, false);
+	}
+
+	private void escape(String s, boolean attribute) throws IOException {
+		escape(spool, s, attribute);
+	}
+
+	/**
+	 * Write s as XML text or an attribute value (control characters as _xHHHH_,
+	 * and a literal _xHHHH_ as _x005F_xHHHH_).
+	 */
+	static void escape(Writer w, String s, boolean attribute) throws IOException {
+
+		int start = 0;
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			String replacement;
+			if (c=='<') {
+				replacement = "&lt;";
+			} else if (c=='>') {
+				replacement = "&gt;";
+			} else if (c=='&') {
+				replacement = "&amp;";
+			} else if (attribute && c=='"') {
+				replacement = "&quot;";
+			} else if (XstringEncoding.needsEncoding(s, i)) {
+				replacement = XstringEncoding.encode(c);
+			} else if (attribute && (c=='\t' || c=='\n' || c=='\r')) {
+				replacement = "&#" + (int)c + ";";
+			} else {
+				continue;
+			}
+			w.write(s, start, i - start);
+			w.write(replacement);
+			start = i + 1;
+		}
+		w.write(s, start, s.length() - start);
+	}
+
+}
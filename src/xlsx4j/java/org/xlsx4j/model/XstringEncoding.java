@@ -0,0 +1,70 @@
+package org.xlsx4j.model;
+
+/**
+ * Excel's encoding of characters in strings (ST_Xstring): control
+ * characters, which aren't allowed in XML 1.0, are written as _xHHHH_.
+ * So the underscore of a literal _xHHHH_ is written as _x005F_, so that
+ * it isn't read as one.
+ *
+ * Used for the shared string table and the XML WorksheetWriter
+ * writes by hand, so that they encode strings the same way.
+ *
+ * @since 3.2.2
+ */
+public final class XstringEncoding {
+
+	private XstringEncoding() {}
+
+	/**
+	 * @return s, encoded
+	 */
+	public static String encode(String s) {
+
+		StringBuilder sb = null;
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			if (needsEncoding(s, i)) {
+				if (sb==null) {
+					sb = new StringBuilder(s.length() + 8);
+					sb.append(s, 0, i);
+				}
+				sb.append(encode(c));
+			} else if (sb!=null) {
+				sb.append(c);
+			}
+		}
+		return (sb==null) ? s : sb.toString();
+	}
+
+	/**
+	 * @return c as _xHHHH_
+	 */
+	public static String encode(char c) {
+		return String.format("_x%04X_", (int)c);
+	}
+
+	/**
+	 * Is the character at i a control character, or the
+	 * underscore of something which looks like _xHHHH_?
+	 */
+	public static boolean needsEncoding(String s, int i) {
+
+		char c = s.charAt(i);
+		if (c<0x20) {
+			return c!='\t' && c!='\n' && c!='\r';
+		}
+		if (c!='_'
+				|| i+6 >= s.length()
+				|| s.charAt(i+1)!='x'
+				|| s.charAt(i+6)!='_') {
+			return false;
+		}
+		for (int j=i+2; j<i+6; j++) {
+			if (Character.digit(s.charAt(j), 16)<0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}